@@ -33,6 +33,7 @@ import com.linkedin.pinot.routing.CfgBasedRouting;
 import com.linkedin.pinot.routing.HelixExternalViewBasedRouting;
 import com.linkedin.pinot.routing.RoutingTable;
 import com.linkedin.pinot.routing.TimeBoundaryService;
+import com.linkedin.pinot.transport.common.ServerLatencyTracker;
 import com.linkedin.pinot.transport.conf.TransportClientConf;
 import com.linkedin.pinot.transport.conf.TransportClientConf.RoutingMode;
 import com.linkedin.pinot.transport.config.ConnectionPoolConfig;
@@ -72,6 +73,8 @@ public class BrokerServerBuilder {
   private KeyedPool<ServerInstance, NettyClientConnection> _connPool;
   private ScheduledThreadPoolExecutor _poolTimeoutExecutor;
   private ExecutorService _requestSenderPool;
+  // Schedules the speculative requests, kept apart from the pool timeouts so that they don't delay each other
+  private ScheduledThreadPoolExecutor _speculativeRequestScheduler;
 
   // Netty Specific
   private EventLoopGroup _eventLoopGroup;
@@ -83,6 +86,8 @@ public class BrokerServerBuilder {
 
   private ScatterGather _scatterGather;
 
+  private ServerLatencyTracker _serverLatencyTracker;
+
   private MetricsRegistry _registry;
   private BrokerMetrics _brokerMetrics;
 
@@ -161,15 +166,30 @@ public class BrokerServerBuilder {
       // Helix based routing is already initialized.
     }
 
+    // Setup the server latency tracker used for adaptive routing and speculative requests
+    _serverLatencyTracker = new ServerLatencyTracker(_registry);
+    if (_routingTable instanceof HelixExternalViewBasedRouting) {
+      ((HelixExternalViewBasedRouting) _routingTable).setServerLatencyTracker(_serverLatencyTracker);
+    }
+
     // Setup ScatterGather
-    _scatterGather = new ScatterGatherImpl(_connPool, _requestSenderPool);
+    // Most speculative requests are cancelled once the server responds, so drop them from the queue right away
+    _speculativeRequestScheduler = new ScheduledThreadPoolExecutor(1);
+    _speculativeRequestScheduler.setRemoveOnCancelPolicy(true);
+    _scatterGather =
+        new ScatterGatherImpl(_connPool, _requestSenderPool, _serverLatencyTracker, _speculativeRequestScheduler);
 
     // Setup Broker Request Handler
 
 
     ReduceServiceRegistry reduceServiceRegistry = buildReduceServiceRegistry();
     _requestHandler = new BrokerRequestHandler(_routingTable, _timeBoundaryService, _scatterGather,
-        reduceServiceRegistry, _brokerMetrics, _config);
+        reduceServiceRegistry, _brokerMetrics, _config, _serverLatencyTracker);
+
+    // Invalidate the cached results of a table whenever its routing table changes.
+    if (_requestHandler.getResultCache() != null && _routingTable instanceof HelixExternalViewBasedRouting) {
+      ((HelixExternalViewBasedRouting) _routingTable).addRoutingTableChangeListener(_requestHandler.getResultCache());
+    }
 
     LOGGER.info("Network initialized !!");
   }
@@ -245,6 +265,7 @@ public class BrokerServerBuilder {
     _eventLoopGroup.shutdownGracefully();
     _routingTable.shutdown();
     _poolTimeoutExecutor.shutdown();
+    _speculativeRequestScheduler.shutdown();
     _requestSenderPool.shutdown();
     _state.set(State.SHUTDOWN);
     LOGGER.info("Network shutdown!!");
@@ -21,6 +21,7 @@ import com.linkedin.pinot.common.exception.QueryException;
 import com.linkedin.pinot.common.metrics.BrokerMeter;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
 import com.linkedin.pinot.common.metrics.BrokerQueryPhase;
+import com.linkedin.pinot.common.query.DataTableReducer;
 import com.linkedin.pinot.common.query.ReduceService;
 import com.linkedin.pinot.common.query.ReduceServiceRegistry;
 import com.linkedin.pinot.common.request.BrokerRequest;
@@ -47,12 +48,14 @@ import com.linkedin.pinot.transport.common.ReplicaSelection;
 import com.linkedin.pinot.transport.common.ReplicaSelectionGranularity;
 import com.linkedin.pinot.transport.common.RoundRobinReplicaSelection;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.common.ServerLatencyTracker;
 import com.linkedin.pinot.transport.scattergather.ScatterGather;
 import com.linkedin.pinot.transport.scattergather.ScatterGatherRequest;
 import com.linkedin.pinot.transport.scattergather.ScatterGatherStats;
 import io.netty.buffer.ByteBuf;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
@@ -87,6 +90,20 @@ public class BrokerRequestHandler {
   private static final String DEFAULT_BROKER_ID;
   public static final String BROKER_ID_CONFIG_KEY = "pinot.broker.id";
   private static final ResponseType DEFAULT_BROKER_RESPONSE_TYPE = ResponseType.BROKER_RESPONSE_TYPE_NATIVE;
+  // Result cache is disabled by default.
+  private static final long DEFAULT_BROKER_RESULT_CACHE_MAX_SIZE_IN_BYTES = 0L;
+  private static final String BROKER_RESULT_CACHE_MAX_SIZE_IN_BYTES_CONFIG = "pinot.broker.resultCache.maxSizeInBytes";
+  private static final long DEFAULT_BROKER_RESULT_CACHE_EXPIRE_AFTER_WRITE_MS = 5 * 60 * 1000L;
+  private static final String BROKER_RESULT_CACHE_EXPIRE_AFTER_WRITE_MS_CONFIG =
+      "pinot.broker.resultCache.expireAfterWriteMs";
+  // Speculative requests are disabled by default.
+  private static final String BROKER_SPECULATIVE_REQUEST_ENABLED_CONFIG = "pinot.broker.speculativeRequest.enabled";
+  private static final double DEFAULT_BROKER_SPECULATIVE_REQUEST_LATENCY_PERCENTILE = 95.0;
+  private static final String BROKER_SPECULATIVE_REQUEST_LATENCY_PERCENTILE_CONFIG =
+      "pinot.broker.speculativeRequest.latencyPercentile";
+  private static final long DEFAULT_BROKER_SPECULATIVE_REQUEST_MIN_DELAY_MS = 10L;
+  private static final String BROKER_SPECULATIVE_REQUEST_MIN_DELAY_MS_CONFIG =
+      "pinot.broker.speculativeRequest.minDelayMs";
 
   static {
     String defaultBrokerId = "";
@@ -108,12 +125,17 @@ public class BrokerRequestHandler {
   private final int _queryResponseLimit;
   private final AtomicLong _requestIdGenerator;
   private final String _brokerId;
+  private final BrokerResultCache _resultCache;
+  // Null if speculative requests are disabled.
+  private final ServerLatencyTracker _serverLatencyTracker;
+  private final double _speculativeRequestLatencyPercentile;
+  private final long _speculativeRequestMinDelayMs;
   // TODO: Currently only using RoundRobin selection. But, this can be allowed to be configured.
   private RoundRobinReplicaSelection _replicaSelection;
 
   public BrokerRequestHandler(RoutingTable table, TimeBoundaryService timeBoundaryService,
       ScatterGather scatterGatherer, ReduceServiceRegistry reduceServiceRegistry, BrokerMetrics brokerMetrics,
-      Configuration config) {
+      Configuration config, @Nullable ServerLatencyTracker serverLatencyTracker) {
     _routingTable = table;
     _timeBoundaryService = timeBoundaryService;
     _reduceServiceRegistry = reduceServiceRegistry;
@@ -125,9 +147,37 @@ public class BrokerRequestHandler {
     _queryResponseLimit = config.getInt(BROKER_QUERY_RESPONSE_LIMIT_CONFIG, DEFAULT_BROKER_QUERY_RESPONSE_LIMIT);
     _brokerTimeOutMs = config.getLong(BROKER_TIME_OUT_CONFIG, DEFAULT_BROKER_TIME_OUT_MS);
     _brokerId = config.getString(BROKER_ID_CONFIG_KEY, DEFAULT_BROKER_ID);
+    long resultCacheMaxSizeInBytes =
+        config.getLong(BROKER_RESULT_CACHE_MAX_SIZE_IN_BYTES_CONFIG, DEFAULT_BROKER_RESULT_CACHE_MAX_SIZE_IN_BYTES);
+    if (resultCacheMaxSizeInBytes > 0) {
+      _resultCache = new BrokerResultCache(resultCacheMaxSizeInBytes,
+          config.getLong(BROKER_RESULT_CACHE_EXPIRE_AFTER_WRITE_MS_CONFIG,
+              DEFAULT_BROKER_RESULT_CACHE_EXPIRE_AFTER_WRITE_MS));
+    } else {
+      _resultCache = null;
+    }
+    if (config.getBoolean(BROKER_SPECULATIVE_REQUEST_ENABLED_CONFIG, false) && serverLatencyTracker != null) {
+      _serverLatencyTracker = serverLatencyTracker;
+    } else {
+      _serverLatencyTracker = null;
+    }
+    _speculativeRequestLatencyPercentile = config.getDouble(BROKER_SPECULATIVE_REQUEST_LATENCY_PERCENTILE_CONFIG,
+        DEFAULT_BROKER_SPECULATIVE_REQUEST_LATENCY_PERCENTILE);
+    _speculativeRequestMinDelayMs =
+        config.getLong(BROKER_SPECULATIVE_REQUEST_MIN_DELAY_MS_CONFIG, DEFAULT_BROKER_SPECULATIVE_REQUEST_MIN_DELAY_MS);
     LOGGER.info("Broker response limit is: " + _queryResponseLimit);
     LOGGER.info("Broker timeout is - " + _brokerTimeOutMs + " ms");
     LOGGER.info("Broker id: " + _brokerId);
+    LOGGER.info("Speculative requests enabled: {}, latency percentile: {}, min delay: {} ms",
+        _serverLatencyTracker != null, _speculativeRequestLatencyPercentile, _speculativeRequestMinDelayMs);
+  }
+
+  /**
+   * Returns the result cache for the OFFLINE server responses, or null if the result cache is disabled.
+   */
+  @Nullable
+  public BrokerResultCache getResultCache() {
+    return _resultCache;
   }
 
   /**
@@ -249,6 +299,8 @@ public class BrokerRequestHandler {
    *   <li>4. Deserialize the server responses.</li>
    *   <li>5. Reduce (merge) the server responses and create a broker response to be returned.</li>
    * </ul>
+   * <p>If the result cache is enabled, the OFFLINE server responses are served from the cache when possible, so that
+   * only the REALTIME table (if any) is queried.
    *
    * @param brokerRequest broker request to be processed.
    * @param scatterGatherStats scatter-gather statistics.
@@ -431,12 +483,27 @@ public class BrokerRequestHandler {
     ResponseType serverResponseType = BrokerResponseFactory.getResponseType(originalBrokerRequest.getResponseFormat());
     PhaseTimes phaseTimes = new PhaseTimes();
 
-    // Step 1: find the candidate servers to be queried for each set of segments from the routing table.
-    // Step 2: select servers for each segment set and scatter request to the servers.
+    // Look up the cached OFFLINE server responses, only query the OFFLINE table on cache miss.
     String offlineTableName = null;
-    CompositeFuture<ServerInstance, ByteBuf> offlineCompositeFuture = null;
+    BrokerResultCache.Key offlineCacheKey = null;
+    long offlineCacheGeneration = 0L;
+    Map<ServerInstance, byte[]> cachedOfflineResponseMap = null;
     if (offlineBrokerRequest != null) {
       offlineTableName = offlineBrokerRequest.getQuerySource().getTableName();
+      if (_resultCache != null && BrokerResultCache.isCacheable(offlineBrokerRequest)) {
+        offlineCacheKey = BrokerResultCache.getKey(offlineBrokerRequest);
+        offlineCacheGeneration = _resultCache.getTableGeneration(offlineTableName);
+        cachedOfflineResponseMap = _resultCache.get(offlineCacheKey);
+        if (cachedOfflineResponseMap != null) {
+          _brokerMetrics.addMeteredTableValue(originalTableName, BrokerMeter.RESULT_CACHE_HITS, 1);
+        }
+      }
+    }
+
+    // Step 1: find the candidate servers to be queried for each set of segments from the routing table.
+    // Step 2: select servers for each segment set and scatter request to the servers.
+    CompositeFuture<ServerInstance, ByteBuf> offlineCompositeFuture = null;
+    if (offlineBrokerRequest != null && cachedOfflineResponseMap == null) {
       offlineCompositeFuture =
           routeAndScatterBrokerRequest(offlineBrokerRequest, phaseTimes, scatterGatherStats, true, bucketingSelection,
               requestId);
@@ -449,54 +516,47 @@ public class BrokerRequestHandler {
           routeAndScatterBrokerRequest(realtimeBrokerRequest, phaseTimes, scatterGatherStats, false, bucketingSelection,
               requestId);
     }
-    if ((offlineCompositeFuture == null) && (realtimeCompositeFuture == null)) {
+    if ((cachedOfflineResponseMap == null) && (offlineCompositeFuture == null) && (realtimeCompositeFuture == null)) {
       // No server found in either OFFLINE or REALTIME table.
       return BrokerResponseFactory.getStaticEmptyBrokerResponse(serverResponseType);
     }
 
-    // Step 3: gather response from the servers.
+    // Step 3: gather, deserialize and reduce (merge) the server responses as they arrive.
     int numServersQueried = 0;
-    long gatherStartTime = System.nanoTime();
+    int numServersResponded = 0;
     List<ProcessingException> processingExceptions = new ArrayList<>();
-    Map<ServerInstance, ByteBuf> offlineServerResponseMap = null;
-    Map<ServerInstance, ByteBuf> realtimeServerResponseMap = null;
-    if (offlineCompositeFuture != null) {
+    DataTableReducer reducer = reduceService.createReducer(originalBrokerRequest, _brokerMetrics);
+    if (cachedOfflineResponseMap != null) {
+      for (Entry<ServerInstance, byte[]> entry : cachedOfflineResponseMap.entrySet()) {
+        deserializeAndReduceServerResponse(entry.getKey(), ByteBuffer.wrap(entry.getValue()), true, offlineTableName,
+            reducer, phaseTimes, processingExceptions);
+      }
+    } else if (offlineCompositeFuture != null) {
       numServersQueried += offlineCompositeFuture.getNumFutures();
-      offlineServerResponseMap =
-          gatherServerResponses(offlineCompositeFuture, scatterGatherStats, true, offlineTableName,
-              processingExceptions);
+      // Copy the responses into byte arrays so that they can be cached.
+      Map<ServerInstance, byte[]> offlineResponseMap =
+          (offlineCacheKey != null) ? new HashMap<ServerInstance, byte[]>() : null;
+      int numProcessingExceptions = processingExceptions.size();
+      numServersResponded +=
+          gatherAndReduceServerResponses(offlineCompositeFuture, scatterGatherStats, true, offlineTableName, reducer,
+              offlineResponseMap, phaseTimes, processingExceptions);
+
+      // Only cache the OFFLINE responses when all servers responded without processing exceptions.
+      if (offlineResponseMap != null && processingExceptions.size() == numProcessingExceptions
+          && offlineResponseMap.size() == offlineCompositeFuture.getNumFutures()) {
+        _resultCache.put(offlineCacheKey, offlineCacheGeneration, offlineResponseMap);
+      }
     }
     if (realtimeCompositeFuture != null) {
       numServersQueried += realtimeCompositeFuture.getNumFutures();
-      realtimeServerResponseMap =
-          gatherServerResponses(realtimeCompositeFuture, scatterGatherStats, false, realtimeTableName,
-              processingExceptions);
-    }
-    phaseTimes.addToGatherTime(System.nanoTime() - gatherStartTime);
-    if ((offlineServerResponseMap == null) && (realtimeServerResponseMap == null)) {
-      // No response gathered.
-      return BrokerResponseFactory.getBrokerResponseWithExceptions(serverResponseType, processingExceptions);
+      numServersResponded +=
+          gatherAndReduceServerResponses(realtimeCompositeFuture, scatterGatherStats, false, realtimeTableName,
+              reducer, null, phaseTimes, processingExceptions);
     }
 
-    //Step 4: deserialize the server responses.
-    int numServersResponded = 0;
-    long deserializationStartTime = System.nanoTime();
-    Map<ServerInstance, DataTable> dataTableMap = new HashMap<>();
-    if (offlineServerResponseMap != null) {
-      numServersResponded += offlineServerResponseMap.size();
-      deserializeServerResponses(offlineServerResponseMap, true, dataTableMap, offlineTableName, processingExceptions);
-    }
-    if (realtimeServerResponseMap != null) {
-      numServersResponded += realtimeServerResponseMap.size();
-      deserializeServerResponses(realtimeServerResponseMap, false, dataTableMap, realtimeTableName,
-          processingExceptions);
-    }
-    phaseTimes.addToDeserializationTime(System.nanoTime() - deserializationStartTime);
-
-    // Step 5: reduce (merge) the server responses and create a broker response to be returned.
+    // Step 4: create a broker response from the reduced server responses.
     long reduceStartTime = System.nanoTime();
-    BrokerResponse brokerResponse =
-        reduceService.reduceOnDataTable(originalBrokerRequest, dataTableMap, _brokerMetrics);
+    BrokerResponse brokerResponse = reducer.getBrokerResponse();
     phaseTimes.addToReduceTime(System.nanoTime() - reduceStartTime);
 
     // Set processing exceptions and number of servers queried/responded.
@@ -531,21 +591,32 @@ public class BrokerRequestHandler {
     // Step 1: find the candidate servers to be queried for each set of segments from the routing table.
     // TODO: add checks for whether all segments are covered.
     long routingStartTime = System.nanoTime();
+    String tableName = brokerRequest.getQuerySource().getTableName();
     Map<ServerInstance, SegmentIdSet> segmentServices = findCandidateServers(brokerRequest);
-    phaseTimes.addToRoutingTime(System.nanoTime() - routingStartTime);
     if (segmentServices == null || segmentServices.isEmpty()) {
-      String tableName = brokerRequest.getQuerySource().getTableName();
+      phaseTimes.addToRoutingTime(System.nanoTime() - routingStartTime);
       LOGGER.warn("No server found for table: {}", tableName);
       _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.NO_SERVER_FOUND_EXCEPTIONS, 1);
       return null;
     }
 
+    // Pick the servers for the speculative requests, which are sent if the responses do not arrive within the
+    // configured percentile of the server latency.
+    Map<ServerInstance, ServerInstance> speculativeServers = Collections.emptyMap();
+    long speculativeRequestDelayMs = 0L;
+    if (_serverLatencyTracker != null) {
+      speculativeServers = _routingTable.findSpeculativeServers(tableName, segmentServices);
+      speculativeRequestDelayMs = Math.max(_speculativeRequestMinDelayMs,
+          (long) _serverLatencyTracker.getLatencyPercentileMs(_speculativeRequestLatencyPercentile));
+    }
+    phaseTimes.addToRoutingTime(System.nanoTime() - routingStartTime);
+
     // Step 2: select servers for each segment set and scatter request to the servers.
     long scatterStartTime = System.nanoTime();
     ScatterGatherRequestImpl scatterRequest =
         new ScatterGatherRequestImpl(brokerRequest, segmentServices, _replicaSelection,
-            ReplicaSelectionGranularity.SEGMENT_ID_SET, brokerRequest.getBucketHashKey(), 0, bucketingSelection,
-            requestId, _brokerTimeOutMs, _brokerId);
+            ReplicaSelectionGranularity.SEGMENT_ID_SET, brokerRequest.getBucketHashKey(), speculativeServers,
+            speculativeRequestDelayMs, bucketingSelection, requestId, _brokerTimeOutMs, _brokerId);
     CompositeFuture<ServerInstance, ByteBuf> compositeFuture =
         _scatterGatherer.scatterGather(scatterRequest, scatterGatherStats, isOfflineTable, _brokerMetrics);
     phaseTimes.addToScatterTime(System.nanoTime() - scatterStartTime);
@@ -569,69 +640,136 @@ public class BrokerRequestHandler {
       routingOptions =
           Splitter.on(",").omitEmptyStrings().trimResults().splitToList(debugOptions.get("routingOptions"));
     }
-    RoutingTableLookupRequest routingTableLookupRequest = new RoutingTableLookupRequest(tableName, routingOptions);
+    RoutingTableLookupRequest routingTableLookupRequest =
+        new RoutingTableLookupRequest(tableName, routingOptions, brokerRequest);
     return _routingTable.findServers(routingTableLookupRequest);
   }
 
   /**
-   * Gather responses from servers, append processing exceptions to the processing exception list passed in.
+   * Gather responses from servers, deserialize and reduce each response as soon as it arrives, so that the broker does
+   * not hold all the responses at the same time. Append processing exceptions to the processing exception list passed
+   * in.
    *
    * @param compositeFuture composite future returned from scatter phase.
    * @param scatterGatherStats scatter-gather statistics.
    * @param isOfflineTable whether the scatter-gather target is an OFFLINE table.
    * @param tableName table name.
+   * @param reducer data table reducer.
+   * @param responseMap if not null, map to put the serialized responses into; cleared if any response contains
+   *                    processing exceptions.
+   * @param phaseTimes phase times.
    * @param processingExceptions list of processing exceptions.
-   * @return server response map.
+   * @return number of servers responded.
    */
-  @Nullable
-  private Map<ServerInstance, ByteBuf> gatherServerResponses(
-      @Nonnull CompositeFuture<ServerInstance, ByteBuf> compositeFuture, @Nonnull ScatterGatherStats scatterGatherStats,
-      boolean isOfflineTable, @Nonnull String tableName, @Nonnull List<ProcessingException> processingExceptions) {
+  private int gatherAndReduceServerResponses(@Nonnull CompositeFuture<ServerInstance, ByteBuf> compositeFuture,
+      @Nonnull ScatterGatherStats scatterGatherStats, boolean isOfflineTable, @Nonnull String tableName,
+      @Nonnull DataTableReducer reducer, @Nullable Map<ServerInstance, byte[]> responseMap,
+      @Nonnull PhaseTimes phaseTimes, @Nonnull List<ProcessingException> processingExceptions) {
+    int numServersResponded = 0;
+    boolean hasProcessingExceptions = false;
+    long gatherStartTime = System.nanoTime();
+    long processingTime = 0L;
     try {
-      Map<ServerInstance, ByteBuf> serverResponseMap = compositeFuture.get();
-      Map<String, Long> responseTimes = compositeFuture.getResponseTimes();
-      scatterGatherStats.setResponseTimeMillis(responseTimes, isOfflineTable);
-      return serverResponseMap;
+      Entry<ServerInstance, ByteBuf> response;
+      while ((response = compositeFuture.takeResponse()) != null) {
+        long processingStartTime = System.nanoTime();
+        numServersResponded++;
+        ServerInstance serverInstance = response.getKey();
+        ByteBuf byteBuf = response.getValue();
+        ByteBuffer byteBuffer;
+        if (responseMap != null) {
+          byte[] bytes = new byte[byteBuf.readableBytes()];
+          byteBuf.readBytes(bytes);
+          byteBuffer = ByteBuffer.wrap(bytes);
+        } else {
+          // Read the response in place without copying.
+          byteBuffer = byteBuf.nioBuffer();
+        }
+        DataTable dataTable =
+            deserializeAndReduceServerResponse(serverInstance, byteBuffer, isOfflineTable, tableName, reducer,
+                phaseTimes, processingExceptions);
+        if (responseMap != null && dataTable != null) {
+          hasProcessingExceptions |= hasProcessingExceptions(dataTable);
+          responseMap.put(serverInstance, byteBuffer.array());
+        }
+        processingTime += System.nanoTime() - processingStartTime;
+      }
+      scatterGatherStats.setResponseTimeMillis(compositeFuture.getResponseTimes(), isOfflineTable);
     } catch (Exception e) {
       LOGGER.error("Caught exception while fetching responses for table: {}", tableName, e);
       _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.RESPONSE_FETCH_EXCEPTIONS, 1);
       processingExceptions.add(QueryException.getException(QueryException.BROKER_GATHER_ERROR, e));
-      return null;
     }
+    phaseTimes.addToGatherTime(System.nanoTime() - gatherStartTime - processingTime);
+    if (responseMap != null && hasProcessingExceptions) {
+      responseMap.clear();
+    }
+    return numServersResponded;
   }
 
   /**
-   * Deserialize the server responses, put the de-serialized data table into the data table map passed in, append
-   * processing exceptions to the processing exception list passed in.
+   * Returns whether the data table contains processing exceptions.
+   */
+  private static boolean hasProcessingExceptions(@Nonnull DataTable dataTable) {
+    for (String key : dataTable.getMetadata().keySet()) {
+      if (key.startsWith(DataTable.EXCEPTION_METADATA_KEY)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Deserialize one server response and reduce the de-serialized data table into the reducer, append processing
+   * exceptions to the processing exception list passed in.
    * <p>For hybrid use case, multiple responses might be from the same instance. Use response sequence to distinguish
    * them.
    *
-   * @param responseMap map from server to response.
-   * @param isOfflineTable whether the responses are from an OFFLINE table.
-   * @param dataTableMap map from server to data table.
+   * @param serverInstance server instance.
+   * @param byteBuffer serialized response.
+   * @param isOfflineTable whether the response is from an OFFLINE table.
    * @param tableName table name.
+   * @param reducer data table reducer.
+   * @param phaseTimes phase times.
    * @param processingExceptions list of processing exceptions.
+   * @return de-serialized data table, or null if the response cannot be de-serialized or reduced.
    */
-  private void deserializeServerResponses(@Nonnull Map<ServerInstance, ByteBuf> responseMap, boolean isOfflineTable,
-      @Nonnull Map<ServerInstance, DataTable> dataTableMap, @Nonnull String tableName,
+  @Nullable
+  private DataTable deserializeAndReduceServerResponse(@Nonnull ServerInstance serverInstance,
+      @Nonnull ByteBuffer byteBuffer, boolean isOfflineTable, @Nonnull String tableName,
+      @Nonnull DataTableReducer reducer, @Nonnull PhaseTimes phaseTimes,
       @Nonnull List<ProcessingException> processingExceptions) {
-    for (Entry<ServerInstance, ByteBuf> entry : responseMap.entrySet()) {
-      ServerInstance serverInstance = entry.getKey();
-      if (!isOfflineTable) {
-        serverInstance = new ServerInstance(serverInstance.getHostname(), serverInstance.getPort(), 1);
-      }
-      ByteBuf byteBuf = entry.getValue();
-      try {
-        byte[] byteArray = new byte[byteBuf.readableBytes()];
-        byteBuf.readBytes(byteArray);
-        dataTableMap.put(serverInstance, DataTableFactory.getDataTable(byteArray));
-      } catch (Exception e) {
-        LOGGER.error("Caught exceptions while deserializing response for table: {} from server: {}", tableName,
-            serverInstance, e);
-        _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.DATA_TABLE_DESERIALIZATION_EXCEPTIONS, 1);
-        processingExceptions.add(QueryException.getException(QueryException.DATA_TABLE_DESERIALIZATION_ERROR, e));
-      }
+    if (!isOfflineTable) {
+      serverInstance = new ServerInstance(serverInstance.getHostname(), serverInstance.getPort(), 1);
     }
+    long deserializationStartTime = System.nanoTime();
+    DataTable dataTable;
+    try {
+      dataTable = DataTableFactory.getDataTable(byteBuffer);
+    } catch (Exception e) {
+      LOGGER.error("Caught exceptions while deserializing response for table: {} from server: {}", tableName,
+          serverInstance, e);
+      _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.DATA_TABLE_DESERIALIZATION_EXCEPTIONS, 1);
+      processingExceptions.add(QueryException.getException(QueryException.DATA_TABLE_DESERIALIZATION_ERROR, e));
+      return null;
+    } finally {
+      phaseTimes.addToDeserializationTime(System.nanoTime() - deserializationStartTime);
+    }
+
+    // A response that cannot be reduced only fails itself, the responses from the other servers are still reduced.
+    long reduceStartTime = System.nanoTime();
+    try {
+      reducer.reduce(serverInstance, dataTable);
+    } catch (Exception e) {
+      LOGGER.error("Caught exceptions while reducing response for table: {} from server: {}", tableName,
+          serverInstance, e);
+      _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.RESPONSE_MERGE_EXCEPTIONS, 1);
+      processingExceptions.add(QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
+      return null;
+    } finally {
+      phaseTimes.addToReduceTime(System.nanoTime() - reduceStartTime);
+    }
+    return dataTable;
   }
 
   /**
@@ -678,7 +816,8 @@ public class BrokerRequestHandler {
     private final ReplicaSelection _replicaSelection;
     private final ReplicaSelectionGranularity _replicaSelectionGranularity;
     private final Object _hashKey;
-    private final int _numSpeculativeRequests;
+    private final Map<ServerInstance, ServerInstance> _speculativeServers;
+    private final long _speculativeRequestDelayMs;
     private final BucketingSelection _bucketingSelection;
     private final long _requestId;
     private final long _requestTimeoutMs;
@@ -686,14 +825,15 @@ public class BrokerRequestHandler {
 
     public ScatterGatherRequestImpl(BrokerRequest request, Map<ServerInstance, SegmentIdSet> segmentServices,
         ReplicaSelection replicaSelection, ReplicaSelectionGranularity replicaSelectionGranularity, Object hashKey,
-        int numSpeculativeRequests, BucketingSelection bucketingSelection, long requestId, long requestTimeoutMs,
-        String brokerId) {
+        Map<ServerInstance, ServerInstance> speculativeServers, long speculativeRequestDelayMs,
+        BucketingSelection bucketingSelection, long requestId, long requestTimeoutMs, String brokerId) {
       _brokerRequest = request;
       _segmentServices = segmentServices;
       _replicaSelection = replicaSelection;
       _replicaSelectionGranularity = replicaSelectionGranularity;
       _hashKey = hashKey;
-      _numSpeculativeRequests = numSpeculativeRequests;
+      _speculativeServers = speculativeServers;
+      _speculativeRequestDelayMs = speculativeRequestDelayMs;
       _bucketingSelection = bucketingSelection;
       _requestId = requestId;
       _requestTimeoutMs = requestTimeoutMs;
@@ -735,7 +875,17 @@ public class BrokerRequestHandler {
 
     @Override
     public int getNumSpeculativeRequests() {
-      return _numSpeculativeRequests;
+      return _speculativeServers.isEmpty() ? 0 : 1;
+    }
+
+    @Override
+    public Map<ServerInstance, ServerInstance> getSpeculativeServers() {
+      return _speculativeServers;
+    }
+
+    @Override
+    public long getSpeculativeRequestDelayMs() {
+      return _speculativeRequestDelayMs;
     }
 
     @Override
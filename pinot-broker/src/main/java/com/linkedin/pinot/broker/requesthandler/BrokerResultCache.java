@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.routing.RoutingTableChangeListener;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>BrokerResultCache</code> class caches the serialized server responses of queries on OFFLINE tables, so
+ * that repeated queries over purely offline data do not need to be scattered to the servers again.
+ *
+ * <ul>
+ *   <li>The cache is keyed by the OFFLINE table name and the optimized OFFLINE broker request. For hybrid tables, the
+ *   optimized OFFLINE broker request contains the time boundary filter, so moving the time boundary never hits stale
+ *   responses.</li>
+ *   <li>Responses from REALTIME tables are never cached, as consuming segments keep changing.</li>
+ *   <li>All the cached responses of a table are invalidated when its routing table is rebuilt or removed (external
+ *   view or instance config change). Segment refreshes do not change the external view, so the cached responses also
+ *   expire after a configurable time.</li>
+ *   <li>Each table has a generation bumped on invalidation. Responses are only cached if the generation did not change
+ *   since the cache lookup, so that queries in flight during an invalidation do not cache stale responses.</li>
+ *   <li>The cache is bounded by the total size of the serialized responses.</li>
+ * </ul>
+ */
+public class BrokerResultCache implements RoutingTableChangeListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BrokerResultCache.class);
+
+  private final Cache<Key, Map<ServerInstance, byte[]>> _cache;
+  private final ConcurrentHashMap<String, AtomicLong> _tableGenerations = new ConcurrentHashMap<>();
+
+  public BrokerResultCache(long maxSizeInBytes, long expireAfterWriteMs) {
+    _cache = CacheBuilder.newBuilder()
+        .maximumWeight(maxSizeInBytes)
+        .weigher(new Weigher<Key, Map<ServerInstance, byte[]>>() {
+          @Override
+          public int weigh(@Nonnull Key key, @Nonnull Map<ServerInstance, byte[]> value) {
+            // Strings are stored as UTF-16 chars.
+            int weight = 2 * key._query.length();
+            for (byte[] bytes : value.values()) {
+              weight += bytes.length;
+            }
+            return weight;
+          }
+        })
+        .expireAfterWrite(expireAfterWriteMs, TimeUnit.MILLISECONDS)
+        .recordStats()
+        .build();
+    LOGGER.info("Initialized broker result cache with max size: {} bytes, expire after write: {} ms", maxSizeInBytes,
+        expireAfterWriteMs);
+  }
+
+  /**
+   * Returns whether the server responses of the given OFFLINE broker request can be cached.
+   * <p>Responses of requests with trace enabled contain the trace info, so they are not cached.
+   */
+  public static boolean isCacheable(@Nonnull BrokerRequest offlineBrokerRequest) {
+    return !offlineBrokerRequest.isEnableTrace();
+  }
+
+  /**
+   * Returns the cache key for the server responses of the given optimized OFFLINE broker request.
+   * <p>The bucket hash key only affects the replica selection, so it is not part of the key.
+   */
+  @Nonnull
+  public static Key getKey(@Nonnull BrokerRequest offlineBrokerRequest) {
+    BrokerRequest canonicalBrokerRequest = offlineBrokerRequest.deepCopy();
+    canonicalBrokerRequest.unsetBucketHashKey();
+    return new Key(offlineBrokerRequest.getQuerySource().getTableName(), canonicalBrokerRequest.toString());
+  }
+
+  /**
+   * Get the current generation of the given table, which should be read before looking up the cache and querying the
+   * servers, and passed to {@link #put(Key, long, Map)}.
+   *
+   * @param tableName table name.
+   * @return generation of the table.
+   */
+  public long getTableGeneration(@Nonnull String tableName) {
+    return getGeneration(tableName).get();
+  }
+
+  /**
+   * Get the cached server responses.
+   *
+   * @param key cache key.
+   * @return map from server to serialized response, or null if the responses are not cached.
+   */
+  @Nullable
+  public Map<ServerInstance, byte[]> get(@Nonnull Key key) {
+    return _cache.getIfPresent(key);
+  }
+
+  /**
+   * Cache the server responses. Should only be called when all the queried servers responded without processing
+   * exceptions.
+   * <p>The responses are dropped if the table was invalidated since the given generation was read.
+   *
+   * @param key cache key.
+   * @param tableGeneration generation of the table read before querying the servers.
+   * @param serverResponses map from server to serialized response.
+   */
+  public void put(@Nonnull Key key, long tableGeneration, @Nonnull Map<ServerInstance, byte[]> serverResponses) {
+    AtomicLong generation = getGeneration(key._tableName);
+    if (generation.get() != tableGeneration) {
+      return;
+    }
+    Map<ServerInstance, byte[]> value = Collections.unmodifiableMap(serverResponses);
+    _cache.put(key, value);
+    // The table might have been invalidated after the check but before the invalidation iterated over the keys, in
+    // which case the generation already changed, so remove the entry again.
+    if (generation.get() != tableGeneration) {
+      _cache.asMap().remove(key, value);
+    }
+  }
+
+  /**
+   * Invalidate all the cached responses of the given table, and bump its generation so that the responses of queries
+   * in flight are not cached.
+   */
+  public void invalidateTable(@Nonnull String tableName) {
+    getGeneration(tableName).incrementAndGet();
+    Iterator<Key> iterator = _cache.asMap().keySet().iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next()._tableName.equals(tableName)) {
+        iterator.remove();
+      }
+    }
+  }
+
+  private AtomicLong getGeneration(String tableName) {
+    AtomicLong generation = _tableGenerations.get(tableName);
+    if (generation == null) {
+      AtomicLong newGeneration = new AtomicLong();
+      generation = _tableGenerations.putIfAbsent(tableName, newGeneration);
+      if (generation == null) {
+        generation = newGeneration;
+      }
+    }
+    return generation;
+  }
+
+  @Override
+  public void onRoutingTableChange(String tableName) {
+    invalidateTable(tableName);
+  }
+
+  public long size() {
+    return _cache.size();
+  }
+
+  @Nonnull
+  public CacheStats getStats() {
+    return _cache.stats();
+  }
+
+  /**
+   * Key of the cached server responses.
+   */
+  public static class Key {
+    private final String _tableName;
+    private final String _query;
+
+    public Key(@Nonnull String tableName, @Nonnull String query) {
+      _tableName = tableName;
+      _query = query;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      Key that = (Key) o;
+      return _tableName.equals(that._tableName) && _query.equals(that._query);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * _tableName.hashCode() + _query.hashCode();
+    }
+
+    @Override
+    public String toString() {
+      return _tableName + ":" + _query;
+    }
+  }
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.query.DataTableReducer;
+import com.linkedin.pinot.common.query.ReduceService;
+import com.linkedin.pinot.common.query.ReduceServiceRegistry;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import com.linkedin.pinot.routing.RoutingTable;
+import com.linkedin.pinot.routing.RoutingTableLookupRequest;
+import com.linkedin.pinot.routing.TimeBoundaryService;
+import com.linkedin.pinot.transport.common.CompositeFuture;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.scattergather.ScatterGather;
+import com.linkedin.pinot.transport.scattergather.ScatterGatherRequest;
+import com.linkedin.pinot.transport.scattergather.ScatterGatherStats;
+import com.yammer.metrics.core.MetricsRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Tests for the broker result cache in {@link BrokerRequestHandler}.
+ */
+public class BrokerRequestHandlerTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final String OFFLINE_TABLE_NAME = "myTable_OFFLINE";
+  private static final ServerInstance SERVER_INSTANCE = new ServerInstance("localhost", 1234);
+
+  @Test
+  public void testInvalidationWhileQueryInFlight()
+      throws Exception {
+    RoutingTable routingTable = mock(RoutingTable.class);
+    when(routingTable.routingTableExists(OFFLINE_TABLE_NAME)).thenReturn(true);
+    SegmentIdSet segmentIdSet = new SegmentIdSet();
+    segmentIdSet.addSegment(new SegmentId("segment"));
+    when(routingTable.findServers(any(RoutingTableLookupRequest.class))).thenReturn(
+        Collections.singletonMap(SERVER_INSTANCE, segmentIdSet));
+
+    // Each scatter returns one server response. While the first query is in flight, the routing table changes.
+    final AtomicInteger numScatters = new AtomicInteger();
+    final AtomicBoolean changeRoutingTable = new AtomicBoolean(true);
+    final BrokerRequestHandler[] brokerRequestHandler = new BrokerRequestHandler[1];
+    final byte[] serverResponse = new DataTableImplV2().toBytes();
+    ScatterGather scatterGather = mock(ScatterGather.class);
+    when(scatterGather.scatterGather(any(ScatterGatherRequest.class), any(ScatterGatherStats.class),
+        any(Boolean.class), any(BrokerMetrics.class))).thenAnswer(
+        new Answer<CompositeFuture<ServerInstance, ByteBuf>>() {
+          @SuppressWarnings("unchecked")
+          @Override
+          public CompositeFuture<ServerInstance, ByteBuf> answer(InvocationOnMock invocation)
+              throws Throwable {
+            numScatters.incrementAndGet();
+            CompositeFuture<ServerInstance, ByteBuf> compositeFuture = mock(CompositeFuture.class);
+            when(compositeFuture.getNumFutures()).thenReturn(1);
+            when(compositeFuture.getResponseTimes()).thenReturn(Collections.<String, Long>emptyMap());
+            when(compositeFuture.takeResponse()).thenAnswer(new Answer<Map.Entry<ServerInstance, ByteBuf>>() {
+              private boolean _responded = false;
+
+              @Override
+              public Map.Entry<ServerInstance, ByteBuf> answer(InvocationOnMock invocation)
+                  throws Throwable {
+                if (_responded) {
+                  return null;
+                }
+                _responded = true;
+                if (changeRoutingTable.getAndSet(false)) {
+                  brokerRequestHandler[0].getResultCache().onRoutingTableChange(OFFLINE_TABLE_NAME);
+                }
+                return new AbstractMap.SimpleEntry<>(SERVER_INSTANCE, Unpooled.wrappedBuffer(serverResponse));
+              }
+            });
+            return compositeFuture;
+          }
+        });
+
+    DataTableReducer reducer = mock(DataTableReducer.class);
+    when(reducer.getBrokerResponse()).thenAnswer(new Answer<BrokerResponse>() {
+      @Override
+      public BrokerResponse answer(InvocationOnMock invocation)
+          throws Throwable {
+        return new BrokerResponseNative();
+      }
+    });
+    ReduceService reduceService = mock(ReduceService.class);
+    when(reduceService.createReducer(any(BrokerRequest.class), any(BrokerMetrics.class))).thenReturn(reducer);
+    ReduceServiceRegistry reduceServiceRegistry = new ReduceServiceRegistry();
+    reduceServiceRegistry.registerDefault(reduceService);
+
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty("pinot.broker.resultCache.maxSizeInBytes", 1024 * 1024);
+    brokerRequestHandler[0] =
+        new BrokerRequestHandler(routingTable, mock(TimeBoundaryService.class), scatterGather, reduceServiceRegistry,
+            new BrokerMetrics(new MetricsRegistry()), config, null);
+    BrokerResultCache resultCache = brokerRequestHandler[0].getResultCache();
+    Assert.assertNotNull(resultCache);
+
+    // The routing table changed while the first query was in flight, so its responses should not be cached.
+    processQuery(brokerRequestHandler[0]);
+    Assert.assertEquals(numScatters.get(), 1);
+    Assert.assertEquals(resultCache.size(), 0L);
+
+    // The second query caches its responses, and the third query is served from the cache.
+    processQuery(brokerRequestHandler[0]);
+    Assert.assertEquals(numScatters.get(), 2);
+    Assert.assertEquals(resultCache.size(), 1L);
+    processQuery(brokerRequestHandler[0]);
+    Assert.assertEquals(numScatters.get(), 2);
+
+    // After the routing table changes, the query is scattered again.
+    resultCache.onRoutingTableChange(OFFLINE_TABLE_NAME);
+    processQuery(brokerRequestHandler[0]);
+    Assert.assertEquals(numScatters.get(), 3);
+  }
+
+  private static void processQuery(BrokerRequestHandler brokerRequestHandler)
+      throws InterruptedException {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest("SELECT COUNT(*) FROM myTable");
+    BrokerResponse brokerResponse =
+        brokerRequestHandler.processBrokerRequest(brokerRequest, new ScatterGatherStats(), 0L);
+    Assert.assertEquals(brokerResponse.getExceptionsSize(), 0);
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.broker.requesthandler;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.util.Collections;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests for the broker result cache.
+ */
+public class BrokerResultCacheTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final String OFFLINE_TABLE_NAME = "myTable_OFFLINE";
+  private static final Map<ServerInstance, byte[]> RESPONSES =
+      Collections.singletonMap(new ServerInstance("localhost", 1234), new byte[]{1, 2, 3});
+
+  private static BrokerRequest getOfflineBrokerRequest(String query) {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+    brokerRequest.getQuerySource().setTableName(OFFLINE_TABLE_NAME);
+    return brokerRequest;
+  }
+
+  @Test
+  public void testKey() {
+    BrokerRequest brokerRequest = getOfflineBrokerRequest("SELECT COUNT(*) FROM myTable WHERE foo = 'bar'");
+    BrokerResultCache.Key key = BrokerResultCache.getKey(brokerRequest);
+
+    // Bucket hash key should not affect the key.
+    BrokerRequest brokerRequestWithBucketHashKey = brokerRequest.deepCopy();
+    brokerRequestWithBucketHashKey.setBucketHashKey("baz");
+    Assert.assertEquals(BrokerResultCache.getKey(brokerRequestWithBucketHashKey), key);
+
+    // Different filter should generate different key.
+    Assert.assertNotEquals(
+        BrokerResultCache.getKey(getOfflineBrokerRequest("SELECT COUNT(*) FROM myTable WHERE foo = 'baz'")), key);
+
+    // Requests with trace enabled should not be cached.
+    Assert.assertTrue(BrokerResultCache.isCacheable(brokerRequest));
+    BrokerRequest brokerRequestWithTrace = brokerRequest.deepCopy();
+    brokerRequestWithTrace.setEnableTrace(true);
+    Assert.assertFalse(BrokerResultCache.isCacheable(brokerRequestWithTrace));
+  }
+
+  @Test
+  public void testGetAndPut() {
+    BrokerResultCache brokerResultCache = new BrokerResultCache(1024 * 1024, 60 * 1000L);
+    BrokerResultCache.Key key =
+        BrokerResultCache.getKey(getOfflineBrokerRequest("SELECT SUM(foo) FROM myTable GROUP BY bar"));
+    Assert.assertNull(brokerResultCache.get(key));
+
+    brokerResultCache.put(key, brokerResultCache.getTableGeneration(OFFLINE_TABLE_NAME), RESPONSES);
+    Map<ServerInstance, byte[]> cachedResponses = brokerResultCache.get(key);
+    Assert.assertNotNull(cachedResponses);
+    Assert.assertEquals(cachedResponses.size(), 1);
+    Assert.assertEquals(cachedResponses.get(new ServerInstance("localhost", 1234)), new byte[]{1, 2, 3});
+    Assert.assertEquals(brokerResultCache.getStats().hitCount(), 1L);
+    Assert.assertEquals(brokerResultCache.getStats().missCount(), 1L);
+  }
+
+  @Test
+  public void testInvalidateOnRoutingTableChange() {
+    BrokerResultCache brokerResultCache = new BrokerResultCache(1024 * 1024, 60 * 1000L);
+    BrokerResultCache.Key key = BrokerResultCache.getKey(getOfflineBrokerRequest("SELECT COUNT(*) FROM myTable"));
+    BrokerResultCache.Key otherTableKey = new BrokerResultCache.Key("otherTable_OFFLINE", "query");
+    brokerResultCache.put(key, brokerResultCache.getTableGeneration(OFFLINE_TABLE_NAME), RESPONSES);
+    brokerResultCache.put(otherTableKey, brokerResultCache.getTableGeneration("otherTable_OFFLINE"), RESPONSES);
+    Assert.assertEquals(brokerResultCache.size(), 2L);
+
+    // Only the cached responses of the changed table should be invalidated.
+    brokerResultCache.onRoutingTableChange("myTable_REALTIME");
+    Assert.assertEquals(brokerResultCache.size(), 2L);
+    brokerResultCache.onRoutingTableChange(OFFLINE_TABLE_NAME);
+    Assert.assertEquals(brokerResultCache.size(), 1L);
+    Assert.assertNull(brokerResultCache.get(key));
+    Assert.assertNotNull(brokerResultCache.get(otherTableKey));
+  }
+
+  @Test
+  public void testStalePutAfterInvalidation() {
+    BrokerResultCache brokerResultCache = new BrokerResultCache(1024 * 1024, 60 * 1000L);
+    BrokerResultCache.Key key = BrokerResultCache.getKey(getOfflineBrokerRequest("SELECT COUNT(*) FROM myTable"));
+
+    // Query in flight while the routing table changes, the responses should not be cached.
+    long generation = brokerResultCache.getTableGeneration(OFFLINE_TABLE_NAME);
+    Assert.assertNull(brokerResultCache.get(key));
+    brokerResultCache.onRoutingTableChange(OFFLINE_TABLE_NAME);
+    brokerResultCache.put(key, generation, RESPONSES);
+    Assert.assertNull(brokerResultCache.get(key));
+
+    // Invalidating another table should not affect the generation.
+    generation = brokerResultCache.getTableGeneration(OFFLINE_TABLE_NAME);
+    brokerResultCache.onRoutingTableChange("otherTable_OFFLINE");
+    brokerResultCache.put(key, generation, RESPONSES);
+    Assert.assertNotNull(brokerResultCache.get(key));
+  }
+}
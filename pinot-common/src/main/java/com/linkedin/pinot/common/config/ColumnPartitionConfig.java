@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.config;
+
+import com.linkedin.pinot.common.utils.EqualityUtils;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+
+
+/**
+ * Class representing the partition config of one column: the partition function and the number of partitions.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ColumnPartitionConfig {
+  private String functionName;
+  private int numPartitions;
+
+  public ColumnPartitionConfig() {
+  }
+
+  public ColumnPartitionConfig(String functionName, int numPartitions) {
+    this.functionName = functionName;
+    this.numPartitions = numPartitions;
+  }
+
+  public String getFunctionName() {
+    return functionName;
+  }
+
+  public void setFunctionName(String functionName) {
+    this.functionName = functionName;
+  }
+
+  public int getNumPartitions() {
+    return numPartitions;
+  }
+
+  public void setNumPartitions(int numPartitions) {
+    this.numPartitions = numPartitions;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (EqualityUtils.isSameReference(this, o)) {
+      return true;
+    }
+    if (EqualityUtils.isNullOrNotSameClass(this, o)) {
+      return false;
+    }
+    ColumnPartitionConfig that = (ColumnPartitionConfig) o;
+    return EqualityUtils.isEqual(functionName, that.functionName)
+        && EqualityUtils.isEqual(numPartitions, that.numPartitions);
+  }
+
+  @Override
+  public int hashCode() {
+    return EqualityUtils.hashCodeOf(EqualityUtils.hashCodeOf(functionName), numPartitions);
+  }
+
+  @Override
+  public String toString() {
+    return functionName + "(" + numPartitions + ")";
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.config;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nullable;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+
+
+/**
+ * Class representing the table level partition config, which maps the partitioned columns to their partition configs.
+ * E.g. a table consumed from a Kafka topic keyed by <code>memberId</code> can be configured as:
+ * <pre>
+ *   "segmentPartitionConfig": {
+ *     "columnPartitionMap": {
+ *       "memberId": {"functionName": "Murmur", "numPartitions": 32}
+ *     },
+ *     "kafkaKeyColumn": "memberId"
+ *   }
+ * </pre>
+ * <code>kafkaKeyColumn</code> is optional. It declares that the Kafka message key is the UTF-8 string value of the
+ * column, so that consuming segments can be assigned the partition of the Kafka partition they consume from.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SegmentPartitionConfig {
+  private Map<String, ColumnPartitionConfig> columnPartitionMap = new HashMap<>();
+  private String kafkaKeyColumn;
+
+  public SegmentPartitionConfig() {
+  }
+
+  public SegmentPartitionConfig(Map<String, ColumnPartitionConfig> columnPartitionMap) {
+    this.columnPartitionMap = columnPartitionMap;
+  }
+
+  public Map<String, ColumnPartitionConfig> getColumnPartitionMap() {
+    return columnPartitionMap;
+  }
+
+  public void setColumnPartitionMap(Map<String, ColumnPartitionConfig> columnPartitionMap) {
+    this.columnPartitionMap = columnPartitionMap;
+  }
+
+  /**
+   * Returns the column whose UTF-8 string value is used as the Kafka message key, or null if not configured.
+   */
+  @Nullable
+  public String getKafkaKeyColumn() {
+    return kafkaKeyColumn;
+  }
+
+  public void setKafkaKeyColumn(String kafkaKeyColumn) {
+    this.kafkaKeyColumn = kafkaKeyColumn;
+  }
+
+  /**
+   * Returns the partition config of the given column, or null if the column is not partitioned.
+   */
+  @Nullable
+  public ColumnPartitionConfig getColumnPartitionConfig(String column) {
+    return columnPartitionMap.get(column);
+  }
+
+  @Override
+  public String toString() {
+    return "SegmentPartitionConfig{columnPartitionMap=" + columnPartitionMap + ", kafkaKeyColumn=" + kafkaKeyColumn
+        + "}";
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.metadata.segment;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.utils.EqualityUtils;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+import org.codehaus.jackson.annotate.JsonIgnoreProperties;
+
+
+/**
+ * Class representing the partition metadata of one column in a segment: the partition function, the number of
+ * partitions, the (sorted) partition ids of the values in the segment and the stored data type of the column, which is
+ * needed to convert the query values into the form the partitions were computed on.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class ColumnPartitionMetadata {
+  private String _functionName;
+  private int _numPartitions;
+  private List<Integer> _partitions = new ArrayList<>();
+  private FieldSpec.DataType _dataType;
+
+  public ColumnPartitionMetadata() {
+  }
+
+  public ColumnPartitionMetadata(String functionName, int numPartitions, List<Integer> partitions,
+      @Nullable FieldSpec.DataType dataType) {
+    _functionName = functionName;
+    _numPartitions = numPartitions;
+    _partitions = partitions;
+    _dataType = dataType;
+  }
+
+  public String getFunctionName() {
+    return _functionName;
+  }
+
+  public void setFunctionName(String functionName) {
+    _functionName = functionName;
+  }
+
+  public int getNumPartitions() {
+    return _numPartitions;
+  }
+
+  public void setNumPartitions(int numPartitions) {
+    _numPartitions = numPartitions;
+  }
+
+  public List<Integer> getPartitions() {
+    return _partitions;
+  }
+
+  public void setPartitions(List<Integer> partitions) {
+    _partitions = partitions;
+  }
+
+  /**
+   * Returns the stored data type of the column, or null if it is not recorded (e.g. metadata of consuming segments
+   * whose table schema is not available).
+   */
+  @Nullable
+  public FieldSpec.DataType getDataType() {
+    return _dataType;
+  }
+
+  public void setDataType(@Nullable FieldSpec.DataType dataType) {
+    _dataType = dataType;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (EqualityUtils.isSameReference(this, o)) {
+      return true;
+    }
+    if (EqualityUtils.isNullOrNotSameClass(this, o)) {
+      return false;
+    }
+    ColumnPartitionMetadata that = (ColumnPartitionMetadata) o;
+    return EqualityUtils.isEqual(_functionName, that._functionName)
+        && EqualityUtils.isEqual(_numPartitions, that._numPartitions)
+        && EqualityUtils.isEqual(_partitions, that._partitions) && EqualityUtils.isEqual(_dataType, that._dataType);
+  }
+
+  @Override
+  public int hashCode() {
+    int result = EqualityUtils.hashCodeOf(_functionName);
+    result = EqualityUtils.hashCodeOf(result, _numPartitions);
+    result = EqualityUtils.hashCodeOf(result, _partitions);
+    result = EqualityUtils.hashCodeOf(result, _dataType);
+    return result;
+  }
+
+  @Override
+  public String toString() {
+    return _functionName + "(" + _numPartitions + ")" + _partitions;
+  }
+}
@@ -33,12 +33,16 @@ public class IndexLoadingConfigMetadata {
   public static final String KEY_OF_LOADING_INVERTED_INDEX = "metadata.loading.inverted.index.columns";
   public static final String KEY_OF_SEGMENT_FORMAT_VERSION = "segment.format.version";
   public static final String KEY_OF_ENABLE_DEFAULT_COLUMNS = "enable.default.columns";
+  public static final String KEY_OF_ENABLE_VAR_LENGTH_DICTIONARY = "enable.var.length.dictionary";
   public static final String KEY_OF_STAR_TREE_FORMAT_VERSION = "startree.format.version";
+  public static final String KEY_OF_ENABLE_LAZY_COLUMN_LOADING = "enable.lazy.column.loading";
 
   private final Set<String> _loadingInvertedIndexColumnSet = new HashSet<String>();
   private final String DEFAULT_SEGMENT_FORMAT = "v1";
   private String segmentVersionToLoad;
   private boolean enableDefaultColumns;
+  private boolean enableVarLengthDictionary;
+  private boolean enableLazyColumnLoading;
   private final String starTreeVersionToLoad;
 
   public IndexLoadingConfigMetadata(Configuration tableDataManagerConfig) {
@@ -49,6 +53,8 @@ public class IndexLoadingConfigMetadata {
 
     segmentVersionToLoad = tableDataManagerConfig.getString(KEY_OF_SEGMENT_FORMAT_VERSION, DEFAULT_SEGMENT_FORMAT);
     enableDefaultColumns = tableDataManagerConfig.getBoolean(KEY_OF_ENABLE_DEFAULT_COLUMNS, false);
+    enableVarLengthDictionary = tableDataManagerConfig.getBoolean(KEY_OF_ENABLE_VAR_LENGTH_DICTIONARY, false);
+    enableLazyColumnLoading = tableDataManagerConfig.getBoolean(KEY_OF_ENABLE_LAZY_COLUMN_LOADING, false);
     starTreeVersionToLoad = tableDataManagerConfig.getString(KEY_OF_STAR_TREE_FORMAT_VERSION,
         CommonConstants.Server.DEFAULT_STAR_TREE_FORMAT_VERSION);
   }
@@ -81,6 +87,25 @@ public class IndexLoadingConfigMetadata {
     return enableDefaultColumns;
   }
 
+  public void setEnableVarLengthDictionary(boolean enableVarLengthDictionary) {
+    this.enableVarLengthDictionary = enableVarLengthDictionary;
+  }
+
+  public boolean isEnableVarLengthDictionary() {
+    return enableVarLengthDictionary;
+  }
+
+  public void setEnableLazyColumnLoading(boolean enableLazyColumnLoading) {
+    this.enableLazyColumnLoading = enableLazyColumnLoading;
+  }
+
+  /**
+   * Returns whether to load the column indexes of a segment on first access instead of when the segment is loaded.
+   */
+  public boolean isEnableLazyColumnLoading() {
+    return enableLazyColumnLoading;
+  }
+
   public String getStarTreeVersionToLoad() {
     return starTreeVersionToLoad;
   }
@@ -71,10 +71,17 @@ public enum BrokerMeter implements AbstractMetrics.Meter {
   // basis.
   REQUEST_DROPPED_DUE_TO_CONNECTION_ERROR("requestDropped", false),
 
+  // This metric tracks the number of speculative (hedged) requests sent to a second server because the response from
+  // the first server did not arrive in time or the request to it failed. The metric is counted on a per-table basis.
+  SPECULATIVE_REQUESTS_SENT("requests", false),
+
   // Number of queries served by LLC and HLC routing tables
   LLC_QUERY_COUNT("queries", false),
   HLC_QUERY_COUNT("queries", false),
 
+  // Number of queries served with the OFFLINE server responses from the broker result cache
+  RESULT_CACHE_HITS("queries", false),
+
   ROUTING_TABLE_REBUILD_FAILURES("failures", false);
 
   private final String brokerMeterName;
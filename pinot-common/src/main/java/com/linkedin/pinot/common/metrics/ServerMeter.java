@@ -28,6 +28,8 @@ public enum ServerMeter implements AbstractMetrics.Meter {
   REQUEST_DESERIALIZATION_EXCEPTIONS("exceptions", true),
   RESPONSE_SERIALIZATION_EXCEPTIONS("exceptions", true),
   QUERY_EXECUTION_EXCEPTIONS("exceptions", false),
+  SCHEDULER_REJECTED_QUERIES("queries", false),
+  SCHEDULER_TIMED_OUT_QUERIES("queries", false),
   HELIX_ZOOKEEPER_RECONNECTS("reconnects", true),
   DELETED_SEGMENT_COUNT("segments", false),
   REALTIME_ROWS_CONSUMED("rows", true),
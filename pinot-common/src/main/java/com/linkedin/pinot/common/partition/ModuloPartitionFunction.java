@@ -0,0 +1,62 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.partition;
+
+import com.google.common.base.Preconditions;
+
+
+/**
+ * Partition function that computes the partition id as the integer value modulo the number of partitions. Only
+ * applicable to columns with integral values.
+ */
+public class ModuloPartitionFunction implements PartitionFunction {
+  private static final String NAME = "Modulo";
+
+  private final int _numPartitions;
+
+  public ModuloPartitionFunction(int numPartitions) {
+    Preconditions.checkArgument(numPartitions > 0, "Number of partitions must be > 0, specified: %s", numPartitions);
+    _numPartitions = numPartitions;
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws NumberFormatException if the value is not an integral value.
+   */
+  @Override
+  public int getPartition(Object value) {
+    long longValue;
+    if (value instanceof Integer || value instanceof Long) {
+      longValue = ((Number) value).longValue();
+    } else {
+      longValue = Long.parseLong(value.toString());
+    }
+    // Make the partition id non-negative for negative values.
+    int partition = (int) (longValue % _numPartitions);
+    return partition < 0 ? partition + _numPartitions : partition;
+  }
+
+  @Override
+  public int getNumPartitions() {
+    return _numPartitions;
+  }
+
+  @Override
+  public String toString() {
+    return NAME;
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.partition;
+
+import com.google.common.base.Preconditions;
+import java.nio.charset.Charset;
+
+
+/**
+ * Partition function that computes the partition id from the 32-bit Murmur2 hash of the UTF-8 bytes of the value's
+ * string representation. This is the same as the Kafka default partitioner for string keys, so segments consumed from
+ * a Kafka partition map to the same partition id.
+ */
+public class MurmurPartitionFunction implements PartitionFunction {
+  private static final String NAME = "Murmur";
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final int _numPartitions;
+
+  public MurmurPartitionFunction(int numPartitions) {
+    Preconditions.checkArgument(numPartitions > 0, "Number of partitions must be > 0, specified: %s", numPartitions);
+    _numPartitions = numPartitions;
+  }
+
+  @Override
+  public int getPartition(Object value) {
+    return (murmur2(value.toString().getBytes(UTF_8)) & 0x7fffffff) % _numPartitions;
+  }
+
+  @Override
+  public int getNumPartitions() {
+    return _numPartitions;
+  }
+
+  @Override
+  public String toString() {
+    return NAME;
+  }
+
+  /**
+   * Implements the 32-bit Murmur2 hash with the same seed as the Kafka default partitioner.
+   */
+  static int murmur2(byte[] data) {
+    int length = data.length;
+    int seed = 0x9747b28c;
+    final int m = 0x5bd1e995;
+    final int r = 24;
+
+    int h = seed ^ length;
+    int length4 = length / 4;
+
+    for (int i = 0; i < length4; i++) {
+      final int i4 = i * 4;
+      int k = (data[i4] & 0xff) + ((data[i4 + 1] & 0xff) << 8) + ((data[i4 + 2] & 0xff) << 16)
+          + ((data[i4 + 3] & 0xff) << 24);
+      k *= m;
+      k ^= k >>> r;
+      k *= m;
+      h *= m;
+      h ^= k;
+    }
+
+    switch (length % 4) {
+      case 3:
+        h ^= (data[(length & ~3) + 2] & 0xff) << 16;
+      case 2:
+        h ^= (data[(length & ~3) + 1] & 0xff) << 8;
+      case 1:
+        h ^= data[length & ~3] & 0xff;
+        h *= m;
+    }
+
+    h ^= h >>> 13;
+    h *= m;
+    h ^= h >>> 15;
+
+    return h;
+  }
+}
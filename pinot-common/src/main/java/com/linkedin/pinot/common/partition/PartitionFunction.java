@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.partition;
+
+/**
+ * Interface for partition functions, used to compute the partition id of a column value. The same function is used
+ * when recording the partitions of a segment and when pruning segments for a query, so the value should be passed in
+ * as the same object type (or its string representation) in both places.
+ */
+public interface PartitionFunction {
+
+  /**
+   * Returns the partition id for the given value, in the range [0, {@link #getNumPartitions()}).
+   *
+   * @param value column value (or its string representation).
+   * @return partition id.
+   */
+  int getPartition(Object value);
+
+  /**
+   * Returns the total number of partitions.
+   */
+  int getNumPartitions();
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.partition;
+
+/**
+ * Factory to build {@link PartitionFunction} from the function name in the table config or segment metadata.
+ */
+public class PartitionFunctionFactory {
+
+  public enum PartitionFunctionType {
+    Modulo,
+    Murmur;
+
+    public static PartitionFunctionType fromString(String name) {
+      for (PartitionFunctionType type : values()) {
+        if (type.name().equalsIgnoreCase(name)) {
+          return type;
+        }
+      }
+      throw new IllegalArgumentException("Unsupported partition function: " + name);
+    }
+  }
+
+  private PartitionFunctionFactory() {
+  }
+
+  /**
+   * Returns the partition function for the given name and number of partitions.
+   *
+   * @param functionName name of the partition function (case insensitive).
+   * @param numPartitions number of partitions.
+   * @return partition function.
+   * @throws IllegalArgumentException if the function name is not supported.
+   */
+  public static PartitionFunction getPartitionFunction(String functionName, int numPartitions) {
+    switch (PartitionFunctionType.fromString(functionName)) {
+      case Modulo:
+        return new ModuloPartitionFunction(numPartitions);
+      case Murmur:
+        return new MurmurPartitionFunction(numPartitions);
+      default:
+        throw new IllegalArgumentException("Unsupported partition function: " + functionName);
+    }
+  }
+}
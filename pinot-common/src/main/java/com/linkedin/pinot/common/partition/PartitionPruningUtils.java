@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.partition;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.metadata.segment.ColumnPartitionMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.utils.request.FilterPruningUtils;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import java.util.List;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * Utility class to prune segments based on the partition metadata. Shared by the broker (with partition metadata from
+ * the segment ZK metadata) and the server (with partition metadata from the segment metadata).
+ * The AND/OR nodes of the filter are handled by {@link FilterPruningUtils}. For EQ and IN on a partitioned column,
+ * segment is pruned if none of the values belong to its partitions. Other predicates, columns without partition
+ * metadata (or without the data type in it), and values that cannot be parsed into the data type are never pruned.
+ */
+public class PartitionPruningUtils {
+  private static final String IN_VALUE_SEPARATOR = "\t\t";
+  private static final FilterPruningUtils.LeafPruner<SegmentPartitionMetadata> LEAF_PRUNER =
+      new FilterPruningUtils.LeafPruner<SegmentPartitionMetadata>() {
+        @Override
+        public boolean pruneLeaf(@Nonnull FilterQueryTree leaf, @Nonnull SegmentPartitionMetadata partitionMetadata) {
+          return PartitionPruningUtils.pruneLeaf(leaf, partitionMetadata);
+        }
+      };
+
+  private PartitionPruningUtils() {
+  }
+
+  /**
+   * Returns true if the segment with the given partition metadata does not contain any record matching the filter.
+   *
+   * @param filterQueryTree filter of the query, null if the query has no filter.
+   * @param partitionMetadata partition metadata of the segment, null if the segment is not partitioned.
+   * @return true if the segment can be pruned, false otherwise.
+   */
+  public static boolean canPrune(@Nullable FilterQueryTree filterQueryTree,
+      @Nullable SegmentPartitionMetadata partitionMetadata) {
+    if (filterQueryTree == null || partitionMetadata == null) {
+      return false;
+    }
+    return FilterPruningUtils.prune(filterQueryTree, partitionMetadata, LEAF_PRUNER);
+  }
+
+  private static boolean pruneLeaf(FilterQueryTree filterQueryTree, SegmentPartitionMetadata partitionMetadata) {
+    FilterOperator operator = filterQueryTree.getOperator();
+    if (operator != FilterOperator.EQUALITY && operator != FilterOperator.IN) {
+      return false;
+    }
+    ColumnPartitionMetadata columnPartitionMetadata =
+        partitionMetadata.getColumnPartitionMetadata(filterQueryTree.getColumn());
+    if (columnPartitionMetadata == null) {
+      return false;
+    }
+    // The partitions are computed on the stored values, so the query values have to be converted into the stored form
+    // first (e.g. '0123' on an INT column), which needs the data type.
+    FieldSpec.DataType dataType = columnPartitionMetadata.getDataType();
+    if (dataType == null) {
+      return false;
+    }
+
+    try {
+      PartitionFunction partitionFunction = PartitionFunctionFactory.getPartitionFunction(
+          columnPartitionMetadata.getFunctionName(), columnPartitionMetadata.getNumPartitions());
+      List<Integer> partitions = columnPartitionMetadata.getPartitions();
+      String value = filterQueryTree.getValue().get(0);
+      if (operator == FilterOperator.EQUALITY) {
+        return !partitions.contains(
+            partitionFunction.getPartition(FilterPruningUtils.getStoredValue(value, dataType)));
+      } else {
+        for (String inValue : value.split(IN_VALUE_SEPARATOR)) {
+          if (partitions.contains(
+              partitionFunction.getPartition(FilterPruningUtils.getStoredValue(inValue, dataType)))) {
+            return false;
+          }
+        }
+        return true;
+      }
+    } catch (IllegalArgumentException e) {
+      // Unsupported partition function, or value cannot be parsed (NumberFormatException), do not prune.
+      return false;
+    }
+  }
+}
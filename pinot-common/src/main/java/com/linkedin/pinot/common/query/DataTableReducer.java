@@ -0,0 +1,49 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.query;
+
+import com.linkedin.pinot.common.response.BrokerResponse;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.DataTable;
+import javax.annotation.Nonnull;
+
+
+/**
+ * Interface for reducing data tables incrementally, one server response at a time, so that the responses can be merged
+ * as soon as they arrive instead of after all servers responded.
+ * <p>A data table reducer is created for one query and is not thread safe.
+ *
+ * @param <T> type of broker response.
+ */
+public interface DataTableReducer<T extends BrokerResponse> {
+
+  /**
+   * Merge the data table from one server into the reduced results.
+   * <p>The data table is not referenced after this method returns.
+   *
+   * @param serverInstance server instance the data table comes from.
+   * @param dataTable data table.
+   */
+  void reduce(@Nonnull ServerInstance serverInstance, @Nonnull DataTable dataTable);
+
+  /**
+   * Build the broker response from the reduced results. Should be called once after all data tables are reduced.
+   *
+   * @return broker response.
+   */
+  @Nonnull
+  T getBrokerResponse();
+}
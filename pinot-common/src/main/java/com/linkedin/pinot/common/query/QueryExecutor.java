@@ -52,4 +52,11 @@ public interface QueryExecutor {
   boolean isStarted();
 
   void updateResourceTimeOutInMs(String resource, long timeOutMs);
+
+  /**
+   * Get the timeout for queries on the given table
+   * @param tableName table name
+   * @return timeout in milliseconds
+   */
+  long getTimeOutMs(String tableName);
 }
@@ -57,4 +57,14 @@ public interface ReduceService<T extends BrokerResponse> {
   @Nonnull
   T reduceOnDataTable(@Nonnull BrokerRequest brokerRequest, @Nonnull Map<ServerInstance, DataTable> instanceResponseMap,
       @Nullable BrokerMetrics brokerMetrics);
+
+  /**
+   * Create a reducer to reduce data tables incrementally as they are gathered from the server instances.
+   *
+   * @param brokerRequest broker request.
+   * @param brokerMetrics broker metrics to track execution statistics.
+   * @return data table reducer.
+   */
+  @Nonnull
+  DataTableReducer<T> createReducer(@Nonnull BrokerRequest brokerRequest, @Nullable BrokerMetrics brokerMetrics);
 }
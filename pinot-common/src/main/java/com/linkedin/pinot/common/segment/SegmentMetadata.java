@@ -17,6 +17,7 @@ package com.linkedin.pinot.common.segment;
 
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import java.util.Map;
 import javax.annotation.Nullable;
 import org.joda.time.Duration;
@@ -116,6 +117,15 @@ public interface SegmentMetadata {
   @Nullable
   String getDerivedColumn(String column, MetricFieldSpec.DerivedMetricType derivedMetricType);
 
+  /**
+   * Get the partition metadata of the segment.
+   *
+   * @return partition metadata of the partitioned columns if any.
+   *         null if none of the columns are partitioned.
+   */
+  @Nullable
+  SegmentPartitionMetadata getPartitionMetadata();
+
   Map<String, String> toMap();
 
   boolean close();
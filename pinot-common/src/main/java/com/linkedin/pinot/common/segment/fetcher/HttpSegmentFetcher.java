@@ -23,7 +23,7 @@ import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.utils.FileUploadUtils;
 
-public class HttpSegmentFetcher implements SegmentFetcher {
+public class HttpSegmentFetcher implements StreamingSegmentFetcher {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(HttpSegmentFetcher.class);
   private static final String MAX_RETRIES = "maxRetries";
@@ -62,4 +62,25 @@ public class HttpSegmentFetcher implements SegmentFetcher {
       }
     }
   }
+
+  @Override
+  public void fetchSegment(String uri, SegmentStreamHandler handler) throws Exception {
+    for (int retry = 1; retry <= maxRetryCount; ++retry) {
+      try {
+        final long httpGetResponseContentLength = FileUploadUtils.getFile(uri, handler);
+        LOGGER.info("Fetched segment from {}; Length of httpGetResponseContent: {}", uri,
+            httpGetResponseContentLength);
+        return;
+      } catch (Exception e) {
+        LOGGER.error("Failed to fetch segment from {}, retry: {}", uri, retry, e);
+        if (retry == maxRetryCount) {
+          LOGGER.error("Exceeded maximum retry count while fetching segment from {}, aborting.", uri, e);
+          throw e;
+        } else {
+          long backOffTimeInSec = 5 * retry;
+          Thread.sleep(backOffTimeInSec * 1000);
+        }
+      }
+    }
+  }
 }
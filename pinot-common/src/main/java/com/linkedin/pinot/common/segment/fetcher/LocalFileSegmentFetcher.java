@@ -15,14 +15,18 @@
  */
 package com.linkedin.pinot.common.segment.fetcher;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
 import java.util.Map;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class LocalFileSegmentFetcher implements SegmentFetcher {
+public class LocalFileSegmentFetcher implements StreamingSegmentFetcher {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(LocalFileSegmentFetcher.class);
 
@@ -35,4 +39,14 @@ public class LocalFileSegmentFetcher implements SegmentFetcher {
     FileUtils.copyFile(new File(uri), tempFile);
     LOGGER.info("Copy file from {} to {}; Length of file: {}", uri, tempFile, tempFile.length());
   }
+
+  @Override
+  public void fetchSegment(String uri, SegmentStreamHandler handler) throws Exception {
+    InputStream inputStream = new BufferedInputStream(new FileInputStream(uri));
+    try {
+      handler.handle(inputStream);
+    } finally {
+      IOUtils.closeQuietly(inputStream);
+    }
+  }
 }
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.segment.fetcher;
+
+import java.io.InputStream;
+
+
+/**
+ * Segment fetcher that can stream the segment content, so that the segment can be processed (e.g. untarred) while it is
+ * being downloaded instead of being written to a local file first.
+ */
+public interface StreamingSegmentFetcher extends SegmentFetcher {
+
+  /**
+   * Fetch the segment from the given uri and pass the content stream to the given handler. The handler might be invoked
+   * multiple times if the fetch is retried, so it should be able to start over from scratch.
+   *
+   * @param uri uri of the segment.
+   * @param handler handler of the segment content stream.
+   * @throws Exception
+   */
+  void fetchSegment(String uri, SegmentStreamHandler handler) throws Exception;
+
+  /**
+   * Handler of the segment content stream. The stream is closed by the fetcher after the handler returns.
+   */
+  interface SegmentStreamHandler {
+    void handle(InputStream inputStream) throws Exception;
+  }
+}
@@ -110,6 +110,13 @@ public class CommonConstants {
          */
         public static final String REALTIME_SEGMENT_FLUSH_SIZE = "realtime.segment.flush.threshold.size";
 
+        /**
+         * Number of threads used by each low level consumer to index the columns of a batch of rows concurrently. With
+         * the default of 1, the columns are indexed on the consumer thread. Mostly useful for tables with many columns.
+         */
+        public static final String REALTIME_INDEXING_PARALLELISM = "realtime.indexing.parallelism";
+        public static final int DEFAULT_REALTIME_INDEXING_PARALLELISM = 1;
+
         public static enum StreamType {
           kafka
         }
@@ -206,6 +213,10 @@ public class CommonConstants {
     public static final String CONFIG_OF_SEGMENT_LOAD_MAX_RETRY_COUNT = "pinot.server.segment.loadMaxRetryCount";
     public static final String CONFIG_OF_SEGMENT_LOAD_MIN_RETRY_DELAY_MILLIS =
         "pinot.server.segment.minRetryDelayMillis";
+    public static final String CONFIG_OF_SEGMENT_DOWNLOAD_MAX_PARALLELISM =
+        "pinot.server.segment.downloadMaxParallelism";
+    public static final String CONFIG_OF_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND =
+        "pinot.server.segment.downloadMaxBytesPerSecond";
     public static final String CONFIG_OF_SEGMENT_FORMAT_VERSION = "pinot.server.instance.segment.format.version";
     public static final String CONFIG_OF_ENABLE_DEFAULT_COLUMNS = "pinot.server.instance.enable.default.columns";
 
@@ -224,6 +235,9 @@ public class CommonConstants {
         "com.linkedin.pinot.server.request.SimpleRequestHandlerFactory";
     public static final String DEFAULT_SEGMENT_LOAD_MAX_RETRY_COUNT = "5";
     public static final String DEFAULT_SEGMENT_LOAD_MIN_RETRY_DELAY_MILLIS = "60000";
+    public static final String DEFAULT_SEGMENT_DOWNLOAD_MAX_PARALLELISM = "8";
+    // Non-positive value means no cap on the segment download throughput.
+    public static final String DEFAULT_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND = "-1";
     public static final String PREFIX_OF_CONFIG_OF_SEGMENT_FETCHER_FACTORY = "pinot.server.segment.fetcher";
     public static final String DEFAULT_SEGMENT_FORMAT_VERSION = "v3";
     public static final String DEFAULT_STAR_TREE_FORMAT_VERSION = "OFF_HEAP";
@@ -264,6 +278,7 @@ public class CommonConstants {
     public static final String CRC = "segment.crc";
     public static final String CREATION_TIME = "segment.creation.time";
     public static final String FLUSH_THRESHOLD_SIZE = "segment.flush.threshold.size";
+    public static final String PARTITION_METADATA = "segment.partition.metadata";
 
     public static enum SegmentType {
       OFFLINE,
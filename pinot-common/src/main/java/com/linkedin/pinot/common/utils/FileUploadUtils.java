@@ -45,6 +45,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.Utils;
+import com.linkedin.pinot.common.segment.fetcher.StreamingSegmentFetcher;
 
 public class FileUploadUtils {
 
@@ -57,10 +58,15 @@ public class FileUploadUtils {
   private static final MultiThreadedHttpConnectionManager CONNECTION_MANAGER =
       new MultiThreadedHttpConnectionManager();
   private static final HttpClient FILE_UPLOAD_HTTP_CLIENT = new HttpClient(CONNECTION_MANAGER);
+  // The default of 2 connections per host would serialize the concurrent segment downloads from the same controller.
+  private static final int MAX_CONNECTIONS_PER_HOST = 20;
+  private static final int MAX_TOTAL_CONNECTIONS = 100;
 
-  {
+  static {
     FILE_UPLOAD_HTTP_CLIENT.getParams().setParameter("http.protocol.version", HttpVersion.HTTP_1_1);
     FILE_UPLOAD_HTTP_CLIENT.getParams().setSoTimeout(3600 * 1000); // One hour
+    CONNECTION_MANAGER.getParams().setDefaultMaxConnectionsPerHost(MAX_CONNECTIONS_PER_HOST);
+    CONNECTION_MANAGER.getParams().setMaxTotalConnections(MAX_TOTAL_CONNECTIONS);
   }
 
   public enum SendFileMethod {
@@ -257,7 +263,27 @@ public class FileUploadUtils {
     }
   }
 
-  public static long getFile(String url, File file) throws Exception {
+  public static long getFile(String url, final File file) throws Exception {
+    return getFile(url, new StreamingSegmentFetcher.SegmentStreamHandler() {
+      @Override
+      public void handle(InputStream inputStream)
+          throws Exception {
+        BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(file));
+        IOUtils.copyLarge(inputStream, output);
+        IOUtils.closeQuietly(output);
+      }
+    });
+  }
+
+  /**
+   * Download the file from the given url and pass the response body stream to the given handler, so that the content
+   * can be processed (e.g. untarred) while it is being downloaded.
+   *
+   * @param url url of the file to download.
+   * @param handler handler of the response body stream, the stream is released after the handler returns.
+   * @return content length of the response, or -1 if unknown.
+   */
+  public static long getFile(String url, StreamingSegmentFetcher.SegmentStreamHandler handler) throws Exception {
     GetMethod httpget = null;
     try {
       httpget = new GetMethod(url);
@@ -276,9 +302,7 @@ public class FileUploadUtils {
                 + " response code:" + responseCode);
       } else {
         long ret = httpget.getResponseContentLength();
-        BufferedOutputStream output = new BufferedOutputStream(new FileOutputStream(file));
-        IOUtils.copyLarge(httpget.getResponseBodyAsStream(), output);
-        IOUtils.closeQuietly(output);
+        handler.handle(httpget.getResponseBodyAsStream());
         return ret;
       }
     } catch (Exception ex) {
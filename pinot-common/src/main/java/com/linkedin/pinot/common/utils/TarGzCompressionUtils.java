@@ -39,6 +39,7 @@ import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -172,11 +173,35 @@ public class TarGzCompressionUtils {
       ArchiveException {
 
     LOGGER.debug(String.format("Untaring %s to dir %s.", inputFile.getAbsolutePath(), outputDir.getAbsolutePath()));
+    InputStream fileInputStream = null;
+    try {
+      fileInputStream = new BufferedInputStream(new FileInputStream(inputFile));
+      return unTar(fileInputStream, outputDir);
+    } finally {
+      IOUtils.closeQuietly(fileInputStream);
+    }
+  }
+
+  /** Untar a .tar.gz input stream into the output directory.
+   *
+   * The stream is decompressed and extracted as it is read, so it can be used to extract a file while it is being
+   * downloaded without writing the .tar.gz file to disk. The gzip CRC of the stream is verified when the end of the
+   * stream is reached. The input stream is not closed by this method.
+   *
+   * @param tarGzInputStream the input .tar.gz stream
+   * @param outputDir        the output directory file.
+   * @throws IOException
+   *
+   * @return  The {@link List} of {@link File}s with the untared content.
+   * @throws ArchiveException
+   */
+  public static List<File> unTar(final InputStream tarGzInputStream, final File outputDir)
+      throws IOException, ArchiveException {
     TarArchiveInputStream debInputStream = null;
     InputStream is = null;
     final List<File> untaredFiles = new LinkedList<File>();
     try {
-      is = new GzipCompressorInputStream(new BufferedInputStream(new FileInputStream(inputFile)));
+      is = new GzipCompressorInputStream(new CloseShieldInputStream(tarGzInputStream));
       debInputStream = (TarArchiveInputStream) new ArchiveStreamFactory().createArchiveInputStream("tar", is);
       TarArchiveEntry entry = null;
       while ((entry = (TarArchiveEntry) debInputStream.getNextEntry()) != null) {
@@ -209,6 +234,8 @@ public class TarGzCompressionUtils {
         }
         untaredFiles.add(outputFile);
       }
+      // Drain the remaining of the stream (tar padding and gzip trailer) so that the gzip CRC gets verified.
+      IOUtils.skip(is, Long.MAX_VALUE);
     } finally {
       IOUtils.closeQuietly(debInputStream);
       IOUtils.closeQuietly(is);
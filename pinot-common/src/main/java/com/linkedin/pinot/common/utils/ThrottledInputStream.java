@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.utils;
+
+import com.google.common.util.concurrent.RateLimiter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.annotation.Nonnull;
+
+
+/**
+ * Input stream that caps the read throughput with a {@link RateLimiter} where each permit stands for one byte. The rate
+ * limiter can be shared among multiple streams to cap their total throughput.
+ */
+public class ThrottledInputStream extends FilterInputStream {
+  private final RateLimiter _rateLimiter;
+
+  public ThrottledInputStream(@Nonnull InputStream inputStream, @Nonnull RateLimiter rateLimiter) {
+    super(inputStream);
+    _rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public int read()
+      throws IOException {
+    int value = super.read();
+    if (value != -1) {
+      _rateLimiter.acquire();
+    }
+    return value;
+  }
+
+  @Override
+  public int read(@Nonnull byte[] b, int off, int len)
+      throws IOException {
+    int numBytesRead = super.read(b, off, len);
+    if (numBytesRead > 0) {
+      _rateLimiter.acquire(numBytesRead);
+    }
+    return numBytesRead;
+  }
+
+  @Override
+  public long skip(long n)
+      throws IOException {
+    long numBytesSkipped = super.skip(n);
+    if (numBytesSkipped > 0) {
+      // Skipped bytes might have been transferred as well, but there is no need to throttle on them precisely.
+      _rateLimiter.acquire((int) Math.min(numBytesSkipped, Integer.MAX_VALUE));
+    }
+    return numBytesSkipped;
+  }
+}
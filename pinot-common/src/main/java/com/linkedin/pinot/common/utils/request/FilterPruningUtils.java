@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.utils.request;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import java.util.List;
+import javax.annotation.Nonnull;
+
+
+/**
+ * Utility class to decide whether a segment can be pruned by walking the filter of the query. The walk is shared by
+ * the segment pruners, which only decide on the leaf predicates:
+ * <ul>
+ *   <li>For AND, segment is pruned if any child can be pruned.</li>
+ *   <li>For OR, segment is pruned if all children can be pruned.</li>
+ *   <li>Other non-leaf operators are never pruned.</li>
+ * </ul>
+ */
+public class FilterPruningUtils {
+  private FilterPruningUtils() {
+  }
+
+  /**
+   * Decides whether a segment can be pruned based on one leaf predicate of the filter.
+   *
+   * @param <T> type of the segment information the pruning is based on.
+   */
+  public interface LeafPruner<T> {
+
+    /**
+     * Returns true if no record of the segment can match the leaf predicate, false if unknown.
+     *
+     * @param leaf leaf node of the filter.
+     * @param segmentInfo segment information the pruning is based on.
+     * @return true if the segment can be pruned, false otherwise.
+     */
+    boolean pruneLeaf(@Nonnull FilterQueryTree leaf, @Nonnull T segmentInfo);
+  }
+
+  /**
+   * Returns true if no record of the segment can match the filter.
+   *
+   * @param filterQueryTree filter of the query.
+   * @param segmentInfo segment information passed to the leaf pruner.
+   * @param leafPruner pruner for the leaf predicates.
+   * @return true if the segment can be pruned, false otherwise.
+   */
+  public static <T> boolean prune(@Nonnull FilterQueryTree filterQueryTree, @Nonnull T segmentInfo,
+      @Nonnull LeafPruner<T> leafPruner) {
+    List<FilterQueryTree> children = filterQueryTree.getChildren();
+
+    // Leaf node.
+    if (children == null || children.isEmpty()) {
+      return leafPruner.pruneLeaf(filterQueryTree, segmentInfo);
+    }
+
+    // Non-leaf node.
+    switch (filterQueryTree.getOperator()) {
+      case AND:
+        for (FilterQueryTree child : children) {
+          if (prune(child, segmentInfo, leafPruner)) {
+            return true;
+          }
+        }
+        return false;
+      case OR:
+        for (FilterQueryTree child : children) {
+          if (!prune(child, segmentInfo, leafPruner)) {
+            return false;
+          }
+        }
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Convert a value from the query into the string representation of the stored value of the given data type, e.g.
+   * "007" for an INT column is converted to "7" and "1.50" for a FLOAT column is converted to "1.5". Pruners that hash
+   * the string representation of the stored values must convert the query values first, so that equivalent values
+   * hash the same.
+   *
+   * @throws NumberFormatException if the value cannot be parsed into the data type.
+   */
+  public static String getStoredValue(@Nonnull String value, @Nonnull FieldSpec.DataType dataType) {
+    switch (dataType) {
+      case INT:
+        return Integer.valueOf(value).toString();
+      case LONG:
+        return Long.valueOf(value).toString();
+      case FLOAT:
+        return Float.valueOf(value).toString();
+      case DOUBLE:
+        return Double.valueOf(value).toString();
+      default:
+        return value;
+    }
+  }
+}
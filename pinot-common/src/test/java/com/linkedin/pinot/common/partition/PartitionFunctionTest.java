@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.common.partition;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Unit test for {@link PartitionFunction} implementations.
+ */
+public class PartitionFunctionTest {
+
+  @Test
+  public void testModulo() {
+    PartitionFunction partitionFunction = PartitionFunctionFactory.getPartitionFunction("modulo", 8);
+    Assert.assertTrue(partitionFunction instanceof ModuloPartitionFunction);
+    Assert.assertEquals(partitionFunction.getNumPartitions(), 8);
+    Assert.assertEquals(partitionFunction.getPartition(13), 5);
+    Assert.assertEquals(partitionFunction.getPartition(13L), 5);
+    Assert.assertEquals(partitionFunction.getPartition("13"), 5);
+    Assert.assertEquals(partitionFunction.getPartition(-3), 5);
+    Assert.assertEquals(partitionFunction.toString(), "Modulo");
+  }
+
+  @Test(expectedExceptions = NumberFormatException.class)
+  public void testModuloOnNonIntegralValue() {
+    new ModuloPartitionFunction(8).getPartition("1.5");
+  }
+
+  @Test
+  public void testMurmur() {
+    // Expected hash values from the Kafka default partitioner.
+    Assert.assertEquals(MurmurPartitionFunction.murmur2("21".getBytes()), -973932308);
+    Assert.assertEquals(MurmurPartitionFunction.murmur2("foobar".getBytes()), -790332482);
+    Assert.assertEquals(MurmurPartitionFunction.murmur2("a-little-bit-long-string".getBytes()), -985981536);
+    Assert.assertEquals(MurmurPartitionFunction.murmur2("abc".getBytes()), 479470107);
+
+    PartitionFunction partitionFunction = PartitionFunctionFactory.getPartitionFunction("Murmur", 8);
+    Assert.assertTrue(partitionFunction instanceof MurmurPartitionFunction);
+    Assert.assertEquals(partitionFunction.getPartition("21"), 4);
+    Assert.assertEquals(partitionFunction.getPartition(21), 4);
+    Assert.assertEquals(partitionFunction.getPartition("foobar"), 6);
+    Assert.assertEquals(partitionFunction.toString(), "Murmur");
+  }
+
+  @Test(expectedExceptions = IllegalArgumentException.class)
+  public void testUnsupportedFunction() {
+    PartitionFunctionFactory.getPartitionFunction("unknown", 8);
+  }
+}
@@ -15,9 +15,13 @@
  */
 package com.linkedin.pinot.common.utils;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.util.Arrays;
 import org.apache.commons.compress.archivers.ArchiveException;
 import org.apache.commons.io.FileUtils;
 import org.testng.Assert;
@@ -122,4 +126,38 @@ public class TarGzCompressionUtilsTest {
     Assert.assertEquals(segmentFiles.length, 0);
 
   }
+
+  @Test
+  public void testUnTarStream()
+      throws IOException, ArchiveException {
+    new File(segmentDir, "metadata.properties").createNewFile();
+    File tarGzPath = new File(tarDir, SEGMENT_NAME + ".tar.gz");
+    TarGzCompressionUtils.createTarGzOfDirectory(segmentDir.getPath(), tarGzPath.getPath());
+
+    try (InputStream inputStream = new FileInputStream(tarGzPath)) {
+      TarGzCompressionUtils.unTar(inputStream, untarDir);
+      // The whole stream should be consumed but not closed
+      Assert.assertEquals(inputStream.available(), 0);
+    }
+    File[] segments = untarDir.listFiles();
+    Assert.assertNotNull(segments);
+    Assert.assertEquals(segments.length, 1);
+    File[] segmentFiles = segments[0].listFiles();
+    Assert.assertNotNull(segmentFiles);
+    Assert.assertEquals(segmentFiles.length, 1);
+    Assert.assertEquals(segmentFiles[0].getName(), "metadata.properties");
+  }
+
+  @Test(expectedExceptions = IOException.class)
+  public void testUnTarTruncatedStream()
+      throws IOException, ArchiveException {
+    File metaFile = new File(segmentDir, "metadata.properties");
+    FileUtils.writeStringToFile(metaFile, "segment.name = " + SEGMENT_NAME);
+    File tarGzPath = new File(tarDir, SEGMENT_NAME + ".tar.gz");
+    TarGzCompressionUtils.createTarGzOfDirectory(segmentDir.getPath(), tarGzPath.getPath());
+
+    // Drop the gzip trailer
+    byte[] bytes = FileUtils.readFileToByteArray(tarGzPath);
+    TarGzCompressionUtils.unTar(new ByteArrayInputStream(Arrays.copyOf(bytes, bytes.length - 8)), untarDir);
+  }
 }
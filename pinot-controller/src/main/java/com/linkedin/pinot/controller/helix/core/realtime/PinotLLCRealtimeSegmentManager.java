@@ -33,6 +33,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nullable;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.helix.AccessOption;
@@ -49,19 +50,27 @@ import com.google.common.base.Function;
 import com.google.common.collect.MinMaxPriorityQueue;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.linkedin.pinot.common.config.AbstractTableConfig;
+import com.linkedin.pinot.common.config.ColumnPartitionConfig;
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
+import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
+import com.linkedin.pinot.common.metadata.segment.ColumnPartitionMetadata;
 import com.linkedin.pinot.common.metadata.segment.LLCRealtimeSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import com.linkedin.pinot.common.metadata.stream.KafkaStreamMetadata;
 import com.linkedin.pinot.common.metrics.ControllerMeter;
 import com.linkedin.pinot.common.metrics.ControllerMetrics;
+import com.linkedin.pinot.common.partition.PartitionFunctionFactory;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.ControllerTenantNameBuilder;
 import com.linkedin.pinot.common.utils.LLCSegmentName;
+import com.linkedin.pinot.common.utils.SchemaUtils;
 import com.linkedin.pinot.common.utils.SegmentName;
 import com.linkedin.pinot.common.utils.StringUtil;
 import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
 import com.linkedin.pinot.common.utils.helix.HelixHelper;
+import com.linkedin.pinot.common.utils.helix.PinotHelixPropertyStoreZnRecordProvider;
 import com.linkedin.pinot.common.utils.retry.RetryPolicies;
 import com.linkedin.pinot.controller.ControllerConf;
 import com.linkedin.pinot.controller.helix.core.PinotHelixResourceManager;
@@ -267,6 +276,8 @@ public class PinotLLCRealtimeSegmentManager {
     final int seqNum = STARTING_SEQUENCE_NUMBER;
 
     List<LLCRealtimeSegmentZKMetadata> segmentZKMetadatas = new ArrayList<>();
+    SegmentPartitionConfig segmentPartitionConfig = getSegmentPartitionConfig(realtimeTableName);
+    FieldSpec.DataType kafkaKeyColumnDataType = getKafkaKeyColumnDataType(realtimeTableName, segmentPartitionConfig);
 
     // Create metadata for each segment
     for (int i = 0; i < nPartitions; i++) {
@@ -287,6 +298,8 @@ public class PinotLLCRealtimeSegmentManager {
       metadata.setTableName(rawTableName);
       metadata.setSegmentName(segName);
       metadata.setStatus(CommonConstants.Segment.Realtime.Status.IN_PROGRESS);
+      metadata.setPartitionMetadata(
+          getConsumingSegmentPartitionMetadata(segmentPartitionConfig, kafkaKeyColumnDataType, i, nPartitions));
 
       segmentZKMetadatas.add(metadata);
       idealStateEntries.put(segName, instances);
@@ -492,6 +505,7 @@ public class PinotLLCRealtimeSegmentManager {
     oldSegMetadata.setTimeUnit(TimeUnit.MILLISECONDS);
     oldSegMetadata.setIndexVersion(segmentMetadata.getVersion());
     oldSegMetadata.setTotalRawDocs(segmentMetadata.getTotalRawDocs());
+    oldSegMetadata.setPartitionMetadata(segmentMetadata.getPartitionMetadata());
 
     final ZNRecord oldZnRecord = oldSegMetadata.toZNRecord();
     final String oldZnodePath = ZKMetadataProvider.constructPropertyStorePathForSegment(realtimeTableName, committingSegmentNameStr);
@@ -516,6 +530,10 @@ public class PinotLLCRealtimeSegmentManager {
     final LLCRealtimeSegmentZKMetadata newSegmentZKMetadata = new LLCRealtimeSegmentZKMetadata(newZnRecord);
     updateFlushThresholdForSegmentMetadata(newSegmentZKMetadata, partitionAssignment,
         getRealtimeTableFlushSizeForTable(rawTableName));
+    SegmentPartitionConfig segmentPartitionConfig = getSegmentPartitionConfig(rawTableName);
+    newSegmentZKMetadata.setPartitionMetadata(getConsumingSegmentPartitionMetadata(segmentPartitionConfig,
+        getKafkaKeyColumnDataType(rawTableName, segmentPartitionConfig), partitionId,
+        partitionAssignment.getListFields().size()));
     newZnRecord = newSegmentZKMetadata.toZNRecord();
 
     final String newZnodePath = ZKMetadataProvider.constructPropertyStorePathForSegment(realtimeTableName, newSegmentNameStr);
@@ -566,6 +584,86 @@ public class PinotLLCRealtimeSegmentManager {
     return getRealtimeTableFlushSize(tableConfig);
   }
 
+  @Nullable
+  protected SegmentPartitionConfig getSegmentPartitionConfig(String tableName) {
+    AbstractTableConfig tableConfig = ZKMetadataProvider.getRealtimeTableConfig(_propertyStore, tableName);
+    if (tableConfig == null) {
+      return null;
+    }
+    return tableConfig.getIndexingConfig().getSegmentPartitionConfig();
+  }
+
+  /**
+   * Returns the data type of the kafka key column in the table schema, or null if there is no kafka key column or the
+   * schema is not available.
+   */
+  @Nullable
+  protected FieldSpec.DataType getKafkaKeyColumnDataType(String tableName,
+      @Nullable SegmentPartitionConfig segmentPartitionConfig) {
+    if (segmentPartitionConfig == null || segmentPartitionConfig.getKafkaKeyColumn() == null) {
+      return null;
+    }
+    AbstractTableConfig tableConfig = ZKMetadataProvider.getRealtimeTableConfig(_propertyStore, tableName);
+    if (tableConfig == null) {
+      return null;
+    }
+    String schemaName = tableConfig.getValidationConfig().getSchemaName();
+    ZNRecord schemaRecord = PinotHelixPropertyStoreZnRecordProvider.forSchema(_propertyStore).get(schemaName);
+    if (schemaRecord == null) {
+      LOGGER.warn("Failed to find schema: {} for table: {}", schemaName, tableName);
+      return null;
+    }
+    try {
+      FieldSpec fieldSpec = SchemaUtils.fromZNRecord(schemaRecord).getFieldSpecFor(
+          segmentPartitionConfig.getKafkaKeyColumn());
+      return fieldSpec != null ? fieldSpec.getDataType() : null;
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while reading schema: {} for table: {}", schemaName, tableName, e);
+      return null;
+    }
+  }
+
+  /**
+   * Returns the partition metadata of a consuming segment, before any record is consumed.
+   * The records consumed from a kafka partition only belong to the same partition of a partitioned column if the Kafka
+   * message key is the UTF-8 string value of the column, the partition function is the same as the kafka default
+   * partitioner (Murmur) and the number of partitions matches the kafka topic. The key cannot be checked here, so the
+   * column has to be declared explicitly as the kafka key column in the partition config. Other columns are left out,
+   * and get their partition metadata from the values when the segment is committed.
+   * Without the data type of the kafka key column, the partition metadata is recorded but not used for pruning.
+   */
+  @Nullable
+  static SegmentPartitionMetadata getConsumingSegmentPartitionMetadata(
+      @Nullable SegmentPartitionConfig segmentPartitionConfig, @Nullable FieldSpec.DataType kafkaKeyColumnDataType,
+      int kafkaPartitionId, int numKafkaPartitions) {
+    if (segmentPartitionConfig == null) {
+      return null;
+    }
+    String kafkaKeyColumn = segmentPartitionConfig.getKafkaKeyColumn();
+    if (kafkaKeyColumn == null) {
+      return null;
+    }
+    ColumnPartitionConfig columnPartitionConfig = segmentPartitionConfig.getColumnPartitionConfig(kafkaKeyColumn);
+    if (columnPartitionConfig == null) {
+      LOGGER.warn("Kafka key column: {} is not partitioned, ignoring it", kafkaKeyColumn);
+      return null;
+    }
+    if (!PartitionFunctionFactory.PartitionFunctionType.Murmur.name()
+        .equalsIgnoreCase(columnPartitionConfig.getFunctionName())
+        || columnPartitionConfig.getNumPartitions() != numKafkaPartitions) {
+      LOGGER.warn("Partition config: {} of kafka key column: {} does not match the kafka default partitioner with {} "
+          + "partitions, ignoring it", columnPartitionConfig, kafkaKeyColumn, numKafkaPartitions);
+      return null;
+    }
+    List<Integer> partitions = new ArrayList<>(1);
+    partitions.add(kafkaPartitionId);
+    Map<String, ColumnPartitionMetadata> columnPartitionMap = new HashMap<>(1);
+    columnPartitionMap.put(kafkaKeyColumn,
+        new ColumnPartitionMetadata(columnPartitionConfig.getFunctionName(), numKafkaPartitions, partitions,
+            kafkaKeyColumnDataType));
+    return new SegmentPartitionMetadata(columnPartitionMap);
+  }
+
   public static int getRealtimeTableFlushSize(AbstractTableConfig tableConfig) {
     final Map<String, String> streamConfigs = tableConfig.getIndexingConfig().getStreamConfigs();
     if (streamConfigs != null && streamConfigs.containsKey(
@@ -844,6 +942,10 @@ public class PinotLLCRealtimeSegmentManager {
     final LLCRealtimeSegmentZKMetadata newSegmentZKMetadata = new LLCRealtimeSegmentZKMetadata(newZnRecord);
     updateFlushThresholdForSegmentMetadata(newSegmentZKMetadata, partitionAssignment,
         getRealtimeTableFlushSizeForTable(realtimeTableName));
+    SegmentPartitionConfig segmentPartitionConfig = getSegmentPartitionConfig(realtimeTableName);
+    newSegmentZKMetadata.setPartitionMetadata(getConsumingSegmentPartitionMetadata(segmentPartitionConfig,
+        getKafkaKeyColumnDataType(realtimeTableName, segmentPartitionConfig), partitionId,
+        partitionAssignment.getListFields().size()));
     newZnRecord = newSegmentZKMetadata.toZNRecord();
 
     final String newZnodePath = ZKMetadataProvider
@@ -45,6 +45,7 @@ public class ZKMetadataUtils {
     offlineSegmentZKMetadata.setTotalRawDocs(segmentMetadata.getTotalRawDocs());
     offlineSegmentZKMetadata.setCreationTime(segmentMetadata.getIndexCreationTime());
     offlineSegmentZKMetadata.setCrc(Long.parseLong(segmentMetadata.getCrc()));
+    offlineSegmentZKMetadata.setPartitionMetadata(segmentMetadata.getPartitionMetadata());
     return offlineSegmentZKMetadata;
   }
 
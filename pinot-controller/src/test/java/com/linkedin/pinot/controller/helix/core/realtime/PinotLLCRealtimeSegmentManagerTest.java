@@ -32,11 +32,16 @@ import org.testng.Assert;
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 import com.linkedin.pinot.common.config.AbstractTableConfig;
+import com.linkedin.pinot.common.config.ColumnPartitionConfig;
 import com.linkedin.pinot.common.config.IndexingConfig;
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.config.SegmentsValidationAndRetentionConfig;
 import com.linkedin.pinot.common.config.TableNameBuilder;
 import com.linkedin.pinot.common.config.TenantConfig;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.metadata.segment.ColumnPartitionMetadata;
 import com.linkedin.pinot.common.metadata.segment.LLCRealtimeSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import com.linkedin.pinot.common.metadata.stream.KafkaStreamMetadata;
 import com.linkedin.pinot.common.metrics.ControllerMetrics;
 import com.linkedin.pinot.common.utils.CommonConstants;
@@ -667,6 +672,42 @@ public class PinotLLCRealtimeSegmentManagerTest {
     }
   }
 
+  @Test
+  public void testConsumingSegmentPartitionMetadata() {
+    final int nKafkaPartitions = 8;
+    Assert.assertNull(
+        PinotLLCRealtimeSegmentManager.getConsumingSegmentPartitionMetadata(null, null, 3, nKafkaPartitions));
+
+    Map<String, ColumnPartitionConfig> columnPartitionMap = new HashMap<>();
+    columnPartitionMap.put("memberId", new ColumnPartitionConfig("Murmur", nKafkaPartitions));
+    columnPartitionMap.put("companyId", new ColumnPartitionConfig("Murmur", 4));
+    columnPartitionMap.put("groupId", new ColumnPartitionConfig("Modulo", nKafkaPartitions));
+    SegmentPartitionConfig segmentPartitionConfig = new SegmentPartitionConfig(columnPartitionMap);
+
+    // Without an explicit kafka key column, the kafka partition is not used.
+    Assert.assertNull(PinotLLCRealtimeSegmentManager.getConsumingSegmentPartitionMetadata(segmentPartitionConfig,
+        FieldSpec.DataType.INT, 3, nKafkaPartitions));
+
+    // Only the kafka key column partitioned the same way as the kafka topic gets the kafka partition.
+    segmentPartitionConfig.setKafkaKeyColumn("memberId");
+    SegmentPartitionMetadata partitionMetadata =
+        PinotLLCRealtimeSegmentManager.getConsumingSegmentPartitionMetadata(segmentPartitionConfig,
+            FieldSpec.DataType.INT, 3, nKafkaPartitions);
+    Assert.assertNotNull(partitionMetadata);
+    Assert.assertEquals(partitionMetadata.getColumnPartitionMap().size(), 1);
+    ColumnPartitionMetadata columnPartitionMetadata = partitionMetadata.getColumnPartitionMetadata("memberId");
+    Assert.assertNotNull(columnPartitionMetadata);
+    Assert.assertEquals(columnPartitionMetadata.getNumPartitions(), nKafkaPartitions);
+    Assert.assertEquals(columnPartitionMetadata.getPartitions(), Collections.singletonList(3));
+    Assert.assertEquals(columnPartitionMetadata.getDataType(), FieldSpec.DataType.INT);
+
+    for (String kafkaKeyColumn : new String[]{"companyId", "groupId", "noSuchColumn"}) {
+      segmentPartitionConfig.setKafkaKeyColumn(kafkaKeyColumn);
+      Assert.assertNull(PinotLLCRealtimeSegmentManager.getConsumingSegmentPartitionMetadata(segmentPartitionConfig,
+          FieldSpec.DataType.INT, 3, nKafkaPartitions), kafkaKeyColumn);
+    }
+  }
+
   static class FakePinotLLCRealtimeSegmentManager extends PinotLLCRealtimeSegmentManager {
 
     private static final ControllerConf CONTROLLER_CONF = new ControllerConf();
@@ -824,6 +865,11 @@ public class PinotLLCRealtimeSegmentManagerTest {
       return 1000;
     }
 
+    @Override
+    protected SegmentPartitionConfig getSegmentPartitionConfig(String tableName) {
+      return null;
+    }
+
     @Override
     protected IdealState getTableIdealState(String realtimeTableName) {
       return _tableIdealState;
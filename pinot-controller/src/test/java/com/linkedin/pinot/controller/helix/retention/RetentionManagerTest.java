@@ -50,6 +50,7 @@ import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
 import com.linkedin.pinot.common.metadata.segment.LLCRealtimeSegmentZKMetadata;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.segment.StarTreeMetadata;
 import com.linkedin.pinot.common.utils.CommonConstants;
@@ -611,6 +612,12 @@ public class RetentionManagerTest {
       public String getDerivedColumn(String column, MetricFieldSpec.DerivedMetricType derivedMetricType) {
         return null;
       }
+
+      @Nullable
+      @Override
+      public SegmentPartitionMetadata getPartitionMetadata() {
+        return null;
+      }
     };
     return segmentMetadata;
   }
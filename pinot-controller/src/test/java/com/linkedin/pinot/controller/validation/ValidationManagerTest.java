@@ -46,6 +46,7 @@ import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import com.linkedin.pinot.common.metrics.ValidationMetrics;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.segment.StarTreeMetadata;
@@ -657,5 +658,11 @@ public class ValidationManagerTest {
     public String getDerivedColumn(String column, MetricFieldSpec.DerivedMetricType derivedMetricType) {
       return null;
     }
+
+    @Nullable
+    @Override
+    public SegmentPartitionMetadata getPartitionMetadata() {
+      return null;
+    }
   }
 }
@@ -48,4 +48,19 @@ public abstract class BlockSingleValIterator implements BlockValIterator {
   public String nextStringVal() {
     throw new UnsupportedOperationException();
   }
+
+  /**
+   * Read the next batch of int values (dictionary ids) into the given buffer.
+   *
+   * @param outValues buffer to return the values.
+   * @param length maximum number of values to read.
+   * @return number of values read, less than length only if the iterator reaches the end.
+   */
+  public int nextIntVals(int[] outValues, int length) {
+    int numValues = 0;
+    while (numValues < length && hasNext()) {
+      outValues[numValues++] = nextIntVal();
+    }
+    return numValues;
+  }
 }
@@ -21,6 +21,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.Map;
 import javax.annotation.Nonnull;
@@ -65,14 +66,21 @@ import javax.annotation.Nonnull;
  * first.Overall having dictionary allow us to convert data table into a fixed
  * width matrix and thus allowing look up and easy traversal.
  *
- *
+ * <p>For version 3, the values are written straight into the column blocks of {@link DataTableImplV3} instead, so every
+ * column must be set exactly once for each row.
  */
 // TODO: potential optimizations:
 // TODO:   1. Fix float size.
 // TODO:   2. Use one dictionary for all columns (save space).
 // TODO:   3. Given a data schema, write all values one by one instead of using rowId and colId to position (save time).
 public class DataTableBuilder {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int INT_SIZE = Integer.SIZE / Byte.SIZE;
+  private static final int INITIAL_COLUMN_BUFFER_SIZE = 1024;
+
   private final DataSchema _dataSchema;
+  private final int _version;
+  private final DataTableImplV3.CompressionCodec _compressionCodec;
   private final int[] _columnOffsets;
   private final int _rowSizeInBytes;
   private final Map<String, Map<String, Integer>> _dictionaryMap = new HashMap<>();
@@ -82,168 +90,255 @@ public class DataTableBuilder {
   private final DataOutputStream _variableSizeDataOutputStream =
       new DataOutputStream(_variableSizeDataByteArrayOutputStream);
 
+  // Version 3 only.
+  // Fixed size values, dictionary ids or value offsets of each column.
+  private final ByteBuffer[] _columnBuffers;
+  // Object and array values of each column.
+  private final ByteArrayOutputStream[] _columnValueByteArrayOutputStreams;
+  private final DataOutputStream[] _columnValueOutputStreams;
+
   private int _numRows;
   private ByteBuffer _currentRowDataByteBuffer;
 
   public DataTableBuilder(@Nonnull DataSchema dataSchema) {
+    this(dataSchema, DataTableFactory.VERSION_2, DataTableImplV3.CompressionCodec.NONE);
+  }
+
+  /**
+   * Constructor for the given data table version.
+   *
+   * @param dataSchema data schema.
+   * @param version data table version.
+   * @param compressionCodec compression codec for the column blocks of version 3 data table.
+   */
+  public DataTableBuilder(@Nonnull DataSchema dataSchema, int version,
+      @Nonnull DataTableImplV3.CompressionCodec compressionCodec) {
     _dataSchema = dataSchema;
-    _columnOffsets = new int[dataSchema.size()];
+    _version = version;
+    _compressionCodec = compressionCodec;
+    int numColumns = dataSchema.size();
+    _columnOffsets = new int[numColumns];
     _rowSizeInBytes = DataTableUtils.computeColumnOffsets(dataSchema, _columnOffsets);
+
+    switch (version) {
+      case DataTableFactory.VERSION_2:
+        _columnBuffers = null;
+        _columnValueByteArrayOutputStreams = null;
+        _columnValueOutputStreams = null;
+        break;
+      case DataTableFactory.VERSION_3:
+        _columnBuffers = new ByteBuffer[numColumns];
+        _columnValueByteArrayOutputStreams = new ByteArrayOutputStream[numColumns];
+        _columnValueOutputStreams = new DataOutputStream[numColumns];
+        for (int colId = 0; colId < numColumns; colId++) {
+          _columnBuffers[colId] = ByteBuffer.allocate(INITIAL_COLUMN_BUFFER_SIZE);
+          if (!DataTableImplV3.isFixedSizeColumnType(dataSchema.getColumnType(colId))) {
+            _columnValueByteArrayOutputStreams[colId] = new ByteArrayOutputStream();
+            _columnValueOutputStreams[colId] = new DataOutputStream(_columnValueByteArrayOutputStreams[colId]);
+          }
+        }
+        break;
+      default:
+        throw new IllegalArgumentException("Unsupported data table version: " + version);
+    }
   }
 
   public void startRow() {
     _numRows++;
-    _currentRowDataByteBuffer = ByteBuffer.allocate(_rowSizeInBytes);
+    if (_version == DataTableFactory.VERSION_2) {
+      _currentRowDataByteBuffer = ByteBuffer.allocate(_rowSizeInBytes);
+    }
   }
 
   public void setColumn(int colId, boolean value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
     if (value) {
-      _currentRowDataByteBuffer.put((byte) 1);
+      getValueBuffer(colId, 1).put((byte) 1);
     } else {
-      _currentRowDataByteBuffer.put((byte) 0);
+      getValueBuffer(colId, 1).put((byte) 0);
     }
   }
 
   public void setColumn(int colId, byte value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.put(value);
+    getValueBuffer(colId, 1).put(value);
   }
 
   public void setColumn(int colId, char value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putChar(value);
+    getValueBuffer(colId, 2).putChar(value);
   }
 
   public void setColumn(int colId, short value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putShort(value);
+    getValueBuffer(colId, 2).putShort(value);
   }
 
   public void setColumn(int colId, int value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(value);
+    getValueBuffer(colId, 4).putInt(value);
   }
 
   public void setColumn(int colId, long value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putLong(value);
+    getValueBuffer(colId, 8).putLong(value);
   }
 
   public void setColumn(int colId, float value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putFloat(value);
+    getValueBuffer(colId, 4).putFloat(value);
   }
 
   public void setColumn(int colId, double value) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putDouble(value);
+    getValueBuffer(colId, 8).putDouble(value);
   }
 
   public void setColumn(int colId, @Nonnull String value) {
-    String columnName = _dataSchema.getColumnName(colId);
-    Map<String, Integer> dictionary = _dictionaryMap.get(columnName);
-    if (dictionary == null) {
-      dictionary = new HashMap<>();
-      _dictionaryMap.put(columnName, dictionary);
-      _reverseDictionaryMap.put(columnName, new HashMap<Integer, String>());
-    }
-
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    Integer dictId = dictionary.get(value);
-    if (dictId == null) {
-      dictId = dictionary.size();
-      dictionary.put(value, dictId);
-      _reverseDictionaryMap.get(columnName).put(dictId, value);
-    }
-    _currentRowDataByteBuffer.putInt(dictId);
+    getValueBuffer(colId, INT_SIZE).putInt(getDictId(colId, value));
   }
 
   public void setColumn(int colId, @Nonnull Object value)
       throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
     byte[] bytes = ObjectCustomSerDe.serialize(value);
-    _currentRowDataByteBuffer.putInt(bytes.length);
-    _variableSizeDataOutputStream.writeInt(ObjectCustomSerDe.getObjectType(value).getValue());
-    _variableSizeDataByteArrayOutputStream.write(bytes);
+    DataOutputStream dataOutputStream = getVariableSizeValueOutputStream(colId, bytes.length);
+    dataOutputStream.writeInt(ObjectCustomSerDe.getObjectType(value).getValue());
+    dataOutputStream.write(bytes);
   }
 
-  public void setColumn(int colId, @Nonnull byte[] values) {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
-    for (byte value : values) {
-      _variableSizeDataByteArrayOutputStream.write(value);
-    }
+  public void setColumn(int colId, @Nonnull byte[] values)
+      throws IOException {
+    getArrayOutputStream(colId, values.length).write(values);
   }
 
   public void setColumn(int colId, @Nonnull char[] values)
       throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    DataOutputStream dataOutputStream = getArrayOutputStream(colId, values.length);
     for (char value : values) {
-      _variableSizeDataOutputStream.writeChar(value);
+      dataOutputStream.writeChar(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull short[] values)
       throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    DataOutputStream dataOutputStream = getArrayOutputStream(colId, values.length);
     for (short value : values) {
-      _variableSizeDataOutputStream.writeShort(value);
+      dataOutputStream.writeShort(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull int[] values)
       throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    DataOutputStream dataOutputStream = getArrayOutputStream(colId, values.length);
     for (int value : values) {
-      _variableSizeDataOutputStream.writeInt(value);
+      dataOutputStream.writeInt(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull long[] values)
       throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    DataOutputStream dataOutputStream = getArrayOutputStream(colId, values.length);
     for (long value : values) {
-      _variableSizeDataOutputStream.writeLong(value);
+      dataOutputStream.writeLong(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull float[] values)
       throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    DataOutputStream dataOutputStream = getArrayOutputStream(colId, values.length);
     for (float value : values) {
-      _variableSizeDataOutputStream.writeFloat(value);
+      dataOutputStream.writeFloat(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull double[] values)
       throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    DataOutputStream dataOutputStream = getArrayOutputStream(colId, values.length);
     for (double value : values) {
-      _variableSizeDataOutputStream.writeDouble(value);
+      dataOutputStream.writeDouble(value);
     }
   }
 
   public void setColumn(int colId, @Nonnull String[] values)
       throws IOException {
-    _currentRowDataByteBuffer.position(_columnOffsets[colId]);
-    _currentRowDataByteBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
-    _currentRowDataByteBuffer.putInt(values.length);
+    DataOutputStream dataOutputStream = getArrayOutputStream(colId, values.length);
+    if (_version == DataTableFactory.VERSION_2) {
+      for (String value : values) {
+        dataOutputStream.writeInt(getDictId(colId, value));
+      }
+    } else {
+      // Version 3 stores the string elements in place.
+      for (String value : values) {
+        writeString(dataOutputStream, value);
+      }
+    }
+  }
+
+  public void finishRow()
+      throws IOException {
+    if (_version == DataTableFactory.VERSION_2) {
+      _fixedSizeDataByteArrayOutputStream.write(_currentRowDataByteBuffer.array());
+      return;
+    }
+
+    // Column blocks are positional, so a missing value would shift all the following rows of the column.
+    int numColumns = _columnBuffers.length;
+    for (int colId = 0; colId < numColumns; colId++) {
+      int valueSize = DataTableImplV3.getValueSize(_dataSchema.getColumnType(colId));
+      if (_columnBuffers[colId].position() != _numRows * valueSize) {
+        throw new IllegalStateException(
+            "Column: " + _dataSchema.getColumnName(colId) + " is not set exactly once for row: " + (_numRows - 1));
+      }
+    }
+  }
+
+  /**
+   * Helper method to get the buffer to write the fixed size value (or dictionary id) of the column for the current row.
+   * <p>For version 2, this is the row buffer positioned at the column offset; for version 3, this is the column buffer,
+   * which is expanded if needed.
+   */
+  private ByteBuffer getValueBuffer(int colId, int valueSize) {
+    if (_version == DataTableFactory.VERSION_2) {
+      _currentRowDataByteBuffer.position(_columnOffsets[colId]);
+      return _currentRowDataByteBuffer;
+    }
+
+    ByteBuffer columnBuffer = _columnBuffers[colId];
+    if (columnBuffer.remaining() < valueSize) {
+      ByteBuffer expandedColumnBuffer = ByteBuffer.allocate(columnBuffer.capacity() * 2);
+      columnBuffer.flip();
+      expandedColumnBuffer.put(columnBuffer);
+      _columnBuffers[colId] = expandedColumnBuffer;
+      columnBuffer = expandedColumnBuffer;
+    }
+    return columnBuffer;
+  }
+
+  /**
+   * Helper method to record the start of an object or array value of the column for the current row, and get the
+   * stream to write the value.
+   * <p>For version 2, the position and length of the value are written into the row buffer; for version 3, the offset
+   * of the value is written into the column buffer.
+   */
+  private DataOutputStream getVariableSizeValueOutputStream(int colId, int length) {
+    if (_version == DataTableFactory.VERSION_2) {
+      ByteBuffer valueBuffer = getValueBuffer(colId, 2 * INT_SIZE);
+      valueBuffer.putInt(_variableSizeDataByteArrayOutputStream.size());
+      valueBuffer.putInt(length);
+      return _variableSizeDataOutputStream;
+    }
+
+    DataOutputStream columnValueOutputStream = _columnValueOutputStreams[colId];
+    getValueBuffer(colId, INT_SIZE).putInt(columnValueOutputStream.size());
+    return columnValueOutputStream;
+  }
+
+  /**
+   * Helper method to get the stream to write the elements of an array value of the column for the current row.
+   * <p>For version 3, the number of elements is written in front of the elements.
+   */
+  private DataOutputStream getArrayOutputStream(int colId, int length)
+      throws IOException {
+    DataOutputStream dataOutputStream = getVariableSizeValueOutputStream(colId, length);
+    if (_version == DataTableFactory.VERSION_3) {
+      dataOutputStream.writeInt(length);
+    }
+    return dataOutputStream;
+  }
 
+  private int getDictId(int colId, String value) {
     String columnName = _dataSchema.getColumnName(colId);
     Map<String, Integer> dictionary = _dictionaryMap.get(columnName);
     if (dictionary == null) {
@@ -252,24 +347,76 @@ public class DataTableBuilder {
       _reverseDictionaryMap.put(columnName, new HashMap<Integer, String>());
     }
 
-    for (String value : values) {
-      Integer dictId = dictionary.get(value);
-      if (dictId == null) {
-        dictId = dictionary.size();
-        dictionary.put(value, dictId);
-        _reverseDictionaryMap.get(columnName).put(dictId, value);
-      }
-      _variableSizeDataOutputStream.writeInt(dictId);
+    Integer dictId = dictionary.get(value);
+    if (dictId == null) {
+      dictId = dictionary.size();
+      dictionary.put(value, dictId);
+      _reverseDictionaryMap.get(columnName).put(dictId, value);
     }
+    return dictId;
   }
 
-  public void finishRow()
+  private static void writeString(DataOutputStream dataOutputStream, String value)
       throws IOException {
-    _fixedSizeDataByteArrayOutputStream.write(_currentRowDataByteBuffer.array());
+    byte[] bytes = value.getBytes(UTF_8);
+    dataOutputStream.writeInt(bytes.length);
+    dataOutputStream.write(bytes);
   }
 
   public DataTable build() {
+    if (_version == DataTableFactory.VERSION_3) {
+      try {
+        return new DataTableImplV3(_numRows, _dataSchema, buildColumnBlocks(), _compressionCodec);
+      } catch (IOException e) {
+        throw new RuntimeException("Caught exception while building column blocks.", e);
+      }
+    }
     return new DataTableImplV2(_numRows, _dataSchema, _reverseDictionaryMap,
         _fixedSizeDataByteArrayOutputStream.toByteArray(), _variableSizeDataByteArrayOutputStream.toByteArray());
   }
+
+  /**
+   * Helper method to assemble the column blocks of version 3 data table, see {@link DataTableImplV3} for the format.
+   */
+  private byte[][] buildColumnBlocks()
+      throws IOException {
+    int numColumns = _columnBuffers.length;
+    byte[][] columnBlocks = new byte[numColumns][];
+    for (int colId = 0; colId < numColumns; colId++) {
+      ByteBuffer columnBuffer = _columnBuffers[colId];
+      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+      DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+      switch (_dataSchema.getColumnType(colId)) {
+        case STRING:
+          Map<Integer, String> dictionary = _reverseDictionaryMap.get(_dataSchema.getColumnName(colId));
+          int dictionarySize = (dictionary != null) ? dictionary.size() : 0;
+          dataOutputStream.writeInt(dictionarySize);
+          for (int dictId = 0; dictId < dictionarySize; dictId++) {
+            writeString(dataOutputStream, dictionary.get(dictId));
+          }
+          dataOutputStream.write(columnBuffer.array(), 0, columnBuffer.position());
+          break;
+        case BOOLEAN:
+        case BYTE:
+        case CHAR:
+        case SHORT:
+        case INT:
+        case LONG:
+        case FLOAT:
+        case DOUBLE:
+          dataOutputStream.write(columnBuffer.array(), 0, columnBuffer.position());
+          break;
+        // Object and array.
+        default:
+          // Value offsets followed by the end offset of the last value.
+          DataOutputStream columnValueOutputStream = _columnValueOutputStreams[colId];
+          dataOutputStream.write(columnBuffer.array(), 0, columnBuffer.position());
+          dataOutputStream.writeInt(columnValueOutputStream.size());
+          _columnValueByteArrayOutputStreams[colId].writeTo(dataOutputStream);
+          break;
+      }
+      columnBlocks[colId] = byteArrayOutputStream.toByteArray();
+    }
+    return columnBlocks;
+  }
 }
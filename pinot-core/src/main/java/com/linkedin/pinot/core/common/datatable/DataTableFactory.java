@@ -20,17 +20,40 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 
 
+/**
+ * Factory for data tables.
+ * <p>De-serialization reads the version from the serialized data table, so brokers can read data tables of all the
+ * supported versions. The version used to build data tables (and the compression codec for version 3) is passed to
+ * {@link DataTableBuilder} from the query executor config of the servers, and should only be changed after all the
+ * brokers support the version.
+ */
 public class DataTableFactory {
+  public static final int VERSION_2 = 2;
+  public static final int VERSION_3 = 3;
+
   private DataTableFactory() {
   }
 
   public static DataTable getDataTable(byte[] bytes)
       throws IOException {
-    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
-    int version = byteBuffer.getInt();
+    return getDataTable(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * De-serialize the data table from the remaining bytes of the byte buffer, e.g. the NIO buffer of a network response.
+   * <p>Version 3 data tables read the uncompressed column blocks in place, so the byte buffer should not be modified or
+   * released while the data table is in use.
+   */
+  public static DataTable getDataTable(ByteBuffer byteBuffer)
+      throws IOException {
+    // Slice the buffer so that the data table starts at index 0.
+    ByteBuffer dataTableBuffer = byteBuffer.slice();
+    int version = dataTableBuffer.getInt();
     switch (version) {
-      case 2:
-        return new DataTableImplV2(byteBuffer);
+      case VERSION_2:
+        return new DataTableImplV2(dataTableBuffer);
+      case VERSION_3:
+        return new DataTableImplV3(dataTableBuffer);
       default:
         throw new UnsupportedOperationException("Unsupported data table version: " + version);
     }
@@ -127,7 +127,7 @@ public class DataTableImplV2 implements DataTable {
     byte[] metadataBytes = new byte[metadataLength];
     byteBuffer.position(metadataStart);
     byteBuffer.get(metadataBytes);
-    _metadata = deserializeMetadata(metadataBytes);
+    _metadata = DataTableUtils.deserializeMetadata(metadataBytes);
 
     // Read data schema.
     if (dataSchemaLength != 0) {
@@ -197,32 +197,6 @@ public class DataTableImplV2 implements DataTable {
     return dictionaryMap;
   }
 
-  private Map<String, String> deserializeMetadata(byte[] bytes)
-      throws IOException {
-    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
-    DataInputStream dataInputStream = new DataInputStream(byteArrayInputStream);
-
-    int numEntries = dataInputStream.readInt();
-    Map<String, String> metadata = new HashMap<>(numEntries);
-
-    int readLength;
-    for (int i = 0; i < numEntries; i++) {
-      int keyLength = dataInputStream.readInt();
-      byte[] keyBytes = new byte[keyLength];
-      readLength = dataInputStream.read(keyBytes);
-      assert readLength == keyLength;
-
-      int valueLength = dataInputStream.readInt();
-      byte[] valueBytes = new byte[valueLength];
-      readLength = dataInputStream.read(valueBytes);
-      assert readLength == valueLength;
-
-      metadata.put(new String(keyBytes, UTF_8), new String(valueBytes, UTF_8));
-    }
-
-    return metadata;
-  }
-
   @Override
   public void addException(@Nonnull ProcessingException processingException) {
     _metadata.put(EXCEPTION_METADATA_KEY + processingException.getErrorCode(), processingException.getMessage());
@@ -252,7 +226,7 @@ public class DataTableImplV2 implements DataTable {
 
     // Write metadata.
     dataOutputStream.writeInt(dataOffset);
-    byte[] metadataBytes = serializeMetadata();
+    byte[] metadataBytes = DataTableUtils.serializeMetadata(_metadata);
     dataOutputStream.writeInt(metadataBytes.length);
     dataOffset += metadataBytes.length;
 
@@ -327,25 +301,6 @@ public class DataTableImplV2 implements DataTable {
     return byteArrayOutputStream.toByteArray();
   }
 
-  private byte[] serializeMetadata()
-      throws IOException {
-    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
-
-    dataOutputStream.writeInt(_metadata.size());
-    for (Entry<String, String> entry : _metadata.entrySet()) {
-      byte[] keyBytes = entry.getKey().getBytes(UTF_8);
-      dataOutputStream.writeInt(keyBytes.length);
-      dataOutputStream.write(keyBytes);
-
-      byte[] valueBytes = entry.getValue().getBytes(UTF_8);
-      dataOutputStream.writeInt(valueBytes.length);
-      dataOutputStream.write(valueBytes);
-    }
-
-    return byteArrayOutputStream.toByteArray();
-  }
-
   @Nonnull
   @Override
   public Map<String, String> getMetadata() {
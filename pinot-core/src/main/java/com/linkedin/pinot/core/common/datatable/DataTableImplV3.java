@@ -0,0 +1,639 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.common.datatable;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.common.utils.DataTable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * Columnar data table.
+ * <p>Each column is serialized into its own column block, so that each block holds values of the same type which can
+ * be compressed independently, and the blocks can be read in place from the buffer they are de-serialized from without
+ * copying (unless compressed).
+ * <p>Column block formats:
+ * <ul>
+ *   <li>Fixed size types: values of all rows. (FLOAT takes 4 bytes)</li>
+ *   <li>STRING: column dictionary (NUM_ENTRIES|(LENGTH|UTF-8 BYTES)...) followed by dictionary ids of all rows.</li>
+ *   <li>OBJECT and arrays: NUM_ROWS + 1 value offsets followed by the values. OBJECT value is (OBJECT_TYPE|BYTES),
+ *   array value is (NUM_ELEMENTS|ELEMENTS), where STRING elements are (LENGTH|UTF-8 BYTES).</li>
+ * </ul>
+ */
+public class DataTableImplV3 implements DataTable {
+  private static final int VERSION = 3;
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int INT_SIZE = Integer.SIZE / Byte.SIZE;
+
+  // VERSION
+  // NUM_ROWS
+  // NUM_COLUMNS
+  // COMPRESSION_CODEC
+  // METADATA (START|SIZE)
+  // DATA_SCHEMA (START|SIZE)
+  private static final int HEADER_SIZE = INT_SIZE * 8;
+  // Followed by one entry for each column.
+  // COLUMN_BLOCK (START|SIZE|UNCOMPRESSED_SIZE)
+  private static final int COLUMN_ENTRY_SIZE = INT_SIZE * 3;
+
+  // Column blocks smaller than this size are not worth compressing.
+  private static final int MIN_COLUMN_BLOCK_SIZE_TO_COMPRESS = 1024;
+
+  /**
+   * Compression codec for the column blocks.
+   * <p>The ordinal is serialized, DON'T change the order.
+   */
+  public enum CompressionCodec {
+    NONE,
+    DEFLATE
+  }
+
+  private final int _numRows;
+  private final int _numColumns;
+  private final DataSchema _dataSchema;
+  private final CompressionCodec _compressionCodec;
+  private final ByteBuffer[] _columnBlocks;
+  // Offset of the values inside the column block (after the dictionary or value offsets).
+  private final int[] _valueOffsets;
+  private final String[][] _dictionaries;
+  private final Map<String, String> _metadata;
+
+  /**
+   * Construct data table with the column blocks written by {@link DataTableBuilder}. (Server side)
+   */
+  public DataTableImplV3(int numRows, @Nonnull DataSchema dataSchema, @Nonnull byte[][] columnBlocks,
+      @Nonnull CompressionCodec compressionCodec) {
+    _numRows = numRows;
+    _numColumns = dataSchema.size();
+    _dataSchema = dataSchema;
+    _compressionCodec = compressionCodec;
+    _columnBlocks = new ByteBuffer[_numColumns];
+    _valueOffsets = new int[_numColumns];
+    _dictionaries = new String[_numColumns][];
+    _metadata = new HashMap<>();
+
+    for (int colId = 0; colId < _numColumns; colId++) {
+      _columnBlocks[colId] = ByteBuffer.wrap(columnBlocks[colId]);
+      initColumn(colId);
+    }
+  }
+
+  /**
+   * Construct empty data table. (Server side)
+   */
+  public DataTableImplV3() {
+    _numRows = 0;
+    _numColumns = 0;
+    _dataSchema = null;
+    _compressionCodec = CompressionCodec.NONE;
+    _columnBlocks = null;
+    _valueOffsets = null;
+    _dictionaries = null;
+    _metadata = new HashMap<>();
+  }
+
+  /**
+   * Construct data table from byte buffer, where the data table starts at index 0 and the version has been read.
+   * (Broker side)
+   * <p>Uncompressed column blocks are read in place, so the byte buffer should not be modified afterwards.
+   */
+  public DataTableImplV3(@Nonnull ByteBuffer byteBuffer)
+      throws IOException {
+    // Read header.
+    _numRows = byteBuffer.getInt();
+    _numColumns = byteBuffer.getInt();
+    int compressionCodecValue = byteBuffer.getInt();
+    if (compressionCodecValue < 0 || compressionCodecValue >= CompressionCodec.values().length) {
+      throw new IOException("Illegal value for compression codec: " + compressionCodecValue);
+    }
+    _compressionCodec = CompressionCodec.values()[compressionCodecValue];
+    int metadataStart = byteBuffer.getInt();
+    int metadataLength = byteBuffer.getInt();
+    int dataSchemaStart = byteBuffer.getInt();
+    int dataSchemaLength = byteBuffer.getInt();
+
+    // Read metadata.
+    byte[] metadataBytes = new byte[metadataLength];
+    byteBuffer.position(metadataStart);
+    byteBuffer.get(metadataBytes);
+    _metadata = DataTableUtils.deserializeMetadata(metadataBytes);
+
+    // Read data schema.
+    if (dataSchemaLength != 0) {
+      byte[] schemaBytes = new byte[dataSchemaLength];
+      byteBuffer.position(dataSchemaStart);
+      byteBuffer.get(schemaBytes);
+      _dataSchema = DataSchema.fromBytes(schemaBytes);
+    } else {
+      _dataSchema = null;
+    }
+
+    // Read column blocks.
+    if (_numColumns != 0) {
+      _columnBlocks = new ByteBuffer[_numColumns];
+      _valueOffsets = new int[_numColumns];
+      _dictionaries = new String[_numColumns][];
+      for (int colId = 0; colId < _numColumns; colId++) {
+        int columnEntryOffset = HEADER_SIZE + colId * COLUMN_ENTRY_SIZE;
+        int columnBlockStart = byteBuffer.getInt(columnEntryOffset);
+        int columnBlockSize = byteBuffer.getInt(columnEntryOffset + INT_SIZE);
+        int uncompressedSize = byteBuffer.getInt(columnEntryOffset + 2 * INT_SIZE);
+        if (columnBlockSize == uncompressedSize) {
+          ByteBuffer duplicate = byteBuffer.duplicate();
+          duplicate.limit(columnBlockStart + columnBlockSize);
+          duplicate.position(columnBlockStart);
+          _columnBlocks[colId] = duplicate.slice();
+        } else {
+          _columnBlocks[colId] =
+              ByteBuffer.wrap(decompress(byteBuffer, columnBlockStart, columnBlockSize, uncompressedSize));
+        }
+        initColumn(colId);
+      }
+    } else {
+      _columnBlocks = null;
+      _valueOffsets = null;
+      _dictionaries = null;
+    }
+  }
+
+  /**
+   * Returns whether the values of the column type are stored in place in the column block.
+   */
+  static boolean isFixedSizeColumnType(@Nonnull FieldSpec.DataType columnType) {
+    switch (columnType) {
+      case BOOLEAN:
+      case BYTE:
+      case CHAR:
+      case SHORT:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Returns the size of the per row entry of the column type: the value for fixed size types, the dictionary id for
+   * STRING, or the value offset for OBJECT and arrays.
+   */
+  static int getValueSize(@Nonnull FieldSpec.DataType columnType) {
+    switch (columnType) {
+      case BOOLEAN:
+      case BYTE:
+        return 1;
+      case CHAR:
+      case SHORT:
+        return 2;
+      case INT:
+      case FLOAT:
+        return 4;
+      case LONG:
+      case DOUBLE:
+        return 8;
+      default:
+        return INT_SIZE;
+    }
+  }
+
+  /**
+   * Helper method to read the dictionary and compute the value offset of the column.
+   */
+  private void initColumn(int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    switch (_dataSchema.getColumnType(colId)) {
+      case BOOLEAN:
+      case BYTE:
+      case CHAR:
+      case SHORT:
+      case INT:
+      case LONG:
+      case FLOAT:
+      case DOUBLE:
+        _valueOffsets[colId] = 0;
+        break;
+      case STRING:
+        int dictionarySize = columnBlock.getInt(0);
+        String[] dictionary = new String[dictionarySize];
+        int offset = INT_SIZE;
+        for (int dictId = 0; dictId < dictionarySize; dictId++) {
+          int length = columnBlock.getInt(offset);
+          dictionary[dictId] = readString(columnBlock, offset + INT_SIZE, length);
+          offset += INT_SIZE + length;
+        }
+        _dictionaries[colId] = dictionary;
+        _valueOffsets[colId] = offset;
+        break;
+      // Object and array.
+      default:
+        _valueOffsets[colId] = (_numRows + 1) * INT_SIZE;
+        break;
+    }
+  }
+
+  private static String readString(ByteBuffer byteBuffer, int offset, int length) {
+    byte[] bytes = new byte[length];
+    ByteBuffer duplicate = byteBuffer.duplicate();
+    duplicate.position(offset);
+    duplicate.get(bytes);
+    return new String(bytes, UTF_8);
+  }
+
+  private static byte[] compress(byte[] bytes) {
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try {
+      deflater.setInput(bytes);
+      deflater.finish();
+      ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream(bytes.length);
+      byte[] buffer = new byte[4096];
+      while (!deflater.finished()) {
+        int length = deflater.deflate(buffer);
+        byteArrayOutputStream.write(buffer, 0, length);
+      }
+      return byteArrayOutputStream.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+
+  private byte[] decompress(ByteBuffer byteBuffer, int start, int size, int uncompressedSize)
+      throws IOException {
+    if (_compressionCodec != CompressionCodec.DEFLATE) {
+      throw new IOException("Compressed column block with compression codec: " + _compressionCodec);
+    }
+    byte[] compressedBytes;
+    int offset;
+    if (byteBuffer.hasArray()) {
+      compressedBytes = byteBuffer.array();
+      offset = byteBuffer.arrayOffset() + start;
+    } else {
+      compressedBytes = new byte[size];
+      ByteBuffer duplicate = byteBuffer.duplicate();
+      duplicate.position(start);
+      duplicate.get(compressedBytes);
+      offset = 0;
+    }
+    Inflater inflater = new Inflater();
+    try {
+      inflater.setInput(compressedBytes, offset, size);
+      byte[] bytes = new byte[uncompressedSize];
+      int length = 0;
+      while (length < uncompressedSize) {
+        int inflatedLength = inflater.inflate(bytes, length, uncompressedSize - length);
+        if (inflatedLength == 0 && (inflater.finished() || inflater.needsInput())) {
+          throw new IOException("Column block is shorter than the expected size: " + uncompressedSize);
+        }
+        length += inflatedLength;
+      }
+      return bytes;
+    } catch (DataFormatException e) {
+      throw new IOException("Caught exception while decompressing column block.", e);
+    } finally {
+      inflater.end();
+    }
+  }
+
+  @Override
+  public void addException(@Nonnull ProcessingException processingException) {
+    _metadata.put(EXCEPTION_METADATA_KEY + processingException.getErrorCode(), processingException.getMessage());
+  }
+
+  @Nonnull
+  @Override
+  public byte[] toBytes()
+      throws IOException {
+    byte[] metadataBytes = DataTableUtils.serializeMetadata(_metadata);
+    byte[] dataSchemaBytes = (_dataSchema != null) ? _dataSchema.toBytes() : null;
+    byte[][] columnBlockBytes = new byte[_numColumns][];
+    int[] uncompressedSizes = new int[_numColumns];
+    for (int colId = 0; colId < _numColumns; colId++) {
+      ByteBuffer columnBlock = _columnBlocks[colId].duplicate();
+      columnBlock.clear();
+      byte[] bytes = new byte[columnBlock.remaining()];
+      columnBlock.get(bytes);
+      uncompressedSizes[colId] = bytes.length;
+      if (_compressionCodec == CompressionCodec.DEFLATE && bytes.length >= MIN_COLUMN_BLOCK_SIZE_TO_COMPRESS) {
+        // Only keep the compressed column block if it is smaller.
+        byte[] compressedBytes = compress(bytes);
+        if (compressedBytes.length < bytes.length) {
+          bytes = compressedBytes;
+        }
+      }
+      columnBlockBytes[colId] = bytes;
+    }
+
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+    dataOutputStream.writeInt(VERSION);
+    dataOutputStream.writeInt(_numRows);
+    dataOutputStream.writeInt(_numColumns);
+    dataOutputStream.writeInt(_compressionCodec.ordinal());
+    int dataOffset = HEADER_SIZE + _numColumns * COLUMN_ENTRY_SIZE;
+
+    // Write metadata.
+    dataOutputStream.writeInt(dataOffset);
+    dataOutputStream.writeInt(metadataBytes.length);
+    dataOffset += metadataBytes.length;
+
+    // Write data schema.
+    dataOutputStream.writeInt(dataOffset);
+    if (dataSchemaBytes != null) {
+      dataOutputStream.writeInt(dataSchemaBytes.length);
+      dataOffset += dataSchemaBytes.length;
+    } else {
+      dataOutputStream.writeInt(0);
+    }
+
+    // Write column blocks.
+    for (int colId = 0; colId < _numColumns; colId++) {
+      dataOutputStream.writeInt(dataOffset);
+      dataOutputStream.writeInt(columnBlockBytes[colId].length);
+      dataOutputStream.writeInt(uncompressedSizes[colId]);
+      dataOffset += columnBlockBytes[colId].length;
+    }
+
+    // Write actual data.
+    dataOutputStream.write(metadataBytes);
+    if (dataSchemaBytes != null) {
+      dataOutputStream.write(dataSchemaBytes);
+    }
+    for (byte[] bytes : columnBlockBytes) {
+      dataOutputStream.write(bytes);
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  @Nonnull
+  @Override
+  public Map<String, String> getMetadata() {
+    return _metadata;
+  }
+
+  @Nullable
+  @Override
+  public DataSchema getDataSchema() {
+    return _dataSchema;
+  }
+
+  @Override
+  public int getNumberOfRows() {
+    return _numRows;
+  }
+
+  @Override
+  public boolean getBoolean(int rowId, int colId) {
+    return _columnBlocks[colId].get(rowId) == 1;
+  }
+
+  @Override
+  public char getChar(int rowId, int colId) {
+    return _columnBlocks[colId].getChar(rowId * 2);
+  }
+
+  @Override
+  public byte getByte(int rowId, int colId) {
+    return _columnBlocks[colId].get(rowId);
+  }
+
+  @Override
+  public short getShort(int rowId, int colId) {
+    return _columnBlocks[colId].getShort(rowId * 2);
+  }
+
+  @Override
+  public int getInt(int rowId, int colId) {
+    return _columnBlocks[colId].getInt(rowId * 4);
+  }
+
+  @Override
+  public long getLong(int rowId, int colId) {
+    return _columnBlocks[colId].getLong(rowId * 8);
+  }
+
+  @Override
+  public float getFloat(int rowId, int colId) {
+    return _columnBlocks[colId].getFloat(rowId * 4);
+  }
+
+  @Override
+  public double getDouble(int rowId, int colId) {
+    return _columnBlocks[colId].getDouble(rowId * 8);
+  }
+
+  @Nonnull
+  @Override
+  public String getString(int rowId, int colId) {
+    return _dictionaries[colId][_columnBlocks[colId].getInt(_valueOffsets[colId] + rowId * INT_SIZE)];
+  }
+
+  @Nonnull
+  @Override
+  public <T> T getObject(int rowId, int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    int valueStart = getValueStart(rowId, colId);
+    ObjectType objectType = ObjectType.getObjectType(columnBlock.getInt(valueStart));
+    byte[] bytes = new byte[getValueEnd(rowId, colId) - valueStart - INT_SIZE];
+    ByteBuffer duplicate = columnBlock.duplicate();
+    duplicate.position(valueStart + INT_SIZE);
+    duplicate.get(bytes);
+    try {
+      return ObjectCustomSerDe.deserialize(bytes, objectType);
+    } catch (IOException e) {
+      throw new RuntimeException("Caught exception while de-serializing object.", e);
+    }
+  }
+
+  @Nonnull
+  @Override
+  public byte[] getByteArray(int rowId, int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    int valueStart = getValueStart(rowId, colId);
+    byte[] bytes = new byte[columnBlock.getInt(valueStart)];
+    ByteBuffer duplicate = columnBlock.duplicate();
+    duplicate.position(valueStart + INT_SIZE);
+    duplicate.get(bytes);
+    return bytes;
+  }
+
+  @Nonnull
+  @Override
+  public char[] getCharArray(int rowId, int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    int valueStart = getValueStart(rowId, colId);
+    char[] chars = new char[columnBlock.getInt(valueStart)];
+    int elementStart = valueStart + INT_SIZE;
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = columnBlock.getChar(elementStart + i * 2);
+    }
+    return chars;
+  }
+
+  @Nonnull
+  @Override
+  public short[] getShortArray(int rowId, int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    int valueStart = getValueStart(rowId, colId);
+    short[] shorts = new short[columnBlock.getInt(valueStart)];
+    int elementStart = valueStart + INT_SIZE;
+    for (int i = 0; i < shorts.length; i++) {
+      shorts[i] = columnBlock.getShort(elementStart + i * 2);
+    }
+    return shorts;
+  }
+
+  @Nonnull
+  @Override
+  public int[] getIntArray(int rowId, int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    int valueStart = getValueStart(rowId, colId);
+    int[] ints = new int[columnBlock.getInt(valueStart)];
+    int elementStart = valueStart + INT_SIZE;
+    for (int i = 0; i < ints.length; i++) {
+      ints[i] = columnBlock.getInt(elementStart + i * 4);
+    }
+    return ints;
+  }
+
+  @Nonnull
+  @Override
+  public long[] getLongArray(int rowId, int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    int valueStart = getValueStart(rowId, colId);
+    long[] longs = new long[columnBlock.getInt(valueStart)];
+    int elementStart = valueStart + INT_SIZE;
+    for (int i = 0; i < longs.length; i++) {
+      longs[i] = columnBlock.getLong(elementStart + i * 8);
+    }
+    return longs;
+  }
+
+  @Nonnull
+  @Override
+  public float[] getFloatArray(int rowId, int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    int valueStart = getValueStart(rowId, colId);
+    float[] floats = new float[columnBlock.getInt(valueStart)];
+    int elementStart = valueStart + INT_SIZE;
+    for (int i = 0; i < floats.length; i++) {
+      floats[i] = columnBlock.getFloat(elementStart + i * 4);
+    }
+    return floats;
+  }
+
+  @Nonnull
+  @Override
+  public double[] getDoubleArray(int rowId, int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    int valueStart = getValueStart(rowId, colId);
+    double[] doubles = new double[columnBlock.getInt(valueStart)];
+    int elementStart = valueStart + INT_SIZE;
+    for (int i = 0; i < doubles.length; i++) {
+      doubles[i] = columnBlock.getDouble(elementStart + i * 8);
+    }
+    return doubles;
+  }
+
+  @Nonnull
+  @Override
+  public String[] getStringArray(int rowId, int colId) {
+    ByteBuffer columnBlock = _columnBlocks[colId];
+    int valueStart = getValueStart(rowId, colId);
+    String[] strings = new String[columnBlock.getInt(valueStart)];
+    int offset = valueStart + INT_SIZE;
+    for (int i = 0; i < strings.length; i++) {
+      int length = columnBlock.getInt(offset);
+      strings[i] = readString(columnBlock, offset + INT_SIZE, length);
+      offset += INT_SIZE + length;
+    }
+    return strings;
+  }
+
+  private int getValueStart(int rowId, int colId) {
+    return _valueOffsets[colId] + _columnBlocks[colId].getInt(rowId * INT_SIZE);
+  }
+
+  private int getValueEnd(int rowId, int colId) {
+    return _valueOffsets[colId] + _columnBlocks[colId].getInt((rowId + 1) * INT_SIZE);
+  }
+
+  @Override
+  public String toString() {
+    if (_dataSchema == null) {
+      return _metadata.toString();
+    }
+
+    StringBuilder stringBuilder = new StringBuilder();
+    stringBuilder.append(_dataSchema.toString()).append('\n');
+    stringBuilder.append("numRows: ").append(_numRows).append('\n');
+    stringBuilder.append("compressionCodec: ").append(_compressionCodec).append('\n');
+
+    for (int rowId = 0; rowId < _numRows; rowId++) {
+      for (int colId = 0; colId < _numColumns; colId++) {
+        switch (_dataSchema.getColumnType(colId)) {
+          case BOOLEAN:
+          case BYTE:
+            stringBuilder.append(getByte(rowId, colId));
+            break;
+          case CHAR:
+            stringBuilder.append(getChar(rowId, colId));
+            break;
+          case SHORT:
+            stringBuilder.append(getShort(rowId, colId));
+            break;
+          case INT:
+            stringBuilder.append(getInt(rowId, colId));
+            break;
+          case LONG:
+            stringBuilder.append(getLong(rowId, colId));
+            break;
+          case FLOAT:
+            stringBuilder.append(getFloat(rowId, colId));
+            break;
+          case DOUBLE:
+            stringBuilder.append(getDouble(rowId, colId));
+            break;
+          case STRING:
+            stringBuilder.append(getString(rowId, colId));
+            break;
+          // Object and array.
+          default:
+            int valueStart = getValueStart(rowId, colId);
+            stringBuilder.append(String.format("(%s:%s)", valueStart, getValueEnd(rowId, colId) - valueStart));
+            break;
+        }
+        stringBuilder.append("\t");
+      }
+      stringBuilder.append("\n");
+    }
+    return stringBuilder.toString();
+  }
+}
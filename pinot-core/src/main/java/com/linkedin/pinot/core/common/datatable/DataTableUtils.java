@@ -16,6 +16,14 @@
 package com.linkedin.pinot.core.common.datatable;
 
 import com.linkedin.pinot.common.utils.DataSchema;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
 import javax.annotation.Nonnull;
 
 
@@ -23,6 +31,8 @@ import javax.annotation.Nonnull;
  * The <code>DataTableUtils</code> class provides utility methods for data table.
  */
 public class DataTableUtils {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
   private DataTableUtils() {
   }
 
@@ -80,4 +90,65 @@ public class DataTableUtils {
 
     return rowSizeInBytes;
   }
+
+  /**
+   * Serialize the data table metadata into a byte array.
+   *
+   * @param metadata data table metadata.
+   * @return serialized metadata.
+   * @throws IOException
+   */
+  @Nonnull
+  public static byte[] serializeMetadata(@Nonnull Map<String, String> metadata)
+      throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+
+    dataOutputStream.writeInt(metadata.size());
+    for (Map.Entry<String, String> entry : metadata.entrySet()) {
+      byte[] keyBytes = entry.getKey().getBytes(UTF_8);
+      dataOutputStream.writeInt(keyBytes.length);
+      dataOutputStream.write(keyBytes);
+
+      byte[] valueBytes = entry.getValue().getBytes(UTF_8);
+      dataOutputStream.writeInt(valueBytes.length);
+      dataOutputStream.write(valueBytes);
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  /**
+   * De-serialize the data table metadata from a byte array.
+   *
+   * @param bytes serialized metadata.
+   * @return data table metadata.
+   * @throws IOException
+   */
+  @Nonnull
+  public static Map<String, String> deserializeMetadata(@Nonnull byte[] bytes)
+      throws IOException {
+    ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(bytes);
+    DataInputStream dataInputStream = new DataInputStream(byteArrayInputStream);
+
+    int numEntries = dataInputStream.readInt();
+    Map<String, String> metadata = new HashMap<>(numEntries);
+
+    int readLength;
+    for (int i = 0; i < numEntries; i++) {
+      int keyLength = dataInputStream.readInt();
+      byte[] keyBytes = new byte[keyLength];
+      readLength = dataInputStream.read(keyBytes);
+      assert readLength == keyLength;
+
+      int valueLength = dataInputStream.readInt();
+      byte[] valueBytes = new byte[valueLength];
+      readLength = dataInputStream.read(valueBytes);
+      assert readLength == valueLength;
+
+      metadata.put(new String(keyBytes, UTF_8), new String(valueBytes, UTF_8));
+    }
+
+    return metadata;
+  }
 }
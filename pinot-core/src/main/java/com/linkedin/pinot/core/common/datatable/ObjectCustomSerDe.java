@@ -19,10 +19,12 @@ import com.clearspring.analytics.stream.cardinality.HyperLogLog;
 import com.linkedin.pinot.core.query.aggregation.function.customobject.AvgPair;
 import com.linkedin.pinot.core.query.aggregation.function.customobject.MinMaxRangePair;
 import com.linkedin.pinot.core.query.aggregation.function.customobject.QuantileDigest;
+import com.linkedin.pinot.core.query.aggregation.function.customobject.TDigest;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.ints.IntIterator;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
@@ -71,6 +73,10 @@ public class ObjectCustomSerDe {
       return serializeHashMap((HashMap<Object, Object>) object);
     } else if (object instanceof IntOpenHashSet) {
       return serializeIntOpenHashSet((IntOpenHashSet) object);
+    } else if (object instanceof TDigest) {
+      return ((TDigest) object).toBytes();
+    } else if (object instanceof ObjectOpenHashSet) {
+      return serializeObjectOpenHashSet((ObjectOpenHashSet<Object>) object);
     } else {
       throw new IllegalArgumentException("Illegal class for serialization: " + object.getClass().getName());
     }
@@ -104,6 +110,10 @@ public class ObjectCustomSerDe {
         return (T) deserializeHashMap(bytes);
       case IntOpenHashSet:
         return (T) deserializeIntOpenHashSet(bytes);
+      case TDigest:
+        return (T) TDigest.fromBytes(bytes);
+      case ObjectOpenHashSet:
+        return (T) deserializeObjectOpenHashSet(bytes);
       default:
         throw new IllegalArgumentException("Illegal object type for de-serialization: " + objectType);
     }
@@ -134,6 +144,10 @@ public class ObjectCustomSerDe {
       return ObjectType.HashMap;
     } else if (object instanceof IntOpenHashSet) {
       return ObjectType.IntOpenHashSet;
+    } else if (object instanceof TDigest) {
+      return ObjectType.TDigest;
+    } else if (object instanceof ObjectOpenHashSet) {
+      return ObjectType.ObjectOpenHashSet;
     } else {
       throw new IllegalArgumentException("No object type matches class: " + object.getClass().getName());
     }
@@ -306,4 +320,57 @@ public class ObjectCustomSerDe {
 
     return intOpenHashSet;
   }
+
+  /**
+   * Helper method to serialize an {@link ObjectOpenHashSet}.
+   */
+  private static byte[] serializeObjectOpenHashSet(ObjectOpenHashSet<Object> objectOpenHashSet)
+      throws IOException {
+    ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+    DataOutputStream dataOutputStream = new DataOutputStream(byteArrayOutputStream);
+
+    // Write the size of the set.
+    dataOutputStream.writeInt(objectOpenHashSet.size());
+
+    // Write the serialized elements.
+    boolean first = true;
+    for (Object element : objectOpenHashSet) {
+
+      // Write the element type before writing the first element.
+      if (first) {
+        dataOutputStream.writeInt(getObjectType(element).getValue());
+        first = false;
+      }
+
+      byte[] elementBytes = serialize(element);
+      dataOutputStream.writeInt(elementBytes.length);
+      dataOutputStream.write(elementBytes);
+    }
+
+    return byteArrayOutputStream.toByteArray();
+  }
+
+  /**
+   * Helper method to de-serialize an {@link ObjectOpenHashSet}.
+   */
+  private static ObjectOpenHashSet<Object> deserializeObjectOpenHashSet(byte[] bytes)
+      throws IOException {
+    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+
+    int size = byteBuffer.getInt();
+    ObjectOpenHashSet<Object> objectOpenHashSet = new ObjectOpenHashSet<>(size);
+    if (size == 0) {
+      return objectOpenHashSet;
+    }
+
+    ObjectType elementType = ObjectType.getObjectType(byteBuffer.getInt());
+    for (int i = 0; i < size; i++) {
+      int elementNumBytes = byteBuffer.getInt();
+      byte[] elementBytes = new byte[elementNumBytes];
+      byteBuffer.get(elementBytes);
+      objectOpenHashSet.add(deserialize(elementBytes, elementType));
+    }
+
+    return objectOpenHashSet;
+  }
 }
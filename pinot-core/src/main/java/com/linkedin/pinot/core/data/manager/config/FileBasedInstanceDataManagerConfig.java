@@ -54,6 +54,10 @@ public class FileBasedInstanceDataManagerConfig implements InstanceDataManagerCo
   private static final String SEGMENT_FORMAT_VERSION = "segment.format.version";
   // Key of whether to enable default columns
   private static final String ENABLE_DEFAULT_COLUMNS = "enable.default.columns";
+  // Key of whether to convert string dictionaries to variable length format on segment load
+  private static final String ENABLE_VAR_LENGTH_DICTIONARY = "enable.var.length.dictionary";
+  // Key of whether to load the column indexes of a segment on first access
+  private static final String ENABLE_LAZY_COLUMN_LOADING = "enable.lazy.column.loading";
 
   private static String[] REQUIRED_KEYS = { INSTANCE_ID, INSTANCE_DATA_DIR, INSTANCE_TABLE_NAME };
   private Configuration _instanceDataManagerConfiguration = null;
@@ -142,6 +146,16 @@ public class FileBasedInstanceDataManagerConfig implements InstanceDataManagerCo
     return _instanceDataManagerConfiguration.getBoolean(ENABLE_DEFAULT_COLUMNS, false);
   }
 
+  @Override
+  public boolean isEnableVarLengthDictionary() {
+    return _instanceDataManagerConfiguration.getBoolean(ENABLE_VAR_LENGTH_DICTIONARY, false);
+  }
+
+  @Override
+  public boolean isEnableLazyColumnLoading() {
+    return _instanceDataManagerConfiguration.getBoolean(ENABLE_LAZY_COLUMN_LOADING, false);
+  }
+
   @Override
   public String toString() {
     String configString = "";
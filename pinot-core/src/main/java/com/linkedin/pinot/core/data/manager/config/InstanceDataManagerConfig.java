@@ -37,4 +37,8 @@ public interface InstanceDataManagerConfig {
   String getSegmentFormatVersion();
 
   boolean isEnableDefaultColumns();
+
+  boolean isEnableVarLengthDictionary();
+
+  boolean isEnableLazyColumnLoading();
 }
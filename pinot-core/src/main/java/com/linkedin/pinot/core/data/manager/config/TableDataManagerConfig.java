@@ -87,6 +87,12 @@ public class TableDataManagerConfig {
     if (_instanceDataManagerConfig.isEnableDefaultColumns()) {
       defaultConfig.addProperty(IndexLoadingConfigMetadata.KEY_OF_ENABLE_DEFAULT_COLUMNS, true);
     }
+    if (_instanceDataManagerConfig.isEnableVarLengthDictionary()) {
+      defaultConfig.addProperty(IndexLoadingConfigMetadata.KEY_OF_ENABLE_VAR_LENGTH_DICTIONARY, true);
+    }
+    if (_instanceDataManagerConfig.isEnableLazyColumnLoading()) {
+      defaultConfig.addProperty(IndexLoadingConfigMetadata.KEY_OF_ENABLE_LAZY_COLUMN_LOADING, true);
+    }
     TableDataManagerConfig tableDataManagerConfig = new TableDataManagerConfig(defaultConfig);
 
     switch (tableType) {
@@ -24,6 +24,7 @@ import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.data.manager.config.TableDataManagerConfig;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -55,6 +56,8 @@ public abstract class AbstractTableDataManager implements TableDataManager {
   protected IndexLoadingConfigMetadata _indexLoadingConfigMetadata;
   protected ServerMetrics _serverMetrics;
   protected String _serverInstance;
+  // Non-null if the segments are loaded with lazy column loading.
+  protected ColumnWarmUpManager _columnWarmUpManager;
 
 
   protected AbstractTableDataManager() {
@@ -77,6 +80,9 @@ public abstract class AbstractTableDataManager implements TableDataManager {
     }
     _readMode = ReadMode.valueOf(_tableDataManagerConfig.getReadMode());
     _indexLoadingConfigMetadata = _tableDataManagerConfig.getIndexLoadingConfigMetadata();
+    if (_indexLoadingConfigMetadata != null && _indexLoadingConfigMetadata.isEnableLazyColumnLoading()) {
+      _columnWarmUpManager = new ColumnWarmUpManager(_tableName);
+    }
     LOGGER
         .info("Initialized table : " + _tableName + " with :\n\tData Directory: " + _tableDataDir
             + "\n\tRead Mode : " + _readMode );
@@ -102,6 +108,9 @@ public abstract class AbstractTableDataManager implements TableDataManager {
   public void shutDown() {
     LOGGER.info("Trying to shutdown table : " + _tableName);
     doShutdown();
+    if (_columnWarmUpManager != null) {
+      _columnWarmUpManager.shutDown();
+    }
     if (_isStarted) {
       _tableDataManagerConfig = null;
       _isStarted = false;
@@ -146,6 +155,10 @@ public abstract class AbstractTableDataManager implements TableDataManager {
     if (refCnt == 0) {  // oldSegmentManager must be non-null.
       closeSegment(oldSegmentManager);
     }
+    if (_columnWarmUpManager != null && indexSegmentToAdd instanceof IndexSegmentImpl
+        && ((IndexSegmentImpl) indexSegmentToAdd).isLazyColumnLoading()) {
+      _columnWarmUpManager.addSegment((IndexSegmentImpl) indexSegmentToAdd);
+    }
     _serverMetrics.addValueToTableGauge(_tableName, ServerGauge.DOCUMENT_COUNT, newNumDocs);
     _serverMetrics.addValueToTableGauge(_tableName, ServerGauge.SEGMENT_COUNT, 1L);
   }
@@ -186,6 +199,9 @@ public abstract class AbstractTableDataManager implements TableDataManager {
     _serverMetrics.addMeteredTableValue(_tableName, ServerMeter.DELETED_SEGMENT_COUNT, 1L);
     _serverMetrics.addValueToTableGauge(_tableName, ServerGauge.DOCUMENT_COUNT,
         -segmentDataManager.getSegment().getSegmentMetadata().getTotalRawDocs());
+    if (_columnWarmUpManager != null && segmentDataManager.getSegment() instanceof IndexSegmentImpl) {
+      _columnWarmUpManager.removeSegment((IndexSegmentImpl) segmentDataManager.getSegment());
+    }
     segmentDataManager.destroy();
     LOGGER.info("Segment {} for table {} has been closed", segmentName, _tableName);
   }
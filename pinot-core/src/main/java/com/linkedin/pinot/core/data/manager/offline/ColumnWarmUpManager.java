@@ -0,0 +1,146 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.data.manager.offline;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>ColumnWarmUpManager</code> class warms up the recently queried columns of the lazily loaded segments of a
+ * table in the background, so that queries do not pay for loading the column indexes on the first access.
+ * <ul>
+ *   <li>When a column is queried for the first time (or the first time after not being queried recently), the column is
+ *   loaded for all the lazily loaded segments of the table.</li>
+ *   <li>When a lazily loaded segment is added, the recently queried columns are loaded for the segment.</li>
+ * </ul>
+ */
+public class ColumnWarmUpManager implements IndexSegmentImpl.ColumnAccessListener {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ColumnWarmUpManager.class);
+
+  // Columns not queried within this time are not warmed up for the new segments.
+  private static final long RECENT_ACCESS_TIME_MS = TimeUnit.HOURS.toMillis(1);
+  // Only update the access time of a column at this interval to avoid contention on the query path.
+  private static final long ACCESS_TIME_UPDATE_INTERVAL_MS = TimeUnit.MINUTES.toMillis(1);
+
+  // Single thread shared by all tables so that warming up does not compete with the queries for more than one core.
+  private static final Executor DEFAULT_WARM_UP_EXECUTOR = Executors.newSingleThreadExecutor(
+      new ThreadFactoryBuilder().setDaemon(true).setNameFormat("column-warm-up-%d").build());
+
+  private final String _tableName;
+  private final Executor _executor;
+  private final Map<String, Long> _columnAccessTimeMap = new ConcurrentHashMap<>();
+  private final Set<IndexSegmentImpl> _segments =
+      Collections.newSetFromMap(new ConcurrentHashMap<IndexSegmentImpl, Boolean>());
+
+  public ColumnWarmUpManager(@Nonnull String tableName) {
+    this(tableName, DEFAULT_WARM_UP_EXECUTOR);
+  }
+
+  @VisibleForTesting
+  ColumnWarmUpManager(@Nonnull String tableName, @Nonnull Executor executor) {
+    _tableName = tableName;
+    _executor = executor;
+  }
+
+  /**
+   * Start tracking a lazily loaded segment, and warm up the recently queried columns for it.
+   */
+  public void addSegment(@Nonnull final IndexSegmentImpl segment) {
+    _segments.add(segment);
+    segment.setColumnAccessListener(this);
+
+    final List<String> columnsToWarmUp = getRecentlyAccessedColumns();
+    if (!columnsToWarmUp.isEmpty()) {
+      _executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (String column : columnsToWarmUp) {
+            warmUp(segment, column);
+          }
+        }
+      });
+    }
+  }
+
+  public void removeSegment(@Nonnull IndexSegmentImpl segment) {
+    segment.setColumnAccessListener(null);
+    _segments.remove(segment);
+  }
+
+  public void shutDown() {
+    _segments.clear();
+    _columnAccessTimeMap.clear();
+  }
+
+  @Override
+  public void onColumnAccess(final String column) {
+    long now = System.currentTimeMillis();
+    Long lastAccessTime = _columnAccessTimeMap.get(column);
+    if (lastAccessTime != null && now - lastAccessTime < ACCESS_TIME_UPDATE_INTERVAL_MS) {
+      return;
+    }
+    lastAccessTime = _columnAccessTimeMap.put(column, now);
+    if (lastAccessTime == null || now - lastAccessTime >= RECENT_ACCESS_TIME_MS) {
+      LOGGER.info("Warming up column: {} for all segments of table: {}", column, _tableName);
+      _executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          for (IndexSegmentImpl segment : _segments) {
+            warmUp(segment, column);
+          }
+        }
+      });
+    }
+  }
+
+  private List<String> getRecentlyAccessedColumns() {
+    long now = System.currentTimeMillis();
+    List<String> columns = new ArrayList<>();
+    for (Map.Entry<String, Long> entry : _columnAccessTimeMap.entrySet()) {
+      if (now - entry.getValue() < RECENT_ACCESS_TIME_MS) {
+        columns.add(entry.getKey());
+      }
+    }
+    return columns;
+  }
+
+  private void warmUp(IndexSegmentImpl segment, String column) {
+    // The segment might have been removed after the task was scheduled.
+    if (!_segments.contains(segment)) {
+      return;
+    }
+    try {
+      segment.loadColumn(column);
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while warming up column: {} for segment: {} of table: {}", column,
+          segment.getSegmentName(), _tableName, e);
+    }
+  }
+}
@@ -83,6 +83,7 @@ public class HLRealtimeSegmentDataManager extends SegmentDataManager {
 
   private final String sortedColumn;
   private final List<String> invertedIndexColumns;
+  private final List<String> bloomFilterColumns;
   private Logger segmentLogger = LOGGER;
   private final SegmentVersion _segmentVersion;
   private final RealtimeTableDataManager _realtimeTableDataManager;
@@ -125,6 +126,7 @@ public class HLRealtimeSegmentDataManager extends SegmentDataManager {
     if (sortedColumn != null && !invertedIndexColumns.contains(sortedColumn)) {
       invertedIndexColumns.add(sortedColumn);
     }
+    bloomFilterColumns = indexingConfig.getBloomFilterColumns();
     this.segmentMetatdaZk = segmentMetadata;
 
     // create and init stream provider config
@@ -246,7 +248,8 @@ public class HLRealtimeSegmentDataManager extends SegmentDataManager {
           // lets convert the segment now
           RealtimeSegmentConverter converter =
               new RealtimeSegmentConverter(realtimeSegment, tempSegmentFolder.getAbsolutePath(), schema,
-                  segmentMetadata.getTableName(), segmentMetadata.getSegmentName(), sortedColumn, invertedIndexColumns);
+                  segmentMetadata.getTableName(), segmentMetadata.getSegmentName(), sortedColumn, invertedIndexColumns,
+                  bloomFilterColumns, null);
 
           segmentLogger.info("Trying to build segment");
           final long buildStartTime = System.nanoTime();
@@ -0,0 +1,379 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.data.manager.realtime;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.extractors.PlainFieldExtractor;
+import com.linkedin.pinot.core.realtime.impl.kafka.KafkaMessageDecoder;
+import com.linkedin.pinot.core.realtime.impl.kafka.SimpleConsumerWrapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import kafka.message.MessageAndOffset;
+import org.apache.commons.lang3.tuple.Pair;
+
+
+/**
+ * Pipeline fetching and decoding the messages of a Kafka partition ahead of indexing for the low level consumer, so
+ * that the network wait of the fetches and the decoding overlap with the indexing.
+ * <p>A fetch thread fetches message sets into a bounded queue, starting from the given offset. A decode thread decodes
+ * and transforms the messages of each message set into a {@link DecodedBatch}. The consumer thread takes the decoded
+ * batches in offset order with {@link #nextBatch(long)}, indexes them and gives them back with
+ * {@link #releaseBatch(DecodedBatch)} so that their rows can be reused.
+ * <p>The pipeline does not track the consumed offset: the consumer thread does, as it indexes the messages, and
+ * everything fetched ahead is discarded when the pipeline is stopped. For the same reason, the transform counters of
+ * each row are recorded in its batch so that the consumer thread only counts the rows it indexes. A fetch or decode
+ * error stops the pipeline, the failed batch is delivered after all the batches fetched before the error.
+ */
+public class LLRealtimeConsumptionPipeline {
+  private static final int FETCH_QUEUE_SIZE = 2;
+  // One batch being decoded, one being indexed and one ready to be indexed
+  private static final int NUM_DECODED_BATCHES = 3;
+  private static final long QUEUE_TIMEOUT_MILLIS = 100L;
+  // Wait a little bit after an empty fetch to avoid hammering the Kafka broker
+  private static final long EMPTY_FETCH_WAIT_MILLIS = 100L;
+
+  private final SimpleConsumerWrapper _consumerWrapper;
+  private final KafkaMessageDecoder _messageDecoder;
+  private final PlainFieldExtractor _fieldExtractor;
+  private final int _fetchTimeoutMillis;
+
+  private final BlockingQueue<FetchedMessageSet> _fetchedQueue = new ArrayBlockingQueue<>(FETCH_QUEUE_SIZE);
+  private final BlockingQueue<DecodedBatch> _freeQueue = new ArrayBlockingQueue<>(NUM_DECODED_BATCHES);
+  private final BlockingQueue<DecodedBatch> _decodedQueue = new ArrayBlockingQueue<>(NUM_DECODED_BATCHES);
+  private final Thread _fetchThread;
+  private final Thread _decodeThread;
+  private volatile boolean _stopped = false;
+
+  /**
+   * Creates and starts the pipeline. The consumer wrapper, the message decoder and the field extractor must not be
+   * used by other threads until the pipeline is stopped.
+   */
+  public LLRealtimeConsumptionPipeline(String name, SimpleConsumerWrapper consumerWrapper,
+      KafkaMessageDecoder messageDecoder, PlainFieldExtractor fieldExtractor, int fetchTimeoutMillis,
+      final long startOffset) {
+    _consumerWrapper = consumerWrapper;
+    _messageDecoder = messageDecoder;
+    _fieldExtractor = fieldExtractor;
+    _fetchTimeoutMillis = fetchTimeoutMillis;
+    for (int i = 0; i < NUM_DECODED_BATCHES; i++) {
+      _freeQueue.add(new DecodedBatch());
+    }
+
+    _fetchThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        fetchLoop(startOffset);
+      }
+    }, name + "-fetch");
+    _fetchThread.setDaemon(true);
+    _decodeThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        decodeLoop();
+      }
+    }, name + "-decode");
+    _decodeThread.setDaemon(true);
+    _fetchThread.start();
+    _decodeThread.start();
+  }
+
+  /**
+   * Returns the next decoded batch in offset order, or null if none is available within the timeout.
+   */
+  public DecodedBatch nextBatch(long timeoutMillis) throws InterruptedException {
+    return _decodedQueue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Gives back a batch returned by {@link #nextBatch(long)} once its rows have been indexed.
+   */
+  public void releaseBatch(DecodedBatch batch) {
+    _freeQueue.add(batch);
+  }
+
+  /**
+   * Stops the pipeline and waits for its threads to exit, discarding the batches that have not been consumed. This
+   * waits for the fetch in progress, if any.
+   */
+  public void stop() throws InterruptedException {
+    _stopped = true;
+    _fetchThread.join();
+    _decodeThread.join();
+  }
+
+  private void fetchLoop(long startOffset) {
+    long nextOffset = startOffset;
+    while (!_stopped) {
+      FetchedMessageSet fetchedMessageSet = new FetchedMessageSet();
+      try {
+        Pair<Iterable<MessageAndOffset>, Long> messagesAndWatermark =
+            _consumerWrapper.fetchMessagesAndHighWatermark(nextOffset, Long.MAX_VALUE, _fetchTimeoutMillis);
+        // Iterating the message set also validates the message checksums, do it here rather than on the consumer thread
+        for (MessageAndOffset messageAndOffset : messagesAndWatermark.getLeft()) {
+          fetchedMessageSet._messages.add(messageAndOffset);
+        }
+        fetchedMessageSet._highWatermark = messagesAndWatermark.getRight();
+      } catch (Exception e) {
+        fetchedMessageSet._exception = e;
+        offer(_fetchedQueue, fetchedMessageSet);
+        return;
+      }
+
+      int numMessages = fetchedMessageSet._messages.size();
+      if (numMessages > 0) {
+        nextOffset = fetchedMessageSet._messages.get(numMessages - 1).nextOffset();
+      } else {
+        Uninterruptibles.sleepUninterruptibly(EMPTY_FETCH_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+      }
+      if (!offer(_fetchedQueue, fetchedMessageSet)) {
+        return;
+      }
+    }
+  }
+
+  private void decodeLoop() {
+    GenericRow decodedRow = null;
+    while (!_stopped) {
+      FetchedMessageSet fetchedMessageSet = poll(_fetchedQueue);
+      if (fetchedMessageSet == null) {
+        continue;
+      }
+      DecodedBatch batch = null;
+      while (batch == null && !_stopped) {
+        batch = poll(_freeQueue);
+      }
+      if (batch == null) {
+        return;
+      }
+
+      batch.reset(fetchedMessageSet._highWatermark);
+      if (fetchedMessageSet._exception != null) {
+        batch._fetchException = fetchedMessageSet._exception;
+        offer(_decodedQueue, batch);
+        return;
+      }
+      try {
+        for (MessageAndOffset messageAndOffset : fetchedMessageSet._messages) {
+          byte[] array = messageAndOffset.message().payload().array();
+          int offset = messageAndOffset.message().payload().arrayOffset();
+          int length = messageAndOffset.message().payloadSize();
+          decodedRow = GenericRow.createOrReuseRow(decodedRow);
+          decodedRow = _messageDecoder.decode(array, offset, length, decodedRow);
+
+          GenericRow transformedRow = null;
+          if (decodedRow != null) {
+            // The field extractor only keeps totals, take the difference to get the counters of this row
+            int totalErrors = _fieldExtractor.getTotalErrors();
+            int totalConversions = _fieldExtractor.getTotalConversions();
+            int totalNulls = _fieldExtractor.getTotalNulls();
+            int totalNullCols = _fieldExtractor.getTotalNullCols();
+            transformedRow = _fieldExtractor.transform(decodedRow, batch.nextRow());
+            if (transformedRow != null) {
+              batch.setRowCounters(_fieldExtractor.getTotalErrors() != totalErrors,
+                  _fieldExtractor.getTotalConversions() != totalConversions,
+                  _fieldExtractor.getTotalNulls() != totalNulls, _fieldExtractor.getTotalNullCols() - totalNullCols);
+            }
+          }
+          batch.addMessage(messageAndOffset.offset(), messageAndOffset.nextOffset(), transformedRow != null);
+        }
+      } catch (Exception e) {
+        batch._decodeException = e;
+        offer(_decodedQueue, batch);
+        return;
+      }
+      if (!offer(_decodedQueue, batch)) {
+        return;
+      }
+    }
+  }
+
+  private <T> T poll(BlockingQueue<T> queue) {
+    try {
+      return queue.poll(QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      _stopped = true;
+      return null;
+    }
+  }
+
+  /**
+   * Puts the element in the queue, waiting for space to become available unless the pipeline is stopped.
+   *
+   * @return true if the element was added to the queue, false if the pipeline was stopped
+   */
+  private <T> boolean offer(BlockingQueue<T> queue, T element) {
+    try {
+      while (!_stopped) {
+        if (queue.offer(element, QUEUE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+          return true;
+        }
+      }
+    } catch (InterruptedException e) {
+      _stopped = true;
+    }
+    return false;
+  }
+
+  private static class FetchedMessageSet {
+    private final List<MessageAndOffset> _messages = new ArrayList<>();
+    private long _highWatermark;
+    private Exception _exception;
+  }
+
+  /**
+   * Decoded messages of one fetched message set. The rows of the valid messages are stored contiguously in message
+   * order, messages which could not be decoded or transformed do not have a row.
+   */
+  public static class DecodedBatch {
+    private static final byte ROW_WITH_ERRORS = 1;
+    private static final byte ROW_NEEDING_CONVERSIONS = 2;
+    private static final byte ROW_WITH_NULL_VALUES = 4;
+
+    private final List<GenericRow> _rows = new ArrayList<>();
+    private int _numRows;
+    // Transform counters of each row
+    private byte[] _rowFlags = new byte[0];
+    private int[] _numNullColumns = new int[0];
+    private long[] _nextOffsets = new long[0];
+    private boolean[] _validMessages = new boolean[0];
+    private int _numMessages;
+    private long _firstOffset;
+    private long _highWatermark;
+    private Exception _fetchException;
+    private Exception _decodeException;
+
+    private void reset(long highWatermark) {
+      _numRows = 0;
+      _numMessages = 0;
+      _highWatermark = highWatermark;
+      _fetchException = null;
+      _decodeException = null;
+    }
+
+    /**
+     * Returns a cleared reusable row to transform the next message into.
+     */
+    private GenericRow nextRow() {
+      if (_numRows == _rows.size()) {
+        _rows.add(new GenericRow());
+      }
+      return GenericRow.createOrReuseRow(_rows.get(_numRows));
+    }
+
+    /**
+     * Sets the transform counters of the row returned by the last call to {@link #nextRow()}.
+     */
+    private void setRowCounters(boolean hasErrors, boolean needsConversions, boolean hasNullValues,
+        int numNullColumns) {
+      if (_numRows == _rowFlags.length) {
+        int capacity = Math.max(16, 2 * _numRows);
+        _rowFlags = Arrays.copyOf(_rowFlags, capacity);
+        _numNullColumns = Arrays.copyOf(_numNullColumns, capacity);
+      }
+      byte rowFlags = 0;
+      if (hasErrors) {
+        rowFlags |= ROW_WITH_ERRORS;
+      }
+      if (needsConversions) {
+        rowFlags |= ROW_NEEDING_CONVERSIONS;
+      }
+      if (hasNullValues) {
+        rowFlags |= ROW_WITH_NULL_VALUES;
+      }
+      _rowFlags[_numRows] = rowFlags;
+      _numNullColumns[_numRows] = numNullColumns;
+    }
+
+    private void addMessage(long offset, long nextOffset, boolean valid) {
+      if (_numMessages == 0) {
+        _firstOffset = offset;
+      }
+      if (_numMessages == _nextOffsets.length) {
+        int capacity = Math.max(16, 2 * _numMessages);
+        _nextOffsets = Arrays.copyOf(_nextOffsets, capacity);
+        _validMessages = Arrays.copyOf(_validMessages, capacity);
+      }
+      _nextOffsets[_numMessages] = nextOffset;
+      _validMessages[_numMessages] = valid;
+      _numMessages++;
+      if (valid) {
+        _numRows++;
+      }
+    }
+
+    public int getNumMessages() {
+      return _numMessages;
+    }
+
+    public long getFirstOffset() {
+      return _firstOffset;
+    }
+
+    public long getHighWatermark() {
+      return _highWatermark;
+    }
+
+    public long getNextOffset(int messageId) {
+      return _nextOffsets[messageId];
+    }
+
+    public boolean isValidMessage(int messageId) {
+      return _validMessages[messageId];
+    }
+
+    /**
+     * Returns the rows of the valid messages between the given row ids (inclusive, exclusive).
+     */
+    public List<GenericRow> getRows(int fromRowId, int toRowId) {
+      return _rows.subList(fromRowId, toRowId);
+    }
+
+    public boolean hasErrors(int rowId) {
+      return (_rowFlags[rowId] & ROW_WITH_ERRORS) != 0;
+    }
+
+    public boolean needsConversions(int rowId) {
+      return (_rowFlags[rowId] & ROW_NEEDING_CONVERSIONS) != 0;
+    }
+
+    public boolean hasNullValues(int rowId) {
+      return (_rowFlags[rowId] & ROW_WITH_NULL_VALUES) != 0;
+    }
+
+    public int getNumNullColumns(int rowId) {
+      return _numNullColumns[rowId];
+    }
+
+    /**
+     * Returns the exception thrown while fetching the message set, in which case the batch has no messages.
+     */
+    public Exception getFetchException() {
+      return _fetchException;
+    }
+
+    /**
+     * Returns the exception thrown while decoding or transforming the messages.
+     */
+    public Exception getDecodeException() {
+      return _decodeException;
+    }
+  }
+}
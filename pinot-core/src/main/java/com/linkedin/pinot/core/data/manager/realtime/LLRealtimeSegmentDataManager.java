@@ -19,17 +19,17 @@ package com.linkedin.pinot.core.data.manager.realtime;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 import org.apache.commons.io.FileUtils;
-import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.Uninterruptibles;
 import com.linkedin.pinot.common.config.AbstractTableConfig;
 import com.linkedin.pinot.common.config.IndexingConfig;
@@ -46,7 +46,6 @@ import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.LLCSegmentName;
 import com.linkedin.pinot.common.utils.NetUtil;
 import com.linkedin.pinot.common.utils.TarGzCompressionUtils;
-import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.extractors.FieldExtractorFactory;
 import com.linkedin.pinot.core.data.extractors.PlainFieldExtractor;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
@@ -59,7 +58,6 @@ import com.linkedin.pinot.core.realtime.impl.kafka.KafkaMessageDecoder;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaSimpleConsumerFactoryImpl;
 import com.linkedin.pinot.core.realtime.impl.kafka.SimpleConsumerWrapper;
 import com.linkedin.pinot.server.realtime.ServerSegmentCompletionProtocolHandler;
-import kafka.message.MessageAndOffset;
 
 
 /**
@@ -124,6 +122,7 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
   private static final long TIME_THRESHOLD_FOR_LOG_MINUTES = 1;
   private static final long TIME_EXTENSION_ON_EMPTY_SEGMENT_HOURS = 1;
   private static final int MSG_COUNT_THRESHOLD_FOR_LOG = 100000;
+  private static final int MAX_INDEXING_BATCH_SIZE = 1000;
   private final int MAX_CONSECUTIVE_ERROR_COUNT = 5;
 
   private final LLCRealtimeSegmentZKMetadata _segmentZKMetadata;
@@ -136,10 +135,16 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
   private final String _metricKeyName;
   private final ServerMetrics _serverMetrics;
   private final RealtimeSegmentImpl _realtimeSegment;
+  private final ExecutorService _indexingExecutor;
   private volatile long _currentOffset;
   private volatile State _state;
   private volatile int _numRowsConsumed = 0;
   private volatile int consecutiveErrorCount = 0;
+  // Transform counters of the rows indexed by the current consumption loop, only accessed by the consumer thread
+  private int _numRowsWithErrors = 0;
+  private int _numRowsNeedingConversions = 0;
+  private int _numRowsWithNullValues = 0;
+  private int _numNullColumns = 0;
   private long _startTimeMs = 0;
   private final String _segmentNameStr;
   private final SegmentVersion _segmentVersion;
@@ -163,6 +168,7 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
   private final File _resourceTmpDir;
   private final String _tableName;
   private final List<String> _invertedIndexColumns;
+  private final List<String> _bloomFilterColumns;
   private final String _sortedColumn;
   private Logger segmentLogger = LOGGER;
   private final String _tableStreamName;
@@ -252,60 +258,73 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
 
   protected boolean consumeLoop() throws Exception {
     _fieldExtractor.resetCounters();
+    _numRowsWithErrors = 0;
+    _numRowsNeedingConversions = 0;
+    _numRowsWithNullValues = 0;
+    _numNullColumns = 0;
 
-    final long _endOffset = Long.MAX_VALUE; // No upper limit on Kafka offset
     segmentLogger.info("Starting consumption loop start offset {}, finalOffset {}", _currentOffset, _finalOffset);
-    while(!_shouldStop && !endCriteriaReached()) {
-      // Consume for the next _kafkaReadTime ms, or we get to final offset, whichever happens earlier,
-      // Update _currentOffset upon return from this method
-      Iterable<MessageAndOffset> messagesAndOffsets = null;
-      Long highWatermark = null;
-      try {
-        Pair<Iterable<MessageAndOffset>, Long> messagesAndWatermark =
-            _consumerWrapper.fetchMessagesAndHighWatermark(_currentOffset, _endOffset,
-                _kafkaStreamMetadata.getKafkaFetchTimeoutMillis());
+    // Messages are fetched and decoded ahead by the pipeline, _currentOffset is only updated as they get indexed
+    LLRealtimeConsumptionPipeline pipeline = startConsumptionPipeline();
+    try {
+      while (!_shouldStop && !endCriteriaReached()) {
+        LLRealtimeConsumptionPipeline.DecodedBatch batch =
+            pipeline.nextBatch(_kafkaStreamMetadata.getKafkaFetchTimeoutMillis());
+        if (batch == null) {
+          // Nothing fetched yet, check the end criteria again
+          continue;
+        }
+
+        Exception fetchException = batch.getFetchException();
+        if (fetchException != null) {
+          // The pipeline stops on errors, restart it from the current offset once the error is handled
+          pipeline.stop();
+          if (fetchException instanceof SimpleConsumerWrapper.PermanentConsumerException) {
+            segmentLogger.warn("Kafka permanent exception when fetching messages, stopping consumption",
+                fetchException);
+            throw fetchException;
+          }
+          // Timeouts, transient exceptions and unknown exceptions from Kafka are treated as transient exceptions.
+          // One such unknown exception seen so far is java.net.SocketTimeoutException
+          handleTransientKafkaErrors(fetchException);
+          pipeline = startConsumptionPipeline();
+          continue;
+        }
         consecutiveErrorCount = 0;
-        messagesAndOffsets = messagesAndWatermark.getLeft();
-        highWatermark = messagesAndWatermark.getRight();
-      } catch (TimeoutException e) {
-        handleTransientKafkaErrors(e);
-        continue;
-      } catch (SimpleConsumerWrapper.TransientConsumerException e) {
-        handleTransientKafkaErrors(e);
-        continue;
-      } catch (SimpleConsumerWrapper.PermanentConsumerException e) {
-        segmentLogger.warn("Kafka permanent exception when fetching messages, stopping consumption", e);
-        throw e;
-      } catch (Exception e) {
-        // Unknown exception from Kafka. Treat as a transient exception.
-        // One such exception seen so far is java.net.SocketTimeoutException
-        handleTransientKafkaErrors(e);
-        continue;
-      }
 
-      processKafkaEvents(messagesAndOffsets, highWatermark);
+        processKafkaEvents(batch);
+        pipeline.releaseBatch(batch);
+      }
+    } finally {
+      pipeline.stop();
     }
 
-    _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.ROWS_WITH_ERRORS,
-        (long) _fieldExtractor.getTotalErrors());
+    // The field extractor also counted the rows decoded ahead and never indexed, use the counters of indexed rows
+    _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.ROWS_WITH_ERRORS, (long) _numRowsWithErrors);
     _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.ROWS_NEEDING_CONVERSIONS,
-        (long) _fieldExtractor.getTotalConversions());
+        (long) _numRowsNeedingConversions);
     _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.ROWS_WITH_NULL_VALUES,
-        (long) _fieldExtractor.getTotalNulls());
-    _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.COLUMNS_WITH_NULL_VALUES,
-        (long) _fieldExtractor.getTotalNullCols());
+        (long) _numRowsWithNullValues);
+    _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.COLUMNS_WITH_NULL_VALUES, (long) _numNullColumns);
     return true;
   }
 
-  private void processKafkaEvents(Iterable<MessageAndOffset> messagesAndOffsets, Long highWatermark) {
-    Iterator<MessageAndOffset> msgIterator = messagesAndOffsets.iterator();
+  private LLRealtimeConsumptionPipeline startConsumptionPipeline() {
+    return new LLRealtimeConsumptionPipeline(_segmentNameStr, _consumerWrapper, _messageDecoder, _fieldExtractor,
+        _kafkaStreamMetadata.getKafkaFetchTimeoutMillis(), _currentOffset);
+  }
+
+  private void processKafkaEvents(LLRealtimeConsumptionPipeline.DecodedBatch batch) throws Exception {
+    Exception decodeException = batch.getDecodeException();
+    int numMessages = batch.getNumMessages();
 
     int indexedMessageCount = 0;
     int kafkaMessageCount = 0;
     boolean canTakeMore = true;
-    GenericRow decodedRow = null;
-    GenericRow transformedRow = null;
-    while (!_shouldStop && !endCriteriaReached() && msgIterator.hasNext()) {
+    // Rows are indexed in batches, the batch is always flushed before returning
+    int firstRowIdInBatch = 0;
+    int nextRowId = 0;
+    while (!_shouldStop && !endCriteriaReached() && kafkaMessageCount < numMessages) {
       if (!canTakeMore) {
         // The RealtimeSegmentImpl that we are pushing rows into has indicated that it cannot accept any more
         // rows. This can happen in one of two conditions:
@@ -324,50 +343,57 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
         segmentLogger.error("Buffer full with {} rows consumed (row limit {})", _numRowsConsumed, _segmentMaxRowCount);
         throw new RuntimeException("Realtime segment full");
       }
-      // Index each message
-      MessageAndOffset messageAndOffset = msgIterator.next();
-      byte[] array = messageAndOffset.message().payload().array();
-      int offset = messageAndOffset.message().payload().arrayOffset();
-      int length = messageAndOffset.message().payloadSize();
-      decodedRow = GenericRow.createOrReuseRow(decodedRow);
-      decodedRow = _messageDecoder.decode(array, offset, length, decodedRow);
 
       // Update lag metric on the first message of each batch
       if (kafkaMessageCount == 0) {
-        long messageOffset = messageAndOffset.offset();
-        long offsetDifference = highWatermark - messageOffset;
+        long offsetDifference = batch.getHighWatermark() - batch.getFirstOffset();
         _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.KAFKA_PARTITION_OFFSET_LAG, offsetDifference);
       }
 
-      if (decodedRow != null) {
-        transformedRow = GenericRow.createOrReuseRow(transformedRow);
-        transformedRow = _fieldExtractor.transform(decodedRow, transformedRow);
-
-        if (transformedRow != null) {
-          _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.REALTIME_ROWS_CONSUMED, 1);
-          indexedMessageCount++;
-        } else {
-          _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.INVALID_REALTIME_ROWS_DROPPED, 1);
+      // Index each message
+      if (batch.isValidMessage(kafkaMessageCount)) {
+        _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.REALTIME_ROWS_CONSUMED, 1);
+        if (batch.hasErrors(nextRowId)) {
+          _numRowsWithErrors++;
+        }
+        if (batch.needsConversions(nextRowId)) {
+          _numRowsNeedingConversions++;
+        }
+        if (batch.hasNullValues(nextRowId)) {
+          _numRowsWithNullValues++;
+        }
+        _numNullColumns += batch.getNumNullColumns(nextRowId);
+        indexedMessageCount++;
+        nextRowId++;
+        // Flush the batch before it can exceed the capacity of the segment, so that we detect a full segment on the
+        // next message as we would when indexing rows one by one
+        int numRowsInBatch = nextRowId - firstRowIdInBatch;
+        if (numRowsInBatch == MAX_INDEXING_BATCH_SIZE
+            || _realtimeSegment.getRawDocumentCount() + numRowsInBatch >= _segmentMaxRowCount) {
+          canTakeMore = _realtimeSegment.index(batch.getRows(firstRowIdInBatch, nextRowId));
+          firstRowIdInBatch = nextRowId;
         }
-
-        canTakeMore = _realtimeSegment.index(transformedRow);
       } else {
         _serverMetrics.addMeteredTableValue(_metricKeyName, ServerMeter.INVALID_REALTIME_ROWS_DROPPED, 1);
       }
 
-      _currentOffset = messageAndOffset.nextOffset();
+      _currentOffset = batch.getNextOffset(kafkaMessageCount);
       _numRowsConsumed++;
       kafkaMessageCount++;
     }
+    if (nextRowId > firstRowIdInBatch) {
+      _realtimeSegment.index(batch.getRows(firstRowIdInBatch, nextRowId));
+    }
     updateCurrentDocumentCountMetrics();
     if (kafkaMessageCount != 0) {
       segmentLogger.debug("Indexed {} messages ({} messages read from Kafka) current offset {}", indexedMessageCount,
           kafkaMessageCount, _currentOffset);
       _serverMetrics.setValueOfTableGauge(_metricKeyName, ServerGauge.HIGHEST_KAFKA_OFFSET_CONSUMED, _currentOffset);
-    } else {
-      // If there were no messages to be fetched from Kafka, wait for a little bit as to avoid hammering the
-      // Kafka broker
-      Uninterruptibles.sleepUninterruptibly(100, TimeUnit.MILLISECONDS);
+    }
+
+    // Messages decoded before the error have been indexed, the message that failed is not consumed
+    if (decodeException != null && kafkaMessageCount == numMessages && !_shouldStop && !endCriteriaReached()) {
+      throw decodeException;
     }
   }
 
@@ -505,7 +531,8 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
     // lets convert the segment now
     RealtimeSegmentConverter converter =
         new RealtimeSegmentConverter(_realtimeSegment, tempSegmentFolder.getAbsolutePath(), _schema,
-            _segmentZKMetadata.getTableName(), _segmentZKMetadata.getSegmentName(), _sortedColumn, _invertedIndexColumns);
+            _segmentZKMetadata.getTableName(), _segmentZKMetadata.getSegmentName(), _sortedColumn,
+            _invertedIndexColumns, _bloomFilterColumns, _tableConfig.getIndexingConfig().getSegmentPartitionConfig());
 
     logStatistics();
     segmentLogger.info("Trying to build segment");
@@ -684,6 +711,9 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
     } catch (InterruptedException e) {
       segmentLogger.error("Could not stop consumer thread");
     }
+    if (_indexingExecutor != null) {
+      _indexingExecutor.shutdownNow();
+    }
     _realtimeSegment.destroy();
     try {
       _consumerWrapper.close();
@@ -770,6 +800,7 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
     }
     //inverted index columns
     _invertedIndexColumns = indexingConfig.getInvertedIndexColumns();
+    _bloomFilterColumns = indexingConfig.getBloomFilterColumns();
     _tableStreamName = _tableName + "_" + kafkaStreamProviderConfig.getStreamName();
 
 
@@ -791,6 +822,18 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
     _realtimeSegment = new RealtimeSegmentImpl(schema, _segmentMaxRowCount, tableConfig.getTableName(),
         segmentZKMetadata.getSegmentName(), _kafkaTopic, _serverMetrics, invertedIndexColumns);
     _realtimeSegment.setSegmentMetadata(segmentZKMetadata, schema);
+    String indexingParallelism =
+        indexingConfig.getStreamConfigs().get(CommonConstants.Helix.DataSource.Realtime.REALTIME_INDEXING_PARALLELISM);
+    int numIndexingThreads = indexingParallelism != null ? Integer.parseInt(indexingParallelism)
+        : CommonConstants.Helix.DataSource.Realtime.DEFAULT_REALTIME_INDEXING_PARALLELISM;
+    if (numIndexingThreads > 1) {
+      segmentLogger.info("Indexing columns with {} threads", numIndexingThreads);
+      _indexingExecutor = Executors.newFixedThreadPool(numIndexingThreads,
+          new ThreadFactoryBuilder().setNameFormat(_segmentNameStr + "-indexing-%d").setDaemon(true).build());
+      _realtimeSegment.setIndexingExecutor(_indexingExecutor);
+    } else {
+      _indexingExecutor = null;
+    }
 
     // Create message decoder
     _messageDecoder = kafkaStreamProviderConfig.getDecoder();
@@ -850,9 +893,12 @@ public class LLRealtimeSegmentDataManager extends SegmentDataManager {
       }
     }
     segmentLogger.info("Creating new Kafka consumer wrapper");
-    _consumerWrapper = SimpleConsumerWrapper.forPartitionConsumption(new KafkaSimpleConsumerFactoryImpl(),
-        _kafkaBootstrapNodes, _clientId, _kafkaTopic, _kafkaPartitionId,
-        _kafkaStreamMetadata.getKafkaConnectionTimeoutMillis());
+    _consumerWrapper = createConsumerWrapper();
+  }
+
+  protected SimpleConsumerWrapper createConsumerWrapper() {
+    return SimpleConsumerWrapper.forPartitionConsumption(new KafkaSimpleConsumerFactoryImpl(), _kafkaBootstrapNodes,
+        _clientId, _kafkaTopic, _kafkaPartitionId, _kafkaStreamMetadata.getKafkaConnectionTimeoutMillis());
   }
 
   // This should be done during commit? We may not always commit when we build a segment....
@@ -52,6 +52,7 @@ import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 import com.linkedin.pinot.core.segment.index.readers.IntDictionary;
 import com.linkedin.pinot.core.segment.index.readers.LongDictionary;
 import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
 import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
 import com.linkedin.pinot.core.segment.store.ColumnIndexType;
 import com.linkedin.pinot.core.segment.store.SegmentDirectory;
@@ -137,7 +138,11 @@ public class PinotSegmentRecordReader extends BaseRecordReader {
 
       switch (dataType) {
         case BOOLEAN:
-          pinotDictionaryBufferMap.put(column, new StringDictionary(dictionaryBuffer, columnMetadataFor));
+          if (columnMetadataFor.isVarLengthDictionary()) {
+            pinotDictionaryBufferMap.put(column, new VarLengthStringDictionary(dictionaryBuffer, columnMetadataFor));
+          } else {
+            pinotDictionaryBufferMap.put(column, new StringDictionary(dictionaryBuffer, columnMetadataFor));
+          }
           break;
         case DOUBLE:
           pinotDictionaryBufferMap.put(column, new DoubleDictionary(dictionaryBuffer, columnMetadataFor));
@@ -152,7 +157,11 @@ public class PinotSegmentRecordReader extends BaseRecordReader {
           pinotDictionaryBufferMap.put(column, new LongDictionary(dictionaryBuffer, columnMetadataFor));
           break;
         case STRING:
-          pinotDictionaryBufferMap.put(column, new StringDictionary(dictionaryBuffer, columnMetadataFor));
+          if (columnMetadataFor.isVarLengthDictionary()) {
+            pinotDictionaryBufferMap.put(column, new VarLengthStringDictionary(dictionaryBuffer, columnMetadataFor));
+          } else {
+            pinotDictionaryBufferMap.put(column, new StringDictionary(dictionaryBuffer, columnMetadataFor));
+          }
           break;
         case INT_ARRAY:
         case BYTE:
@@ -33,6 +33,7 @@ import org.codehaus.jackson.map.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.common.base.Preconditions;
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.FieldSpec.FieldType;
 import com.linkedin.pinot.common.data.Schema;
@@ -57,6 +58,7 @@ public class SegmentGeneratorConfig {
   private Map<String, String> _customProperties = new HashMap<>();
   private Set<String> _rawIndexCreationColumns = new HashSet<>();
   private List<String> _invertedIndexCreationColumns = new ArrayList<>();
+  private Set<String> _bloomFilterCreationColumns = new HashSet<>();
   private String _dataDir = null;
   private String _inputFilePath = null;
   private FileFormat _format = FileFormat.AVRO;
@@ -83,6 +85,9 @@ public class SegmentGeneratorConfig {
   private HllConfig _hllConfig = null;
   private SegmentNameGenerator _segmentNameGenerator = null;
   private int _sequenceId = -1;
+  private boolean _enableVarLengthDictionary = false;
+  private boolean _enableSinglePassCreation = false;
+  private SegmentPartitionConfig _segmentPartitionConfig = null;
 
   public SegmentGeneratorConfig() {
   }
@@ -98,6 +103,7 @@ public class SegmentGeneratorConfig {
     _customProperties.putAll(config._customProperties);
     _rawIndexCreationColumns.addAll(config._rawIndexCreationColumns);
     _invertedIndexCreationColumns.addAll(config._invertedIndexCreationColumns);
+    _bloomFilterCreationColumns.addAll(config._bloomFilterCreationColumns);
     _dataDir = config._dataDir;
     _inputFilePath = config._inputFilePath;
     _format = config._format;
@@ -126,6 +132,9 @@ public class SegmentGeneratorConfig {
     _segmentName = config._segmentName;
     _segmentNameGenerator = config._segmentNameGenerator;
     _sequenceId = config._sequenceId;
+    _enableVarLengthDictionary = config._enableVarLengthDictionary;
+    _enableSinglePassCreation = config._enableSinglePassCreation;
+    _segmentPartitionConfig = config._segmentPartitionConfig;
   }
 
   public SegmentGeneratorConfig(Schema schema) {
@@ -154,6 +163,10 @@ public class SegmentGeneratorConfig {
     return _invertedIndexCreationColumns;
   }
 
+  public Set<String> getBloomFilterCreationColumns() {
+    return _bloomFilterCreationColumns;
+  }
+
   public void setRawIndexCreationColumns(List<String> rawIndexCreationColumns) {
     Preconditions.checkNotNull(rawIndexCreationColumns);
     _rawIndexCreationColumns.addAll(rawIndexCreationColumns);
@@ -164,6 +177,11 @@ public class SegmentGeneratorConfig {
     _invertedIndexCreationColumns.addAll(indexCreationColumns);
   }
 
+  public void setBloomFilterCreationColumns(List<String> bloomFilterCreationColumns) {
+    Preconditions.checkNotNull(bloomFilterCreationColumns);
+    _bloomFilterCreationColumns.addAll(bloomFilterCreationColumns);
+  }
+
   public void createInvertedIndexForColumn(String column) {
     Preconditions.checkNotNull(column);
     if (_schema != null && _schema.getFieldSpecFor(column) == null) {
@@ -404,6 +422,43 @@ public class SegmentGeneratorConfig {
     _enableStarTreeIndex = enableStarTreeIndex;
   }
 
+  public boolean isEnableVarLengthDictionary() {
+    return _enableVarLengthDictionary;
+  }
+
+  /**
+   * Store STRING dictionaries in variable length format (offsets + packed UTF-8 bytes) instead of padding all values
+   * to the longest one. Segments created with this option can only be loaded by servers supporting the format.
+   */
+  public void setEnableVarLengthDictionary(boolean enableVarLengthDictionary) {
+    _enableVarLengthDictionary = enableVarLengthDictionary;
+  }
+
+  public boolean isEnableSinglePassCreation() {
+    return _enableSinglePassCreation;
+  }
+
+  /**
+   * Read the input only once: rows are spilled to a columnar file on local disk while the statistics are collected,
+   * and the indexes are built from that file instead of rewinding and parsing the input again. Requires local disk
+   * space in the output directory roughly the size of the uncompressed data.
+   */
+  public void setEnableSinglePassCreation(boolean enableSinglePassCreation) {
+    _enableSinglePassCreation = enableSinglePassCreation;
+  }
+
+  public SegmentPartitionConfig getSegmentPartitionConfig() {
+    return _segmentPartitionConfig;
+  }
+
+  /**
+   * Set the partition config of the table, the partition ids of the values of the partitioned columns will be recorded
+   * in the segment metadata.
+   */
+  public void setSegmentPartitionConfig(SegmentPartitionConfig segmentPartitionConfig) {
+    _segmentPartitionConfig = segmentPartitionConfig;
+  }
+
   public String getStarTreeIndexSpecFile() {
     return _starTreeIndexSpecFile;
   }
@@ -52,6 +52,17 @@ public class FixedBitSingleValueReader extends BaseSingleColumnSingleValueReader
     return dataFileReader.getInt(row, 0);
   }
 
+  /**
+   * Read the values of consecutive rows, which is cheaper than reading the rows one by one.
+   *
+   * @param startRow first row to read.
+   * @param numRows number of rows to read.
+   * @param values buffer to return the values.
+   */
+  public void readValues(int startRow, int numRows, int[] values) {
+    dataFileReader.getInt(startRow, numRows, 0, values);
+  }
+
   @Override
   public void readValues(int[] rows, int rowStartPos, int rowSize, int[] values, int valuesStartPos) {
     dataFileReader.readValues(rows, 0, rowStartPos, rowSize, values, valuesStartPos);
@@ -25,21 +25,21 @@ import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
 import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByTrimmingService;
-import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.query.aggregation.groupby.CombineGroupByResultsMap;
 import com.linkedin.pinot.core.util.trace.TraceRunnable;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -51,20 +51,6 @@ public class MCombineGroupByOperator extends BaseOperator {
   private static final Logger LOGGER = LoggerFactory.getLogger(MCombineGroupByOperator.class);
   private static final String OPERATOR_NAME = "MCombineGroupByOperator";
 
-  // TODO: check whether it is better to use thread local.
-  // Choose a proper prime number for the number of locks.
-  // Use prime number to reduce the conflict rate of different hashcodes.
-  // Too small number of locks will cause high conflict rate.
-  // Too large number of locks will consume too much memory.
-  private static final int NUM_LOCKS = 10007;
-  private static final Object[] LOCKS = new Object[NUM_LOCKS];
-
-  static {
-    for (int i = 0; i < NUM_LOCKS; i++) {
-      LOCKS[i] = new Object();
-    }
-  }
-
   private final List<Operator> _operators;
   private final ExecutorService _executorService;
   private final BrokerRequest _brokerRequest;
@@ -72,7 +58,6 @@ public class MCombineGroupByOperator extends BaseOperator {
 
   /**
    * Constructor for the class.
-   * - Initializes lock objects to synchronize updating aggregation group-by results.
    *
    * @param operators List of operators, whose result needs to be combined.
    * @param executorService Executor service to use for multi-threaded portions of combine.
@@ -127,14 +112,15 @@ public class MCombineGroupByOperator extends BaseOperator {
    * This method combines the result blocks from underlying operators and builds a
    * merged, sorted and trimmed result block.
    * 1. Result blocks from underlying operators are merged concurrently into a
-   *   HashMap, with appropriate synchronizations. Result blocks themselves are stored
-   *   in the specified blocks[].
-   *   - The key in this concurrent map is the group-by key, and value is an array of
+   *   {@link CombineGroupByResultsMap}, with appropriate synchronizations.
+   *   - A bounded number of tasks per query run the operators, each task keeps taking the next operator
+   *     not yet processed.
+   *   - The key in this concurrent map is the raw (binary) group-by key, and value is an array of
    *     Objects (one for each aggregation function).
-   *   - Synchronization is provided by locking the group-key that is to be modified.
+   *   - Synchronization is provided by locking the shard of the map that is to be modified.
    *
    * 2. The result of the concurrent map is then translated into what is expected by
-   *    the broker (List<Map<String, Object>>).
+   *    the broker (List<Map<String, Object>>). String group-by keys are only built in this step.
    *
    * 3. This result is then sorted and then trimmed as per 'TOP N' in the brokerRequest.
    *
@@ -142,68 +128,59 @@ public class MCombineGroupByOperator extends BaseOperator {
    */
   private IntermediateResultsBlock combineBlocks()
       throws InterruptedException {
-    int numOperators = _operators.size();
-    final CountDownLatch operatorLatch = new CountDownLatch(numOperators);
-    final Map<String, Object[]> resultsMap = new ConcurrentHashMap<>();
+    final int numOperators = _operators.size();
+    int numTasks = MCombineOperator.getNumTasks(numOperators);
+    final CountDownLatch operatorLatch = new CountDownLatch(numTasks);
+    final AtomicInteger nextOperatorIndex = new AtomicInteger();
     final ConcurrentLinkedQueue<ProcessingException> mergedProcessingExceptions = new ConcurrentLinkedQueue<>();
 
     List<AggregationInfo> aggregationInfos = _brokerRequest.getAggregationsInfo();
     final AggregationFunctionContext[] aggregationFunctionContexts =
         AggregationFunctionUtils.getAggregationFunctionContexts(aggregationInfos, null);
-    final int numAggregationFunctions = aggregationFunctionContexts.length;
-
-    for (int i = 0; i < numOperators; i++) {
-      final int index = i;
+    int numAggregationFunctions = aggregationFunctionContexts.length;
+    AggregationFunction[] aggregationFunctions = new AggregationFunction[numAggregationFunctions];
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      aggregationFunctions[i] = aggregationFunctionContexts[i].getAggregationFunction();
+    }
+    final CombineGroupByResultsMap resultsMap = new CombineGroupByResultsMap(aggregationFunctions);
 
+    for (int i = 0; i < numTasks; i++) {
       _executorService.execute(new TraceRunnable() {
         @SuppressWarnings("unchecked")
         @Override
         public void runJob() {
-          AggregationGroupByResult aggregationGroupByResult;
-
-          try {
-            IntermediateResultsBlock intermediateResultsBlock =
-                (IntermediateResultsBlock) _operators.get(index).nextBlock();
-
-            // Merge processing exceptions.
-            List<ProcessingException> processingExceptionsToMerge = intermediateResultsBlock.getProcessingExceptions();
-            if (processingExceptionsToMerge != null) {
-              mergedProcessingExceptions.addAll(processingExceptionsToMerge);
-            }
-
-            // Merge aggregation group-by result.
-            aggregationGroupByResult = intermediateResultsBlock.getAggregationGroupByResult();
-            if (aggregationGroupByResult != null) {
-              // Iterate over the group-by keys, for each key, update the group-by result in the resultsMap.
-              Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
-              while (groupKeyIterator.hasNext()) {
-                GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
-                String groupKeyString = groupKey.getStringKey();
-
-                // HashCode method might return negative value, make it non-negative
-                int lockIndex = (groupKeyString.hashCode() & Integer.MAX_VALUE) % NUM_LOCKS;
-                synchronized (LOCKS[lockIndex]) {
-                  Object[] results = resultsMap.get(groupKeyString);
+          int index;
+          while ((index = nextOperatorIndex.getAndIncrement()) < numOperators) {
+            AggregationGroupByResult aggregationGroupByResult;
+
+            try {
+              IntermediateResultsBlock intermediateResultsBlock =
+                  (IntermediateResultsBlock) _operators.get(index).nextBlock();
+
+              // Merge processing exceptions.
+              List<ProcessingException> processingExceptionsToMerge =
+                  intermediateResultsBlock.getProcessingExceptions();
+              if (processingExceptionsToMerge != null) {
+                mergedProcessingExceptions.addAll(processingExceptionsToMerge);
+              }
 
-                  if (results == null) {
-                    results = new Object[numAggregationFunctions];
-                    for (int j = 0; j < numAggregationFunctions; j++) {
-                      results[j] = aggregationGroupByResult.getResultForKey(groupKey, j);
-                    }
-                    resultsMap.put(groupKeyString, results);
-                  } else {
-                    for (int j = 0; j < numAggregationFunctions; j++) {
-                      results[j] = aggregationFunctionContexts[j].getAggregationFunction()
-                          .merge(results[j], aggregationGroupByResult.getResultForKey(groupKey, j));
-                    }
-                  }
+              // Merge aggregation group-by result.
+              aggregationGroupByResult = intermediateResultsBlock.getAggregationGroupByResult();
+              if (aggregationGroupByResult != null) {
+                resultsMap.merge(aggregationGroupByResult);
+              } else {
+                // Cached results are keyed by string group keys.
+                List<Map<String, Object>> combinedAggregationGroupByResult =
+                    intermediateResultsBlock.getCombinedAggregationGroupByResult();
+                if (combinedAggregationGroupByResult != null) {
+                  resultsMap.merge(combinedAggregationGroupByResult);
                 }
               }
+            } catch (Exception e) {
+              LOGGER.error("Exception processing CombineGroupBy for index {}, operator {}", index,
+                  _operators.get(index).getClass().getName(), e);
+              mergedProcessingExceptions.add(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
             }
-          } catch (Exception e) {
-            LOGGER.error("Exception processing CombineGroupBy for index {}, operator {}", index,
-                _operators.get(index).getClass().getName(), e);
-            mergedProcessingExceptions.add(QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, e));
           }
 
           operatorLatch.countDown();
@@ -221,7 +198,8 @@ public class MCombineGroupByOperator extends BaseOperator {
     // Trim the results map.
     AggregationGroupByTrimmingService aggregationGroupByTrimmingService =
         new AggregationGroupByTrimmingService(aggregationFunctionContexts, (int) _brokerRequest.getGroupBy().getTopN());
-    List<Map<String, Object>> trimmedResults = aggregationGroupByTrimmingService.trimIntermediateResultsMap(resultsMap);
+    List<Map<String, Object>> trimmedResults =
+        aggregationGroupByTrimmingService.trimIntermediateResultsMap(resultsMap.toStringKeyResultsMap());
     IntermediateResultsBlock mergedBlock =
         new IntermediateResultsBlock(aggregationFunctionContexts, trimmedResults, true);
 
@@ -24,7 +24,6 @@ import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
 import com.linkedin.pinot.core.query.reduce.CombineService;
 import com.linkedin.pinot.core.util.trace.TraceCallable;
 import com.linkedin.pinot.core.util.trace.TraceRunnable;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
@@ -33,6 +32,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,16 +49,13 @@ public class MCombineOperator extends BaseOperator {
   private final ExecutorService _executorService;
   private long _timeOutMs;
   //Make this configurable
-  //These two control the parallelism on a per query basis, depending on the number of segments to process
-  private static int MIN_THREADS_PER_QUERY = 10;
+  //This controls the parallelism on a per query basis
   private static int MAX_THREADS_PER_QUERY = 10;
-  private static int MIN_SEGMENTS_PER_THREAD = 10;
 
   static {
     int numCores = Runtime.getRuntime().availableProcessors();
-    MIN_THREADS_PER_QUERY = Math.max(1, (int) (numCores * .5));
     //Dont have more than 10 threads per query
-    MAX_THREADS_PER_QUERY = Math.min(MAX_THREADS_PER_QUERY, (int) (numCores * .5));
+    MAX_THREADS_PER_QUERY = Math.max(1, Math.min(MAX_THREADS_PER_QUERY, (int) (numCores * .5)));
   }
 
   public MCombineOperator(List<Operator> operators, ExecutorService executorService, long timeOutMs,
@@ -81,27 +78,25 @@ public class MCombineOperator extends BaseOperator {
   public Block getNextBlock() {
     final long startTime = System.currentTimeMillis();
     final long queryEndTime = System.currentTimeMillis() + _timeOutMs;
-    int numGroups = Math.max(MIN_THREADS_PER_QUERY,
-        Math.min(MAX_THREADS_PER_QUERY, (_operators.size() + MIN_SEGMENTS_PER_THREAD - 1) / MIN_SEGMENTS_PER_THREAD));
-    //ensure that the number of groups is not more than the number of segments
-    numGroups = Math.min(_operators.size(), numGroups);
-    final List<List<Operator>> operatorGroups = new ArrayList<List<Operator>>(numGroups);
-    for (int i = 0; i < numGroups; i++) {
-      operatorGroups.add(new ArrayList<Operator>());
-    }
-    for (int i = 0; i < _operators.size(); i++) {
-      operatorGroups.get(i % numGroups).add(_operators.get(i));
-    }
-    final BlockingQueue<Block> blockingQueue = new ArrayBlockingQueue<>(operatorGroups.size());
+    final int numOperators = _operators.size();
+    final int numTasks = getNumTasks(numOperators);
+    // Instead of assigning a fixed group of operators to each task, each task starts with its own operator and then
+    // keeps taking the next operator not yet processed, so that tasks picking small segments process more of them and
+    // a large segment does not hold back the other operators of its group.
+    final AtomicInteger nextOperatorIndex = new AtomicInteger(numTasks);
+    final BlockingQueue<Block> blockingQueue = new ArrayBlockingQueue<>(Math.max(1, numTasks));
     // Submit operators.
-    for (final List<Operator> operatorGroup : operatorGroups) {
+    for (int i = 0; i < numTasks; i++) {
+      final int firstOperatorIndex = i;
       _executorService.submit(new TraceRunnable() {
         @Override
         public void runJob() {
           IntermediateResultsBlock mergedBlock = null;
           try {
-            for (Operator operator : operatorGroup) {
-              IntermediateResultsBlock blockToMerge = (IntermediateResultsBlock) operator.nextBlock();
+            int operatorIndex = firstOperatorIndex;
+            while (operatorIndex < numOperators) {
+              IntermediateResultsBlock blockToMerge =
+                  (IntermediateResultsBlock) _operators.get(operatorIndex).nextBlock();
               if (mergedBlock == null) {
                 mergedBlock = blockToMerge;
               } else {
@@ -113,6 +108,7 @@ public class MCombineOperator extends BaseOperator {
                       QueryException.getException(QueryException.MERGE_RESPONSE_ERROR, e));
                 }
               }
+              operatorIndex = nextOperatorIndex.getAndIncrement();
             }
           } catch (Exception e) {
             LOGGER.error("Caught exception while executing query.", e);
@@ -132,7 +128,7 @@ public class MCombineOperator extends BaseOperator {
               throws Exception {
             int mergedBlocksNumber = 0;
             IntermediateResultsBlock mergedBlock = null;
-            while ((queryEndTime > System.currentTimeMillis()) && (mergedBlocksNumber < operatorGroups.size())) {
+            while ((queryEndTime > System.currentTimeMillis()) && (mergedBlocksNumber < numTasks)) {
               if (mergedBlock == null) {
                 mergedBlock = (IntermediateResultsBlock) blockingQueue.poll(queryEndTime - System.currentTimeMillis(),
                     TimeUnit.MILLISECONDS);
@@ -196,6 +192,17 @@ public class MCombineOperator extends BaseOperator {
     return mergedBlock;
   }
 
+  /**
+   * Returns the number of tasks to run the given number of operators of one query with. The number of tasks is bounded
+   * per query so that one query over many segments does not take all the worker threads.
+   *
+   * @param numOperators number of operators.
+   * @return number of tasks.
+   */
+  public static int getNumTasks(int numOperators) {
+    return Math.min(numOperators, MAX_THREADS_PER_QUERY);
+  }
+
   @Override
   public Block getNextBlock(BlockId blockId) {
     throw new UnsupportedOperationException();
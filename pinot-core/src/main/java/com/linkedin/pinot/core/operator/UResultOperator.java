@@ -18,6 +18,8 @@ package com.linkedin.pinot.core.operator;
 import com.linkedin.pinot.core.common.Block;
 import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV3;
 import com.linkedin.pinot.core.operator.blocks.InstanceResponseBlock;
 
 
@@ -30,9 +32,18 @@ import com.linkedin.pinot.core.operator.blocks.InstanceResponseBlock;
 public class UResultOperator extends BaseOperator {
   private static final String OPERATOR_NAME = "UResultOperator";
   private final Operator _operator;
+  private final int _dataTableVersion;
+  private final DataTableImplV3.CompressionCodec _dataTableCompressionCodec;
 
   public UResultOperator(Operator combinedOperator) {
+    this(combinedOperator, DataTableFactory.VERSION_2, DataTableImplV3.CompressionCodec.NONE);
+  }
+
+  public UResultOperator(Operator combinedOperator, int dataTableVersion,
+      DataTableImplV3.CompressionCodec dataTableCompressionCodec) {
     _operator = combinedOperator;
+    _dataTableVersion = dataTableVersion;
+    _dataTableCompressionCodec = dataTableCompressionCodec;
   }
 
   @Override
@@ -43,7 +54,7 @@ public class UResultOperator extends BaseOperator {
 
   @Override
   public Block getNextBlock() {
-    return new InstanceResponseBlock(_operator.nextBlock());
+    return new InstanceResponseBlock(_operator.nextBlock(), _dataTableVersion, _dataTableCompressionCodec);
   }
 
   @Override
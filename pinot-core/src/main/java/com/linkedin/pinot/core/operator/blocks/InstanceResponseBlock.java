@@ -23,6 +23,8 @@ import com.linkedin.pinot.core.common.BlockId;
 import com.linkedin.pinot.core.common.BlockMetadata;
 import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.common.Predicate;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -38,9 +40,14 @@ public class InstanceResponseBlock implements Block {
   private DataTable _instanceResponseDataTable;
 
   public InstanceResponseBlock(Block block) {
+    this(block, DataTableFactory.VERSION_2, DataTableImplV3.CompressionCodec.NONE);
+  }
+
+  public InstanceResponseBlock(Block block, int dataTableVersion,
+      DataTableImplV3.CompressionCodec dataTableCompressionCodec) {
     IntermediateResultsBlock intermediateResultsBlock = (IntermediateResultsBlock) block;
     try {
-      _instanceResponseDataTable = intermediateResultsBlock.getDataTable();
+      _instanceResponseDataTable = intermediateResultsBlock.getDataTable(dataTableVersion, dataTableCompressionCodec);
     } catch (Exception e) {
       LOGGER.error("Caught exception while building data table.", e);
       throw new RuntimeException("Caught exception while building data table.", e);
@@ -28,7 +28,9 @@ import com.linkedin.pinot.core.common.BlockMetadata;
 import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.common.Predicate;
 import com.linkedin.pinot.core.common.datatable.DataTableBuilder;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
 import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV3;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
@@ -148,6 +150,11 @@ public class IntermediateResultsBlock implements Block {
     return _aggregationGroupByResult;
   }
 
+  @Nullable
+  public List<Map<String, Object>> getCombinedAggregationGroupByResult() {
+    return _combinedAggregationGroupByResult;
+  }
+
   @Nullable
   public List<ProcessingException> getProcessingExceptions() {
     return _processingExceptions;
@@ -183,16 +190,30 @@ public class IntermediateResultsBlock implements Block {
   @Nonnull
   public DataTable getDataTable()
       throws Exception {
+    return getDataTable(DataTableFactory.VERSION_2, DataTableImplV3.CompressionCodec.NONE);
+  }
+
+  /**
+   * Get the data table of the given version.
+   *
+   * @param version data table version.
+   * @param compressionCodec compression codec for the column blocks of version 3 data table.
+   * @return data table.
+   * @throws Exception
+   */
+  @Nonnull
+  public DataTable getDataTable(int version, @Nonnull DataTableImplV3.CompressionCodec compressionCodec)
+      throws Exception {
     if (_selectionResult != null) {
-      return getSelectionResultDataTable();
+      return getSelectionResultDataTable(version, compressionCodec);
     }
 
     if (_aggregationResult != null) {
-      return getAggregationResultDataTable();
+      return getAggregationResultDataTable(version, compressionCodec);
     }
 
     if (_combinedAggregationGroupByResult != null) {
-      return getAggregationGroupByResultDataTable();
+      return getAggregationGroupByResultDataTable(version, compressionCodec);
     }
 
     if (_processingExceptions != null && _processingExceptions.size() > 0) {
@@ -203,14 +224,15 @@ public class IntermediateResultsBlock implements Block {
   }
 
   @Nonnull
-  private DataTable getSelectionResultDataTable()
+  private DataTable getSelectionResultDataTable(int version, DataTableImplV3.CompressionCodec compressionCodec)
       throws Exception {
     return attachMetadataToDataTable(
-        SelectionOperatorUtils.getDataTableFromRows(_selectionResult, _selectionDataSchema));
+        SelectionOperatorUtils.getDataTableFromRows(_selectionResult, _selectionDataSchema, version,
+            compressionCodec));
   }
 
   @Nonnull
-  private DataTable getAggregationResultDataTable()
+  private DataTable getAggregationResultDataTable(int version, DataTableImplV3.CompressionCodec compressionCodec)
       throws Exception {
     // Extract each aggregation column name and type from aggregation function context.
     int numAggregationFunctions = _aggregationFunctionContexts.length;
@@ -224,7 +246,8 @@ public class IntermediateResultsBlock implements Block {
     }
 
     // Build the data table.
-    DataTableBuilder dataTableBuilder = new DataTableBuilder(new DataSchema(columnNames, columnTypes));
+    DataTableBuilder dataTableBuilder =
+        new DataTableBuilder(new DataSchema(columnNames, columnTypes), version, compressionCodec);
     dataTableBuilder.startRow();
     for (int i = 0; i < numAggregationFunctions; i++) {
       switch (columnTypes[i]) {
@@ -249,13 +272,15 @@ public class IntermediateResultsBlock implements Block {
   }
 
   @Nonnull
-  private DataTable getAggregationGroupByResultDataTable()
+  private DataTable getAggregationGroupByResultDataTable(int version,
+      DataTableImplV3.CompressionCodec compressionCodec)
       throws Exception {
     String[] columnNames = new String[]{"functionName", "GroupByResultMap"};
     FieldSpec.DataType[] columnTypes = new FieldSpec.DataType[]{FieldSpec.DataType.STRING, FieldSpec.DataType.OBJECT};
 
     // Build the data table.
-    DataTableBuilder dataTableBuilder = new DataTableBuilder(new DataSchema(columnNames, columnTypes));
+    DataTableBuilder dataTableBuilder =
+        new DataTableBuilder(new DataSchema(columnNames, columnTypes), version, compressionCodec);
     int numAggregationFunctions = _aggregationFunctionContexts.length;
     for (int i = 0; i < numAggregationFunctions; i++) {
       dataTableBuilder.startRow();
@@ -25,7 +25,17 @@ import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
 
 
+/**
+ * Scan based doc id iterator for single-valued columns.
+ *
+ * Sequential iteration ({@link #next()} and {@link #advance(int)}) scans the documents in batches: the dictionary ids
+ * of a batch of consecutive documents are read in bulk and the predicate is evaluated over the whole batch, so that
+ * the per document work is a tight loop without virtual calls. Random access ({@link #isMatch(int)} and
+ * {@link #applyAnd(MutableRoaringBitmap)}) still reads the documents one by one.
+ */
 public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
+  private static final int BATCH_SIZE = 10000;
+
   int currentDocId = -1;
   BlockSingleValIterator valueIterator;
   private int startDocId;
@@ -34,15 +44,24 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
   private String datasourceName;
   private int _numEntriesScanned = 0;
 
+  // Buffers for the batch scan, allocated on first use.
+  private int[] _dictIdBuffer;
+  private int[] _matchingDocIdBuffer;
+  // Matching doc ids of the current batch not returned yet are [_matchingDocIdIndex, _numMatchingDocIds).
+  private int _numMatchingDocIds = 0;
+  private int _matchingDocIdIndex = 0;
+  // End (exclusive) of the current batch.
+  private int _batchEndDocId = 0;
+
   public SVScanDocIdIterator(String datasourceName, BlockValSet blockValSet, BlockMetadata blockMetadata,
       PredicateEvaluator evaluator) {
     this.datasourceName = datasourceName;
     this.evaluator = evaluator;
     valueIterator = (BlockSingleValIterator) blockValSet.iterator();
     if (evaluator.alwaysFalse()) {
-      currentDocId = Constants.EOF;
       setStartDocId(Constants.EOF);
       setEndDocId(Constants.EOF);
+      currentDocId = Constants.EOF;
     } else {
       setStartDocId(blockMetadata.getStartDocId());
       setEndDocId(blockMetadata.getEndDocId());
@@ -57,6 +76,10 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     currentDocId = startDocId - 1;
     valueIterator.skipTo(startDocId);
     this.startDocId = startDocId;
+    // Drop the scanned batch.
+    _numMatchingDocIds = 0;
+    _matchingDocIdIndex = 0;
+    _batchEndDocId = startDocId;
   }
 
   /**
@@ -92,8 +115,8 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     if (currentDocId >= targetDocId) {
       return currentDocId;
     } else {
+      // The matching doc ids before the target in the current batch are skipped in next().
       currentDocId = targetDocId - 1;
-      valueIterator.skipTo(targetDocId);
       return next();
     }
   }
@@ -103,15 +126,39 @@ public class SVScanDocIdIterator implements ScanBasedDocIdIterator {
     if (currentDocId == Constants.EOF) {
       return currentDocId;
     }
-    while (valueIterator.hasNext() && currentDocId < endDocId) {
-      currentDocId = currentDocId + 1;
-      _numEntriesScanned++;
-      int dictIdForCurrentDoc = valueIterator.nextIntVal();
-      if (evaluator.apply(dictIdForCurrentDoc)) {
-        // System.out.println("Returning deom " + this +"doc Id:"+ currentDocId + " dictId:"+
-        // dictIdForCurrentDoc);
-        return currentDocId;
+    int nextDocId = currentDocId + 1;
+    while (true) {
+      // Return the next matching doc id in the current batch.
+      while (_matchingDocIdIndex < _numMatchingDocIds) {
+        int docId = _matchingDocIdBuffer[_matchingDocIdIndex++];
+        if (docId >= nextDocId) {
+          if (docId > endDocId) {
+            // The end doc id was lowered after the batch was scanned.
+            currentDocId = Constants.EOF;
+            return Constants.EOF;
+          }
+          currentDocId = docId;
+          return currentDocId;
+        }
+      }
+
+      // Scan the next batch.
+      int batchStartDocId = Math.max(nextDocId, _batchEndDocId);
+      if (batchStartDocId > endDocId || !valueIterator.skipTo(batchStartDocId)) {
+        break;
+      }
+      if (_dictIdBuffer == null) {
+        _dictIdBuffer = new int[BATCH_SIZE];
+        _matchingDocIdBuffer = new int[BATCH_SIZE];
+      }
+      int numDocs = valueIterator.nextIntVals(_dictIdBuffer, Math.min(BATCH_SIZE, endDocId - batchStartDocId + 1));
+      if (numDocs == 0) {
+        break;
       }
+      _numEntriesScanned += numDocs;
+      _numMatchingDocIds = evaluator.applyBatch(_dictIdBuffer, numDocs, batchStartDocId, _matchingDocIdBuffer);
+      _matchingDocIdIndex = 0;
+      _batchEndDocId = batchStartDocId + numDocs;
     }
     currentDocId = Constants.EOF;
     return Constants.EOF;
@@ -19,6 +19,7 @@ import com.linkedin.pinot.common.data.FieldSpec.DataType;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
 import com.linkedin.pinot.core.common.Constants;
 import com.linkedin.pinot.core.io.reader.SingleColumnSingleValueReader;
+import com.linkedin.pinot.core.io.reader.impl.v1.FixedBitSingleValueReader;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
 
 public final class UnSortedSingleValueIterator extends BlockSingleValIterator {
@@ -26,6 +27,8 @@ public final class UnSortedSingleValueIterator extends BlockSingleValIterator {
   private int counter = 0;
   private ColumnMetadata columnMetadata;
   private SingleColumnSingleValueReader sVReader;
+  // Non-null if the reader supports reading consecutive rows in bulk.
+  private FixedBitSingleValueReader fixedBitReader;
 
 
   public UnSortedSingleValueIterator(SingleColumnSingleValueReader sVReader,
@@ -33,6 +36,9 @@ public final class UnSortedSingleValueIterator extends BlockSingleValIterator {
     super();
     this.sVReader = sVReader;
     this.columnMetadata = columnMetadata;
+    if (sVReader instanceof FixedBitSingleValueReader) {
+      fixedBitReader = (FixedBitSingleValueReader) sVReader;
+    }
   }
 
   @Override
@@ -60,6 +66,17 @@ public final class UnSortedSingleValueIterator extends BlockSingleValIterator {
     return sVReader.getInt(counter++);
   }
 
+  @Override
+  public int nextIntVals(int[] outValues, int length) {
+    if (fixedBitReader == null) {
+      return super.nextIntVals(outValues, length);
+    }
+    int numValues = Math.max(Math.min(length, columnMetadata.getTotalDocs() - counter), 0);
+    fixedBitReader.readValues(counter, numValues, outValues);
+    counter += numValues;
+    return numValues;
+  }
+
   @Override
   public String nextStringVal() {
     if (counter >= columnMetadata.getTotalDocs()) {
@@ -56,6 +56,17 @@ public class EqualsPredicateEvaluator implements PredicateEvaluator {
     return false;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int startDocId, int[] matchingDocIds) {
+    int numMatchingDocs = 0;
+    for (int i = 0; i < length; i++) {
+      // Always write the doc id and only move the pointer on match to avoid branches in the loop.
+      matchingDocIds[numMatchingDocs] = startDocId + i;
+      numMatchingDocs += (dictionaryIds[i] == equalsMatchDictId) ? 1 : 0;
+    }
+    return numMatchingDocs;
+  }
+
   @Override
   public int[] getMatchingDictionaryIds() {
     return matchingIds;
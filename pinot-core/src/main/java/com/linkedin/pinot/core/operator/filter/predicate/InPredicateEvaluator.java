@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.operator.filter.predicate;
 
 import java.util.Arrays;
+import java.util.BitSet;
 
 import com.linkedin.pinot.core.common.predicate.InPredicate;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
@@ -26,6 +27,8 @@ public class InPredicateEvaluator implements PredicateEvaluator {
 
   private int[] matchingIds;
   private IntSet dictIdSet;
+  // Bitmap of the matching dictionary ids for the batch evaluation.
+  private BitSet dictIdBitSet;
   private InPredicate predicate;
 
   public InPredicateEvaluator(InPredicate predicate, Dictionary dictionary) {
@@ -45,6 +48,10 @@ public class InPredicateEvaluator implements PredicateEvaluator {
       matchingIds[i++] = dictId;
     }
     Arrays.sort(matchingIds);
+    dictIdBitSet = new BitSet();
+    for (int dictId : matchingIds) {
+      dictIdBitSet.set(dictId);
+    }
   }
 
   @Override
@@ -62,6 +69,16 @@ public class InPredicateEvaluator implements PredicateEvaluator {
     return false;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int startDocId, int[] matchingDocIds) {
+    int numMatchingDocs = 0;
+    for (int i = 0; i < length; i++) {
+      matchingDocIds[numMatchingDocs] = startDocId + i;
+      numMatchingDocs += dictIdBitSet.get(dictionaryIds[i]) ? 1 : 0;
+    }
+    return numMatchingDocs;
+  }
+
   @Override
   public int[] getMatchingDictionaryIds() {
     return matchingIds;
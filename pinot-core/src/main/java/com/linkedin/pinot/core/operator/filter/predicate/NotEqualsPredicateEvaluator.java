@@ -56,6 +56,17 @@ public class NotEqualsPredicateEvaluator implements PredicateEvaluator {
     return true;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int startDocId, int[] matchingDocIds) {
+    int numMatchingDocs = 0;
+    for (int i = 0; i < length; i++) {
+      // Always write the doc id and only move the pointer on match to avoid branches in the loop.
+      matchingDocIds[numMatchingDocs] = startDocId + i;
+      numMatchingDocs += (dictionaryIds[i] != neqDictValue) ? 1 : 0;
+    }
+    return numMatchingDocs;
+  }
+
   @Override
   public int[] getMatchingDictionaryIds() {
     //This is expensive for NOT EQ predicate, some operators need this for now. Eventually we should remove the need for exposing matching dict ids
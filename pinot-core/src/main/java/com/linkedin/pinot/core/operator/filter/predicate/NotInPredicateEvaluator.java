@@ -20,6 +20,7 @@ import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
 import it.unimi.dsi.fastutil.ints.IntSet;
+import java.util.BitSet;
 
 
 public class NotInPredicateEvaluator implements PredicateEvaluator {
@@ -28,6 +29,8 @@ public class NotInPredicateEvaluator implements PredicateEvaluator {
   private int[] nonMatchingIds;
   private Dictionary dictionary;
   private IntSet nonMatchingDictIdSet;
+  // Bitmap of the non matching dictionary ids for the batch evaluation.
+  private BitSet nonMatchingDictIdBitSet;
 
   public NotInPredicateEvaluator(NotInPredicate predicate, Dictionary dictionary) {
     this.dictionary = dictionary;
@@ -41,9 +44,11 @@ public class NotInPredicateEvaluator implements PredicateEvaluator {
       }
     }
     nonMatchingIds = new int[nonMatchingDictIdSet.size()];
+    nonMatchingDictIdBitSet = new BitSet();
     int index = 0;
     for (int dictId : nonMatchingDictIdSet) {
       nonMatchingIds[index] = dictId;
+      nonMatchingDictIdBitSet.set(dictId);
       index = index + 1;
     }
   }
@@ -63,6 +68,16 @@ public class NotInPredicateEvaluator implements PredicateEvaluator {
     return true;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int startDocId, int[] matchingDocIds) {
+    int numMatchingDocs = 0;
+    for (int i = 0; i < length; i++) {
+      matchingDocIds[numMatchingDocs] = startDocId + i;
+      numMatchingDocs += nonMatchingDictIdBitSet.get(dictionaryIds[i]) ? 0 : 1;
+    }
+    return numMatchingDocs;
+  }
+
   @Override
   public int[] getMatchingDictionaryIds() {
     //This is expensive for NOT IN predicate, some operators need this for now. Eventually we should remove the need for exposing matching dict ids
@@ -36,6 +36,17 @@ public interface PredicateEvaluator {
    */
   public boolean apply(int[] dictionaryIds, int length);
 
+  /**
+   * Evaluate the predicate for a batch of single-valued documents with consecutive doc ids.
+   *
+   * @param dictionaryIds dictionary ids of the documents
+   * @param length number of documents in the batch
+   * @param startDocId doc id of the first document in the batch
+   * @param matchingDocIds buffer of at least <code>length</code> size to return the matching doc ids in order
+   * @return number of matching doc ids
+   */
+  public int applyBatch(int[] dictionaryIds, int length, int startDocId, int[] matchingDocIds);
+
   /**
    * @return matching dictionary Ids
    */
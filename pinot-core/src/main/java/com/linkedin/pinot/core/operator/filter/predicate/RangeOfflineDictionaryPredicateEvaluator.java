@@ -82,6 +82,18 @@ public class RangeOfflineDictionaryPredicateEvaluator implements PredicateEvalua
     return false;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int startDocId, int[] matchingDocIds) {
+    int numMatchingDocs = 0;
+    for (int i = 0; i < length; i++) {
+      int dictId = dictionaryIds[i];
+      // Always write the doc id and only move the pointer on match to avoid branches in the loop.
+      matchingDocIds[numMatchingDocs] = startDocId + i;
+      numMatchingDocs += (dictId >= rangeStartIndex & dictId <= rangeEndIndex) ? 1 : 0;
+    }
+    return numMatchingDocs;
+  }
+
   @Override
   public int[] getMatchingDictionaryIds() {
     if (matchingIds == null) {
@@ -15,30 +15,32 @@
  */
 package com.linkedin.pinot.core.operator.filter.predicate;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.BitSet;
 
 import com.linkedin.pinot.core.common.predicate.RangePredicate;
 import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
 
-import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
-import it.unimi.dsi.fastutil.ints.IntSet;
-
 
+/**
+ * Range predicate evaluator for realtime dictionaries.
+ *
+ * The matching dictionary ids are resolved with two binary searches on the sorted view of the dictionary ids (see
+ * {@link MutableDictionaryReader#getSortedDictIds()}) instead of comparing every value in the dictionary.
+ */
 public class RangeRealtimeDictionaryPredicateEvaluator implements PredicateEvaluator {
 
   private int[] matchingIds;
-  private IntSet dictIdSet;
+  private BitSet matchingIdSet;
   private RangePredicate predicate;
 
   public RangeRealtimeDictionaryPredicateEvaluator(RangePredicate predicate, MutableDictionaryReader dictionary) {
     this.predicate = predicate;
-    List<Integer> ids = new ArrayList<Integer>();
-    String rangeStart;
-    String rangeEnd;
 
-    if (dictionary.isEmpty()) {
+    // Snapshot of the dictionary, values added after this point are not visible to the query.
+    int[] sortedDictIds = dictionary.getSortedDictIds();
+    int length = sortedDictIds.length;
+    matchingIdSet = new BitSet(length);
+    if (length == 0) {
       matchingIds = new int[0];
       return;
     }
@@ -48,46 +50,70 @@ public class RangeRealtimeDictionaryPredicateEvaluator implements PredicateEvalu
     final String lower = predicate.getLowerBoundary();
     final String upper = predicate.getUpperBoundary();
 
-    if (lower.equals("*")) {
-      rangeStart = dictionary.getMinVal().toString();
-    } else {
-      rangeStart = lower;
+    // Start (inclusive) and end (exclusive) position of the matching values in the sorted view.
+    int start = 0;
+    if (!lower.equals("*")) {
+      start = binarySearch(dictionary, sortedDictIds, lower, incLower);
+    }
+    int end = length;
+    if (!upper.equals("*")) {
+      end = binarySearch(dictionary, sortedDictIds, upper, !incUpper);
     }
 
-    if (upper.equals("*")) {
-      rangeEnd = dictionary.getMaxVal().toString();
-    } else {
-      rangeEnd = upper;
+    for (int i = start; i < end; i++) {
+      matchingIdSet.set(sortedDictIds[i]);
+    }
+    matchingIds = new int[Math.max(end - start, 0)];
+    int index = 0;
+    for (int dictId = matchingIdSet.nextSetBit(0); dictId >= 0; dictId = matchingIdSet.nextSetBit(dictId + 1)) {
+      matchingIds[index++] = dictId;
     }
+  }
 
-    for (int dicId = 0; dicId < dictionary.length(); dicId++) {
-      if (dictionary.inRange(rangeStart, rangeEnd, dicId, incLower, incUpper)) {
-        ids.add(dicId);
+  /**
+   * Returns the first position in the sorted view with value greater than (or equal to if inclusive) the given value.
+   */
+  private static int binarySearch(MutableDictionaryReader dictionary, int[] sortedDictIds, String value,
+      boolean inclusive) {
+    int low = 0;
+    int high = sortedDictIds.length;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      int compareResult = dictionary.compareToValue(sortedDictIds[mid], value);
+      if (compareResult < 0 || (compareResult == 0 && !inclusive)) {
+        low = mid + 1;
+      } else {
+        high = mid;
       }
     }
-    matchingIds = new int[ids.size()];
-    dictIdSet = new IntOpenHashSet(ids.size());
-    for (int i = 0; i < matchingIds.length; i++) {
-      matchingIds[i] = ids.get(i);
-      dictIdSet.add(ids.get(i));
-    }
+    return low;
   }
 
   @Override
   public boolean apply(int dictionaryId) {
-    return dictIdSet.contains(dictionaryId);
+    return matchingIdSet.get(dictionaryId);
   }
 
   @Override
   public boolean apply(int[] dictionaryIds) {
     for (int dictId : dictionaryIds) {
-      if (dictIdSet.contains(dictId)) {
+      if (matchingIdSet.get(dictId)) {
         return true;
       }
     }
     return false;
   }
 
+  @Override
+  public int applyBatch(int[] dictionaryIds, int length, int startDocId, int[] matchingDocIds) {
+    int numMatchingDocs = 0;
+    for (int i = 0; i < length; i++) {
+      matchingDocIds[numMatchingDocs] = startDocId + i;
+      numMatchingDocs += matchingIdSet.get(dictionaryIds[i]) ? 1 : 0;
+    }
+    return numMatchingDocs;
+  }
+
   @Override
   public int[] getMatchingDictionaryIds() {
     return matchingIds;
@@ -102,7 +128,7 @@ public class RangeRealtimeDictionaryPredicateEvaluator implements PredicateEvalu
   public boolean apply(int[] dictionaryIds, int length) {
     for (int i = 0; i < length; i++) {
       int dictId = dictionaryIds[i];
-      if (dictIdSet.contains(dictId)) {
+      if (matchingIdSet.get(dictId)) {
         return true;
       }
     }
@@ -0,0 +1,70 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.query;
+
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.operator.BaseOperator;
+import com.linkedin.pinot.core.operator.ExecutionStatistics;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import javax.annotation.Nonnull;
+
+
+/**
+ * The <code>CachedResultsOperator</code> class provides the operator for the cached results of a query on a single
+ * segment. No document is scanned, so only the total number of documents is reported in the execution statistics.
+ */
+public class CachedResultsOperator extends BaseOperator {
+  private static final String OPERATOR_NAME = "CachedResultsOperator";
+
+  private final IntermediateResultsBlock _intermediateResultsBlock;
+  private final ExecutionStatistics _executionStatistics;
+
+  public CachedResultsOperator(@Nonnull IntermediateResultsBlock intermediateResultsBlock, long numTotalRawDocs) {
+    _intermediateResultsBlock = intermediateResultsBlock;
+    _executionStatistics = new ExecutionStatistics(0L, 0L, 0L, numTotalRawDocs);
+  }
+
+  @Override
+  public boolean open() {
+    return true;
+  }
+
+  @Override
+  public Block getNextBlock() {
+    return _intermediateResultsBlock;
+  }
+
+  @Override
+  public Block getNextBlock(BlockId blockId) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  public String getOperatorName() {
+    return OPERATOR_NAME;
+  }
+
+  @Override
+  public boolean close() {
+    return true;
+  }
+
+  @Override
+  public ExecutionStatistics getExecutionStatistics() {
+    return _executionStatistics;
+  }
+}
@@ -16,7 +16,14 @@
 package com.linkedin.pinot.core.plan;
 
 import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.common.DataSourceMetadata;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionVisitorBase;
+import com.linkedin.pinot.core.query.aggregation.function.DistinctCountAggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.DistinctCountExactAggregationFunction;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.query.aggregation.function.FastHLLAggregationFunction;
 import com.linkedin.pinot.core.query.aggregation.function.FastHLLMVAggregationFunction;
 
@@ -24,11 +31,30 @@ import com.linkedin.pinot.core.query.aggregation.function.FastHLLMVAggregationFu
 // class is public because existing tests are in different package
 public class AggregationFunctionInitializer extends AggregationFunctionVisitorBase {
   private SegmentMetadata _segmentMetadata;
+  private IndexSegment _indexSegment;
+  private String[] _aggregationColumns;
 
   public AggregationFunctionInitializer(SegmentMetadata metadata) {
     _segmentMetadata = metadata;
   }
 
+  public AggregationFunctionInitializer(IndexSegment indexSegment) {
+    _segmentMetadata = indexSegment.getSegmentMetadata();
+    _indexSegment = indexSegment;
+  }
+
+  /**
+   * Initialize the aggregation function of the given context, with access to the columns it aggregates on.
+   */
+  public void initialize(AggregationFunctionContext aggregationFunctionContext) {
+    _aggregationColumns = aggregationFunctionContext.getAggregationColumns();
+    try {
+      aggregationFunctionContext.getAggregationFunction().accept(this);
+    } finally {
+      _aggregationColumns = null;
+    }
+  }
+
   @Override
   public void visit(FastHLLAggregationFunction function) {
     function.setLog2m(_segmentMetadata.getHllLog2m());
@@ -38,4 +64,36 @@ public class AggregationFunctionInitializer extends AggregationFunctionVisitorBa
   public void visit(FastHLLMVAggregationFunction function) {
     function.setLog2m(_segmentMetadata.getHllLog2m());
   }
+
+  @Override
+  public void visit(DistinctCountAggregationFunction function) {
+    function.setDictionary(getSingleValueColumnDictionary());
+  }
+
+  @Override
+  public void visit(DistinctCountExactAggregationFunction function) {
+    function.setDictionary(getSingleValueColumnDictionary());
+  }
+
+  /**
+   * Returns the dictionary of the aggregation column if the function aggregates on exactly one single-value dictionary
+   * encoded column of the segment (not a transform expression), null otherwise.
+   */
+  private Dictionary getSingleValueColumnDictionary() {
+    if (_indexSegment == null || _aggregationColumns == null || _aggregationColumns.length != 1) {
+      return null;
+    }
+    String column = _aggregationColumns[0];
+    for (String columnName : _indexSegment.getColumnNames()) {
+      if (columnName.equals(column)) {
+        DataSource dataSource = _indexSegment.getDataSource(column);
+        DataSourceMetadata dataSourceMetadata = dataSource.getDataSourceMetadata();
+        if (dataSourceMetadata.hasDictionary() && dataSourceMetadata.isSingleValue()) {
+          return dataSource.getDictionary();
+        }
+        return null;
+      }
+    }
+    return null;
+  }
 }
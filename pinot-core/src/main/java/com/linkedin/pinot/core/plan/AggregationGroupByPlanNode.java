@@ -57,7 +57,7 @@ public class AggregationGroupByPlanNode implements PlanNode {
     TransformExpressionOperator transformOperator = (TransformExpressionOperator) _transformPlanNode.run();
     SegmentMetadata segmentMetadata = _indexSegment.getSegmentMetadata();
     return new AggregationGroupByOperator(
-        AggregationFunctionUtils.getAggregationFunctionContexts(_aggregationInfos, segmentMetadata), _groupBy,
+        AggregationFunctionUtils.getAggregationFunctionContexts(_aggregationInfos, _indexSegment), _groupBy,
         _numGroupsLimit, transformOperator, segmentMetadata.getTotalRawDocs());
   }
 
@@ -51,7 +51,7 @@ public class AggregationPlanNode implements PlanNode {
     TransformExpressionOperator transformOperator = (TransformExpressionOperator) _transformPlanNode.run();
     SegmentMetadata segmentMetadata = _indexSegment.getSegmentMetadata();
     return new AggregationOperator(
-        AggregationFunctionUtils.getAggregationFunctionContexts(_aggregationInfos, segmentMetadata), transformOperator,
+        AggregationFunctionUtils.getAggregationFunctionContexts(_aggregationInfos, _indexSegment), transformOperator,
         segmentMetadata.getTotalRawDocs());
   }
 
@@ -21,10 +21,12 @@ import com.linkedin.pinot.core.operator.MCombineGroupByOperator;
 import com.linkedin.pinot.core.operator.MCombineOperator;
 import com.linkedin.pinot.core.util.trace.TraceCallable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -63,11 +65,12 @@ public class CombinePlanNode implements PlanNode {
   public Operator run() {
     long start = System.currentTimeMillis();
 
-    int numPlanNodes = _planNodes.size();
-    List<Operator> operators = new ArrayList<>(numPlanNodes);
+    final int numPlanNodes = _planNodes.size();
+    List<Operator> operators;
 
     if (numPlanNodes < NUM_PLAN_NODES_THRESHOLD_FOR_PARALLEL_RUN) {
       // Small number of plan nodes, run them sequentially.
+      operators = new ArrayList<>(numPlanNodes);
       for (PlanNode planNode : _planNodes) {
         operators.add(planNode.run());
       }
@@ -77,14 +80,21 @@ public class CombinePlanNode implements PlanNode {
       // Calculate the timeout timestamp.
       long timeout = start + TIME_OUT_IN_MILLISECONDS_FOR_PARALLEL_RUN;
 
-      // Submit all jobs.
-      List<Future<Operator>> futures = new ArrayList<>(numPlanNodes);
-      for (final PlanNode planNode : _planNodes) {
-        futures.add(_executorService.submit(new TraceCallable<Operator>() {
+      // Submit a bounded number of jobs, each job keeps running the next plan node not yet run.
+      final Operator[] operatorArray = new Operator[numPlanNodes];
+      final AtomicInteger nextPlanNodeIndex = new AtomicInteger();
+      int numJobs = MCombineOperator.getNumTasks(numPlanNodes);
+      List<Future<Void>> futures = new ArrayList<>(numJobs);
+      for (int i = 0; i < numJobs; i++) {
+        futures.add(_executorService.submit(new TraceCallable<Void>() {
           @Override
-          public Operator callJob()
+          public Void callJob()
               throws Exception {
-            return planNode.run();
+            int index;
+            while ((index = nextPlanNodeIndex.getAndIncrement()) < numPlanNodes) {
+              operatorArray[index] = _planNodes.get(index).run();
+            }
+            return null;
           }
         }));
       }
@@ -92,21 +102,23 @@ public class CombinePlanNode implements PlanNode {
       // Try to get results from all jobs. Cancel all remaining jobs if caught any exception.
       int index = 0;
       try {
-        while (index < numPlanNodes) {
-          Future<Operator> future = futures.get(index);
+        while (index < numJobs) {
+          Future<Void> future = futures.get(index);
           try {
-            operators.add(future.get(timeout - System.currentTimeMillis(), TimeUnit.MILLISECONDS));
+            future.get(timeout - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
           } catch (Exception e) {
             throw new RuntimeException("Caught exception while running CombinePlanNode.", e);
           }
           index++;
         }
       } finally {
-        while (index < numPlanNodes) {
+        while (index < numJobs) {
           futures.get(index).cancel(true);
           index++;
         }
       }
+      // Future.get() makes the operators set by the jobs visible to this thread.
+      operators = Arrays.asList(operatorArray);
     }
 
     long end = System.currentTimeMillis();
@@ -16,6 +16,8 @@
 package com.linkedin.pinot.core.plan;
 
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV3;
 import com.linkedin.pinot.core.operator.UResultOperator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,15 +30,25 @@ public class InstanceResponsePlanNode implements PlanNode {
   private static final Logger LOGGER = LoggerFactory.getLogger(InstanceResponsePlanNode.class);
 
   private final CombinePlanNode _combinePlanNode;
+  private final int _dataTableVersion;
+  private final DataTableImplV3.CompressionCodec _dataTableCompressionCodec;
 
   public InstanceResponsePlanNode(CombinePlanNode combinePlanNode) {
+    this(combinePlanNode, DataTableFactory.VERSION_2, DataTableImplV3.CompressionCodec.NONE);
+  }
+
+  public InstanceResponsePlanNode(CombinePlanNode combinePlanNode, int dataTableVersion,
+      DataTableImplV3.CompressionCodec dataTableCompressionCodec) {
     _combinePlanNode = combinePlanNode;
+    _dataTableVersion = dataTableVersion;
+    _dataTableCompressionCodec = dataTableCompressionCodec;
   }
 
   @Override
   public Operator run() {
     long start = System.currentTimeMillis();
-    UResultOperator uResultOperator = new UResultOperator(_combinePlanNode.run());
+    UResultOperator uResultOperator =
+        new UResultOperator(_combinePlanNode.run(), _dataTableVersion, _dataTableCompressionCodec);
     long end = System.currentTimeMillis();
     LOGGER.debug("InstanceResponsePlanNode.run took: {}ms", end - start);
     return uResultOperator;
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.plan;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.operator.query.CachedResultsOperator;
+import com.linkedin.pinot.core.operator.query.ResultCachingOperator;
+import com.linkedin.pinot.core.plan.maker.PlanMaker;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+import javax.annotation.Nonnull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>ResultCachePlanNode</code> class serves the results of a query on a single segment from the
+ * {@link SegmentResultCache} if present, otherwise it makes and runs the plan of the segment and caches its results.
+ */
+public class ResultCachePlanNode implements PlanNode {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ResultCachePlanNode.class);
+
+  private final PlanMaker _planMaker;
+  private final IndexSegment _indexSegment;
+  private final BrokerRequest _brokerRequest;
+  private final SegmentResultCache _segmentResultCache;
+  private final SegmentResultCache.Key _key;
+
+  public ResultCachePlanNode(@Nonnull PlanMaker planMaker, @Nonnull IndexSegment indexSegment,
+      @Nonnull BrokerRequest brokerRequest, @Nonnull SegmentResultCache segmentResultCache,
+      @Nonnull SegmentResultCache.Key key) {
+    _planMaker = planMaker;
+    _indexSegment = indexSegment;
+    _brokerRequest = brokerRequest;
+    _segmentResultCache = segmentResultCache;
+    _key = key;
+  }
+
+  @Override
+  public Operator run() {
+    AggregationFunctionContext[] aggregationFunctionContexts =
+        AggregationFunctionUtils.getAggregationFunctionContexts(_brokerRequest.getAggregationsInfo(), null);
+    IntermediateResultsBlock cachedResultsBlock =
+        _segmentResultCache.get(_key, aggregationFunctionContexts, _brokerRequest.isSetGroupBy());
+    if (cachedResultsBlock != null) {
+      return new CachedResultsOperator(cachedResultsBlock, _indexSegment.getSegmentMetadata().getTotalRawDocs());
+    }
+    PlanNode planNode = _planMaker.makeInnerSegmentPlan(_indexSegment, _brokerRequest);
+    return new ResultCachingOperator(planNode.run(), _segmentResultCache, _key);
+  }
+
+  @Override
+  public void showTree(String prefix) {
+    LOGGER.debug(prefix + "Segment Level Result Cache Plan Node:");
+    LOGGER.debug(prefix + "Operator: CachedResultsOperator/ResultCachingOperator");
+    LOGGER.debug(prefix + "Argument 0: IndexSegment - " + _indexSegment.getSegmentName());
+    LOGGER.debug(prefix + "Argument 1: Segment Plan Node - made on cache miss");
+  }
+}
@@ -16,6 +16,8 @@
 package com.linkedin.pinot.core.plan.maker;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV3;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.plan.AggregationGroupByPlanNode;
@@ -25,11 +27,16 @@ import com.linkedin.pinot.core.plan.GlobalPlanImplV0;
 import com.linkedin.pinot.core.plan.InstanceResponsePlanNode;
 import com.linkedin.pinot.core.plan.Plan;
 import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.plan.ResultCachePlanNode;
 import com.linkedin.pinot.core.plan.SelectionPlanNode;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
 import com.linkedin.pinot.core.query.config.QueryExecutorConfig;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,22 +54,51 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
   // private static final int DEFAULT_NUM_AGGR_GROUPS_LIMIT = 100_000;
   private final int _numAggrGroupsLimit = Integer.MAX_VALUE;
 
+  // Null if the segment result cache is disabled.
+  private final SegmentResultCache _segmentResultCache;
+  private final int _dataTableVersion;
+  private final DataTableImplV3.CompressionCodec _dataTableCompressionCodec;
+
   /**
    * Default constructor.
    */
   public InstancePlanMakerImplV2() {
 //    _numAggrGroupsLimit = DEFAULT_NUM_AGGR_GROUPS_LIMIT;
+    _segmentResultCache = null;
+    _dataTableVersion = DataTableFactory.VERSION_2;
+    _dataTableCompressionCodec = DataTableImplV3.CompressionCodec.NONE;
+  }
+
+  /**
+   * Constructor with the segment result cache to serve the per-segment results of immutable segments from.
+   *
+   * @param segmentResultCache segment result cache, or null to disable the cache.
+   */
+  public InstancePlanMakerImplV2(@Nullable SegmentResultCache segmentResultCache) {
+    _segmentResultCache = segmentResultCache;
+    _dataTableVersion = DataTableFactory.VERSION_2;
+    _dataTableCompressionCodec = DataTableImplV3.CompressionCodec.NONE;
   }
 
   /**
    * Constructor for usage when client requires to pass {@link QueryExecutorConfig} to this class.
    * <ul>
    *   <li>Set limit on number of aggregation groups in query result.</li>
+   *   <li>Set up the segment result cache if its size is configured.</li>
+   *   <li>Set the version (and compression codec) of the data tables sent to the brokers.</li>
    * </ul>
    *
    * @param queryExecutorConfig query executor configuration.
    */
   public InstancePlanMakerImplV2(QueryExecutorConfig queryExecutorConfig) {
+    long resultCacheMaxSizeInBytes = queryExecutorConfig.getResultCacheMaxSizeInBytes();
+    if (resultCacheMaxSizeInBytes > 0) {
+      _segmentResultCache = new SegmentResultCache(resultCacheMaxSizeInBytes);
+    } else {
+      _segmentResultCache = null;
+    }
+    _dataTableVersion = queryExecutorConfig.getDataTableVersion();
+    _dataTableCompressionCodec = queryExecutorConfig.getDataTableCompressionCodec();
     // TODO: Read the limit on number of aggregation groups in query result from config.
     // _numAggrGroupsLimit = queryExecutorConfig.getConfig().getInt(NUM_AGGR_GROUPS_LIMIT, DEFAULT_NUM_AGGR_GROUPS_LIMIT);
     // LOGGER.info("Maximum number of allowed groups for group-by query results: '{}'", _numAggrGroupsLimit);
@@ -99,12 +135,60 @@ public class InstancePlanMakerImplV2 implements PlanMaker {
     }
     BrokerRequestPreProcessor.preProcess(indexSegments, brokerRequest);
 
+    // Plan the largest segments first, so that the combine operator starts the longest running segments first and the
+    // small segments fill in the remaining worker time instead of a large segment being picked up last.
+    sortByNumDocsDescending(indexSegments);
+
+    // Serve the cached results of immutable segments if the segment result cache is enabled. The plan of a segment is
+    // only made on cache miss.
+    String canonicalizedQuery = null;
+
     List<PlanNode> planNodes = new ArrayList<>();
     for (IndexSegment indexSegment : indexSegments) {
-      planNodes.add(makeInnerSegmentPlan(indexSegment, brokerRequest));
+      if (_segmentResultCache != null && SegmentResultCache.isCacheable(indexSegment, brokerRequest)) {
+        if (canonicalizedQuery == null) {
+          canonicalizedQuery = SegmentResultCache.canonicalizeQuery(brokerRequest);
+        }
+        planNodes.add(new ResultCachePlanNode(this, indexSegment, brokerRequest, _segmentResultCache,
+            SegmentResultCache.getKey(brokerRequest.getQuerySource().getTableName(), indexSegment,
+                canonicalizedQuery)));
+      } else {
+        planNodes.add(makeInnerSegmentPlan(indexSegment, brokerRequest));
+      }
     }
     CombinePlanNode combinePlanNode = new CombinePlanNode(planNodes, brokerRequest, executorService, timeOutMs);
 
-    return new GlobalPlanImplV0(new InstanceResponsePlanNode(combinePlanNode));
+    return new GlobalPlanImplV0(
+        new InstanceResponsePlanNode(combinePlanNode, _dataTableVersion, _dataTableCompressionCodec));
+  }
+
+  /**
+   * Sorts the segments by their number of documents in descending order.
+   * <p>The number of documents of a consuming segment keeps growing while the segments are sorted, so the counts are
+   * read once before sorting to keep the comparison consistent.
+   *
+   * @param indexSegments segments to sort in place.
+   */
+  static void sortByNumDocsDescending(List<IndexSegment> indexSegments) {
+    int numSegments = indexSegments.size();
+    final int[] numDocs = new int[numSegments];
+    Integer[] order = new Integer[numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      numDocs[i] = indexSegments.get(i).getSegmentMetadata().getTotalRawDocs();
+      order[i] = i;
+    }
+    Arrays.sort(order, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return Integer.compare(numDocs[o2], numDocs[o1]);
+      }
+    });
+    List<IndexSegment> sortedSegments = new ArrayList<>(numSegments);
+    for (int index : order) {
+      sortedSegments.add(indexSegments.get(index));
+    }
+    for (int i = 0; i < numSegments; i++) {
+      indexSegments.set(i, sortedSegments.get(i));
+    }
   }
 }
@@ -35,6 +35,7 @@ public class AggregationFunctionFactory {
     MINMAXRANGE("minMaxRange"),
     DISTINCTCOUNT("distinctCount"),
     DISTINCTCOUNTHLL("distinctCountHLL"),
+    DISTINCTCOUNTEXACT("distinctCountExact"),
     FASTHLL("fastHLL"),
     PERCENTILE50("percentile50"),
     PERCENTILE90("percentile90"),
@@ -44,6 +45,10 @@ public class AggregationFunctionFactory {
     PERCENTILEEST90("percentileEst90"),
     PERCENTILEEST95("percentileEst95"),
     PERCENTILEEST99("percentileEst99"),
+    PERCENTILETDIGEST50("percentileTDigest50"),
+    PERCENTILETDIGEST90("percentileTDigest90"),
+    PERCENTILETDIGEST95("percentileTDigest95"),
+    PERCENTILETDIGEST99("percentileTDigest99"),
     // Multi-value aggregation functions.
     COUNTMV("countMV"),
     MINMV("minMV"),
@@ -53,6 +58,7 @@ public class AggregationFunctionFactory {
     MINMAXRANGEMV("minMaxRangeMV"),
     DISTINCTCOUNTMV("distinctCountMV"),
     DISTINCTCOUNTHLLMV("distinctCountHLLMV"),
+    DISTINCTCOUNTEXACTMV("distinctCountExactMV"),
     FASTHLLMV("fastHLLMV"),
     PERCENTILE50MV("percentile50MV"),
     PERCENTILE90MV("percentile90MV"),
@@ -61,7 +67,11 @@ public class AggregationFunctionFactory {
     PERCENTILEEST50MV("percentileEst50MV"),
     PERCENTILEEST90MV("percentileEst90MV"),
     PERCENTILEEST95MV("percentileEst95MV"),
-    PERCENTILEEST99MV("percentileEst99MV");
+    PERCENTILEEST99MV("percentileEst99MV"),
+    PERCENTILETDIGEST50MV("percentileTDigest50MV"),
+    PERCENTILETDIGEST90MV("percentileTDigest90MV"),
+    PERCENTILETDIGEST95MV("percentileTDigest95MV"),
+    PERCENTILETDIGEST99MV("percentileTDigest99MV");
 
     private final String _name;
 
@@ -97,6 +107,8 @@ public class AggregationFunctionFactory {
         return new DistinctCountAggregationFunction();
       case DISTINCTCOUNTHLL:
         return new DistinctCountHLLAggregationFunction();
+      case DISTINCTCOUNTEXACT:
+        return new DistinctCountExactAggregationFunction();
       case FASTHLL:
         return new FastHLLAggregationFunction();
       case PERCENTILE50:
@@ -115,6 +127,14 @@ public class AggregationFunctionFactory {
         return new PercentileEstAggregationFunction(95);
       case PERCENTILEEST99:
         return new PercentileEstAggregationFunction(99);
+      case PERCENTILETDIGEST50:
+        return new PercentileTDigestAggregationFunction(50);
+      case PERCENTILETDIGEST90:
+        return new PercentileTDigestAggregationFunction(90);
+      case PERCENTILETDIGEST95:
+        return new PercentileTDigestAggregationFunction(95);
+      case PERCENTILETDIGEST99:
+        return new PercentileTDigestAggregationFunction(99);
       case COUNTMV:
         return new CountMVAggregationFunction();
       case MINMV:
@@ -131,6 +151,8 @@ public class AggregationFunctionFactory {
         return new DistinctCountMVAggregationFunction();
       case DISTINCTCOUNTHLLMV:
         return new DistinctCountHLLMVAggregationFunction();
+      case DISTINCTCOUNTEXACTMV:
+        return new DistinctCountExactMVAggregationFunction();
       case FASTHLLMV:
         return new FastHLLMVAggregationFunction();
       case PERCENTILE50MV:
@@ -149,6 +171,14 @@ public class AggregationFunctionFactory {
         return new PercentileEstMVAggregationFunction(95);
       case PERCENTILEEST99MV:
         return new PercentileEstMVAggregationFunction(99);
+      case PERCENTILETDIGEST50MV:
+        return new PercentileTDigestMVAggregationFunction(50);
+      case PERCENTILETDIGEST90MV:
+        return new PercentileTDigestMVAggregationFunction(90);
+      case PERCENTILETDIGEST95MV:
+        return new PercentileTDigestMVAggregationFunction(95);
+      case PERCENTILETDIGEST99MV:
+        return new PercentileTDigestMVAggregationFunction(99);
       default:
         throw new UnsupportedOperationException();
     }
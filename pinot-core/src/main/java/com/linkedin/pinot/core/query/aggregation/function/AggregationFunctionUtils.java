@@ -16,7 +16,7 @@
 package com.linkedin.pinot.core.query.aggregation.function;
 
 import com.linkedin.pinot.common.request.AggregationInfo;
-import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.plan.AggregationFunctionInitializer;
 import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
 import java.util.List;
@@ -34,18 +34,17 @@ public class AggregationFunctionUtils {
 
   @Nonnull
   public static AggregationFunctionContext[] getAggregationFunctionContexts(
-      @Nonnull List<AggregationInfo> aggregationInfos, @Nullable SegmentMetadata segmentMetadata) {
+      @Nonnull List<AggregationInfo> aggregationInfos, @Nullable IndexSegment indexSegment) {
     int numAggregationFunctions = aggregationInfos.size();
     AggregationFunctionContext[] aggregationFunctionContexts = new AggregationFunctionContext[numAggregationFunctions];
     for (int i = 0; i < numAggregationFunctions; i++) {
       AggregationInfo aggregationInfo = aggregationInfos.get(i);
       aggregationFunctionContexts[i] = AggregationFunctionContext.instantiate(aggregationInfo);
     }
-    if (segmentMetadata != null) {
-      AggregationFunctionInitializer aggregationFunctionInitializer =
-          new AggregationFunctionInitializer(segmentMetadata);
+    if (indexSegment != null) {
+      AggregationFunctionInitializer aggregationFunctionInitializer = new AggregationFunctionInitializer(indexSegment);
       for (AggregationFunctionContext aggregationFunctionContext : aggregationFunctionContexts) {
-        aggregationFunctionContext.getAggregationFunction().accept(aggregationFunctionInitializer);
+        aggregationFunctionInitializer.initialize(aggregationFunctionContext);
       }
     }
     return aggregationFunctionContexts;
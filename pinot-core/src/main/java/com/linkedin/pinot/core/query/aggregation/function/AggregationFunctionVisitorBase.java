@@ -47,6 +47,10 @@ public class AggregationFunctionVisitorBase {
     visitFunction(function);
   }
 
+  public void visit(DistinctCountExactAggregationFunction function) {
+    visitFunction(function);
+  }
+
   public void visit(DistinctCountHLLAggregationFunction function) {
     visitFunction(function);
   }
@@ -107,6 +111,14 @@ public class AggregationFunctionVisitorBase {
     visitFunction(function);
   }
 
+  public void visit(PercentileTDigestAggregationFunction function) {
+    visitFunction(function);
+  }
+
+  public void visit(PercentileTDigestMVAggregationFunction function) {
+    visitFunction(function);
+  }
+
   public void visit(SumAggregationFunction function) {
     visitFunction(function);
   }
@@ -21,13 +21,29 @@ import com.linkedin.pinot.core.query.aggregation.AggregationResultHolder;
 import com.linkedin.pinot.core.query.aggregation.ObjectAggregationResultHolder;
 import com.linkedin.pinot.core.query.aggregation.groupby.GroupByResultHolder;
 import com.linkedin.pinot.core.query.aggregation.groupby.ObjectGroupByResultHolder;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import java.util.BitSet;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
 
 
+/**
+ * Distinct count over the hash codes of the values.
+ *
+ * For single-value dictionary-encoded columns, the values are not read during aggregation. Instead the dictionary ids
+ * are collected into a {@link BitSet} sized by the cardinality (aggregation only) or a {@link MutableRoaringBitmap} per
+ * group (group-by), and only the distinct dictionary ids are converted into value hash codes when the segment result
+ * is extracted.
+ */
 public class DistinctCountAggregationFunction implements AggregationFunction<IntOpenHashSet, Integer> {
   private static final String NAME = AggregationFunctionFactory.AggregationFunctionType.DISTINCTCOUNT.getName();
 
+  // Dictionary of the column within the current segment, null if the column has no dictionary.
+  protected Dictionary _dictionary;
+
   @Nonnull
   @Override
   public String getName() {
@@ -45,6 +61,16 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
     visitor.visit(this);
   }
 
+  /**
+   * Set the dictionary of the column to aggregate on for the current segment, which enables aggregating on the
+   * dictionary ids for single-value columns.
+   *
+   * @param dictionary dictionary of the column, or null if the column has no dictionary.
+   */
+  public void setDictionary(@Nullable Dictionary dictionary) {
+    _dictionary = dictionary;
+  }
+
   @Nonnull
   @Override
   public AggregationResultHolder createAggregationResultHolder() {
@@ -60,6 +86,11 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
   @Override
   public void aggregate(int length, @Nonnull AggregationResultHolder aggregationResultHolder,
       @Nonnull BlockValSet... blockValSets) {
+    if (_dictionary != null) {
+      aggregateDictionaryIds(length, aggregationResultHolder, blockValSets[0], _dictionary);
+      return;
+    }
+
     IntOpenHashSet valueSet = aggregationResultHolder.getResult();
     if (valueSet == null) {
       valueSet = new IntOpenHashSet();
@@ -111,6 +142,13 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
   @Override
   public void aggregateGroupBySV(int length, @Nonnull int[] groupKeyArray,
       @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    if (_dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIds();
+      for (int i = 0; i < length; i++) {
+        getDictionaryIdBitmap(groupByResultHolder, groupKeyArray[i]).add(dictIds[i]);
+      }
+      return;
+    }
 
     FieldSpec.DataType valueType = blockValSets[0].getValueType();
     switch (valueType) {
@@ -162,6 +200,16 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
   @Override
   public void aggregateGroupByMV(int length, @Nonnull int[][] groupKeysArray,
       @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    if (_dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIds();
+      for (int i = 0; i < length; i++) {
+        for (int groupKey : groupKeysArray[i]) {
+          getDictionaryIdBitmap(groupByResultHolder, groupKey).add(dictIds[i]);
+        }
+      }
+      return;
+    }
+
     FieldSpec.DataType valueType = blockValSets[0].getValueType();
     switch (valueType) {
       case INT:
@@ -211,22 +259,26 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
   @Nonnull
   @Override
   public IntOpenHashSet extractAggregationResult(@Nonnull AggregationResultHolder aggregationResultHolder) {
-    IntOpenHashSet valueSet = aggregationResultHolder.getResult();
-    if (valueSet == null) {
+    Object result = aggregationResultHolder.getResult();
+    if (result == null) {
       return new IntOpenHashSet();
+    } else if (result instanceof BitSet) {
+      return convertToValueSet((BitSet) result, _dictionary);
     } else {
-      return valueSet;
+      return (IntOpenHashSet) result;
     }
   }
 
   @Nonnull
   @Override
   public IntOpenHashSet extractGroupByResult(@Nonnull GroupByResultHolder groupByResultHolder, int groupKey) {
-    IntOpenHashSet valueSet = groupByResultHolder.getResult(groupKey);
-    if (valueSet == null) {
+    Object result = groupByResultHolder.getResult(groupKey);
+    if (result == null) {
       return new IntOpenHashSet();
+    } else if (result instanceof MutableRoaringBitmap) {
+      return convertToValueSet((MutableRoaringBitmap) result, _dictionary);
     } else {
-      return valueSet;
+      return (IntOpenHashSet) result;
     }
   }
 
@@ -250,6 +302,55 @@ public class DistinctCountAggregationFunction implements AggregationFunction<Int
     return intermediateResult.size();
   }
 
+  /**
+   * Helper method to collect the dictionary ids of a block into a {@link BitSet} sized by the dictionary cardinality.
+   */
+  static void aggregateDictionaryIds(int length, @Nonnull AggregationResultHolder aggregationResultHolder,
+      @Nonnull BlockValSet blockValSet, @Nonnull Dictionary dictionary) {
+    BitSet dictIdBitSet = aggregationResultHolder.getResult();
+    if (dictIdBitSet == null) {
+      dictIdBitSet = new BitSet(dictionary.length());
+      aggregationResultHolder.setValue(dictIdBitSet);
+    }
+    int[] dictIds = blockValSet.getDictionaryIds();
+    for (int i = 0; i < length; i++) {
+      dictIdBitSet.set(dictIds[i]);
+    }
+  }
+
+  /**
+   * Helper method to get or create the dictionary id bitmap for a groupKey in the result holder.
+   */
+  static MutableRoaringBitmap getDictionaryIdBitmap(@Nonnull GroupByResultHolder groupByResultHolder, int groupKey) {
+    MutableRoaringBitmap dictIdBitmap = groupByResultHolder.getResult(groupKey);
+    if (dictIdBitmap == null) {
+      dictIdBitmap = new MutableRoaringBitmap();
+      groupByResultHolder.setValueForKey(groupKey, dictIdBitmap);
+    }
+    return dictIdBitmap;
+  }
+
+  /**
+   * Helper method to convert the distinct dictionary ids into the set of value hash codes. The hash code of the boxed
+   * dictionary value is the same as the one computed from the raw values.
+   */
+  private static IntOpenHashSet convertToValueSet(BitSet dictIdBitSet, Dictionary dictionary) {
+    IntOpenHashSet valueSet = new IntOpenHashSet(dictIdBitSet.cardinality());
+    for (int dictId = dictIdBitSet.nextSetBit(0); dictId >= 0; dictId = dictIdBitSet.nextSetBit(dictId + 1)) {
+      valueSet.add(dictionary.get(dictId).hashCode());
+    }
+    return valueSet;
+  }
+
+  private static IntOpenHashSet convertToValueSet(MutableRoaringBitmap dictIdBitmap, Dictionary dictionary) {
+    IntOpenHashSet valueSet = new IntOpenHashSet(dictIdBitmap.getCardinality());
+    IntIterator iterator = dictIdBitmap.getIntIterator();
+    while (iterator.hasNext()) {
+      valueSet.add(dictionary.get(iterator.next()).hashCode());
+    }
+    return valueSet;
+  }
+
   /**
    * Helper method to set value for a groupKey into the result holder.
    *
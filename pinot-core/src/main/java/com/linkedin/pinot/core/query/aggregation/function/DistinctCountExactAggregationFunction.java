@@ -0,0 +1,276 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.query.aggregation.AggregationResultHolder;
+import com.linkedin.pinot.core.query.aggregation.ObjectAggregationResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.ObjectGroupByResultHolder;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import java.util.BitSet;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+
+
+/**
+ * Exact distinct count over the values themselves instead of their hash codes, so that hash collisions do not affect
+ * the result. The values are normalized so that values from segments with different numeric types are comparable:
+ * INT and LONG values are stored as {@link Long}, FLOAT and DOUBLE values are stored as {@link Double}.
+ *
+ * Same as {@link DistinctCountAggregationFunction}, single-value dictionary-encoded columns are aggregated on the
+ * dictionary ids, and the values are only materialized for the distinct dictionary ids when the segment result is
+ * extracted.
+ */
+public class DistinctCountExactAggregationFunction implements AggregationFunction<ObjectOpenHashSet<Object>, Integer> {
+  private static final String NAME = AggregationFunctionFactory.AggregationFunctionType.DISTINCTCOUNTEXACT.getName();
+
+  // Dictionary of the column within the current segment, null if the column has no dictionary.
+  protected Dictionary _dictionary;
+
+  @Nonnull
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Nonnull
+  @Override
+  public String getColumnName(@Nonnull String[] columns) {
+    return NAME + "_" + columns[0];
+  }
+
+  @Override
+  public void accept(@Nonnull AggregationFunctionVisitorBase visitor) {
+    visitor.visit(this);
+  }
+
+  /**
+   * Set the dictionary of the column to aggregate on for the current segment, which enables aggregating on the
+   * dictionary ids for single-value columns.
+   *
+   * @param dictionary dictionary of the column, or null if the column has no dictionary.
+   */
+  public void setDictionary(@Nullable Dictionary dictionary) {
+    _dictionary = dictionary;
+  }
+
+  @Nonnull
+  @Override
+  public AggregationResultHolder createAggregationResultHolder() {
+    return new ObjectAggregationResultHolder();
+  }
+
+  @Nonnull
+  @Override
+  public GroupByResultHolder createGroupByResultHolder(int initialCapacity, int maxCapacity, int trimSize) {
+    return new ObjectGroupByResultHolder(initialCapacity, maxCapacity, trimSize);
+  }
+
+  @Override
+  public void aggregate(int length, @Nonnull AggregationResultHolder aggregationResultHolder,
+      @Nonnull BlockValSet... blockValSets) {
+    if (_dictionary != null) {
+      DistinctCountAggregationFunction.aggregateDictionaryIds(length, aggregationResultHolder, blockValSets[0],
+          _dictionary);
+      return;
+    }
+
+    ObjectOpenHashSet<Object> valueSet = aggregationResultHolder.getResult();
+    if (valueSet == null) {
+      valueSet = new ObjectOpenHashSet<>();
+      aggregationResultHolder.setValue(valueSet);
+    }
+    Object[] values = getNormalizedValues(blockValSets[0], length);
+    for (int i = 0; i < length; i++) {
+      valueSet.add(values[i]);
+    }
+  }
+
+  @Override
+  public void aggregateGroupBySV(int length, @Nonnull int[] groupKeyArray,
+      @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    if (_dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIds();
+      for (int i = 0; i < length; i++) {
+        DistinctCountAggregationFunction.getDictionaryIdBitmap(groupByResultHolder, groupKeyArray[i]).add(dictIds[i]);
+      }
+      return;
+    }
+
+    Object[] values = getNormalizedValues(blockValSets[0], length);
+    for (int i = 0; i < length; i++) {
+      getValueSet(groupByResultHolder, groupKeyArray[i]).add(values[i]);
+    }
+  }
+
+  @Override
+  public void aggregateGroupByMV(int length, @Nonnull int[][] groupKeysArray,
+      @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    if (_dictionary != null) {
+      int[] dictIds = blockValSets[0].getDictionaryIds();
+      for (int i = 0; i < length; i++) {
+        for (int groupKey : groupKeysArray[i]) {
+          DistinctCountAggregationFunction.getDictionaryIdBitmap(groupByResultHolder, groupKey).add(dictIds[i]);
+        }
+      }
+      return;
+    }
+
+    Object[] values = getNormalizedValues(blockValSets[0], length);
+    for (int i = 0; i < length; i++) {
+      for (int groupKey : groupKeysArray[i]) {
+        getValueSet(groupByResultHolder, groupKey).add(values[i]);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nonnull
+  @Override
+  public ObjectOpenHashSet<Object> extractAggregationResult(@Nonnull AggregationResultHolder aggregationResultHolder) {
+    Object result = aggregationResultHolder.getResult();
+    if (result == null) {
+      return new ObjectOpenHashSet<>();
+    } else if (result instanceof BitSet) {
+      BitSet dictIdBitSet = (BitSet) result;
+      ObjectOpenHashSet<Object> valueSet = new ObjectOpenHashSet<>(dictIdBitSet.cardinality());
+      for (int dictId = dictIdBitSet.nextSetBit(0); dictId >= 0; dictId = dictIdBitSet.nextSetBit(dictId + 1)) {
+        valueSet.add(normalize(_dictionary.get(dictId)));
+      }
+      return valueSet;
+    } else {
+      return (ObjectOpenHashSet<Object>) result;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Nonnull
+  @Override
+  public ObjectOpenHashSet<Object> extractGroupByResult(@Nonnull GroupByResultHolder groupByResultHolder,
+      int groupKey) {
+    Object result = groupByResultHolder.getResult(groupKey);
+    if (result == null) {
+      return new ObjectOpenHashSet<>();
+    } else if (result instanceof MutableRoaringBitmap) {
+      MutableRoaringBitmap dictIdBitmap = (MutableRoaringBitmap) result;
+      ObjectOpenHashSet<Object> valueSet = new ObjectOpenHashSet<>(dictIdBitmap.getCardinality());
+      IntIterator iterator = dictIdBitmap.getIntIterator();
+      while (iterator.hasNext()) {
+        valueSet.add(normalize(_dictionary.get(iterator.next())));
+      }
+      return valueSet;
+    } else {
+      return (ObjectOpenHashSet<Object>) result;
+    }
+  }
+
+  @Nonnull
+  @Override
+  public ObjectOpenHashSet<Object> merge(@Nonnull ObjectOpenHashSet<Object> intermediateResult1,
+      @Nonnull ObjectOpenHashSet<Object> intermediateResult2) {
+    if (intermediateResult1.size() < intermediateResult2.size()) {
+      intermediateResult2.addAll(intermediateResult1);
+      return intermediateResult2;
+    }
+    intermediateResult1.addAll(intermediateResult2);
+    return intermediateResult1;
+  }
+
+  @Nonnull
+  @Override
+  public FieldSpec.DataType getIntermediateResultDataType() {
+    return FieldSpec.DataType.OBJECT;
+  }
+
+  @Nonnull
+  @Override
+  public Integer extractFinalResult(@Nonnull ObjectOpenHashSet<Object> intermediateResult) {
+    return intermediateResult.size();
+  }
+
+  /**
+   * Helper method to normalize a value: INT and LONG values are converted to {@link Long}, FLOAT and DOUBLE values are
+   * converted to {@link Double}, all other values are kept as is.
+   */
+  static Object normalize(Object value) {
+    if (value instanceof Integer) {
+      return ((Integer) value).longValue();
+    } else if (value instanceof Float) {
+      return ((Float) value).doubleValue();
+    } else {
+      return value;
+    }
+  }
+
+  /**
+   * Helper method to read the normalized values of a single-value block.
+   */
+  private static Object[] getNormalizedValues(BlockValSet blockValSet, int length) {
+    FieldSpec.DataType valueType = blockValSet.getValueType();
+    switch (valueType) {
+      case INT:
+        int[] intValues = blockValSet.getIntValuesSV();
+        Object[] values = new Object[length];
+        for (int i = 0; i < length; i++) {
+          values[i] = (long) intValues[i];
+        }
+        return values;
+      case LONG:
+        long[] longValues = blockValSet.getLongValuesSV();
+        values = new Object[length];
+        for (int i = 0; i < length; i++) {
+          values[i] = longValues[i];
+        }
+        return values;
+      case FLOAT:
+        float[] floatValues = blockValSet.getFloatValuesSV();
+        values = new Object[length];
+        for (int i = 0; i < length; i++) {
+          values[i] = (double) floatValues[i];
+        }
+        return values;
+      case DOUBLE:
+        double[] doubleValues = blockValSet.getDoubleValuesSV();
+        values = new Object[length];
+        for (int i = 0; i < length; i++) {
+          values[i] = doubleValues[i];
+        }
+        return values;
+      case STRING:
+        return blockValSet.getStringValuesSV();
+      default:
+        throw new IllegalArgumentException(
+            "Illegal data type for distinct count exact aggregation function: " + valueType);
+    }
+  }
+
+  /**
+   * Helper method to get or create the value set for a groupKey in the result holder.
+   */
+  static ObjectOpenHashSet<Object> getValueSet(@Nonnull GroupByResultHolder groupByResultHolder, int groupKey) {
+    ObjectOpenHashSet<Object> valueSet = groupByResultHolder.getResult(groupKey);
+    if (valueSet == null) {
+      valueSet = new ObjectOpenHashSet<>();
+      groupByResultHolder.setValueForKey(groupKey, valueSet);
+    }
+    return valueSet;
+  }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.query.aggregation.AggregationResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
+import javax.annotation.Nonnull;
+
+
+public class DistinctCountExactMVAggregationFunction extends DistinctCountExactAggregationFunction {
+  private static final String NAME =
+      AggregationFunctionFactory.AggregationFunctionType.DISTINCTCOUNTEXACTMV.getName();
+
+  @Nonnull
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Nonnull
+  @Override
+  public String getColumnName(@Nonnull String[] columns) {
+    return NAME + "_" + columns[0];
+  }
+
+  @Override
+  public void aggregate(int length, @Nonnull AggregationResultHolder aggregationResultHolder,
+      @Nonnull BlockValSet... blockValSets) {
+    ObjectOpenHashSet<Object> valueSet = aggregationResultHolder.getResult();
+    if (valueSet == null) {
+      valueSet = new ObjectOpenHashSet<>();
+      aggregationResultHolder.setValue(valueSet);
+    }
+    Object[][] values = getNormalizedValues(blockValSets[0], length);
+    for (int i = 0; i < length; i++) {
+      for (Object value : values[i]) {
+        valueSet.add(value);
+      }
+    }
+  }
+
+  @Override
+  public void aggregateGroupBySV(int length, @Nonnull int[] groupKeyArray,
+      @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    Object[][] values = getNormalizedValues(blockValSets[0], length);
+    for (int i = 0; i < length; i++) {
+      ObjectOpenHashSet<Object> valueSet = getValueSet(groupByResultHolder, groupKeyArray[i]);
+      for (Object value : values[i]) {
+        valueSet.add(value);
+      }
+    }
+  }
+
+  @Override
+  public void aggregateGroupByMV(int length, @Nonnull int[][] groupKeysArray,
+      @Nonnull GroupByResultHolder groupByResultHolder, @Nonnull BlockValSet... blockValSets) {
+    Object[][] values = getNormalizedValues(blockValSets[0], length);
+    for (int i = 0; i < length; i++) {
+      for (int groupKey : groupKeysArray[i]) {
+        ObjectOpenHashSet<Object> valueSet = getValueSet(groupByResultHolder, groupKey);
+        for (Object value : values[i]) {
+          valueSet.add(value);
+        }
+      }
+    }
+  }
+
+  /**
+   * Helper method to read the normalized values of a multi-value block.
+   */
+  private static Object[][] getNormalizedValues(BlockValSet blockValSet, int length) {
+    FieldSpec.DataType valueType = blockValSet.getValueType();
+    Object[][] values = new Object[length][];
+    switch (valueType) {
+      case INT:
+        int[][] intValues = blockValSet.getIntValuesMV();
+        for (int i = 0; i < length; i++) {
+          int numValues = intValues[i].length;
+          values[i] = new Object[numValues];
+          for (int j = 0; j < numValues; j++) {
+            values[i][j] = (long) intValues[i][j];
+          }
+        }
+        return values;
+      case LONG:
+        long[][] longValues = blockValSet.getLongValuesMV();
+        for (int i = 0; i < length; i++) {
+          int numValues = longValues[i].length;
+          values[i] = new Object[numValues];
+          for (int j = 0; j < numValues; j++) {
+            values[i][j] = longValues[i][j];
+          }
+        }
+        return values;
+      case FLOAT:
+        float[][] floatValues = blockValSet.getFloatValuesMV();
+        for (int i = 0; i < length; i++) {
+          int numValues = floatValues[i].length;
+          values[i] = new Object[numValues];
+          for (int j = 0; j < numValues; j++) {
+            values[i][j] = (double) floatValues[i][j];
+          }
+        }
+        return values;
+      case DOUBLE:
+        double[][] doubleValues = blockValSet.getDoubleValuesMV();
+        for (int i = 0; i < length; i++) {
+          int numValues = doubleValues[i].length;
+          values[i] = new Object[numValues];
+          for (int j = 0; j < numValues; j++) {
+            values[i][j] = doubleValues[i][j];
+          }
+        }
+        return values;
+      case STRING:
+        return blockValSet.getStringValuesMV();
+      default:
+        throw new IllegalArgumentException(
+            "Illegal data type for distinct count exact aggregation function: " + valueType);
+    }
+  }
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.function.customobject;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import it.unimi.dsi.fastutil.Arrays;
+import it.unimi.dsi.fastutil.Swapper;
+import it.unimi.dsi.fastutil.ints.IntComparator;
+import java.nio.ByteBuffer;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+
+/**
+ * Merging t-digest (Dunning and Ertl) for estimating quantiles of double values.
+ *
+ * The digest keeps a bounded number of weighted centroids sorted by mean. Centroids near the median can hold many
+ * values while centroids near the tails stay small, so extreme quantiles are more accurate than the median. Values are
+ * first appended to a buffer, which is merged into the centroids when it gets full or before the digest is queried,
+ * merged or serialized. The number of centroids is bounded by the compression, so the serialized size does not depend
+ * on the number of values added.
+ */
+@NotThreadSafe
+public class TDigest {
+  public static final double DEFAULT_COMPRESSION = 100;
+
+  private static final int BUFFER_SIZE_FACTOR = 5;
+  // Start small as there might be one digest per group, the arrays grow up to the buffer size plus number of centroids.
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final double _compression;
+  private double _totalWeight = 0;
+  private double _min = Double.POSITIVE_INFINITY;
+  private double _max = Double.NEGATIVE_INFINITY;
+
+  // The first _numCentroids entries are the merged centroids sorted by mean, followed by _numBuffered unmerged ones.
+  private double[] _means;
+  private double[] _weights;
+  private int _numCentroids = 0;
+  private int _numBuffered = 0;
+  private final int _bufferSize;
+
+  public TDigest() {
+    this(DEFAULT_COMPRESSION);
+  }
+
+  public TDigest(double compression) {
+    Preconditions.checkArgument(compression >= 1, "Compression must be at least 1");
+    _compression = compression;
+    _bufferSize = (int) Math.ceil(BUFFER_SIZE_FACTOR * compression);
+    _means = new double[INITIAL_CAPACITY];
+    _weights = new double[INITIAL_CAPACITY];
+  }
+
+  public double getCompression() {
+    return _compression;
+  }
+
+  /**
+   * Returns the total weight (number of values) of the digest.
+   */
+  public long size() {
+    return (long) _totalWeight;
+  }
+
+  public void add(double value) {
+    add(value, 1);
+  }
+
+  private void add(double mean, double weight) {
+    if (_numBuffered >= _bufferSize) {
+      compress();
+    }
+    int index = _numCentroids + _numBuffered;
+    if (index == _means.length) {
+      grow();
+    }
+    _means[index] = mean;
+    _weights[index] = weight;
+    _numBuffered++;
+    _totalWeight += weight;
+    if (mean < _min) {
+      _min = mean;
+    }
+    if (mean > _max) {
+      _max = mean;
+    }
+  }
+
+  /**
+   * Merge another digest into this one.
+   */
+  public void merge(@Nonnull TDigest digest) {
+    digest.compress();
+    int numCentroids = digest._numCentroids;
+    if (numCentroids == 0) {
+      return;
+    }
+    for (int i = 0; i < numCentroids; i++) {
+      add(digest._means[i], digest._weights[i]);
+    }
+    // The extremes of the other digest might be merged into its centroids.
+    _min = Math.min(_min, digest._min);
+    _max = Math.max(_max, digest._max);
+  }
+
+  /**
+   * Merge the buffered values into the centroids.
+   */
+  public void compress() {
+    if (_numBuffered == 0) {
+      return;
+    }
+    final double[] means = _means;
+    final double[] weights = _weights;
+    int numEntries = _numCentroids + _numBuffered;
+    Arrays.quickSort(0, numEntries, new IntComparator() {
+      @Override
+      public int compare(int i, int j) {
+        return Double.compare(means[i], means[j]);
+      }
+
+      @Override
+      public int compare(Integer o1, Integer o2) {
+        return compare(o1.intValue(), o2.intValue());
+      }
+    }, new Swapper() {
+      @Override
+      public void swap(int i, int j) {
+        double mean = means[i];
+        means[i] = means[j];
+        means[j] = mean;
+        double weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+      }
+    });
+
+    // Merge adjacent entries while the merged centroid covers at most one unit of the scale function k(q), which keeps
+    // the centroids small near q = 0 and q = 1.
+    double totalWeight = _totalWeight;
+    double weightSoFar = 0;
+    double weightLimit = totalWeight * qForK(kForQ(0) + 1);
+    int current = 0;
+    for (int i = 1; i < numEntries; i++) {
+      double proposedWeight = weights[current] + weights[i];
+      if (weightSoFar + proposedWeight <= weightLimit) {
+        means[current] += (means[i] - means[current]) * weights[i] / proposedWeight;
+        weights[current] = proposedWeight;
+      } else {
+        weightSoFar += weights[current];
+        weightLimit = totalWeight * qForK(kForQ(weightSoFar / totalWeight) + 1);
+        current++;
+        means[current] = means[i];
+        weights[current] = weights[i];
+      }
+    }
+    _numCentroids = current + 1;
+    _numBuffered = 0;
+  }
+
+  /**
+   * Scale function mapping quantile q in [0, 1] to k in [0, compression].
+   */
+  private double kForQ(double q) {
+    return _compression * (Math.asin(2 * q - 1) + Math.PI / 2) / Math.PI;
+  }
+
+  private double qForK(double k) {
+    return (Math.sin(Math.min(k, _compression) * Math.PI / _compression - Math.PI / 2) + 1) / 2;
+  }
+
+  private void grow() {
+    int capacity = _means.length * 2;
+    double[] means = new double[capacity];
+    double[] weights = new double[capacity];
+    System.arraycopy(_means, 0, means, 0, _means.length);
+    System.arraycopy(_weights, 0, weights, 0, _weights.length);
+    _means = means;
+    _weights = weights;
+  }
+
+  /**
+   * Returns the estimated value at the given quantile, or {@link Double#NaN} if the digest is empty.
+   *
+   * @param quantile quantile in [0, 1].
+   * @return estimated value at the quantile.
+   */
+  public double getQuantile(double quantile) {
+    Preconditions.checkArgument(quantile >= 0 && quantile <= 1, "Quantile must be in [0, 1]");
+    compress();
+    int numCentroids = _numCentroids;
+    if (numCentroids == 0) {
+      return Double.NaN;
+    }
+    if (numCentroids == 1) {
+      return _means[0];
+    }
+
+    // Each centroid is assumed to have half of its weight on each side of its mean, interpolate linearly between the
+    // centroid means, and between the extremes and the first/last centroid means.
+    double index = quantile * _totalWeight;
+    double firstHalfWeight = _weights[0] / 2;
+    if (index <= firstHalfWeight) {
+      return _min + (_means[0] - _min) * index / firstHalfWeight;
+    }
+    double weightSoFar = firstHalfWeight;
+    for (int i = 0; i < numCentroids - 1; i++) {
+      double deltaWeight = (_weights[i] + _weights[i + 1]) / 2;
+      if (weightSoFar + deltaWeight > index) {
+        double fraction = (index - weightSoFar) / deltaWeight;
+        return _means[i] + (_means[i + 1] - _means[i]) * fraction;
+      }
+      weightSoFar += deltaWeight;
+    }
+    double lastHalfWeight = _weights[numCentroids - 1] / 2;
+    double lastMean = _means[numCentroids - 1];
+    double fraction = Math.min(1, (index - weightSoFar) / lastHalfWeight);
+    return lastMean + (_max - lastMean) * fraction;
+  }
+
+  @Nonnull
+  public byte[] toBytes() {
+    compress();
+    ByteBuffer byteBuffer = ByteBuffer.allocate(
+        3 * V1Constants.Numbers.DOUBLE_SIZE + V1Constants.Numbers.INTEGER_SIZE
+            + 2 * _numCentroids * V1Constants.Numbers.DOUBLE_SIZE);
+    byteBuffer.putDouble(_compression);
+    byteBuffer.putDouble(_min);
+    byteBuffer.putDouble(_max);
+    byteBuffer.putInt(_numCentroids);
+    for (int i = 0; i < _numCentroids; i++) {
+      byteBuffer.putDouble(_means[i]);
+      byteBuffer.putDouble(_weights[i]);
+    }
+    return byteBuffer.array();
+  }
+
+  @Nonnull
+  public static TDigest fromBytes(@Nonnull byte[] bytes) {
+    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes);
+    TDigest digest = new TDigest(byteBuffer.getDouble());
+    double min = byteBuffer.getDouble();
+    double max = byteBuffer.getDouble();
+    int numCentroids = byteBuffer.getInt();
+    while (digest._means.length < numCentroids) {
+      digest.grow();
+    }
+    for (int i = 0; i < numCentroids; i++) {
+      digest._means[i] = byteBuffer.getDouble();
+      digest._weights[i] = byteBuffer.getDouble();
+      digest._totalWeight += digest._weights[i];
+    }
+    digest._numCentroids = numCentroids;
+    digest._min = min;
+    digest._max = max;
+    return digest;
+  }
+}
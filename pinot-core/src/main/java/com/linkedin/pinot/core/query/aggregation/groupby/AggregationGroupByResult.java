@@ -44,6 +44,14 @@ public class AggregationGroupByResult {
     return _groupKeyGenerator.getUniqueGroupKeys();
   }
 
+  /**
+   * Returns an iterator for raw group-by keys.
+   * @return
+   */
+  public Iterator<RawGroupKey> getRawGroupKeyIterator() {
+    return _groupKeyGenerator.getUniqueRawGroupKeys();
+  }
+
   /**
    *
    * Given a group-by key and an index into the result holder array, returns
@@ -64,4 +72,16 @@ public class AggregationGroupByResult {
   public Object getResultForKey(GroupKeyGenerator.GroupKey groupKey, int index) {
     return _aggregationFunctions[index].extractGroupByResult(_resultHolders[index], groupKey.getFirst());
   }
+
+  /**
+   * Given a raw group-by key and an index into the result holder array, returns
+   * the corresponding aggregation result.
+   *
+   * @param rawGroupKey
+   * @param index
+   * @return
+   */
+  public Object getResultForKey(RawGroupKey rawGroupKey, int index) {
+    return _aggregationFunctions[index].extractGroupByResult(_resultHolders[index], rawGroupKey.getGroupId());
+  }
 }
@@ -0,0 +1,295 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.Nonnull;
+
+
+/**
+ * The <code>CombineGroupByResultsMap</code> class merges aggregation group-by results from multiple segments
+ * concurrently, keyed by {@link RawGroupKey} instead of the string group key.
+ *
+ * The map is split into shards, each shard is a set of primitive open addressing hash maps protected by its own lock:
+ * <ul>
+ *   <li>LONG keys are stored in a long to results map.</li>
+ *   <li>BYTES keys are stored in a byte array to results map.</li>
+ *   <li>Raw group keys with data types different from the first merged segment (e.g. segments using different group
+ *   key generators) cannot be compared in binary form, so they are stored in a string to results map.</li>
+ * </ul>
+ *
+ * The string group keys are only built once per unique group in {@link #toStringKeyResultsMap()}.
+ */
+public class CombineGroupByResultsMap {
+  // Use power of 2 number of shards so that the shard index can be calculated with a mask.
+  private static final int NUM_SHARDS = 128;
+  private static final int SHARD_MASK = NUM_SHARDS - 1;
+
+  private final AggregationFunction[] _aggregationFunctions;
+  private final int _numAggregationFunctions;
+  private final Shard[] _shards = new Shard[NUM_SHARDS];
+  private final AtomicReference<FieldSpec.DataType[]> _dataTypes = new AtomicReference<>();
+
+  public CombineGroupByResultsMap(@Nonnull AggregationFunction[] aggregationFunctions) {
+    _aggregationFunctions = aggregationFunctions;
+    _numAggregationFunctions = aggregationFunctions.length;
+    for (int i = 0; i < NUM_SHARDS; i++) {
+      _shards[i] = new Shard();
+    }
+  }
+
+  /**
+   * Merge the aggregation group-by result of one segment into the map. This method is thread safe.
+   *
+   * @param aggregationGroupByResult aggregation group-by result to merge.
+   */
+  public void merge(@Nonnull AggregationGroupByResult aggregationGroupByResult) {
+    Iterator<RawGroupKey> rawGroupKeyIterator = aggregationGroupByResult.getRawGroupKeyIterator();
+    if (!rawGroupKeyIterator.hasNext()) {
+      return;
+    }
+
+    // The first merged segment decides the data types of the binary keys.
+    RawGroupKey rawGroupKey = rawGroupKeyIterator.next();
+    FieldSpec.DataType[] dataTypes = rawGroupKey.getDataTypes();
+    _dataTypes.compareAndSet(null, dataTypes);
+    boolean mergeBinaryKey = Arrays.equals(_dataTypes.get(), dataTypes);
+
+    // Reusable key to look up the BYTES key map without allocation.
+    ByteArrayKey lookupKey = new ByteArrayKey();
+
+    while (true) {
+      if (!mergeBinaryKey) {
+        mergeStringKey(rawGroupKey.toStringKey(), rawGroupKey, aggregationGroupByResult);
+      } else if (rawGroupKey.isLongKey()) {
+        mergeLongKey(rawGroupKey, aggregationGroupByResult);
+      } else {
+        lookupKey.set(rawGroupKey.getBytes(), rawGroupKey.getLength());
+        mergeBytesKey(lookupKey, rawGroupKey, aggregationGroupByResult);
+      }
+      if (!rawGroupKeyIterator.hasNext()) {
+        break;
+      }
+      rawGroupKey = rawGroupKeyIterator.next();
+    }
+  }
+
+  /**
+   * Merge the aggregation group-by result keyed by string group keys (e.g. cached results of one segment) into the map.
+   * This method is thread safe.
+   *
+   * @param combinedAggregationGroupByResult list of maps from string group keys to results, one for each aggregation
+   *                                         function.
+   */
+  public void merge(@Nonnull List<Map<String, Object>> combinedAggregationGroupByResult) {
+    for (String stringKey : combinedAggregationGroupByResult.get(0).keySet()) {
+      Object[] resultsToMerge = new Object[_numAggregationFunctions];
+      for (int i = 0; i < _numAggregationFunctions; i++) {
+        resultsToMerge[i] = combinedAggregationGroupByResult.get(i).get(stringKey);
+      }
+      Shard shard = _shards[getShardIndex(stringKey.hashCode())];
+      synchronized (shard) {
+        Object[] results = shard._stringKeyMap.get(stringKey);
+        if (results == null) {
+          shard._stringKeyMap.put(stringKey, resultsToMerge);
+        } else {
+          for (int i = 0; i < _numAggregationFunctions; i++) {
+            results[i] = _aggregationFunctions[i].merge(results[i], resultsToMerge[i]);
+          }
+        }
+      }
+    }
+  }
+
+  private void mergeLongKey(RawGroupKey rawGroupKey, AggregationGroupByResult aggregationGroupByResult) {
+    long longKey = rawGroupKey.getLongKey();
+    Shard shard = _shards[getShardIndex((int) (longKey ^ (longKey >>> 32)))];
+    synchronized (shard) {
+      Object[] results = shard._longKeyMap.get(longKey);
+      if (results == null) {
+        shard._longKeyMap.put(longKey, extractResults(rawGroupKey, aggregationGroupByResult));
+      } else {
+        mergeResults(results, rawGroupKey, aggregationGroupByResult);
+      }
+    }
+  }
+
+  private void mergeBytesKey(ByteArrayKey lookupKey, RawGroupKey rawGroupKey,
+      AggregationGroupByResult aggregationGroupByResult) {
+    Shard shard = _shards[getShardIndex(lookupKey.hashCode())];
+    synchronized (shard) {
+      Object[] results = shard._bytesKeyMap.get(lookupKey);
+      if (results == null) {
+        shard._bytesKeyMap.put(lookupKey.copy(), extractResults(rawGroupKey, aggregationGroupByResult));
+      } else {
+        mergeResults(results, rawGroupKey, aggregationGroupByResult);
+      }
+    }
+  }
+
+  private void mergeStringKey(String stringKey, RawGroupKey rawGroupKey,
+      AggregationGroupByResult aggregationGroupByResult) {
+    Shard shard = _shards[getShardIndex(stringKey.hashCode())];
+    synchronized (shard) {
+      Object[] results = shard._stringKeyMap.get(stringKey);
+      if (results == null) {
+        shard._stringKeyMap.put(stringKey, extractResults(rawGroupKey, aggregationGroupByResult));
+      } else {
+        mergeResults(results, rawGroupKey, aggregationGroupByResult);
+      }
+    }
+  }
+
+  private Object[] extractResults(RawGroupKey rawGroupKey, AggregationGroupByResult aggregationGroupByResult) {
+    Object[] results = new Object[_numAggregationFunctions];
+    for (int i = 0; i < _numAggregationFunctions; i++) {
+      results[i] = aggregationGroupByResult.getResultForKey(rawGroupKey, i);
+    }
+    return results;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void mergeResults(Object[] results, RawGroupKey rawGroupKey,
+      AggregationGroupByResult aggregationGroupByResult) {
+    for (int i = 0; i < _numAggregationFunctions; i++) {
+      results[i] = _aggregationFunctions[i].merge(results[i], aggregationGroupByResult.getResultForKey(rawGroupKey, i));
+    }
+  }
+
+  /**
+   * Convert the merged results into a map from string group key to results. This method should be called after all
+   * segments have been merged.
+   *
+   * @return map from string group key to results.
+   */
+  @SuppressWarnings("unchecked")
+  @Nonnull
+  public Map<String, Object[]> toStringKeyResultsMap() {
+    FieldSpec.DataType[] dataTypes = _dataTypes.get();
+    Map<String, Object[]> resultsMap = new HashMap<>();
+
+    for (Shard shard : _shards) {
+      ObjectIterator<Long2ObjectMap.Entry<Object[]>> longKeyIterator =
+          shard._longKeyMap.long2ObjectEntrySet().fastIterator();
+      while (longKeyIterator.hasNext()) {
+        Long2ObjectMap.Entry<Object[]> entry = longKeyIterator.next();
+        resultsMap.put(RawGroupKey.toStringKey(dataTypes, entry.getLongKey()), entry.getValue());
+      }
+      ObjectIterator<Object2ObjectMap.Entry<ByteArrayKey, Object[]>> bytesKeyIterator =
+          shard._bytesKeyMap.object2ObjectEntrySet().fastIterator();
+      while (bytesKeyIterator.hasNext()) {
+        Object2ObjectMap.Entry<ByteArrayKey, Object[]> entry = bytesKeyIterator.next();
+        ByteArrayKey key = entry.getKey();
+        resultsMap.put(RawGroupKey.toStringKey(dataTypes, key._bytes, key._length), entry.getValue());
+      }
+    }
+
+    // String keys might collide with the binary keys converted to string, merge them if necessary.
+    for (Shard shard : _shards) {
+      for (Map.Entry<String, Object[]> entry : shard._stringKeyMap.entrySet()) {
+        String stringKey = entry.getKey();
+        Object[] resultsToMerge = entry.getValue();
+        Object[] results = resultsMap.get(stringKey);
+        if (results == null) {
+          resultsMap.put(stringKey, resultsToMerge);
+        } else {
+          for (int i = 0; i < _numAggregationFunctions; i++) {
+            results[i] = _aggregationFunctions[i].merge(results[i], resultsToMerge[i]);
+          }
+        }
+      }
+    }
+
+    return resultsMap;
+  }
+
+  private static int getShardIndex(int hashCode) {
+    // Spread the higher bits to the lower bits before masking.
+    return (hashCode ^ (hashCode >>> 16)) & SHARD_MASK;
+  }
+
+  private static class Shard {
+    final Long2ObjectOpenHashMap<Object[]> _longKeyMap = new Long2ObjectOpenHashMap<>();
+    final Object2ObjectOpenHashMap<ByteArrayKey, Object[]> _bytesKeyMap = new Object2ObjectOpenHashMap<>();
+    final Object2ObjectOpenHashMap<String, Object[]> _stringKeyMap = new Object2ObjectOpenHashMap<>();
+  }
+
+  /**
+   * Wrapper around a byte array (or the prefix of it) with hashCode() and equals() implementation.
+   * Used as a key in hash-map.
+   */
+  private static class ByteArrayKey {
+    private byte[] _bytes;
+    private int _length;
+    private int _hashCode;
+
+    void set(byte[] bytes, int length) {
+      _bytes = bytes;
+      _length = length;
+      int hashCode = 1;
+      for (int i = 0; i < length; i++) {
+        hashCode = 31 * hashCode + bytes[i];
+      }
+      _hashCode = hashCode;
+    }
+
+    ByteArrayKey copy() {
+      ByteArrayKey copy = new ByteArrayKey();
+      copy._bytes = Arrays.copyOf(_bytes, _length);
+      copy._length = _length;
+      copy._hashCode = _hashCode;
+      return copy;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      ByteArrayKey that = (ByteArrayKey) o;
+      if (_hashCode != that._hashCode || _length != that._length) {
+        return false;
+      }
+      for (int i = 0; i < _length; i++) {
+        if (_bytes[i] != that._bytes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    @Override
+    public int hashCode() {
+      return _hashCode;
+    }
+  }
+}
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.query.aggregation.groupby;
 
+import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.core.common.BlockMetadata;
 import com.linkedin.pinot.core.common.BlockValSet;
 import com.linkedin.pinot.core.operator.blocks.TransformBlock;
@@ -63,6 +64,7 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
   private final int[] _cardinalities;
   private long _cardinalityProduct = 1L;
   private final boolean[] _isSingleValueGroupByColumn;
+  private final FieldSpec.DataType[] _dataTypes;
   private final StorageType _storageType;
 
   private final Dictionary[] _dictionaries;
@@ -115,6 +117,7 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
 
     _cardinalities = new int[_numGroupByColumns];
     _isSingleValueGroupByColumn = new boolean[_numGroupByColumns];
+    _dataTypes = new FieldSpec.DataType[_numGroupByColumns];
     _dictionaries = new Dictionary[_numGroupByColumns];
     _blockValSets = new BlockValSet[_numGroupByColumns];
     _reusableSingleDictIds = new int[_numGroupByColumns][];
@@ -128,6 +131,7 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
 
       // Store group-by column cardinalities and update cardinality product.
       _dictionaries[i] = blockMetadata.getDictionary();
+      _dataTypes[i] = blockMetadata.getDataType();
       int cardinality = _dictionaries[i].length();
       _cardinalities[i] = cardinality;
       if (!longOverflow) {
@@ -315,6 +319,23 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
     }
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<RawGroupKey> getUniqueRawGroupKeys() {
+    switch (_storageType) {
+      case ARRAY_BASED:
+        return new ArrayBasedRawGroupKeyIterator();
+      case LONG_MAP_BASED:
+        return new LongMapBasedRawGroupKeyIterator();
+      case ARRAY_MAP_BASED:
+        return new ArrayMapBasedRawGroupKeyIterator();
+      default:
+        throw new RuntimeException("Unsupported storage type for key generator " + _storageType);
+    }
+  }
+
   /**
    * {@inheritDoc}
    *
@@ -679,6 +700,128 @@ public class DefaultGroupKeyGenerator implements GroupKeyGenerator {
     }
   }
 
+  /**
+   * Inner class to implement raw group key iterator for ARRAY_BASED storage.
+   */
+  private class ArrayBasedRawGroupKeyIterator implements Iterator<RawGroupKey> {
+    final int _length = _groupKeyFlags.length;
+    int _index = 0;
+    final RawGroupKey _rawGroupKey = new RawGroupKey(_dataTypes);
+
+    @Override
+    public boolean hasNext() {
+      while (_index < _length) {
+        if (_groupKeyFlags[_index]) {
+          return true;
+        }
+        _index++;
+      }
+      return false;
+    }
+
+    @Override
+    public RawGroupKey next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      groupKeyToRawGroupKey(_index++, _rawGroupKey);
+      return _rawGroupKey;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Inner class to implement raw group key iterator for LONG_MAP_BASED storage.
+   */
+  private class LongMapBasedRawGroupKeyIterator implements Iterator<RawGroupKey> {
+    final ObjectIterator<Long2IntMap.Entry> _iterator = _groupKeyToId.long2IntEntrySet().fastIterator();
+    final RawGroupKey _rawGroupKey = new RawGroupKey(_dataTypes);
+
+    @Override
+    public boolean hasNext() {
+      return _iterator.hasNext();
+    }
+
+    @Override
+    public RawGroupKey next() {
+      Long2IntMap.Entry entry = _iterator.next();
+      rawKeyToRawGroupKey(entry.getIntValue(), entry.getLongKey(), _rawGroupKey);
+      return _rawGroupKey;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Inner class to implement raw group key iterator for ARRAY_MAP_BASED storage.
+   */
+  private class ArrayMapBasedRawGroupKeyIterator implements Iterator<RawGroupKey> {
+    final ObjectIterator<Object2IntMap.Entry<IntArrayList>> _iterator =
+        _arrayGroupKeyToId.object2IntEntrySet().fastIterator();
+    final RawGroupKey _rawGroupKey = new RawGroupKey(_dataTypes);
+
+    @Override
+    public boolean hasNext() {
+      return _iterator.hasNext();
+    }
+
+    @Override
+    public RawGroupKey next() {
+      Object2IntMap.Entry<IntArrayList> entry = _iterator.next();
+      int[] rawKeyArray = entry.getKey().elements();
+      _rawGroupKey.reset(entry.getIntValue());
+      for (int i = 0; i < _numGroupByColumns; i++) {
+        _rawGroupKey.putDictionaryValue(_dictionaries[i], rawKeyArray[i]);
+      }
+      return _rawGroupKey;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * With an integer group key, decode the dictionary ids and put the actual values into the raw group key.
+   * (ARRAY_BASED storage type)
+   *
+   * @param groupKey integer group key.
+   * @param rawGroupKey raw group key to fill.
+   */
+  private void groupKeyToRawGroupKey(int groupKey, RawGroupKey rawGroupKey) {
+    rawGroupKey.reset(groupKey);
+    for (int i = 0; i < _numGroupByColumns; i++) {
+      int cardinality = _cardinalities[i];
+      rawGroupKey.putDictionaryValue(_dictionaries[i], groupKey % cardinality);
+      groupKey /= cardinality;
+    }
+  }
+
+  /**
+   * With a long raw key, decode the dictionary ids and put the actual values into the raw group key.
+   * (LONG_MAP_BASED storage type)
+   *
+   * @param groupId group id of the raw key.
+   * @param rawKey long raw key.
+   * @param rawGroupKey raw group key to fill.
+   */
+  private void rawKeyToRawGroupKey(int groupId, long rawKey, RawGroupKey rawGroupKey) {
+    rawGroupKey.reset(groupId);
+    for (int i = 0; i < _numGroupByColumns; i++) {
+      int cardinality = _cardinalities[i];
+      rawGroupKey.putDictionaryValue(_dictionaries[i], (int) (rawKey % cardinality));
+      rawKey /= cardinality;
+    }
+  }
+
   /**
    * With an integer group key, convert group key from dictId based to string based, using actually values corresponding
    * to dictionary id's.
@@ -70,6 +70,14 @@ public interface GroupKeyGenerator {
    */
   Iterator<GroupKey> getUniqueGroupKeys();
 
+  /**
+   * Returns an iterator of raw group keys. Use this interface to iterate through all the group keys without building
+   * the string group keys, e.g. when merging group keys across segments.
+   *
+   * @return iterator of raw group keys.
+   */
+  Iterator<RawGroupKey> getUniqueRawGroupKeys();
+
   /**
    * Purge the given group keys.
    * @param keysToPurge Group keys to purge
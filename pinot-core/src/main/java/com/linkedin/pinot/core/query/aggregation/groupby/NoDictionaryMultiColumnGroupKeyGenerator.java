@@ -165,6 +165,11 @@ public class NoDictionaryMultiColumnGroupKeyGenerator implements GroupKeyGenerat
     return new GroupKeyIterator(_groupKeyMap);
   }
 
+  @Override
+  public Iterator<RawGroupKey> getUniqueRawGroupKeys() {
+    return new StringRawGroupKeyIterator(getUniqueGroupKeys());
+  }
+
   @Override
   public void purgeKeys(int[] keysToPurge) {
     // TODO: Implement purging.
@@ -168,6 +168,11 @@ public class NoDictionarySingleColumnGroupKeyGenerator implements GroupKeyGenera
     return new GroupKeyIterator(_groupKeyMap);
   }
 
+  @Override
+  public Iterator<RawGroupKey> getUniqueRawGroupKeys() {
+    return new StringRawGroupKeyIterator(getUniqueGroupKeys());
+  }
+
   @Override
   public void purgeKeys(int[] keysToPurge) {
     // TODO: Implement purging.
@@ -0,0 +1,313 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+
+/**
+ * The <code>RawGroupKey</code> class encodes the values of a group key into a compact binary form, which is cheaper to
+ * build, hash and compare than the tab-delimited string group key when merging group keys across segments.
+ *
+ * The encoding is decided by the data types of the group-by columns:
+ * <ul>
+ *   <li>If all the group-by values are fixed width numbers and fit into 8 bytes (one INT/LONG/FLOAT/DOUBLE column, or
+ *   two INT/FLOAT columns), the values are packed into a primitive long. (LONG key)</li>
+ *   <li>Otherwise, the values are written into a byte array, where each STRING value is prefixed by its length.
+ *   (BYTES key)</li>
+ * </ul>
+ *
+ * Instances of this class are mutable and reused by the group key iterators, so callers should copy the key before
+ * holding on to it.
+ */
+public class RawGroupKey {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final int INITIAL_BUFFER_SIZE = 64;
+
+  private final FieldSpec.DataType[] _dataTypes;
+  private final boolean _isLongKey;
+
+  private int _groupId = GroupKeyGenerator.INVALID_ID;
+  private int _numValues = 0;
+  private long _longKey = 0L;
+  private byte[] _bytes;
+  private int _length = 0;
+
+  /**
+   * Constructor for the class.
+   *
+   * @param dataTypes data types of the group-by columns, in the order the values are put into the key.
+   */
+  public RawGroupKey(FieldSpec.DataType[] dataTypes) {
+    int numColumns = dataTypes.length;
+    _dataTypes = new FieldSpec.DataType[numColumns];
+    boolean isFixedWidth = true;
+    int numBytes = 0;
+    for (int i = 0; i < numColumns; i++) {
+      _dataTypes[i] = getStoredDataType(dataTypes[i]);
+      switch (_dataTypes[i]) {
+        case INT:
+        case FLOAT:
+          numBytes += Integer.SIZE / Byte.SIZE;
+          break;
+        case LONG:
+        case DOUBLE:
+          numBytes += Long.SIZE / Byte.SIZE;
+          break;
+        default:
+          isFixedWidth = false;
+          break;
+      }
+    }
+    _isLongKey = isFixedWidth && numBytes <= Long.SIZE / Byte.SIZE;
+    if (!_isLongKey) {
+      _bytes = new byte[INITIAL_BUFFER_SIZE];
+    }
+  }
+
+  /**
+   * Get the data type the raw group key uses to encode values of the given column data type. Numbers are encoded as
+   * themselves, all other types are encoded as their string representation.
+   *
+   * @param dataType column data type.
+   * @return data type used for encoding.
+   */
+  public static FieldSpec.DataType getStoredDataType(FieldSpec.DataType dataType) {
+    switch (dataType) {
+      case INT:
+      case INT_ARRAY:
+        return FieldSpec.DataType.INT;
+      case LONG:
+      case LONG_ARRAY:
+        return FieldSpec.DataType.LONG;
+      case FLOAT:
+      case FLOAT_ARRAY:
+        return FieldSpec.DataType.FLOAT;
+      case DOUBLE:
+      case DOUBLE_ARRAY:
+        return FieldSpec.DataType.DOUBLE;
+      default:
+        return FieldSpec.DataType.STRING;
+    }
+  }
+
+  /**
+   * Reset the key to encode the values for a new group id.
+   *
+   * @param groupId group id (within the segment) of the key.
+   */
+  public void reset(int groupId) {
+    _groupId = groupId;
+    _numValues = 0;
+    _longKey = 0L;
+    _length = 0;
+  }
+
+  /**
+   * Put the value of the next group-by column, read from the dictionary.
+   *
+   * @param dictionary dictionary of the group-by column.
+   * @param dictId dictionary id of the value.
+   */
+  public void putDictionaryValue(Dictionary dictionary, int dictId) {
+    switch (_dataTypes[_numValues]) {
+      case INT:
+        putInt(dictionary.getIntValue(dictId));
+        break;
+      case LONG:
+        putLong(dictionary.getLongValue(dictId));
+        break;
+      case FLOAT:
+        putInt(Float.floatToIntBits(dictionary.getFloatValue(dictId)));
+        break;
+      case DOUBLE:
+        putLong(Double.doubleToLongBits(dictionary.getDoubleValue(dictId)));
+        break;
+      default:
+        putString(dictionary.get(dictId).toString());
+        break;
+    }
+  }
+
+  /**
+   * Put the value of the next group-by column as a string. Should only be called for STRING encoded columns.
+   *
+   * @param value string value.
+   */
+  public void putString(String value) {
+    byte[] valueBytes = value.getBytes(UTF_8);
+    ensureCapacity(Integer.SIZE / Byte.SIZE + valueBytes.length);
+    writeInt(valueBytes.length);
+    System.arraycopy(valueBytes, 0, _bytes, _length, valueBytes.length);
+    _length += valueBytes.length;
+    _numValues++;
+  }
+
+  private void putInt(int value) {
+    if (_isLongKey) {
+      _longKey = (_longKey << Integer.SIZE) | (value & 0xFFFFFFFFL);
+    } else {
+      ensureCapacity(Integer.SIZE / Byte.SIZE);
+      writeInt(value);
+    }
+    _numValues++;
+  }
+
+  private void putLong(long value) {
+    if (_isLongKey) {
+      // A LONG key can only contain one 8 bytes value.
+      _longKey = value;
+    } else {
+      ensureCapacity(Long.SIZE / Byte.SIZE);
+      writeInt((int) (value >>> Integer.SIZE));
+      writeInt((int) value);
+    }
+    _numValues++;
+  }
+
+  private void writeInt(int value) {
+    _bytes[_length++] = (byte) (value >>> 24);
+    _bytes[_length++] = (byte) (value >>> 16);
+    _bytes[_length++] = (byte) (value >>> 8);
+    _bytes[_length++] = (byte) value;
+  }
+
+  private void ensureCapacity(int numBytesToWrite) {
+    if (_length + numBytesToWrite > _bytes.length) {
+      _bytes = Arrays.copyOf(_bytes, Math.max(_bytes.length * 2, _length + numBytesToWrite));
+    }
+  }
+
+  public int getGroupId() {
+    return _groupId;
+  }
+
+  public FieldSpec.DataType[] getDataTypes() {
+    return _dataTypes;
+  }
+
+  public boolean isLongKey() {
+    return _isLongKey;
+  }
+
+  public long getLongKey() {
+    return _longKey;
+  }
+
+  /**
+   * Returns the internal buffer of the BYTES key, only the first {@link #getLength()} bytes are valid.
+   */
+  public byte[] getBytes() {
+    return _bytes;
+  }
+
+  public int getLength() {
+    return _length;
+  }
+
+  /**
+   * Convert the key to the tab-delimited string group key.
+   *
+   * @return string group key.
+   */
+  public String toStringKey() {
+    if (_isLongKey) {
+      return toStringKey(_dataTypes, _longKey);
+    } else {
+      return toStringKey(_dataTypes, _bytes, _length);
+    }
+  }
+
+  /**
+   * Convert a LONG key to the tab-delimited string group key.
+   *
+   * @param dataTypes encoded data types of the key.
+   * @param longKey LONG key.
+   * @return string group key.
+   */
+  public static String toStringKey(FieldSpec.DataType[] dataTypes, long longKey) {
+    if (dataTypes.length == 1) {
+      switch (dataTypes[0]) {
+        case INT:
+          return Integer.toString((int) longKey);
+        case LONG:
+          return Long.toString(longKey);
+        case FLOAT:
+          return Float.toString(Float.intBitsToFloat((int) longKey));
+        case DOUBLE:
+          return Double.toString(Double.longBitsToDouble(longKey));
+        default:
+          throw new IllegalStateException("Illegal data type for LONG key: " + dataTypes[0]);
+      }
+    } else {
+      // Two 4 bytes values, the first one is in the higher bits.
+      return intBitsToString(dataTypes[0], (int) (longKey >>> Integer.SIZE))
+          + AggregationGroupByTrimmingService.GROUP_KEY_DELIMITER + intBitsToString(dataTypes[1], (int) longKey);
+    }
+  }
+
+  /**
+   * Convert a BYTES key to the tab-delimited string group key.
+   *
+   * @param dataTypes encoded data types of the key.
+   * @param bytes buffer of the BYTES key.
+   * @param length number of valid bytes in the buffer.
+   * @return string group key.
+   */
+  public static String toStringKey(FieldSpec.DataType[] dataTypes, byte[] bytes, int length) {
+    ByteBuffer byteBuffer = ByteBuffer.wrap(bytes, 0, length);
+    StringBuilder builder = new StringBuilder();
+    int numColumns = dataTypes.length;
+    for (int i = 0; i < numColumns; i++) {
+      if (i > 0) {
+        builder.append(AggregationGroupByTrimmingService.GROUP_KEY_DELIMITER);
+      }
+      switch (dataTypes[i]) {
+        case INT:
+          builder.append(byteBuffer.getInt());
+          break;
+        case LONG:
+          builder.append(byteBuffer.getLong());
+          break;
+        case FLOAT:
+          builder.append(Float.intBitsToFloat(byteBuffer.getInt()));
+          break;
+        case DOUBLE:
+          builder.append(Double.longBitsToDouble(byteBuffer.getLong()));
+          break;
+        default:
+          int valueLength = byteBuffer.getInt();
+          int position = byteBuffer.position();
+          builder.append(new String(bytes, position, valueLength, UTF_8));
+          byteBuffer.position(position + valueLength);
+          break;
+      }
+    }
+    return builder.toString();
+  }
+
+  private static String intBitsToString(FieldSpec.DataType dataType, int intBits) {
+    if (dataType == FieldSpec.DataType.FLOAT) {
+      return Float.toString(Float.intBitsToFloat(intBits));
+    } else {
+      return Integer.toString(intBits);
+    }
+  }
+}
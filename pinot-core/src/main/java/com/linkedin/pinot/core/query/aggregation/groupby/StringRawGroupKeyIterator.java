@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.aggregation.groupby;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import java.util.Iterator;
+
+
+/**
+ * Adapter to iterate over string group keys as raw group keys, for group key generators which do not keep typed
+ * group-by values. The whole string group key is encoded as one STRING value.
+ */
+class StringRawGroupKeyIterator implements Iterator<RawGroupKey> {
+  private static final FieldSpec.DataType[] DATA_TYPES = new FieldSpec.DataType[]{FieldSpec.DataType.STRING};
+
+  private final Iterator<GroupKeyGenerator.GroupKey> _groupKeyIterator;
+  private final RawGroupKey _rawGroupKey = new RawGroupKey(DATA_TYPES);
+
+  StringRawGroupKeyIterator(Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator) {
+    _groupKeyIterator = groupKeyIterator;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return _groupKeyIterator.hasNext();
+  }
+
+  @Override
+  public RawGroupKey next() {
+    GroupKeyGenerator.GroupKey groupKey = _groupKeyIterator.next();
+    _rawGroupKey.reset(groupKey.getFirst());
+    _rawGroupKey.putString(groupKey.getStringKey());
+    return _rawGroupKey;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>SegmentResultCache</code> class caches the per-segment intermediate results of aggregation and aggregation
+ * group-by queries on immutable segments, so that the same query on the same segment does not need to be planned and
+ * executed again.
+ *
+ * <ul>
+ *   <li>The cache is keyed by the table name, the segment name, the segment CRC and the canonicalized query. A replaced
+ *   segment has a different CRC, so its stale results can never be hit. Results of replaced or removed segments are
+ *   never accessed again, so they are the first to be evicted.</li>
+ *   <li>The results are stored as serialized {@link DataTable}s, and the cache is bounded by the total size of the
+ *   serialized results. Every cache hit de-serializes a new {@link IntermediateResultsBlock}, so that the combine
+ *   operators are free to modify it.</li>
+ * </ul>
+ *
+ * There is one cache per server, owned by the plan maker of the query executor.
+ */
+public class SegmentResultCache {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SegmentResultCache.class);
+
+  private final Cache<Key, byte[]> _cache;
+
+  public SegmentResultCache(long maxSizeInBytes) {
+    _cache = CacheBuilder.newBuilder().maximumWeight(maxSizeInBytes).weigher(new Weigher<Key, byte[]>() {
+      @Override
+      public int weigh(@Nonnull Key key, @Nonnull byte[] value) {
+        // Strings are stored as UTF-16 chars.
+        return 2 * key._query.length() + value.length;
+      }
+    }).recordStats().build();
+    LOGGER.info("Initialized segment result cache with max size: {} bytes", maxSizeInBytes);
+  }
+
+  /**
+   * Returns whether the results of the given query on the given segment can be cached.
+   * <p>Only results of aggregation and aggregation group-by queries on immutable segments with a CRC are cached.
+   */
+  public static boolean isCacheable(@Nonnull IndexSegment indexSegment, @Nonnull BrokerRequest brokerRequest) {
+    return brokerRequest.isSetAggregationsInfo() && indexSegment instanceof IndexSegmentImpl
+        && indexSegment.getSegmentMetadata().getCrc() != null;
+  }
+
+  /**
+   * Returns the canonicalized query of the broker request, which does not contain the options that do not affect the
+   * query results.
+   */
+  @Nonnull
+  public static String canonicalizeQuery(@Nonnull BrokerRequest brokerRequest) {
+    BrokerRequest canonicalBrokerRequest = brokerRequest.deepCopy();
+    canonicalBrokerRequest.unsetEnableTrace();
+    canonicalBrokerRequest.unsetDebugOptions();
+    canonicalBrokerRequest.unsetResponseFormat();
+    canonicalBrokerRequest.unsetBucketHashKey();
+    return canonicalBrokerRequest.toString();
+  }
+
+  /**
+   * Returns the cache key for the results of the canonicalized query on the given segment.
+   *
+   * @param tableName name of the table with type suffix, same as the name of the table data manager.
+   * @param indexSegment index segment.
+   * @param canonicalizedQuery canonicalized query.
+   * @return cache key.
+   */
+  @Nonnull
+  public static Key getKey(@Nonnull String tableName, @Nonnull IndexSegment indexSegment,
+      @Nonnull String canonicalizedQuery) {
+    return new Key(tableName, indexSegment.getSegmentName(), indexSegment.getSegmentMetadata().getCrc(),
+        canonicalizedQuery);
+  }
+
+  /**
+   * Get the cached results as a new {@link IntermediateResultsBlock}.
+   *
+   * @param key cache key.
+   * @param aggregationFunctionContexts aggregation function contexts of the query.
+   * @param isGroupBy whether the query is an aggregation group-by query.
+   * @return cached results, or null if the results are not cached.
+   */
+  @Nullable
+  public IntermediateResultsBlock get(@Nonnull Key key, @Nonnull AggregationFunctionContext[] aggregationFunctionContexts,
+      boolean isGroupBy) {
+    byte[] bytes = _cache.getIfPresent(key);
+    if (bytes == null) {
+      return null;
+    }
+    try {
+      return toIntermediateResultsBlock(DataTableFactory.getDataTable(bytes), aggregationFunctionContexts, isGroupBy);
+    } catch (Exception e) {
+      LOGGER.error("Caught exception while de-serializing cached results for key: {}, invalidating it", key, e);
+      _cache.invalidate(key);
+      return null;
+    }
+  }
+
+  /**
+   * Cache the results of the segment. Results with processing exceptions are not cached.
+   * <p>Should be called before the results are merged with other segments, as merging might modify the results.
+   *
+   * @param key cache key.
+   * @param intermediateResultsBlock results of the segment.
+   */
+  public void put(@Nonnull Key key, @Nonnull IntermediateResultsBlock intermediateResultsBlock) {
+    if (intermediateResultsBlock.getProcessingExceptions() != null) {
+      return;
+    }
+    try {
+      AggregationGroupByResult aggregationGroupByResult = intermediateResultsBlock.getAggregationGroupByResult();
+      if (aggregationGroupByResult != null) {
+        AggregationFunctionContext[] aggregationFunctionContexts =
+            intermediateResultsBlock.getAggregationFunctionContexts();
+        intermediateResultsBlock = new IntermediateResultsBlock(aggregationFunctionContexts,
+            toCombinedAggregationGroupByResult(aggregationGroupByResult, aggregationFunctionContexts.length), true);
+      }
+      _cache.put(key, intermediateResultsBlock.getDataTable().toBytes());
+    } catch (Exception e) {
+      LOGGER.warn("Caught exception while caching results for key: {}", key, e);
+    }
+  }
+
+  public long size() {
+    return _cache.size();
+  }
+
+  @Nonnull
+  public CacheStats getStats() {
+    return _cache.stats();
+  }
+
+  /**
+   * Helper method to convert the aggregation group-by result of a segment into a list of maps from string group keys
+   * to results, one for each aggregation function.
+   */
+  private static List<Map<String, Object>> toCombinedAggregationGroupByResult(
+      AggregationGroupByResult aggregationGroupByResult, int numAggregationFunctions) {
+    List<Map<String, Object>> combinedAggregationGroupByResult = new ArrayList<>(numAggregationFunctions);
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      combinedAggregationGroupByResult.add(new HashMap<String, Object>());
+    }
+    Iterator<GroupKeyGenerator.GroupKey> groupKeyIterator = aggregationGroupByResult.getGroupKeyIterator();
+    while (groupKeyIterator.hasNext()) {
+      GroupKeyGenerator.GroupKey groupKey = groupKeyIterator.next();
+      String stringKey = groupKey.getStringKey();
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        combinedAggregationGroupByResult.get(i).put(stringKey, aggregationGroupByResult.getResultForKey(groupKey, i));
+      }
+    }
+    return combinedAggregationGroupByResult;
+  }
+
+  /**
+   * Helper method to convert the data table of cached results back into an {@link IntermediateResultsBlock}.
+   */
+  private static IntermediateResultsBlock toIntermediateResultsBlock(DataTable dataTable,
+      AggregationFunctionContext[] aggregationFunctionContexts, boolean isGroupBy) {
+    int numAggregationFunctions = aggregationFunctionContexts.length;
+    List<Object> aggregationResult = new ArrayList<>(numAggregationFunctions);
+    if (isGroupBy) {
+      // One row for each aggregation function, the second column is the map from group keys to results.
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        aggregationResult.add(dataTable.getObject(i, 1));
+      }
+    } else {
+      // One row with one column for each aggregation function.
+      for (int i = 0; i < numAggregationFunctions; i++) {
+        switch (aggregationFunctionContexts[i].getAggregationFunction().getIntermediateResultDataType()) {
+          case LONG:
+            aggregationResult.add(dataTable.getLong(0, i));
+            break;
+          case DOUBLE:
+            aggregationResult.add(dataTable.getDouble(0, i));
+            break;
+          default:
+            aggregationResult.add(dataTable.getObject(0, i));
+            break;
+        }
+      }
+    }
+    return new IntermediateResultsBlock(aggregationFunctionContexts, aggregationResult, isGroupBy);
+  }
+
+  /**
+   * Key of the cached results.
+   */
+  public static class Key {
+    private final String _tableName;
+    private final String _segmentName;
+    private final String _crc;
+    private final String _query;
+
+    public Key(@Nonnull String tableName, @Nonnull String segmentName, @Nonnull String crc, @Nonnull String query) {
+      _tableName = tableName;
+      _segmentName = segmentName;
+      _crc = crc;
+      _query = query;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+
+      Key that = (Key) o;
+      return _segmentName.equals(that._segmentName) && _crc.equals(that._crc) && _tableName.equals(that._tableName)
+          && _query.equals(that._query);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = _tableName.hashCode();
+      result = 31 * result + _segmentName.hashCode();
+      result = 31 * result + _crc.hashCode();
+      result = 31 * result + _query.hashCode();
+      return result;
+    }
+
+    @Override
+    public String toString() {
+      return _tableName + ":" + _segmentName + ":" + _crc;
+    }
+  }
+}
@@ -15,6 +15,8 @@
  */
 package com.linkedin.pinot.core.query.config;
 
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV3;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.configuration.ConfigurationException;
 
@@ -32,6 +34,12 @@ public class QueryExecutorConfig {
   public static final String QUERY_PLANNER = "queryPlanner";
   // Prefix key of TimeOut
   public static final String TIME_OUT = "timeout";
+  // Max size in bytes of the segment result cache, the cache is disabled if not positive
+  public static final String RESULT_CACHE_MAX_SIZE_IN_BYTES = "resultCache.maxSizeInBytes";
+  // Version of the data tables sent to the brokers, only upgrade after all brokers support the version
+  public static final String DATA_TABLE_VERSION = "dataTable.version";
+  // Compression codec for the column blocks of version 3 data tables
+  public static final String DATA_TABLE_COMPRESSION_CODEC = "dataTable.compressionCodec";
 
   private static final String[] REQUIRED_KEYS = {};
 
@@ -39,6 +47,9 @@ public class QueryExecutorConfig {
   private SegmentPrunerConfig _segmentPrunerConfig;
   private QueryPlannerConfig _queryPlannerConfig;
   private final long _timeOutMs;
+  private final long _resultCacheMaxSizeInBytes;
+  private final int _dataTableVersion;
+  private final DataTableImplV3.CompressionCodec _dataTableCompressionCodec;
 
   public QueryExecutorConfig(Configuration config) throws ConfigurationException {
     _queryExecutorConfig = config;
@@ -46,6 +57,14 @@ public class QueryExecutorConfig {
     _segmentPrunerConfig = new SegmentPrunerConfig(_queryExecutorConfig.subset(QUERY_PRUNER));
     _queryPlannerConfig = new QueryPlannerConfig(_queryExecutorConfig.subset(QUERY_PLANNER));
     _timeOutMs = _queryExecutorConfig.getLong(TIME_OUT, -1);
+    _resultCacheMaxSizeInBytes = _queryExecutorConfig.getLong(RESULT_CACHE_MAX_SIZE_IN_BYTES, 0L);
+    _dataTableVersion = _queryExecutorConfig.getInt(DATA_TABLE_VERSION, DataTableFactory.VERSION_2);
+    if (_dataTableVersion != DataTableFactory.VERSION_2 && _dataTableVersion != DataTableFactory.VERSION_3) {
+      throw new ConfigurationException("Unsupported data table version: " + _dataTableVersion);
+    }
+    _dataTableCompressionCodec = DataTableImplV3.CompressionCodec.valueOf(
+        _queryExecutorConfig.getString(DATA_TABLE_COMPRESSION_CODEC, DataTableImplV3.CompressionCodec.NONE.name())
+            .toUpperCase());
   }
 
   private void checkRequiredKeys() throws ConfigurationException {
@@ -71,4 +90,16 @@ public class QueryExecutorConfig {
   public long getTimeOut() {
     return _timeOutMs;
   }
+
+  public long getResultCacheMaxSizeInBytes() {
+    return _resultCacheMaxSizeInBytes;
+  }
+
+  public int getDataTableVersion() {
+    return _dataTableVersion;
+  }
+
+  public DataTableImplV3.CompressionCodec getDataTableCompressionCodec() {
+    return _dataTableCompressionCodec;
+  }
 }
@@ -26,6 +26,8 @@ import com.linkedin.pinot.common.query.context.TimerContext;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.InstanceRequest;
 import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
 import com.linkedin.pinot.core.data.manager.offline.InstanceDataManager;
 import com.linkedin.pinot.core.data.manager.offline.SegmentDataManager;
@@ -81,6 +83,8 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     LOGGER.info("Default timeout for query executor : {}", _defaultTimeOutMs);
     LOGGER.info("Trying to build SegmentPrunerService");
     _segmentPrunerService = new SegmentPrunerServiceImpl(queryExecutorConfig.getPrunerConfig());
+    LOGGER.info("Data table version: {}, compression codec: {}", queryExecutorConfig.getDataTableVersion(),
+        queryExecutorConfig.getDataTableCompressionCodec());
     LOGGER.info("Trying to build QueryPlanMaker");
     _planMaker = new InstancePlanMakerImplV2(queryExecutorConfig);
     LOGGER.info("Trying to build QueryExecutorTimer");
@@ -182,11 +186,14 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
         instanceRequest.getSearchSegments());
     LOGGER.debug("TableDataManager found {} segments before pruning", listOfQueryableSegments.size());
 
+    // The filter is the same for all the segments, so only build it once.
+    BrokerRequest brokerRequest = instanceRequest.getQuery();
+    FilterQueryTree filterQueryTree = RequestUtils.generateFilterQueryTree(brokerRequest);
     Iterator<SegmentDataManager> it = listOfQueryableSegments.iterator();
     while (it.hasNext()) {
       SegmentDataManager segmentDataManager = it.next();
       final IndexSegment indexSegment = segmentDataManager.getSegment();
-      if (_segmentPrunerService.prune(indexSegment, instanceRequest.getQuery())) {
+      if (_segmentPrunerService.prune(indexSegment, brokerRequest, filterQueryTree)) {
         it.remove();
         tableDataManager.releaseSegment(segmentDataManager);
       }
@@ -220,6 +227,12 @@ public class ServerQueryExecutorV1Impl implements QueryExecutor {
     _resourceTimeOutMsMap.put(resource, timeOutMs);
   }
 
+  @Override
+  public long getTimeOutMs(String tableName) {
+    Long timeOutMs = _resourceTimeOutMsMap.get(tableName);
+    return (timeOutMs != null) ? timeOutMs : _defaultTimeOutMs;
+  }
+
   private long getResourceTimeOut(BrokerRequest brokerRequest) {
     try {
       String resourceName = brokerRequest.getQuerySource().getTableName();
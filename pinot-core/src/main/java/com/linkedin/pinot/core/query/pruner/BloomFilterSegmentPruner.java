@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.pruner;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.configuration.Configuration;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.utils.request.FilterPruningUtils;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.core.common.predicate.EqPredicate;
+import com.linkedin.pinot.core.common.predicate.InPredicate;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.segment.creator.impl.bloom.BloomFilterUtils;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.readers.BloomFilterReader;
+
+
+/**
+ * An implementation of SegmentPruner.
+ * Pruner will prune segment if the column bloom filter proves that none of the values of the EQ or IN predicates of
+ * the filter exist in the segment. Bloom filters are loaded lazily on the first query that needs them.
+ * The AND/OR nodes of the filter are handled by {@link FilterPruningUtils}. Other predicates, and columns without bloom
+ * filter are never pruned.
+ */
+public class BloomFilterSegmentPruner implements SegmentPruner {
+  private static final FilterPruningUtils.LeafPruner<IndexSegmentImpl> LEAF_PRUNER =
+      new FilterPruningUtils.LeafPruner<IndexSegmentImpl>() {
+        @Override
+        public boolean pruneLeaf(@Nonnull FilterQueryTree leaf, @Nonnull IndexSegmentImpl segment) {
+          return BloomFilterSegmentPruner.pruneLeaf(leaf, segment);
+        }
+      };
+
+  @Override
+  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest, FilterQueryTree filterQueryTree) {
+    if (filterQueryTree == null || !(segment instanceof IndexSegmentImpl)) {
+      return false;
+    }
+    return FilterPruningUtils.prune(filterQueryTree, (IndexSegmentImpl) segment, LEAF_PRUNER);
+  }
+
+  private static boolean pruneLeaf(FilterQueryTree filterQueryTree, IndexSegmentImpl segment) {
+    FilterOperator operator = filterQueryTree.getOperator();
+    if (operator != FilterOperator.EQUALITY && operator != FilterOperator.IN) {
+      return false;
+    }
+    String column = filterQueryTree.getColumn();
+    ColumnMetadata columnMetadata =
+        ((SegmentMetadataImpl) segment.getSegmentMetadata()).getColumnMetadataFor(column);
+    if (columnMetadata == null) {
+      // Column does not exist in the segment, leave it to DataSchemaSegmentPruner.
+      return false;
+    }
+    BloomFilterReader bloomFilter = segment.getBloomFilterFor(column);
+    if (bloomFilter == null) {
+      return false;
+    }
+    DataType dataType = columnMetadata.getDataType();
+
+    try {
+      if (operator == FilterOperator.EQUALITY) {
+        String value = new EqPredicate(column, filterQueryTree.getValue()).getEqualsValue();
+        return !bloomFilter.mightContain(BloomFilterUtils.getStoredValue(value, dataType));
+      } else {
+        String[] values = new InPredicate(column, filterQueryTree.getValue()).getInRange();
+        for (String value : values) {
+          if (bloomFilter.mightContain(BloomFilterUtils.getStoredValue(value, dataType))) {
+            return false;
+          }
+        }
+        return true;
+      }
+    } catch (NumberFormatException e) {
+      // Value cannot be parsed into the column data type, let the query fail/handle it on the normal path.
+      return false;
+    }
+  }
+
+  @Override
+  public void init(Configuration config) {
+
+  }
+
+  @Override
+  public String toString() {
+    return "BloomFilterSegmentPruner";
+  }
+}
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.pruner;
+
+import javax.annotation.Nonnull;
+
+import org.apache.commons.configuration.Configuration;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.FilterPruningUtils;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.core.common.predicate.EqPredicate;
+import com.linkedin.pinot.core.common.predicate.InPredicate;
+import com.linkedin.pinot.core.common.predicate.RangePredicate;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+
+
+/**
+ * An implementation of SegmentPruner.
+ * Pruner will prune segment if the column min/max values in the segment metadata cannot satisfy the EQ, IN or RANGE
+ * predicates of the filter. The AND/OR nodes of the filter are handled by {@link FilterPruningUtils}.
+ * Other predicates, and columns without min/max values (e.g. segments created before min/max values were added to the
+ * metadata, or realtime segments) are never pruned.
+ */
+public class ColumnValueSegmentPruner implements SegmentPruner {
+  private static final FilterPruningUtils.LeafPruner<SegmentMetadataImpl> LEAF_PRUNER =
+      new FilterPruningUtils.LeafPruner<SegmentMetadataImpl>() {
+        @Override
+        public boolean pruneLeaf(@Nonnull FilterQueryTree leaf, @Nonnull SegmentMetadataImpl segmentMetadata) {
+          return ColumnValueSegmentPruner.pruneLeaf(leaf, segmentMetadata);
+        }
+      };
+
+  @Override
+  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest, FilterQueryTree filterQueryTree) {
+    if (filterQueryTree == null || !(segment.getSegmentMetadata() instanceof SegmentMetadataImpl)) {
+      return false;
+    }
+    return FilterPruningUtils.prune(filterQueryTree, (SegmentMetadataImpl) segment.getSegmentMetadata(), LEAF_PRUNER);
+  }
+
+  private static boolean pruneLeaf(FilterQueryTree filterQueryTree, SegmentMetadataImpl segmentMetadata) {
+    ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(filterQueryTree.getColumn());
+    if (columnMetadata == null) {
+      // Column does not exist in the segment, leave it to DataSchemaSegmentPruner.
+      return false;
+    }
+    Comparable minValue = columnMetadata.getMinValue();
+    Comparable maxValue = columnMetadata.getMaxValue();
+    if (minValue == null || maxValue == null) {
+      return false;
+    }
+    DataType dataType = columnMetadata.getDataType();
+
+    try {
+      switch (filterQueryTree.getOperator()) {
+        case EQUALITY: {
+          String value =
+              new EqPredicate(filterQueryTree.getColumn(), filterQueryTree.getValue()).getEqualsValue();
+          return !inRange(getValue(value, dataType), minValue, maxValue);
+        }
+        case IN: {
+          String[] values = new InPredicate(filterQueryTree.getColumn(), filterQueryTree.getValue()).getInRange();
+          for (String value : values) {
+            if (inRange(getValue(value, dataType), minValue, maxValue)) {
+              return false;
+            }
+          }
+          return true;
+        }
+        case RANGE: {
+          RangePredicate predicate = new RangePredicate(filterQueryTree.getColumn(), filterQueryTree.getValue());
+          String lower = predicate.getLowerBoundary();
+          if (!lower.equals("*")) {
+            int result = getValue(lower, dataType).compareTo(maxValue);
+            if (result > 0 || (result == 0 && !predicate.includeLowerBoundary())) {
+              return true;
+            }
+          }
+          String upper = predicate.getUpperBoundary();
+          if (!upper.equals("*")) {
+            int result = getValue(upper, dataType).compareTo(minValue);
+            if (result < 0 || (result == 0 && !predicate.includeUpperBoundary())) {
+              return true;
+            }
+          }
+          return false;
+        }
+        default:
+          return false;
+      }
+    } catch (NumberFormatException e) {
+      // Value cannot be parsed into the column data type, let the query fail/handle it on the normal path.
+      return false;
+    }
+  }
+
+  private static boolean inRange(Comparable value, Comparable minValue, Comparable maxValue) {
+    return value.compareTo(minValue) >= 0 && value.compareTo(maxValue) <= 0;
+  }
+
+  /**
+   * Helper method to parse the string value in the query into a comparable value of the column data type.
+   */
+  private static Comparable getValue(String value, DataType dataType) {
+    switch (dataType) {
+      case INT:
+        return Integer.valueOf(value);
+      case LONG:
+        return Long.valueOf(value);
+      case FLOAT:
+        return Float.valueOf(value);
+      case DOUBLE:
+        return Double.valueOf(value);
+      default:
+        return value;
+    }
+  }
+
+  @Override
+  public void init(Configuration config) {
+
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnValueSegmentPruner";
+  }
+}
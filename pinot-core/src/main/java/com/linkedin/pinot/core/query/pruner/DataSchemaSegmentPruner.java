@@ -23,6 +23,7 @@ import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.request.FilterQuery;
 import com.linkedin.pinot.common.request.FilterQueryMap;
 import com.linkedin.pinot.common.request.SelectionSort;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 
 
@@ -37,7 +38,7 @@ public class DataSchemaSegmentPruner implements SegmentPruner {
   private static final String COLUMN_KEY = "column";
 
   @Override
-  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest) {
+  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest, FilterQueryTree filterQueryTree) {
     Schema schema = segment.getSegmentMetadata().getSchema();
     // Check filtering columns
     if (brokerRequest.getFilterQuery() != null && !filterQueryMatchedSchema(schema, brokerRequest.getFilterQuery(), brokerRequest.getFilterSubQueryMap())) {
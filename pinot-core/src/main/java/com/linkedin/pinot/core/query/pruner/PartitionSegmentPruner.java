@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.pruner;
+
+import com.linkedin.pinot.common.partition.PartitionPruningUtils;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import org.apache.commons.configuration.Configuration;
+
+
+/**
+ * An implementation of SegmentPruner.
+ * Pruner will prune segment if the partition metadata of the segment proves that none of the values of the EQ or IN
+ * predicates on the partitioned columns belong to the partitions of the segment. See {@link PartitionPruningUtils}
+ * for the pruning rules.
+ */
+public class PartitionSegmentPruner implements SegmentPruner {
+
+  @Override
+  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest, FilterQueryTree filterQueryTree) {
+    SegmentMetadata segmentMetadata = segment.getSegmentMetadata();
+    if (segmentMetadata == null || filterQueryTree == null) {
+      return false;
+    }
+    return PartitionPruningUtils.canPrune(filterQueryTree, segmentMetadata.getPartitionMetadata());
+  }
+
+  @Override
+  public void init(Configuration config) {
+
+  }
+
+  @Override
+  public String toString() {
+    return "PartitionSegmentPruner";
+  }
+}
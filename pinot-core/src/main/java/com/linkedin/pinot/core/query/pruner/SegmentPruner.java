@@ -18,7 +18,9 @@ package com.linkedin.pinot.core.query.pruner;
 import org.apache.commons.configuration.Configuration;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import javax.annotation.Nullable;
 
 
 public interface SegmentPruner {
@@ -34,7 +36,8 @@ public interface SegmentPruner {
    *
    * @param segment
    * @param brokerRequest
+   * @param filterQueryTree filter of the broker request, built once per query, null if the query has no filter.
    * @return true if the given segment is pruned.
    */
-  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest);
+  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest, @Nullable FilterQueryTree filterQueryTree);
 }
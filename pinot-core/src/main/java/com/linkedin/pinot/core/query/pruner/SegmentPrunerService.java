@@ -16,14 +16,18 @@
 package com.linkedin.pinot.core.query.pruner;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import javax.annotation.Nullable;
 
 
 public interface SegmentPrunerService {
   /**
    * @param segment
    * @param query
+   * @param filterQueryTree filter of the query, built once per query, null if the query has no filter.
    * @return
    */
-  public boolean prune(final IndexSegment segment, final BrokerRequest query);
+  public boolean prune(final IndexSegment segment, final BrokerRequest query,
+      @Nullable final FilterQueryTree filterQueryTree);
 }
@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.query.config.SegmentPrunerConfig;
 
@@ -52,12 +53,12 @@ public class SegmentPrunerServiceImpl implements SegmentPrunerService {
   }
 
   @Override
-  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest) {
+  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest, FilterQueryTree filterQueryTree) {
     if (_segmentPrunerSet == null || _segmentPrunerSet.size() == 0) {
       return false;
     }
     for (SegmentPruner pruner : _segmentPrunerSet) {
-      if (pruner.prune(segment, brokerRequest)) {
+      if (pruner.prune(segment, brokerRequest, filterQueryTree)) {
         LOGGER.debug("pruned segment: {}", segment.getSegmentName());
         return true;
       }
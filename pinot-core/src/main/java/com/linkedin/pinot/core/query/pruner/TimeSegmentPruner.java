@@ -19,6 +19,7 @@ import org.apache.commons.configuration.Configuration;
 import org.joda.time.Interval;
 
 import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 
 
@@ -32,7 +33,7 @@ import com.linkedin.pinot.core.indexsegment.IndexSegment;
 public class TimeSegmentPruner implements SegmentPruner {
 
   @Override
-  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest) {
+  public boolean prune(IndexSegment segment, BrokerRequest brokerRequest, FilterQueryTree filterQueryTree) {
     Interval interval = segment.getSegmentMetadata().getTimeInterval();
     if (interval != null && brokerRequest.getTimeInterval() != null && !new Interval(brokerRequest.getTimeInterval()).contains(interval)) {
       return true;
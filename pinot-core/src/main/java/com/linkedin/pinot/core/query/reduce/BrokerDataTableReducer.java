@@ -0,0 +1,397 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.reduce;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.BrokerMeter;
+import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.query.DataTableReducer;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.request.Selection;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.response.broker.AggregationResult;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.response.broker.GroupByResult;
+import com.linkedin.pinot.common.response.broker.QueryProcessingException;
+import com.linkedin.pinot.common.response.broker.SelectionResults;
+import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionUtils;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByTrimmingService;
+import com.linkedin.pinot.core.query.selection.SelectionOperatorService;
+import com.linkedin.pinot.core.query.selection.SelectionOperatorUtils;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>BrokerDataTableReducer</code> class reduces data tables from multiple servers to
+ * {@link BrokerResponseNative} incrementally.
+ * <p>Each data table is merged into the reduced results when it is passed in and not referenced afterwards:
+ * <ul>
+ *   <li>Aggregation queries only keep the merged intermediate results.</li>
+ *   <li>Aggregation group-by queries only keep the merged intermediate result maps.</li>
+ *   <li>Selection queries only keep the selected rows (at most offset + size rows).</li>
+ * </ul>
+ */
+@NotThreadSafe
+public class BrokerDataTableReducer implements DataTableReducer<BrokerResponseNative> {
+  private static final Logger LOGGER = LoggerFactory.getLogger(BrokerDataTableReducer.class);
+
+  private final BrokerRequest _brokerRequest;
+  private final BrokerMetrics _brokerMetrics;
+  private final BrokerResponseNative _brokerResponseNative = new BrokerResponseNative();
+
+  private int _numDataTablesReduced = 0;
+  private long _numDocsScanned = 0L;
+  private long _numEntriesScannedInFilter = 0L;
+  private long _numEntriesScannedPostFilter = 0L;
+  private long _numTotalRawDocs = 0L;
+
+  // Cache a data schema from data tables (try to cache one with data rows associated with it).
+  private DataSchema _cachedDataSchema;
+  private boolean _hasDataRows = false;
+
+  // For selection queries.
+  private DataSchema _masterDataSchema;
+  private SelectionOperatorService _selectionService;
+  private List<Serializable[]> _selectionRows;
+  private final List<String> _droppedServers = new ArrayList<>();
+
+  // For aggregation queries.
+  private AggregationFunction[] _aggregationFunctions;
+  private Object[] _intermediateResults;
+  private String[] _groupByColumnNames;
+  private Map<String, Object>[] _intermediateResultMaps;
+
+  public BrokerDataTableReducer(@Nonnull BrokerRequest brokerRequest, @Nullable BrokerMetrics brokerMetrics) {
+    _brokerRequest = brokerRequest;
+    _brokerMetrics = brokerMetrics;
+  }
+
+  @Override
+  public void reduce(@Nonnull ServerInstance serverInstance, @Nonnull DataTable dataTable) {
+    _numDataTablesReduced++;
+    Map<String, String> metadata = dataTable.getMetadata();
+
+    // Reduce on trace info.
+    if (_brokerRequest.isEnableTrace()) {
+      _brokerResponseNative.getTraceInfo()
+          .put(serverInstance.getHostname(), metadata.get(DataTable.TRACE_INFO_METADATA_KEY));
+    }
+
+    // Reduce on exceptions.
+    List<QueryProcessingException> processingExceptions = _brokerResponseNative.getProcessingExceptions();
+    for (String key : metadata.keySet()) {
+      if (key.startsWith(DataTable.EXCEPTION_METADATA_KEY)) {
+        processingExceptions.add(new QueryProcessingException(Integer.parseInt(key.substring(9)), metadata.get(key)));
+      }
+    }
+
+    // Reduce on execution statistics.
+    String numDocsScannedString = metadata.get(DataTable.NUM_DOCS_SCANNED_METADATA_KEY);
+    if (numDocsScannedString != null) {
+      _numDocsScanned += Long.parseLong(numDocsScannedString);
+    }
+    String numEntriesScannedInFilterString = metadata.get(DataTable.NUM_ENTRIES_SCANNED_IN_FILTER_METADATA_KEY);
+    if (numEntriesScannedInFilterString != null) {
+      _numEntriesScannedInFilter += Long.parseLong(numEntriesScannedInFilterString);
+    }
+    String numEntriesScannedPostFilterString = metadata.get(DataTable.NUM_ENTRIES_SCANNED_POST_FILTER_METADATA_KEY);
+    if (numEntriesScannedPostFilterString != null) {
+      _numEntriesScannedPostFilter += Long.parseLong(numEntriesScannedPostFilterString);
+    }
+    String numTotalRawDocsString = metadata.get(DataTable.TOTAL_DOCS_METADATA_KEY);
+    if (numTotalRawDocsString != null) {
+      _numTotalRawDocs += Long.parseLong(numTotalRawDocsString);
+    }
+
+    // After processing the metadata, skip data tables without data rows inside.
+    DataSchema dataSchema = dataTable.getDataSchema();
+    if (dataSchema == null) {
+      return;
+    }
+    if (dataTable.getNumberOfRows() == 0) {
+      if (_cachedDataSchema == null) {
+        _cachedDataSchema = dataSchema;
+      }
+      return;
+    }
+    _cachedDataSchema = dataSchema;
+    _hasDataRows = true;
+
+    // Merge the server response data into the reduced results.
+    if (_brokerRequest.isSetSelections()) {
+      reduceSelection(serverInstance, dataTable, dataSchema);
+    } else {
+      if (_aggregationFunctions == null) {
+        _aggregationFunctions = AggregationFunctionUtils.getAggregationFunctions(_brokerRequest.getAggregationsInfo());
+      }
+      if (!_brokerRequest.isSetGroupBy()) {
+        reduceAggregation(dataTable, dataSchema);
+      } else {
+        reduceGroupBy(dataTable);
+      }
+    }
+  }
+
+  /**
+   * Reduce selection results from one server.
+   * <p>The data schema of the first data table with data rows becomes the master data schema, data tables not
+   * compatible with it are dropped, and the master data schema is upgraded to cover all the remaining data schemas.
+   */
+  private void reduceSelection(@Nonnull ServerInstance serverInstance, @Nonnull DataTable dataTable,
+      @Nonnull DataSchema dataSchema) {
+    Selection selection = _brokerRequest.getSelections();
+    int selectionSize = selection.getSize();
+    if (_masterDataSchema == null) {
+      _masterDataSchema = dataSchema.clone();
+      if (selection.isSetSelectionSortSequence() && selectionSize != 0) {
+        // The selection service reads the master data schema, which can be upgraded afterwards.
+        _selectionService = new SelectionOperatorService(selection, _masterDataSchema);
+      } else {
+        _selectionRows = new ArrayList<>(selectionSize);
+      }
+    } else {
+      if (!_masterDataSchema.isTypeCompatibleWith(dataSchema)) {
+        _droppedServers.add(serverInstance.toString());
+        return;
+      }
+      _masterDataSchema.upgradeToCover(dataSchema);
+    }
+
+    if (_selectionService != null) {
+      // Selection order-by.
+      _selectionService.reduceWithOrdering(dataTable);
+    } else {
+      // Selection only.
+      SelectionOperatorUtils.reduceWithoutOrdering(_selectionRows, dataTable, selectionSize);
+    }
+  }
+
+  /**
+   * Reduce aggregation results from one server.
+   */
+  @SuppressWarnings("unchecked")
+  private void reduceAggregation(@Nonnull DataTable dataTable, @Nonnull DataSchema dataSchema) {
+    int numAggregationFunctions = _aggregationFunctions.length;
+    if (_intermediateResults == null) {
+      _intermediateResults = new Object[numAggregationFunctions];
+    }
+
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      Object intermediateResultToMerge;
+      FieldSpec.DataType columnType = dataSchema.getColumnType(i);
+      switch (columnType) {
+        case LONG:
+          intermediateResultToMerge = dataTable.getLong(0, i);
+          break;
+        case DOUBLE:
+          intermediateResultToMerge = dataTable.getDouble(0, i);
+          break;
+        case OBJECT:
+          intermediateResultToMerge = dataTable.getObject(0, i);
+          break;
+        default:
+          throw new IllegalStateException("Illegal column type in aggregation results: " + columnType);
+      }
+      Object mergedIntermediateResult = _intermediateResults[i];
+      if (mergedIntermediateResult == null) {
+        _intermediateResults[i] = intermediateResultToMerge;
+      } else {
+        _intermediateResults[i] = _aggregationFunctions[i].merge(mergedIntermediateResult, intermediateResultToMerge);
+      }
+    }
+  }
+
+  /**
+   * Reduce group-by results from one server.
+   */
+  @SuppressWarnings("unchecked")
+  private void reduceGroupBy(@Nonnull DataTable dataTable) {
+    int numAggregationFunctions = _aggregationFunctions.length;
+    if (_groupByColumnNames == null) {
+      _groupByColumnNames = new String[numAggregationFunctions];
+      _intermediateResultMaps = new Map[numAggregationFunctions];
+    }
+
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      if (_groupByColumnNames[i] == null) {
+        _groupByColumnNames[i] = dataTable.getString(i, 0);
+        _intermediateResultMaps[i] = dataTable.getObject(i, 1);
+      } else {
+        Map<String, Object> mergedIntermediateResultMap = _intermediateResultMaps[i];
+        Map<String, Object> intermediateResultMapToMerge = dataTable.getObject(i, 1);
+        for (Map.Entry<String, Object> entry : intermediateResultMapToMerge.entrySet()) {
+          String groupKey = entry.getKey();
+          Object intermediateResultToMerge = entry.getValue();
+          Object mergedIntermediateResult = mergedIntermediateResultMap.get(groupKey);
+          if (mergedIntermediateResult != null) {
+            mergedIntermediateResultMap.put(groupKey,
+                _aggregationFunctions[i].merge(mergedIntermediateResult, intermediateResultToMerge));
+          } else {
+            mergedIntermediateResultMap.put(groupKey, intermediateResultToMerge);
+          }
+        }
+      }
+    }
+  }
+
+  @Nonnull
+  @Override
+  public BrokerResponseNative getBrokerResponse() {
+    if (_numDataTablesReduced == 0) {
+      // Empty response.
+      return BrokerResponseNative.empty();
+    }
+
+    // Set execution statistics.
+    _brokerResponseNative.setNumDocsScanned(_numDocsScanned);
+    _brokerResponseNative.setNumEntriesScannedInFilter(_numEntriesScannedInFilter);
+    _brokerResponseNative.setNumEntriesScannedPostFilter(_numEntriesScannedPostFilter);
+    _brokerResponseNative.setTotalDocs(_numTotalRawDocs);
+
+    // Update broker metrics.
+    String tableName = _brokerRequest.getQuerySource().getTableName();
+    if (_brokerMetrics != null) {
+      _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.DOCUMENTS_SCANNED, _numDocsScanned);
+      _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.ENTRIES_SCANNED_IN_FILTER,
+          _numEntriesScannedInFilter);
+      _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.ENTRIES_SCANNED_POST_FILTER,
+          _numEntriesScannedPostFilter);
+    }
+
+    if (!_hasDataRows) {
+      // For no data table with data rows, construct empty result using the cached data schema.
+
+      // This will only happen to selection query.
+      if (_cachedDataSchema != null) {
+        List<String> selectionColumns =
+            SelectionOperatorUtils.getSelectionColumns(_brokerRequest.getSelections().getSelectionColumns(),
+                _cachedDataSchema);
+        _brokerResponseNative.setSelectionResults(
+            new SelectionResults(selectionColumns, new ArrayList<Serializable[]>(0)));
+      }
+    } else {
+      // Set query results into the broker response.
+      if (_brokerRequest.isSetSelections()) {
+        // Selection query.
+        if (!_droppedServers.isEmpty()) {
+          String errorMessage =
+              QueryException.MERGE_RESPONSE_ERROR.getMessage() + ": responses for table: " + tableName
+                  + " from servers: " + _droppedServers + " got dropped due to data schema inconsistency.";
+          LOGGER.error(errorMessage);
+          if (_brokerMetrics != null) {
+            _brokerMetrics.addMeteredTableValue(tableName, BrokerMeter.RESPONSE_MERGE_EXCEPTIONS, 1);
+          }
+          _brokerResponseNative.addToExceptions(
+              new QueryProcessingException(QueryException.MERGE_RESPONSE_ERROR_CODE, errorMessage));
+        }
+        setSelectionResults();
+      } else {
+        // Aggregation query.
+        if (!_brokerRequest.isSetGroupBy()) {
+          // Aggregation only query.
+          setAggregationResults();
+        } else {
+          // Aggregation group-by query.
+          setGroupByResults(_brokerRequest.getGroupBy());
+        }
+      }
+    }
+
+    return _brokerResponseNative;
+  }
+
+  /**
+   * Set the reduced selection results into the broker response.
+   */
+  private void setSelectionResults() {
+    SelectionResults selectionResults;
+    if (_selectionService != null) {
+      // Selection order-by.
+      selectionResults = _selectionService.renderSelectionResultsWithOrdering();
+    } else {
+      // Selection only.
+      selectionResults =
+          SelectionOperatorUtils.renderSelectionResultsWithoutOrdering(_selectionRows, _masterDataSchema,
+              SelectionOperatorUtils.getSelectionColumns(_brokerRequest.getSelections().getSelectionColumns(),
+                  _masterDataSchema));
+    }
+    _brokerResponseNative.setSelectionResults(selectionResults);
+  }
+
+  /**
+   * Extract the final aggregation results and set them into the broker response.
+   */
+  @SuppressWarnings("unchecked")
+  private void setAggregationResults() {
+    int numAggregationFunctions = _aggregationFunctions.length;
+    List<AggregationResult> reducedAggregationResults = new ArrayList<>(numAggregationFunctions);
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      String formattedResult =
+          AggregationFunctionUtils.formatValue(_aggregationFunctions[i].extractFinalResult(_intermediateResults[i]));
+      reducedAggregationResults.add(new AggregationResult(_cachedDataSchema.getColumnName(i), formattedResult));
+    }
+    _brokerResponseNative.setAggregationResults(reducedAggregationResults);
+  }
+
+  /**
+   * Extract the final group-by results, trim them to topN and set them into the broker response.
+   *
+   * @param groupBy group-by information.
+   */
+  @SuppressWarnings("unchecked")
+  private void setGroupByResults(@Nonnull GroupBy groupBy) {
+    int numAggregationFunctions = _aggregationFunctions.length;
+
+    // Extract final result maps from the merged intermediate result maps.
+    Map<String, Comparable>[] finalResultMaps = new Map[numAggregationFunctions];
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      Map<String, Object> intermediateResultMap = _intermediateResultMaps[i];
+      Map<String, Comparable> finalResultMap = new HashMap<>(intermediateResultMap.size());
+      for (Map.Entry<String, Object> entry : intermediateResultMap.entrySet()) {
+        finalResultMap.put(entry.getKey(), _aggregationFunctions[i].extractFinalResult(entry.getValue()));
+      }
+      finalResultMaps[i] = finalResultMap;
+    }
+
+    // Trim the final result maps to topN and set them into the broker response.
+    AggregationGroupByTrimmingService aggregationGroupByTrimmingService =
+        new AggregationGroupByTrimmingService(_aggregationFunctions, (int) groupBy.getTopN());
+    List<GroupByResult>[] groupByResultLists = aggregationGroupByTrimmingService.trimFinalResults(finalResultMaps);
+    List<AggregationResult> aggregationResults = new ArrayList<>(numAggregationFunctions);
+    List<String> groupByColumns = groupBy.getExpressions();
+    if (groupByColumns == null) {
+      groupByColumns = groupBy.getColumns();
+    }
+    for (int i = 0; i < numAggregationFunctions; i++) {
+      aggregationResults.add(new AggregationResult(groupByResultLists[i], groupByColumns, _groupByColumnNames[i]));
+    }
+    _brokerResponseNative.setAggregationResults(aggregationResults);
+  }
+}
@@ -0,0 +1,352 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.scheduler;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMeter;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.metrics.ServerQueryPhase;
+import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.common.query.QueryRequest;
+import com.linkedin.pinot.common.response.ProcessingException;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.annotation.Nonnull;
+import org.apache.commons.configuration.Configuration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * Query scheduler with weighted fair sharing across tables.
+ *
+ * Each table has its own bounded queue of pending queries, ordered by query deadline (arrival time plus the table
+ * query timeout). A dispatcher thread picks the next query from the table that has used the least weighted runner
+ * time so far, so that a burst of expensive queries on one table can not starve the queries on other tables.
+ *
+ * Configurations (under 'pinot.query.scheduler'):
+ * 'max_pending_queries_per_table' : queries beyond this limit are rejected with
+ * {@link QueryException#SERVER_OUT_OF_CAPACITY_ERROR}. (default: 100)
+ * 'max_running_queries_per_table' : maximum number of queries of one table running at the same time.
+ * (default: half of the query runner threads)
+ * 'table_weight.&lt;tableName&gt;' : share of the query runner time for the table relative to other tables. (default: 1)
+ */
+public class FairShareQueryScheduler extends QueryScheduler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FairShareQueryScheduler.class);
+
+  public static final String MAX_PENDING_QUERIES_PER_TABLE_CONFIG_KEY = "max_pending_queries_per_table";
+  public static final String MAX_RUNNING_QUERIES_PER_TABLE_CONFIG_KEY = "max_running_queries_per_table";
+  public static final String TABLE_WEIGHT_CONFIG_PREFIX = "table_weight";
+  public static final int DEFAULT_MAX_PENDING_QUERIES_PER_TABLE = 100;
+  public static final int DEFAULT_TABLE_WEIGHT = 1;
+
+  private final int _maxPendingQueriesPerTable;
+  private final int _maxRunningQueriesPerTable;
+  private final Configuration _tableWeightConfig;
+
+  private final ReentrantLock _lock = new ReentrantLock();
+  private final Condition _schedulable = _lock.newCondition();
+  // Only contains tables with pending or running queries, guarded by _lock
+  private final Map<String, TableQueue> _tableQueues = new HashMap<>();
+  private int _numRunningQueries = 0;
+  private long _sequenceId = 0L;
+
+  private final Thread _dispatcher;
+  private volatile boolean _isStopped = false;
+
+  public FairShareQueryScheduler(@Nonnull Configuration schedulerConfig, @Nonnull QueryExecutor queryExecutor) {
+    super(schedulerConfig, queryExecutor);
+
+    _maxPendingQueriesPerTable =
+        schedulerConfig.getInt(MAX_PENDING_QUERIES_PER_TABLE_CONFIG_KEY, DEFAULT_MAX_PENDING_QUERIES_PER_TABLE);
+    _maxRunningQueriesPerTable =
+        schedulerConfig.getInt(MAX_RUNNING_QUERIES_PER_TABLE_CONFIG_KEY, Math.max(1, numQueryRunnerThreads / 2));
+    Preconditions.checkArgument(_maxPendingQueriesPerTable > 0 && _maxRunningQueriesPerTable > 0,
+        "Max pending and running queries per table must be positive");
+    _tableWeightConfig = schedulerConfig.subset(TABLE_WEIGHT_CONFIG_PREFIX);
+    LOGGER.info("Initializing with {} max pending queries and {} max running queries per table",
+        _maxPendingQueriesPerTable, _maxRunningQueriesPerTable);
+
+    _dispatcher = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        dispatchQueries();
+      }
+    }, "pqs-dispatcher");
+    _dispatcher.setDaemon(true);
+    _dispatcher.start();
+  }
+
+  @Override
+  public ListenableFuture<DataTable> submit(@Nonnull QueryRequest queryRequest) {
+    Preconditions.checkNotNull(queryRequest);
+
+    queryRequest.getTimerContext().startNewPhaseTimer(ServerQueryPhase.SCHEDULER_WAIT);
+    SettableFuture<DataTable> queryResultFuture = SettableFuture.create();
+    String tableName = queryRequest.getTableName();
+    long deadlineNs = getDeadlineNs(queryRequest, tableName);
+
+    _lock.lock();
+    try {
+      if (_isStopped) {
+        LOGGER.warn("Rejecting query for table: {}, scheduler is stopped", tableName);
+        queryResultFuture.set(errorDataTable(QueryException.INTERNAL_ERROR));
+        return queryResultFuture;
+      }
+      TableQueue tableQueue = _tableQueues.get(tableName);
+      if (tableQueue == null) {
+        tableQueue = new TableQueue(getTableWeight(tableName), getMinUsedTimeNs());
+        _tableQueues.put(tableName, tableQueue);
+      }
+      if (tableQueue._pendingQueries.size() >= _maxPendingQueriesPerTable) {
+        LOGGER.warn("Rejecting query for table: {}, {} queries already pending", tableName,
+            tableQueue._pendingQueries.size());
+        markMeter(queryRequest, ServerMeter.SCHEDULER_REJECTED_QUERIES);
+        queryResultFuture.set(errorDataTable(QueryException.SERVER_OUT_OF_CAPACITY_ERROR));
+        return queryResultFuture;
+      }
+      tableQueue._pendingQueries.add(new PendingQuery(queryRequest, queryResultFuture, deadlineNs, _sequenceId++));
+      _schedulable.signal();
+    } finally {
+      _lock.unlock();
+    }
+    return queryResultFuture;
+  }
+
+  private long getDeadlineNs(QueryRequest queryRequest, String tableName) {
+    long timeOutMs = queryExecutor.getTimeOutMs(tableName);
+    if (timeOutMs <= 0) {
+      return Long.MAX_VALUE;
+    }
+    long arrivalTimeNs = queryRequest.getTimerContext().getQueryArrivalTimeNs();
+    if (arrivalTimeNs <= 0) {
+      arrivalTimeNs = System.nanoTime();
+    }
+    return arrivalTimeNs + TimeUnit.MILLISECONDS.toNanos(timeOutMs);
+  }
+
+  private int getTableWeight(String tableName) {
+    int weight = _tableWeightConfig.getInt(tableName, DEFAULT_TABLE_WEIGHT);
+    return Math.max(1, weight);
+  }
+
+  /**
+   * New tables start from the minimum used time of the active tables so that they neither get an unbounded credit
+   * over nor fall behind the existing tables.
+   */
+  private long getMinUsedTimeNs() {
+    long minUsedTimeNs = Long.MAX_VALUE;
+    for (TableQueue tableQueue : _tableQueues.values()) {
+      minUsedTimeNs = Math.min(minUsedTimeNs, tableQueue._usedTimeNs);
+    }
+    return (minUsedTimeNs == Long.MAX_VALUE) ? 0L : minUsedTimeNs;
+  }
+
+  /**
+   * Stops the dispatcher thread and fails all the pending queries. Queries already running are allowed to finish.
+   */
+  @Override
+  public void stop() {
+    _lock.lock();
+    try {
+      _isStopped = true;
+      _schedulable.signal();
+    } finally {
+      _lock.unlock();
+    }
+    _dispatcher.interrupt();
+    try {
+      _dispatcher.join();
+    } catch (InterruptedException e) {
+      LOGGER.warn("Interrupted while waiting for the query dispatcher to exit");
+      Thread.currentThread().interrupt();
+    }
+
+    _lock.lock();
+    try {
+      for (TableQueue tableQueue : _tableQueues.values()) {
+        PendingQuery pendingQuery;
+        while ((pendingQuery = tableQueue._pendingQueries.poll()) != null) {
+          pendingQuery._resultFuture.set(errorDataTable(QueryException.INTERNAL_ERROR));
+        }
+      }
+    } finally {
+      _lock.unlock();
+    }
+    super.stop();
+  }
+
+  private void dispatchQueries() {
+    while (true) {
+      PendingQuery pendingQuery;
+      TableQueue tableQueue;
+      _lock.lock();
+      try {
+        while (true) {
+          if (_isStopped) {
+            LOGGER.info("Query dispatcher stopped, exiting");
+            return;
+          }
+          tableQueue = nextTableQueue();
+          if (tableQueue != null) {
+            break;
+          }
+          _schedulable.await();
+        }
+        pendingQuery = tableQueue._pendingQueries.poll();
+        tableQueue._numRunningQueries++;
+        _numRunningQueries++;
+      } catch (InterruptedException e) {
+        LOGGER.info("Query dispatcher interrupted, exiting");
+        return;
+      } finally {
+        _lock.unlock();
+      }
+      runQuery(pendingQuery, tableQueue);
+    }
+  }
+
+  /**
+   * Returns the table queue to run the next query from, or null if no query can be run now. Should be called with the
+   * lock held.
+   */
+  private TableQueue nextTableQueue() {
+    if (_numRunningQueries >= numQueryRunnerThreads) {
+      return null;
+    }
+    TableQueue nextTableQueue = null;
+    for (TableQueue tableQueue : _tableQueues.values()) {
+      if (tableQueue._pendingQueries.isEmpty() || tableQueue._numRunningQueries >= _maxRunningQueriesPerTable) {
+        continue;
+      }
+      if (nextTableQueue == null || tableQueue._usedTimeNs < nextTableQueue._usedTimeNs || (
+          tableQueue._usedTimeNs == nextTableQueue._usedTimeNs
+              && tableQueue._pendingQueries.peek()._deadlineNs < nextTableQueue._pendingQueries.peek()._deadlineNs)) {
+        nextTableQueue = tableQueue;
+      }
+    }
+    return nextTableQueue;
+  }
+
+  private void runQuery(final PendingQuery pendingQuery, final TableQueue tableQueue) {
+    final QueryRequest queryRequest = pendingQuery._queryRequest;
+    if (System.nanoTime() > pendingQuery._deadlineNs) {
+      // No point in running the query as the broker has already given up on it
+      LOGGER.warn("Query for table: {} timed out in scheduler queue", queryRequest.getTableName());
+      markMeter(queryRequest, ServerMeter.SCHEDULER_TIMED_OUT_QUERIES);
+      pendingQuery._resultFuture.set(errorDataTable(QueryException.EXECUTION_TIMEOUT_ERROR));
+      onQueryFinished(tableQueue, 0L);
+      return;
+    }
+
+    try {
+      queryRunners.submit(new Runnable() {
+        @Override
+        public void run() {
+          long startTimeNs = System.nanoTime();
+          try {
+            pendingQuery._resultFuture.set(queryExecutor.processQuery(queryRequest, queryWorkers));
+          } catch (Throwable t) {
+            pendingQuery._resultFuture.setException(t);
+          } finally {
+            onQueryFinished(tableQueue, System.nanoTime() - startTimeNs);
+          }
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      LOGGER.error("Query runners rejected query for table: {}", queryRequest.getTableName(), e);
+      pendingQuery._resultFuture.set(errorDataTable(QueryException.INTERNAL_ERROR));
+      onQueryFinished(tableQueue, 0L);
+    }
+  }
+
+  private void onQueryFinished(TableQueue tableQueue, long runTimeNs) {
+    _lock.lock();
+    try {
+      tableQueue._numRunningQueries--;
+      tableQueue._usedTimeNs += runTimeNs / tableQueue._weight;
+      _numRunningQueries--;
+      if (tableQueue.isIdle()) {
+        _tableQueues.values().remove(tableQueue);
+      }
+      _schedulable.signal();
+    } finally {
+      _lock.unlock();
+    }
+  }
+
+  private static void markMeter(QueryRequest queryRequest, ServerMeter meter) {
+    ServerMetrics serverMetrics = queryRequest.getServerMetrics();
+    if (serverMetrics != null) {
+      serverMetrics.addMeteredTableValue(queryRequest.getTableName(), meter, 1);
+    }
+  }
+
+  private static DataTable errorDataTable(ProcessingException exception) {
+    DataTable dataTable = new DataTableImplV2();
+    dataTable.addException(exception);
+    return dataTable;
+  }
+
+  private static class TableQueue {
+    final PriorityQueue<PendingQuery> _pendingQueries = new PriorityQueue<>();
+    final int _weight;
+    int _numRunningQueries = 0;
+    // Query runner time used by the table divided by the table weight
+    long _usedTimeNs;
+
+    TableQueue(int weight, long usedTimeNs) {
+      _weight = weight;
+      _usedTimeNs = usedTimeNs;
+    }
+
+    boolean isIdle() {
+      return _pendingQueries.isEmpty() && _numRunningQueries == 0;
+    }
+  }
+
+  private static class PendingQuery implements Comparable<PendingQuery> {
+    final QueryRequest _queryRequest;
+    final SettableFuture<DataTable> _resultFuture;
+    final long _deadlineNs;
+    final long _sequenceId;
+
+    PendingQuery(QueryRequest queryRequest, SettableFuture<DataTable> resultFuture, long deadlineNs, long sequenceId) {
+      _queryRequest = queryRequest;
+      _resultFuture = resultFuture;
+      _deadlineNs = deadlineNs;
+      _sequenceId = sequenceId;
+    }
+
+    @Override
+    public int compareTo(PendingQuery o) {
+      if (_deadlineNs != o._deadlineNs) {
+        return (_deadlineNs < o._deadlineNs) ? -1 : 1;
+      }
+      return Long.compare(_sequenceId, o._sequenceId);
+    }
+  }
+}
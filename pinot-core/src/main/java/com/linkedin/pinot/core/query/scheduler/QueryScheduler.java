@@ -123,4 +123,13 @@ public abstract class QueryScheduler {
   }
 
   public ExecutorService getWorkerExecutorService() { return queryWorkers; }
+
+  /**
+   * Stops accepting new work on the query runner and worker pools. Queries already running are allowed to finish.
+   */
+  public void stop() {
+    LOGGER.info("Stopping query runner and worker threads");
+    queryRunners.shutdown();
+    queryWorkers.shutdown();
+  }
 }
@@ -28,6 +28,7 @@ import org.slf4j.LoggerFactory;
 
 public class QuerySchedulerFactory {
   private static final String FCFS_ALGORITHM = "fcfs";
+  private static final String FAIR_SHARE_ALGORITHM = "fairshare";
   private static final String DEFAULT_QUERY_SCHEDULER_ALGORITHM = FCFS_ALGORITHM;
   private static final String ALGORITHM_NAME_CONFIG_KEY = "name";
   private static Logger LOGGER = LoggerFactory.getLogger(QuerySchedulerFactory.class);
@@ -52,6 +53,10 @@ public class QuerySchedulerFactory {
       LOGGER.info("Using FCFS query scheduler");
       return new FCFSQueryScheduler(schedulerConfig, queryExecutor);
     }
+    if (schedulerName.equals(FAIR_SHARE_ALGORITHM)) {
+      LOGGER.info("Using fair share query scheduler");
+      return new FairShareQueryScheduler(schedulerConfig, queryExecutor);
+    }
 
     // didn't find by name so try by classname
     QueryScheduler scheduler = getQuerySchedulerByClassName(schedulerName, schedulerConfig, queryExecutor);
@@ -297,11 +297,21 @@ public class SelectionOperatorService {
    */
   public void reduceWithOrdering(@Nonnull Map<ServerInstance, DataTable> selectionResults) {
     for (DataTable dataTable : selectionResults.values()) {
-      int numRows = dataTable.getNumberOfRows();
-      for (int rowId = 0; rowId < numRows; rowId++) {
-        Serializable[] row = SelectionOperatorUtils.extractRowFromDataTable(dataTable, rowId);
-        SelectionOperatorUtils.addToPriorityQueue(row, _rows, _maxNumRows);
-      }
+      reduceWithOrdering(dataTable);
+    }
+  }
+
+  /**
+   * Reduce one {@link DataTable} to selection rows for selection queries with <code>ORDER BY</code>, so that data tables
+   * can be reduced one at a time as they are gathered. (Broker side)
+   *
+   * @param dataTable {@link DataTable} to reduce.
+   */
+  public void reduceWithOrdering(@Nonnull DataTable dataTable) {
+    int numRows = dataTable.getNumberOfRows();
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      Serializable[] row = SelectionOperatorUtils.extractRowFromDataTable(dataTable, rowId);
+      SelectionOperatorUtils.addToPriorityQueue(row, _rows, _maxNumRows);
     }
   }
 
@@ -24,6 +24,8 @@ import com.linkedin.pinot.common.utils.DataSchema;
 import com.linkedin.pinot.common.utils.DataTable;
 import com.linkedin.pinot.core.common.DataSourceMetadata;
 import com.linkedin.pinot.core.common.datatable.DataTableBuilder;
+import com.linkedin.pinot.core.common.datatable.DataTableFactory;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV3;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import java.io.Serializable;
 import java.text.DecimalFormat;
@@ -229,9 +231,27 @@ public class SelectionOperatorUtils {
   @Nonnull
   public static DataTable getDataTableFromRows(@Nonnull Collection<Serializable[]> rows, @Nonnull DataSchema dataSchema)
       throws Exception {
+    return getDataTableFromRows(rows, dataSchema, DataTableFactory.VERSION_2, DataTableImplV3.CompressionCodec.NONE);
+  }
+
+  /**
+   * Build a {@link DataTable} of the given version from a {@link Collection} of selection rows with {@link DataSchema}.
+   * (Server side)
+   *
+   * @param rows {@link Collection} of selection rows.
+   * @param dataSchema data schema.
+   * @param version data table version.
+   * @param compressionCodec compression codec for the column blocks of version 3 data table.
+   * @return data table.
+   * @throws Exception
+   */
+  @Nonnull
+  public static DataTable getDataTableFromRows(@Nonnull Collection<Serializable[]> rows, @Nonnull DataSchema dataSchema,
+      int version, @Nonnull DataTableImplV3.CompressionCodec compressionCodec)
+      throws Exception {
     int numColumns = dataSchema.size();
 
-    DataTableBuilder dataTableBuilder = new DataTableBuilder(dataSchema);
+    DataTableBuilder dataTableBuilder = new DataTableBuilder(dataSchema, version, compressionCodec);
     for (Serializable[] row : rows) {
       dataTableBuilder.startRow();
       for (int i = 0; i < numColumns; i++) {
@@ -393,18 +413,30 @@ public class SelectionOperatorUtils {
       int selectionSize) {
     List<Serializable[]> rows = new ArrayList<>(selectionSize);
     for (DataTable dataTable : selectionResults.values()) {
-      int numRows = dataTable.getNumberOfRows();
-      for (int rowId = 0; rowId < numRows; rowId++) {
-        if (rows.size() < selectionSize) {
-          rows.add(extractRowFromDataTable(dataTable, rowId));
-        } else {
-          return rows;
-        }
+      if (rows.size() >= selectionSize) {
+        break;
       }
+      reduceWithoutOrdering(rows, dataTable, selectionSize);
     }
     return rows;
   }
 
+  /**
+   * Reduce one {@link DataTable} into the selection rows for selection queries without <code>ORDER BY</code>, so that
+   * data tables can be reduced one at a time as they are gathered. (Broker side)
+   *
+   * @param rows unformatted selection rows to add to.
+   * @param dataTable {@link DataTable} to reduce.
+   * @param selectionSize maximum number of rows.
+   */
+  public static void reduceWithoutOrdering(@Nonnull List<Serializable[]> rows, @Nonnull DataTable dataTable,
+      int selectionSize) {
+    int numRows = dataTable.getNumberOfRows();
+    for (int rowId = 0; rowId < numRows && rows.size() < selectionSize; rowId++) {
+      rows.add(extractRowFromDataTable(dataTable, rowId));
+    }
+  }
+
   /**
    * Render the unformatted selection rows to a formatted {@link SelectionResults} object for selection queries without
    * <code>ORDER BY</code>. (Broker side)
@@ -16,6 +16,7 @@
 package com.linkedin.pinot.core.query.utils;
 
 import com.linkedin.pinot.common.data.MetricFieldSpec;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import com.linkedin.pinot.common.segment.StarTreeMetadata;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import com.linkedin.pinot.core.startree.hll.HllConstants;
@@ -218,4 +219,10 @@ public class SimpleSegmentMetadata implements SegmentMetadata {
   public String getDerivedColumn(String column, MetricFieldSpec.DerivedMetricType derivedMetricType) {
     return null;
   }
+
+  @Nullable
+  @Override
+  public SegmentPartitionMetadata getPartitionMetadata() {
+    return null;
+  }
 }
@@ -0,0 +1,333 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.converter;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
+import com.linkedin.pinot.core.segment.creator.ColumnStatistics;
+import com.linkedin.pinot.core.segment.creator.ColumnarSegmentSource;
+import com.linkedin.pinot.core.segment.creator.SegmentCreator;
+import java.lang.reflect.Array;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * {@link ColumnarSegmentSource} over the in-memory indexes of a consuming realtime segment, used to convert it into an
+ * immutable segment without reading it row by row.
+ * <ul>
+ *   <li>The statistics of each column are derived from its dictionary: the unique values are sorted once, and each
+ *   realtime dictionary id is mapped to the index of its value in the sorted values.</li>
+ *   <li>The documents are indexed column by column from the forward indexes, remapping the dictionary ids through the
+ *   mapping above instead of looking up each raw value.</li>
+ *   <li>If a sorted column is set, the documents are ordered by it with a counting sort over its value ids.</li>
+ * </ul>
+ */
+public class RealtimeSegmentColumnarSource implements ColumnarSegmentSource {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final RealtimeSegmentImpl _realtimeSegment;
+  private final Schema _schema;
+  private final int _numDocs;
+  // Map from realtime dictionary id to the index of the value in the sorted unique values, for each column
+  private final Map<String, int[]> _valueIdMappings = new HashMap<>();
+  private final Map<String, RealtimeColumnStatistics> _columnStatisticsMap = new HashMap<>();
+  // Realtime document ids in the order of the converted segment, null if the order is unchanged
+  private final int[] _docIds;
+
+  public RealtimeSegmentColumnarSource(RealtimeSegmentImpl realtimeSegment, Schema schema, String sortedColumn) {
+    _realtimeSegment = realtimeSegment;
+    _schema = schema;
+    _numDocs = realtimeSegment.getAggregateDocumentCount();
+
+    Map<String, Object> sortedValuesMap = new HashMap<>();
+    for (FieldSpec fieldSpec : schema.getAllFieldSpecs()) {
+      String column = fieldSpec.getName();
+      sortedValuesMap.put(column, sortValues(fieldSpec, realtimeSegment.getDictionary(column)));
+    }
+
+    if (sortedColumn != null) {
+      if (!schema.getFieldSpecFor(sortedColumn).isSingleValueField()) {
+        throw new IllegalArgumentException("Sorted column " + sortedColumn + " must be single-value");
+      }
+      _docIds = getDocIdsSortedOn(sortedColumn);
+    } else {
+      _docIds = null;
+    }
+
+    for (FieldSpec fieldSpec : schema.getAllFieldSpecs()) {
+      String column = fieldSpec.getName();
+      _columnStatisticsMap.put(column, buildStatistics(fieldSpec, sortedValuesMap.get(column)));
+    }
+  }
+
+  /**
+   * Returns the sorted unique values of the column in the primitive array type expected by the dictionary creator, and
+   * stores the mapping from the realtime dictionary ids to the indexes of the values.
+   */
+  private Object sortValues(FieldSpec fieldSpec, MutableDictionaryReader dictionary) {
+    int cardinality = dictionary.length();
+    int[] valueIdMapping = new int[cardinality];
+    _valueIdMappings.put(fieldSpec.getName(), valueIdMapping);
+
+    switch (fieldSpec.getDataType()) {
+      case INT: {
+        int[] values = new int[cardinality];
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          values[dictId] = dictionary.getIntValue(dictId);
+        }
+        int[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          valueIdMapping[dictId] = Arrays.binarySearch(sortedValues, values[dictId]);
+        }
+        return sortedValues;
+      }
+      case LONG: {
+        long[] values = new long[cardinality];
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          values[dictId] = dictionary.getLongValue(dictId);
+        }
+        long[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          valueIdMapping[dictId] = Arrays.binarySearch(sortedValues, values[dictId]);
+        }
+        return sortedValues;
+      }
+      case FLOAT: {
+        float[] values = new float[cardinality];
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          values[dictId] = dictionary.getFloatValue(dictId);
+        }
+        float[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          valueIdMapping[dictId] = Arrays.binarySearch(sortedValues, values[dictId]);
+        }
+        return sortedValues;
+      }
+      case DOUBLE: {
+        double[] values = new double[cardinality];
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          values[dictId] = dictionary.getDoubleValue(dictId);
+        }
+        double[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          valueIdMapping[dictId] = Arrays.binarySearch(sortedValues, values[dictId]);
+        }
+        return sortedValues;
+      }
+      case STRING:
+      case BOOLEAN: {
+        String[] values = new String[cardinality];
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          values[dictId] = dictionary.get(dictId).toString();
+        }
+        String[] sortedValues = values.clone();
+        Arrays.sort(sortedValues);
+        for (int dictId = 0; dictId < cardinality; dictId++) {
+          valueIdMapping[dictId] = Arrays.binarySearch(sortedValues, values[dictId]);
+        }
+        return sortedValues;
+      }
+      default:
+        throw new UnsupportedOperationException(
+            "Unsupported data type: " + fieldSpec.getDataType() + " for column: " + fieldSpec.getName());
+    }
+  }
+
+  /**
+   * Counting sort of the documents on the value ids of the column. Documents with the same value keep their original
+   * order.
+   */
+  private int[] getDocIdsSortedOn(String column) {
+    int[] valueIdMapping = _valueIdMappings.get(column);
+    int[] valueIds = new int[_numDocs];
+    int[] docIdOffsets = new int[valueIdMapping.length + 1];
+    for (int docId = 0; docId < _numDocs; docId++) {
+      int valueId = valueIdMapping[_realtimeSegment.getDictId(column, docId)];
+      valueIds[docId] = valueId;
+      docIdOffsets[valueId + 1]++;
+    }
+    for (int i = 1; i < docIdOffsets.length; i++) {
+      docIdOffsets[i] += docIdOffsets[i - 1];
+    }
+    int[] docIds = new int[_numDocs];
+    for (int docId = 0; docId < _numDocs; docId++) {
+      docIds[docIdOffsets[valueIds[docId]]++] = docId;
+    }
+    return docIds;
+  }
+
+  private RealtimeColumnStatistics buildStatistics(FieldSpec fieldSpec, Object sortedValues) {
+    String column = fieldSpec.getName();
+    int[] valueIdMapping = _valueIdMappings.get(column);
+    RealtimeColumnStatistics statistics = new RealtimeColumnStatistics(fieldSpec, sortedValues);
+
+    if (fieldSpec.isSingleValueField()) {
+      statistics._totalNumberOfEntries = _numDocs;
+      int previousValueId = -1;
+      for (int i = 0; i < _numDocs; i++) {
+        int valueId = valueIdMapping[_realtimeSegment.getDictId(column, getDocId(i))];
+        if (valueId < previousValueId) {
+          statistics._isSorted = false;
+          break;
+        }
+        previousValueId = valueId;
+      }
+    } else {
+      int[] dictIds = new int[_realtimeSegment.getMaxNumberOfMultiValues(column)];
+      int totalNumberOfEntries = 0;
+      for (int docId = 0; docId < _numDocs; docId++) {
+        totalNumberOfEntries += _realtimeSegment.getDictIds(column, docId, dictIds);
+      }
+      statistics._totalNumberOfEntries = totalNumberOfEntries;
+      statistics._maxNumberOfMultiValues = dictIds.length;
+      statistics._isSorted = false;
+    }
+
+    if (sortedValues instanceof String[]) {
+      int lengthOfLargestElement = 0;
+      for (String value : (String[]) sortedValues) {
+        lengthOfLargestElement = Math.max(lengthOfLargestElement, value.getBytes(UTF_8).length);
+      }
+      statistics._lengthOfLargestElement = lengthOfLargestElement;
+    }
+    return statistics;
+  }
+
+  private int getDocId(int index) {
+    return _docIds == null ? index : _docIds[index];
+  }
+
+  @Override
+  public Schema getSchema() {
+    return _schema;
+  }
+
+  @Override
+  public int getNumDocs() {
+    return _numDocs;
+  }
+
+  @Override
+  public ColumnStatistics getColumnStatistics(String column) {
+    return _columnStatisticsMap.get(column);
+  }
+
+  @Override
+  public void indexColumns(SegmentCreator indexCreator) {
+    for (FieldSpec fieldSpec : _schema.getAllFieldSpecs()) {
+      String column = fieldSpec.getName();
+      int[] valueIdMapping = _valueIdMappings.get(column);
+
+      if (fieldSpec.isSingleValueField()) {
+        int[] valueIds = new int[_numDocs];
+        for (int i = 0; i < _numDocs; i++) {
+          valueIds[i] = valueIdMapping[_realtimeSegment.getDictId(column, getDocId(i))];
+        }
+        indexCreator.indexColumn(column, valueIds);
+      } else {
+        int[] dictIds = new int[_realtimeSegment.getMaxNumberOfMultiValues(column)];
+        int[][] valueIds = new int[_numDocs][];
+        for (int i = 0; i < _numDocs; i++) {
+          int numValues = _realtimeSegment.getDictIds(column, getDocId(i), dictIds);
+          int[] docValueIds = new int[numValues];
+          for (int j = 0; j < numValues; j++) {
+            docValueIds[j] = valueIdMapping[dictIds[j]];
+          }
+          valueIds[i] = docValueIds;
+        }
+        indexCreator.indexColumn(column, valueIds);
+      }
+    }
+  }
+
+  /**
+   * Statistics of one column, computed upfront from the realtime segment instead of collected from the rows.
+   */
+  private static class RealtimeColumnStatistics implements ColumnStatistics {
+    private final FieldSpec _fieldSpec;
+    private final Object _sortedValues;
+    private final int _cardinality;
+    private boolean _isSorted = true;
+    private int _totalNumberOfEntries;
+    private int _maxNumberOfMultiValues;
+    private int _lengthOfLargestElement = -1;
+
+    RealtimeColumnStatistics(FieldSpec fieldSpec, Object sortedValues) {
+      _fieldSpec = fieldSpec;
+      _sortedValues = sortedValues;
+      _cardinality = Array.getLength(sortedValues);
+    }
+
+    @Override
+    public Object getMinValue() {
+      return _cardinality > 0 ? Array.get(_sortedValues, 0) : null;
+    }
+
+    @Override
+    public Object getMaxValue() {
+      return _cardinality > 0 ? Array.get(_sortedValues, _cardinality - 1) : null;
+    }
+
+    @Override
+    public Object getUniqueValuesSet() {
+      return _sortedValues;
+    }
+
+    @Override
+    public int getCardinality() {
+      return _cardinality;
+    }
+
+    @Override
+    public int getLengthOfLargestElement() {
+      return _lengthOfLargestElement;
+    }
+
+    @Override
+    public boolean isSorted() {
+      return _fieldSpec.isSingleValueField() && _isSorted;
+    }
+
+    @Override
+    public int getTotalNumberOfEntries() {
+      return _totalNumberOfEntries;
+    }
+
+    @Override
+    public int getMaxNumberOfMultiValues() {
+      return _maxNumberOfMultiValues;
+    }
+
+    @Override
+    public int getNumInputNullValues() {
+      return 0;
+    }
+
+    @Override
+    public boolean hasNull() {
+      return false;
+    }
+  }
+}
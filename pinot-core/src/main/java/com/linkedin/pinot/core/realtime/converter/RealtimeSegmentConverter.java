@@ -19,6 +19,8 @@ import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
+import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.TimeFieldSpec;
 import com.linkedin.pinot.common.data.TimeGranularitySpec;
@@ -38,9 +40,12 @@ public class RealtimeSegmentConverter {
   private String segmentName;
   private String sortedColumn;
   private List<String> invertedIndexColumns;
+  private List<String> bloomFilterColumns;
+  private SegmentPartitionConfig segmentPartitionConfig;
 
   public RealtimeSegmentConverter(RealtimeSegmentImpl realtimeSegment, String outputPath, Schema schema,
-      String tableName, String segmentName, String sortedColumn, List<String> invertedIndexColumns) {
+      String tableName, String segmentName, String sortedColumn, List<String> invertedIndexColumns,
+      List<String> bloomFilterColumns, SegmentPartitionConfig segmentPartitionConfig) {
     if (new File(outputPath).exists()) {
       throw new IllegalAccessError("path already exists:" + outputPath);
     }
@@ -65,10 +70,17 @@ public class RealtimeSegmentConverter {
     if (sortedColumn != null && this.invertedIndexColumns.contains(sortedColumn)) {
       this.invertedIndexColumns.remove(sortedColumn);
     }
+    this.bloomFilterColumns = bloomFilterColumns;
     this.dataSchema = newSchema;
     this.sortedColumn = sortedColumn;
     this.tableName = tableName;
     this.segmentName = segmentName;
+    this.segmentPartitionConfig = segmentPartitionConfig;
+  }
+
+  public RealtimeSegmentConverter(RealtimeSegmentImpl realtimeSegment, String outputPath, Schema schema,
+      String tableName, String segmentName, String sortedColumn, List<String> invertedIndexColumns) {
+    this(realtimeSegment, outputPath, schema, tableName, segmentName, sortedColumn, invertedIndexColumns, null, null);
   }
 
   public RealtimeSegmentConverter(RealtimeSegmentImpl realtimeSegment, String outputPath, Schema schema,
@@ -77,28 +89,56 @@ public class RealtimeSegmentConverter {
   }
 
   public void build(SegmentVersion segmentVersion) throws Exception {
-    // lets create a record reader
-    RecordReader reader;
-
-    if (sortedColumn == null) {
-      reader = new RealtimeSegmentRecordReader(realtimeSegmentImpl, dataSchema);
-    } else {
-      reader = new RealtimeSegmentRecordReader(realtimeSegmentImpl, dataSchema, sortedColumn);
-    }
     SegmentGeneratorConfig genConfig = new SegmentGeneratorConfig(dataSchema);
     if (invertedIndexColumns != null && !invertedIndexColumns.isEmpty()) {
       for (String column : invertedIndexColumns) {
         genConfig.createInvertedIndexForColumn(column);
       }
     }
+    if (bloomFilterColumns != null && !bloomFilterColumns.isEmpty()) {
+      genConfig.setBloomFilterCreationColumns(bloomFilterColumns);
+    }
     genConfig.setTimeColumnName(dataSchema.getTimeFieldSpec().getOutgoingTimeColumnName());
     genConfig.setSegmentTimeUnit(dataSchema.getTimeFieldSpec().getOutgoingGranularitySpec().getTimeType());
     genConfig.setSegmentVersion(segmentVersion);
     genConfig.setTableName(tableName);
     genConfig.setOutDir(outputPath);
     genConfig.setSegmentName(segmentName);
+    genConfig.setSegmentPartitionConfig(segmentPartitionConfig);
     final SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
-    driver.init(genConfig, reader);
+
+    if (canBuildFromColumns()) {
+      // Build the segment directly from the dictionaries and forward indexes of the realtime segment
+      driver.init(genConfig, new RealtimeSegmentColumnarSource(realtimeSegmentImpl, dataSchema, sortedColumn));
+    } else {
+      // lets create a record reader
+      RecordReader reader;
+
+      if (sortedColumn == null) {
+        reader = new RealtimeSegmentRecordReader(realtimeSegmentImpl, dataSchema);
+      } else {
+        reader = new RealtimeSegmentRecordReader(realtimeSegmentImpl, dataSchema, sortedColumn);
+      }
+      driver.init(genConfig, reader);
+    }
     driver.build();
   }
+
+  /**
+   * Returns true if all the columns of the converted schema are stored in the realtime segment under the same name, so
+   * that the segment can be built column by column. Otherwise the segment is built from the rows of the realtime
+   * segment.
+   */
+  boolean canBuildFromColumns() {
+    for (String column : dataSchema.getColumnNames()) {
+      if (!realtimeSegmentImpl.hasDictionary(column)) {
+        return false;
+      }
+    }
+    if (sortedColumn == null) {
+      return true;
+    }
+    FieldSpec sortedColumnSpec = dataSchema.getFieldSpecFor(sortedColumn);
+    return sortedColumnSpec != null && sortedColumnSpec.isSingleValueField();
+  }
 }
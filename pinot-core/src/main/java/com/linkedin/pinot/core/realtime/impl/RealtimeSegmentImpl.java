@@ -25,6 +25,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.joda.time.DateTime;
 import org.joda.time.Interval;
@@ -79,7 +83,9 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
 
   private Map<String, Integer> maxNumberOfMultivaluesMap;
 
-  private int docIdSearchableOffset = -1;
+  // Published after updating the forward index and the inverted index of a row, so the query threads reading it see
+  // all the rows up to this offset.
+  private volatile int docIdSearchableOffset = -1;
   private int numDocsIndexed = 0;
   private int numSuccessIndexed = 0;
 
@@ -94,6 +100,10 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
   private final ServerMetrics serverMetrics;
   private final String tableAndStreamName;
 
+  // Dimension, metric and time columns, in the order they are indexed
+  private final String[] columns;
+  private ExecutorService indexingExecutor;
+
   public RealtimeSegmentImpl(Schema schema, int capacity, String tableName, String segmentName, String streamName,
       ServerMetrics serverMetrics, List<String> invertedIndexColumns) throws IOException {
     // initial variable setup
@@ -159,6 +169,11 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
         V1Constants.Dict.INT_DICTIONARY_COL_SIZE));
 
     tableAndStreamName = tableName + "-" + streamName;
+
+    List<String> columnList = new ArrayList<String>(dataSchema.getDimensionNames());
+    columnList.addAll(dataSchema.getMetricNames());
+    columnList.add(outgoingTimeColumnName);
+    columns = columnList.toArray(new String[columnList.size()]);
   }
 
   public RealtimeSegmentImpl(Schema schema, int sizeThresholdToFlushSegment, String tableName, String segmentName, String streamName,
@@ -183,155 +198,172 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
 
   @Override
   public boolean index(GenericRow row) {
-    // Validate row prior to indexing it
-    StringBuilder invalidColumns = null;
-
-    for (String dimension : dataSchema.getDimensionNames()) {
-      Object value = row.getValue(dimension);
-      if (value == null) {
-        if (invalidColumns == null) {
-          invalidColumns = new StringBuilder(dimension);
-        } else {
-          invalidColumns.append(", ").append(dimension);
+    return index(Collections.singletonList(row));
+  }
+
+  /**
+   * Indexes a batch of rows column by column, fanning the columns out to the indexing executor if one is set. The rows
+   * become searchable all at once after all the columns have been indexed.
+   * <p>Rows with null values are dropped. The caller must not pass more valid rows than the remaining capacity.
+   *
+   * @param rows Rows to index, must not be modified until this method returns
+   * @return true if the segment can take more rows
+   */
+  public boolean index(List<GenericRow> rows) {
+    // Validate rows prior to indexing them, and compute the time range of the valid rows
+    List<GenericRow> validRows = new ArrayList<GenericRow>(rows.size());
+    long batchMinTimeVal = Long.MAX_VALUE;
+    long batchMaxTimeVal = Long.MIN_VALUE;
+    for (GenericRow row : rows) {
+      StringBuilder invalidColumns = null;
+      for (String column : columns) {
+        if (row.getValue(column) == null) {
+          if (invalidColumns == null) {
+            invalidColumns = new StringBuilder(column);
+          } else {
+            invalidColumns.append(", ").append(column);
+          }
         }
       }
-    }
-
-    for (String metric : dataSchema.getMetricNames()) {
-      Object value = row.getValue(metric);
-      if (value == null) {
-        if (invalidColumns == null) {
-          invalidColumns = new StringBuilder(metric);
-        } else {
-          invalidColumns.append(", ").append(metric);
-        }
+      if (invalidColumns != null) {
+        LOGGER.warn("Dropping invalid row {} with null values for column(s) {}", row, invalidColumns);
+        serverMetrics.addMeteredTableValue(tableAndStreamName, ServerMeter.INVALID_REALTIME_ROWS_DROPPED, 1L);
+        continue;
       }
-    }
 
-    {
-      Object value = row.getValue(outgoingTimeColumnName);
-      if (value == null) {
-        if (invalidColumns == null) {
-          invalidColumns = new StringBuilder(outgoingTimeColumnName);
-        } else {
-          invalidColumns.append(", ").append(outgoingTimeColumnName);
-        }
+      // Conversion already happens in PlainFieldExtractor
+      Object timeValueObj = row.getValue(outgoingTimeColumnName);
+      long timeValue;
+      if (timeValueObj instanceof Number) {
+        timeValue = ((Number) timeValueObj).longValue();
+      } else {
+        timeValue = Long.valueOf(timeValueObj.toString());
       }
+      batchMinTimeVal = Math.min(batchMinTimeVal, timeValue);
+      batchMaxTimeVal = Math.max(batchMaxTimeVal, timeValue);
+      validRows.add(row);
     }
 
-    if (invalidColumns != null) {
-      LOGGER.warn("Dropping invalid row {} with null values for column(s) {}", row, invalidColumns);
-      serverMetrics.addMeteredTableValue(tableAndStreamName, ServerMeter.INVALID_REALTIME_ROWS_DROPPED, 1L);
-      return true;
+    int numValidRows = validRows.size();
+    if (numValidRows == 0) {
+      return numDocsIndexed < capacity;
     }
-
-    // updating dictionary for dimensions only
-    // its ok to insert this first
-    // since filtering won't return back anything unless a new entry is made in the inverted index
-    for (String dimension : dataSchema.getDimensionNames()) {
-      dictionaryMap.get(dimension).index(row.getValue(dimension));
-      if (!dataSchema.getFieldSpecFor(dimension).isSingleValueField()) {
-        Object[] entries = (Object[]) row.getValue(dimension);
-        if ((entries != null) && (maxNumberOfMultivaluesMap.get(dimension) < entries.length)) {
-          maxNumberOfMultivaluesMap.put(dimension, entries.length);
-        }
-      }
-    }
-
-    for (String metric : dataSchema.getMetricNames()) {
-      dictionaryMap.get(metric).index(row.getValue(metric));
+    if (numDocsIndexed + numValidRows > capacity) {
+      throw new IllegalStateException(
+          "Cannot index " + numValidRows + " rows into segment " + segmentName + " with " + numDocsIndexed
+              + " rows indexed and capacity " + capacity);
     }
+    minTimeVal = Math.min(minTimeVal, batchMinTimeVal);
+    maxTimeVal = Math.max(maxTimeVal, batchMaxTimeVal);
 
-    // Conversion already happens in PlainFieldExtractor
-    Object timeValueObj = row.getValue(outgoingTimeColumnName);
-
-    long timeValue = -1;
-    if (timeValueObj instanceof Number) {
-      timeValue = ((Number) timeValueObj).longValue();
+    int startDocId = docIdGenerator.addAndGet(numValidRows) - numValidRows + 1;
+    int numColumns = columns.length;
+    int[] maxNumberOfMultiValues = new int[numColumns];
+    if (indexingExecutor == null || numValidRows == 1) {
+      for (int i = 0; i < numColumns; i++) {
+        maxNumberOfMultiValues[i] = indexColumn(columns[i], validRows, startDocId);
+      }
     } else {
-      timeValue = Long.valueOf(timeValueObj.toString());
-    }
-
-    dictionaryMap.get(outgoingTimeColumnName).index(timeValueObj);
-
-    // update the min max time values
-    minTimeVal = Math.min(minTimeVal, timeValue);
-    maxTimeVal = Math.max(maxTimeVal, timeValue);
-
-    // also lets collect all dicIds to update inverted index later
-    Map<String, Object> rawRowToDicIdMap = new HashMap<String, Object>();
-
-    // lets update forward index now
-    int docId = docIdGenerator.incrementAndGet();
-
-    for (String dimension : dataSchema.getDimensionNames()) {
-      if (dataSchema.getFieldSpecFor(dimension).isSingleValueField()) {
-        int dicId = dictionaryMap.get(dimension).indexOf(row.getValue(dimension));
-        ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(dimension)).setInt(docId, dicId);
-        rawRowToDicIdMap.put(dimension, dicId);
-      } else {
-        Object[] mValues = (Object[]) row.getValue(dimension);
-        int[] dicIds;
-
-        if (mValues != null) {
-          dicIds = new int[mValues.length];
-          for (int i = 0; i < dicIds.length; i++) {
-            dicIds[i] = dictionaryMap.get(dimension).indexOf(mValues[i]);
+      List<Future<Integer>> futures = new ArrayList<Future<Integer>>(numColumns);
+      for (final String column : columns) {
+        final List<GenericRow> rowsToIndex = validRows;
+        final int firstDocId = startDocId;
+        futures.add(indexingExecutor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() {
+            return indexColumn(column, rowsToIndex, firstDocId);
           }
-        } else {
-          dicIds = EMPTY_DICTIONARY_IDS_ARRAY;
+        }));
+      }
+      try {
+        for (int i = 0; i < numColumns; i++) {
+          maxNumberOfMultiValues[i] = futures.get(i).get();
         }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while indexing rows into segment " + segmentName, e);
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Caught exception while indexing rows into segment " + segmentName, e.getCause());
+      }
+    }
 
-        ((FixedByteSingleColumnMultiValueReaderWriter) columnIndexReaderWriterMap.get(dimension)).setIntArray(docId,
-            dicIds);
-        rawRowToDicIdMap.put(dimension, dicIds);
+    for (int i = 0; i < numColumns; i++) {
+      String column = columns[i];
+      if (maxNumberOfMultivaluesMap.get(column) < maxNumberOfMultiValues[i]) {
+        maxNumberOfMultivaluesMap.put(column, maxNumberOfMultiValues[i]);
       }
     }
 
-    for (String metric : dataSchema.getMetricNames()) {
-      FixedByteSingleColumnSingleValueReaderWriter readerWriter =
-          (FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(metric);
-      int dicId = dictionaryMap.get(metric).indexOf(row.getValue(metric));
-      readerWriter.setInt(docId, dicId);
-      rawRowToDicIdMap.put(metric, dicId);
+    int lastDocId = startDocId + numValidRows - 1;
+    for (RealtimeInvertedIndex invertedIndex : invertedIndexMap.values()) {
+      invertedIndex.setDocIdSearchableOffset(lastDocId);
     }
+    docIdSearchableOffset = lastDocId;
+    numDocsIndexed += numValidRows;
+    numSuccessIndexed += numValidRows;
 
-    int timeDicId = dictionaryMap.get(outgoingTimeColumnName).indexOf(timeValueObj);
+    return numDocsIndexed < capacity;
+  }
 
-    ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(outgoingTimeColumnName)).setInt(
-        docId, timeDicId);
-    rawRowToDicIdMap.put(outgoingTimeColumnName, timeDicId);
+  /**
+   * Updates the dictionary, the forward index and the inverted index of one column for the given rows. Each column has
+   * its own index structures, so different columns can be indexed concurrently.
+   *
+   * @return Max number of values of a multi-value column in the rows, 0 for single-value columns
+   */
+  private int indexColumn(String column, List<GenericRow> rows, int startDocId) {
+    MutableDictionaryReader dictionary = dictionaryMap.get(column);
+    RealtimeInvertedIndex invertedIndex = invertedIndexMap.get(column);
+    int numRows = rows.size();
 
-    // lets update the inverted index now
-    // metrics
-    for (String metric : dataSchema.getMetricNames()) {
-      if (invertedIndexMap.containsKey(metric)) {
-        invertedIndexMap.get(metric).add(rawRowToDicIdMap.get(metric), docId);
-      }
+    // updating dictionary first
+    // its ok to insert this first
+    // since filtering won't return back anything unless a new entry is made in the inverted index
+    for (int i = 0; i < numRows; i++) {
+      dictionary.index(rows.get(i).getValue(column));
     }
 
-    // dimension
-    for (String dimension : dataSchema.getDimensionNames()) {
-      if (invertedIndexMap.containsKey(dimension)) {
-        if (dataSchema.getFieldSpecFor(dimension).isSingleValueField()) {
-          invertedIndexMap.get(dimension).add(rawRowToDicIdMap.get(dimension), docId);
-        } else {
-          int[] dicIds = (int[]) rawRowToDicIdMap.get(dimension);
-          for (int dicId : dicIds) {
-            invertedIndexMap.get(dimension).add(dicId, docId);
-          }
+    if (dataSchema.getFieldSpecFor(column).isSingleValueField()) {
+      FixedByteSingleColumnSingleValueReaderWriter readerWriter =
+          (FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(column);
+      for (int i = 0; i < numRows; i++) {
+        int docId = startDocId + i;
+        int dicId = dictionary.indexOf(rows.get(i).getValue(column));
+        readerWriter.setInt(docId, dicId);
+        if (invertedIndex != null) {
+          invertedIndex.add(dicId, docId);
+        }
+      }
+      return 0;
+    }
+
+    FixedByteSingleColumnMultiValueReaderWriter readerWriter =
+        (FixedByteSingleColumnMultiValueReaderWriter) columnIndexReaderWriterMap.get(column);
+    int maxNumberOfMultiValues = 0;
+    for (int i = 0; i < numRows; i++) {
+      int docId = startDocId + i;
+      Object[] mValues = (Object[]) rows.get(i).getValue(column);
+      int[] dicIds = new int[mValues.length];
+      for (int j = 0; j < dicIds.length; j++) {
+        dicIds[j] = dictionary.indexOf(mValues[j]);
+      }
+      maxNumberOfMultiValues = Math.max(maxNumberOfMultiValues, dicIds.length);
+      readerWriter.setIntArray(docId, dicIds);
+      if (invertedIndex != null) {
+        for (int dicId : dicIds) {
+          invertedIndex.add(dicId, docId);
         }
       }
     }
-    // time
-    if (invertedIndexMap.containsKey(outgoingTimeColumnName)) {
-      invertedIndexMap.get(outgoingTimeColumnName).add(rawRowToDicIdMap.get(outgoingTimeColumnName), docId);
-    }
-    docIdSearchableOffset = docId;
-    numDocsIndexed += 1;
-    numSuccessIndexed += 1;
+    return maxNumberOfMultiValues;
+  }
 
-    return numDocsIndexed < capacity;
+  /**
+   * Sets the executor used to index the columns of a batch of rows concurrently. Without an executor, the columns are
+   * indexed on the calling thread.
+   */
+  public void setIndexingExecutor(ExecutorService indexingExecutor) {
+    this.indexingExecutor = indexingExecutor;
   }
 
   @Override
@@ -652,6 +684,33 @@ public class RealtimeSegmentImpl implements RealtimeSegment {
     return row;
   }
 
+  /**
+   * Returns the dictionary of the column, or null if the column does not exist.
+   */
+  public MutableDictionaryReader getDictionary(String column) {
+    return dictionaryMap.get(column);
+  }
+
+  /**
+   * Returns the dictionary id of a single-value column for the given document.
+   */
+  public int getDictId(String column, int docId) {
+    return ((FixedByteSingleColumnSingleValueReaderWriter) columnIndexReaderWriterMap.get(column)).getInt(docId);
+  }
+
+  /**
+   * Reads the dictionary ids of a multi-value column for the given document into the buffer, which must be able to hold
+   * {@link #getMaxNumberOfMultiValues(String)} values. Returns the number of values of the document.
+   */
+  public int getDictIds(String column, int docId, int[] dictIds) {
+    return ((FixedByteSingleColumnMultiValueReaderWriter) columnIndexReaderWriterMap.get(column)).getIntArray(docId,
+        dictIds);
+  }
+
+  public int getMaxNumberOfMultiValues(String column) {
+    return maxNumberOfMultivaluesMap.get(column);
+  }
+
   public void setSegmentMetadata(RealtimeSegmentZKMetadata segmentMetadata) {
     _segmentMetadata = new SegmentMetadataImpl(segmentMetadata) {
       @Override
@@ -15,10 +15,16 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+
+
 public class DoubleMutableDictionary extends MutableDictionaryReader {
 
-  private Double min = Double.MAX_VALUE;
-  private Double max = Double.MIN_VALUE;
+  private double min = Double.MAX_VALUE;
+  private double max = Double.MIN_VALUE;
+
+  // Values indexed by dictionary id, see {@link MutableDictionaryReader} for the thread safety guarantees.
+  private volatile double[] _values = new double[INITIAL_VALUE_CAPACITY];
 
   public DoubleMutableDictionary(String column) {
     super(column);
@@ -31,37 +37,38 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
       return;
     }
 
-    if (rawValue instanceof String) {
-      Double entry = Double.parseDouble((String) rawValue);
-      addToDictionaryBiMap(entry);
-      updateMinMax(entry);
-      return;
-    }
-
-    if (rawValue instanceof Double) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Double) rawValue);
-      return;
-    }
-
     if (rawValue instanceof Object[]) {
       for (Object o : (Object[]) rawValue) {
-        if (o instanceof String) {
-          final Double doubleValue = Double.parseDouble(o.toString());
-          addToDictionaryBiMap(doubleValue);
-          updateMinMax(doubleValue);
-          continue;
+        if (o != null) {
+          indexDouble(toDouble(o));
         }
+      }
+      return;
+    }
 
-        if (o instanceof Double) {
-          addToDictionaryBiMap(o);
-          updateMinMax((Double) o);
-        }
+    indexDouble(toDouble(rawValue));
+  }
+
+  /**
+   * Index a single value, returns the dictionary id of the value. Should only be called by the writer thread.
+   */
+  public int indexDouble(double value) {
+    int dictId = getDoubleDictId(value);
+    if (dictId == NULL_VALUE_INDEX) {
+      dictId = length();
+      double[] values = _values;
+      if (dictId == values.length) {
+        values = Arrays.copyOf(values, dictId * 2);
+        _values = values;
       }
+      values[dictId] = value;
+      addToHashTable(hash(Double.doubleToLongBits(value)), dictId);
+      updateMinMax(value);
     }
+    return dictId;
   }
 
-  private void updateMinMax(Double entry) {
+  private void updateMinMax(double entry) {
     if (entry < min) {
       min = entry;
     }
@@ -70,38 +77,64 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  private static double toDouble(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).doubleValue();
+    }
+    return Double.parseDouble(rawValue.toString());
+  }
+
+  /**
+   * Returns the dictionary id of the value, or {@link #NULL_VALUE_INDEX} if the value does not exist.
+   */
+  public int getDoubleDictId(double value) {
+    int length = length();
+    double[] values = _values;
+    int[] hashTable = getHashTable();
+    int mask = hashTable.length - 1;
+    int slot = hash(Double.doubleToLongBits(value)) & mask;
+    int entry;
+    while ((entry = hashTable[slot]) != 0) {
+      int dictId = entry - 1;
+      if (dictId < length && Double.doubleToLongBits(values[dictId]) == Double.doubleToLongBits(value)) {
+        return dictId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NULL_VALUE_INDEX;
+  }
+
+  @Override
+  protected int hashOf(int dictId) {
+    return hash(Double.doubleToLongBits(_values[dictId]));
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(Double.parseDouble(rawValue.toString()));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(Double.parseDouble(rawValue.toString()));
-    }
-    return getIndexOfFromBiMap(rawValue);
+    return getDoubleDictId(toDouble(rawValue));
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return getDouble(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).longValue();
+    return (long) getDouble(dictionaryId);
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return (Double) getRawValueFromBiMap(dictionaryId);
+    return getDouble(dictionaryId);
   }
 
   @Override
@@ -116,7 +149,22 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public String toString(int dictionaryId) {
-    return (getRawValueFromBiMap(dictionaryId)).toString();
+    return Double.toString(getDouble(dictionaryId));
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return Double.toString(getDouble(dictionaryId));
+  }
+
+  @Override
+  protected int compareValues(int dictId1, int dictId2) {
+    return Double.compare(getDouble(dictId1), getDouble(dictId2));
+  }
+
+  @Override
+  public int compareToValue(int dictId, String value) {
+    return Double.compare(getDouble(dictId), Double.parseDouble(value));
   }
 
   @Override
@@ -153,13 +201,8 @@ public class DoubleMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  @Override
-  public String getStringValue(int dictionaryId) {
-    return ((Double) getRawValueFromBiMap(dictionaryId)).toString();
-  }
-
-  private double getDouble(int dictionaryId) {
-    return (Double) dictionaryIdBiMap.get(dictionaryId);
+  public double getDouble(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   @Override
@@ -15,10 +15,16 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+
+
 public class FloatMutableDictionary extends MutableDictionaryReader {
 
-  private Float min = Float.MAX_VALUE;
-  private Float max = Float.MIN_VALUE;
+  private float min = Float.MAX_VALUE;
+  private float max = Float.MIN_VALUE;
+
+  // Values indexed by dictionary id, see {@link MutableDictionaryReader} for the thread safety guarantees.
+  private volatile float[] _values = new float[INITIAL_VALUE_CAPACITY];
 
   public FloatMutableDictionary(String column) {
     super(column);
@@ -30,38 +36,39 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
       hasNull = true;
       return;
     }
-    if (rawValue instanceof String) {
-      Float e = Float.parseFloat(rawValue.toString());
-      addToDictionaryBiMap(e);
-      updateMinMax(e);
-      return;
-    }
-
-    if (rawValue instanceof Float) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Float) rawValue);
-      return;
-    }
 
     if (rawValue instanceof Object[]) {
-
       for (Object o : (Object[]) rawValue) {
-        if (o instanceof String) {
-          final Float floatValue = Float.parseFloat(o.toString());
-          addToDictionaryBiMap(floatValue);
-          updateMinMax(floatValue);
-          continue;
+        if (o != null) {
+          indexFloat(toFloat(o));
         }
+      }
+      return;
+    }
 
-        if (o instanceof Float) {
-          addToDictionaryBiMap(o);
-          updateMinMax((Float) o);
-        }
+    indexFloat(toFloat(rawValue));
+  }
+
+  /**
+   * Index a single value, returns the dictionary id of the value. Should only be called by the writer thread.
+   */
+  public int indexFloat(float value) {
+    int dictId = getFloatDictId(value);
+    if (dictId == NULL_VALUE_INDEX) {
+      dictId = length();
+      float[] values = _values;
+      if (dictId == values.length) {
+        values = Arrays.copyOf(values, dictId * 2);
+        _values = values;
       }
+      values[dictId] = value;
+      addToHashTable(hash(Float.floatToIntBits(value)), dictId);
+      updateMinMax(value);
     }
+    return dictId;
   }
 
-  private void updateMinMax(Float entry) {
+  private void updateMinMax(float entry) {
     if (entry < min) {
       min = entry;
     }
@@ -70,53 +77,94 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  private static float toFloat(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).floatValue();
+    }
+    return Float.parseFloat(rawValue.toString());
+  }
+
+  /**
+   * Returns the dictionary id of the value, or {@link #NULL_VALUE_INDEX} if the value does not exist.
+   */
+  public int getFloatDictId(float value) {
+    int length = length();
+    float[] values = _values;
+    int[] hashTable = getHashTable();
+    int mask = hashTable.length - 1;
+    int slot = hash(Float.floatToIntBits(value)) & mask;
+    int entry;
+    while ((entry = hashTable[slot]) != 0) {
+      int dictId = entry - 1;
+      if (dictId < length && Float.floatToIntBits(values[dictId]) == Float.floatToIntBits(value)) {
+        return dictId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NULL_VALUE_INDEX;
+  }
+
+  @Override
+  protected int hashOf(int dictId) {
+    return hash(Float.floatToIntBits(_values[dictId]));
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(Float.parseFloat(rawValue.toString()));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(Float.parseFloat(rawValue.toString()));
-    }
-    return getIndexOfFromBiMap(rawValue);
+    return getFloatDictId(toFloat(rawValue));
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return getFloat(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId)).longValue();
+    return (long) getFloat(dictionaryId);
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return getFloat(dictionaryId);
   }
 
   @Override
   public int getIntValue(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId)).intValue();
+    return (int) getFloat(dictionaryId);
   }
 
   @Override
   public float getFloatValue(int dictionaryId) {
-    return ((Float) getRawValueFromBiMap(dictionaryId));
+    return getFloat(dictionaryId);
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return (getRawValueFromBiMap(dictionaryId)).toString();
+    return Float.toString(getFloat(dictionaryId));
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return Float.toString(getFloat(dictionaryId));
+  }
+
+  @Override
+  protected int compareValues(int dictId1, int dictId2) {
+    return Float.compare(getFloat(dictId1), getFloat(dictId2));
+  }
+
+  @Override
+  public int compareToValue(int dictId, String value) {
+    return Float.compare(getFloat(dictId), Float.parseFloat(value));
   }
 
   @Override
@@ -153,13 +201,8 @@ public class FloatMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  @Override
-  public String getStringValue(int dictionaryId) {
-    return (getRawValueFromBiMap(dictionaryId)).toString();
-  }
-
-  private float getFloat(int dictionaryId) {
-    return (Float) dictionaryIdBiMap.get(dictionaryId);
+  public float getFloat(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   @Override
@@ -15,10 +15,16 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+
+
 public class IntMutableDictionary extends MutableDictionaryReader {
 
-  private Integer min = Integer.MAX_VALUE;
-  private Integer max = Integer.MIN_VALUE;
+  private int min = Integer.MAX_VALUE;
+  private int max = Integer.MIN_VALUE;
+
+  // Values indexed by dictionary id, see {@link MutableDictionaryReader} for the thread safety guarantees.
+  private volatile int[] _values = new int[INITIAL_VALUE_CAPACITY];
 
   public IntMutableDictionary(String column) {
     super(column);
@@ -31,40 +37,38 @@ public class IntMutableDictionary extends MutableDictionaryReader {
       return;
     }
 
-    if (rawValue instanceof String) {
-      Integer entry = Integer.parseInt(rawValue.toString());
-      addToDictionaryBiMap(entry);
-      updateMinMax(entry);
-      return;
-    }
-
-    if (rawValue instanceof Integer) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Integer) rawValue);
+    if (rawValue instanceof Object[]) {
+      for (Object o : (Object[]) rawValue) {
+        if (o != null) {
+          indexInt(toInt(o));
+        }
+      }
       return;
     }
 
-    if (rawValue instanceof Object[]) {
-      Object[] multivalues = (Object[]) rawValue;
-
-      for (int i = 0; i < multivalues.length; i++) {
-
-        if (multivalues[i] instanceof String) {
-          addToDictionaryBiMap(Integer.parseInt(multivalues[i].toString()));
-          updateMinMax(Integer.parseInt(multivalues[i].toString()));
-          continue;
-        }
+    indexInt(toInt(rawValue));
+  }
 
-        if (multivalues[i] instanceof Integer) {
-          addToDictionaryBiMap(multivalues[i]);
-          updateMinMax((Integer) multivalues[i]);
-          continue;
-        }
+  /**
+   * Index a single value, returns the dictionary id of the value. Should only be called by the writer thread.
+   */
+  public int indexInt(int value) {
+    int dictId = getIntDictId(value);
+    if (dictId == NULL_VALUE_INDEX) {
+      dictId = length();
+      int[] values = _values;
+      if (dictId == values.length) {
+        values = Arrays.copyOf(values, dictId * 2);
+        _values = values;
       }
+      values[dictId] = value;
+      addToHashTable(hash(value), dictId);
+      updateMinMax(value);
     }
+    return dictId;
   }
 
-  private void updateMinMax(Integer entry) {
+  private void updateMinMax(int entry) {
     if (entry < min) {
       min = entry;
     }
@@ -73,38 +77,64 @@ public class IntMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  private static int toInt(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).intValue();
+    }
+    return Integer.parseInt(rawValue.toString());
+  }
+
+  /**
+   * Returns the dictionary id of the value, or {@link #NULL_VALUE_INDEX} if the value does not exist.
+   */
+  public int getIntDictId(int value) {
+    int length = length();
+    int[] values = _values;
+    int[] hashTable = getHashTable();
+    int mask = hashTable.length - 1;
+    int slot = hash(value) & mask;
+    int entry;
+    while ((entry = hashTable[slot]) != 0) {
+      int dictId = entry - 1;
+      if (dictId < length && values[dictId] == value) {
+        return dictId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NULL_VALUE_INDEX;
+  }
+
+  @Override
+  protected int hashOf(int dictId) {
+    return hash(_values[dictId]);
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(Integer.parseInt(rawValue.toString()));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(Integer.parseInt(rawValue.toString()));
-    }
-    return getIndexOfFromBiMap(rawValue);
+    return getIntDictId(toInt(rawValue));
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return getInt(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).longValue();
+    return getInt(dictionaryId);
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return getInt(dictionaryId);
   }
 
   @Override
@@ -114,26 +144,27 @@ public class IntMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public float getFloatValue(int dictionaryId) {
-    return (float) getInt(dictionaryId);
+    return getInt(dictionaryId);
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).toString();
+    return Integer.toString(getInt(dictionaryId));
   }
 
   @Override
-  public void readIntValues(int[] dictionaryIds, int startPos, int limit, int[] outValues, int outStartPos) {
-    int endPos = startPos + limit;
-    for (int iter = startPos; iter < endPos; ++iter) {
-      int dictId = dictionaryIds[iter];
-      outValues[outStartPos++] = getInt(dictId);
-    }
+  public String getStringValue(int dictionaryId) {
+    return Integer.toString(getInt(dictionaryId));
   }
 
   @Override
-  public String getStringValue(int dictionaryId) {
-    return ((Integer) getRawValueFromBiMap(dictionaryId)).toString();
+  protected int compareValues(int dictId1, int dictId2) {
+    return Integer.compare(getInt(dictId1), getInt(dictId2));
+  }
+
+  @Override
+  public int compareToValue(int dictId, String value) {
+    return Integer.compare(getInt(dictId), Integer.parseInt(value));
   }
 
   @Override
@@ -171,7 +202,7 @@ public class IntMutableDictionary extends MutableDictionaryReader {
   }
 
   public int getInt(int dictionaryId) {
-    return (Integer) dictionaryIdBiMap.get(dictionaryId);
+    return _values[dictionaryId];
   }
 
   @Override
@@ -183,5 +214,4 @@ public class IntMutableDictionary extends MutableDictionaryReader {
   public Object getMaxVal() {
     return max;
   }
-
 }
@@ -15,10 +15,16 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+
+
 public class LongMutableDictionary extends MutableDictionaryReader {
 
-  private Long min = Long.MAX_VALUE;
-  private Long max = Long.MIN_VALUE;
+  private long min = Long.MAX_VALUE;
+  private long max = Long.MIN_VALUE;
+
+  // Values indexed by dictionary id, see {@link MutableDictionaryReader} for the thread safety guarantees.
+  private volatile long[] _values = new long[INITIAL_VALUE_CAPACITY];
 
   public LongMutableDictionary(String column) {
     super(column);
@@ -31,37 +37,38 @@ public class LongMutableDictionary extends MutableDictionaryReader {
       return;
     }
 
-    if (rawValue instanceof String) {
-      Long e = Long.parseLong(rawValue.toString());
-      addToDictionaryBiMap(e);
-      updateMinMax(e);
-      return;
-    }
-
-    if (rawValue instanceof Long) {
-      addToDictionaryBiMap(rawValue);
-      updateMinMax((Long) rawValue);
-      return;
-    }
-
     if (rawValue instanceof Object[]) {
       for (Object o : (Object[]) rawValue) {
-        if (o instanceof String) {
-          final Long longValue = Long.parseLong(o.toString());
-          addToDictionaryBiMap(longValue);
-          updateMinMax(longValue);
-          continue;
+        if (o != null) {
+          indexLong(toLong(o));
         }
+      }
+      return;
+    }
 
-        if (o instanceof Long) {
-          addToDictionaryBiMap(o);
-          updateMinMax((Long) o);
-        }
+    indexLong(toLong(rawValue));
+  }
+
+  /**
+   * Index a single value, returns the dictionary id of the value. Should only be called by the writer thread.
+   */
+  public int indexLong(long value) {
+    int dictId = getLongDictId(value);
+    if (dictId == NULL_VALUE_INDEX) {
+      dictId = length();
+      long[] values = _values;
+      if (dictId == values.length) {
+        values = Arrays.copyOf(values, dictId * 2);
+        _values = values;
       }
+      values[dictId] = value;
+      addToHashTable(hash(value), dictId);
+      updateMinMax(value);
     }
+    return dictId;
   }
 
-  private void updateMinMax(Long entry) {
+  private void updateMinMax(long entry) {
     if (entry < min) {
       min = entry;
     }
@@ -70,55 +77,95 @@ public class LongMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  private static long toLong(Object rawValue) {
+    if (rawValue instanceof Number) {
+      return ((Number) rawValue).longValue();
+    }
+    return Long.parseLong(rawValue.toString());
+  }
+
+  /**
+   * Returns the dictionary id of the value, or {@link #NULL_VALUE_INDEX} if the value does not exist.
+   */
+  public int getLongDictId(long value) {
+    int length = length();
+    long[] values = _values;
+    int[] hashTable = getHashTable();
+    int mask = hashTable.length - 1;
+    int slot = hash(value) & mask;
+    int entry;
+    while ((entry = hashTable[slot]) != 0) {
+      int dictId = entry - 1;
+      if (dictId < length && values[dictId] == value) {
+        return dictId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NULL_VALUE_INDEX;
+  }
+
+  @Override
+  protected int hashOf(int dictId) {
+    return hash(_values[dictId]);
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    if (rawValue instanceof String) {
-      return dictionaryIdBiMap.inverse().containsKey(Long.parseLong((String) rawValue));
-    }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue);
+    return indexOf(rawValue) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    if (rawValue instanceof String) {
-      return getIndexOfFromBiMap(Long.parseLong(rawValue.toString()));
-    }
-    return getIndexOfFromBiMap(rawValue);
+    return getLongDictId(toLong(rawValue));
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return getLong(dictionaryId);
   }
 
   @Override
   public long getLongValue(int dictionaryId) {
-    return (Long) getRawValueFromBiMap(dictionaryId);
+    return getLong(dictionaryId);
   }
 
   @Override
   public double getDoubleValue(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).doubleValue();
+    return getLong(dictionaryId);
   }
 
   @Override
   public int getIntValue(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).intValue();
+    return (int) getLong(dictionaryId);
   }
 
   @Override
   public float getFloatValue(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).floatValue();
+    return getLong(dictionaryId);
   }
 
   @Override
   public String toString(int dictionaryId) {
-    return ((Long) getRawValueFromBiMap(dictionaryId)).toString();
+    return Long.toString(getLong(dictionaryId));
   }
 
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return Long.toString(getLong(dictionaryId));
+  }
+
+  @Override
+  protected int compareValues(int dictId1, int dictId2) {
+    return Long.compare(getLong(dictId1), getLong(dictId2));
+  }
+
+  @Override
+  public int compareToValue(int dictId, String value) {
+    return Long.compare(getLong(dictId), Long.parseLong(value));
+  }
 
   @Override
   public boolean inRange(String lower, String upper, int indexOfValueToCompare, boolean includeLower,
@@ -154,13 +201,8 @@ public class LongMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  @Override
-  public String getStringValue(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId).toString();
-  }
-
-  private long getLong(int dictionaryId) {
-    return (Long) dictionaryIdBiMap.get(dictionaryId);
+  public long getLong(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   @Override
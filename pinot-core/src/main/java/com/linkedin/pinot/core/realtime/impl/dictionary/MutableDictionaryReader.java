@@ -15,34 +15,176 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
-import com.google.common.collect.BiMap;
-import com.google.common.collect.HashBiMap;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
-import java.util.concurrent.atomic.AtomicInteger;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
 
 
+/**
+ * Base class for the dictionaries of realtime segments.
+ *
+ * The dictionary supports one writer thread (the consuming thread calling {@link #index(Object)}) and multiple
+ * concurrent reader threads (the query threads) without locking:
+ * <ul>
+ *   <li>Values are stored in type specialized arrays indexed by dictionary id, and an open addressing hash table maps
+ *   the values to dictionary ids. Each slot of the hash table stores dictionary id + 1, 0 means empty slot.</li>
+ *   <li>Value arrays and the hash table are only grown by copying into a new array and publishing the new array through
+ *   a volatile field, so readers never see a partially copied array.</li>
+ *   <li>The length of the dictionary is published through a volatile field after the value and the hash table slot are
+ *   written, so readers read the length first and only trust dictionary ids smaller than that length.</li>
+ * </ul>
+ *
+ * For range predicates, a view of the dictionary ids sorted by value is built lazily by the reader threads and cached
+ * per dictionary length, see {@link #getSortedDictIds()}.
+ */
 public abstract class MutableDictionaryReader implements Dictionary {
+  protected static final int INITIAL_VALUE_CAPACITY = 256;
+  // Must be power of 2 and at least twice of the initial value capacity.
+  private static final int INITIAL_HASH_TABLE_SIZE = 512;
+
   private final String column;
-  protected BiMap<Integer, Object> dictionaryIdBiMap;
   protected boolean hasNull = false;
-  private final AtomicInteger dictionaryIdGenerator;
+
+  private volatile int _length = 0;
+  private volatile int[] _hashTable = new int[INITIAL_HASH_TABLE_SIZE];
+  private volatile int[] _sortedDictIds = new int[0];
 
   public MutableDictionaryReader(String column) {
     this.column = column;
-    this.dictionaryIdBiMap = HashBiMap.<Integer, Object> create();
-    dictionaryIdGenerator = new AtomicInteger(-1);
   }
 
-  protected void addToDictionaryBiMap(Object val) {
-    if (!dictionaryIdBiMap.inverse().containsKey(val)) {
-      dictionaryIdBiMap.put(dictionaryIdGenerator.incrementAndGet(), val);
+  @Override
+  public int length() {
+    return _length;
+  }
+
+  /**
+   * Returns the hash table from value to dictionary id + 1. Readers should call {@link #length()} before calling this
+   * method, and skip the dictionary ids not smaller than the length.
+   */
+  protected int[] getHashTable() {
+    return _hashTable;
+  }
+
+  /**
+   * Add the new dictionary id into the hash table and publish it to the readers. The value of the dictionary id must be
+   * stored before calling this method. Should only be called by the writer thread.
+   *
+   * @param hash hash of the value.
+   * @param dictId new dictionary id, should be equal to the current length.
+   */
+  protected void addToHashTable(int hash, int dictId) {
+    int[] hashTable = _hashTable;
+
+    // Keep the load factor no more than 0.5, so that probing always ends at an empty slot.
+    if ((dictId + 1) * 2 > hashTable.length) {
+      int[] newHashTable = new int[hashTable.length * 2];
+      for (int i = 0; i < dictId; i++) {
+        insertIntoHashTable(newHashTable, hashOf(i), i);
+      }
+      insertIntoHashTable(newHashTable, hash, dictId);
+      _hashTable = newHashTable;
+    } else {
+      insertIntoHashTable(hashTable, hash, dictId);
     }
+    _length = dictId + 1;
   }
 
-  @Override
-  public int length() {
-    return dictionaryIdGenerator.get() + 1;
+  private static void insertIntoHashTable(int[] hashTable, int hash, int dictId) {
+    int mask = hashTable.length - 1;
+    int slot = hash & mask;
+    while (hashTable[slot] != 0) {
+      slot = (slot + 1) & mask;
+    }
+    hashTable[slot] = dictId + 1;
+  }
+
+  /**
+   * Returns the hash of the value for the given dictionary id. Used to re-hash the values when growing the hash table.
+   */
+  protected abstract int hashOf(int dictId);
+
+  /**
+   * Returns the dictionary ids sorted by their values. The length of the returned array is the length of the dictionary
+   * when the sorted view was built, so it is a consistent snapshot of the dictionary.
+   *
+   * The sorted view is cached and only rebuilt when new values have been indexed since the last call. New values are
+   * sorted separately and merged into the cached view, so the cost of a rebuild is proportional to the number of new
+   * values (plus one linear merge) instead of re-sorting the whole dictionary. This method is called by the reader
+   * threads only.
+   */
+  public int[] getSortedDictIds() {
+    int length = length();
+    int[] sortedDictIds = _sortedDictIds;
+    if (sortedDictIds.length >= length) {
+      return sortedDictIds;
+    }
+
+    synchronized (this) {
+      sortedDictIds = _sortedDictIds;
+      int numSortedDictIds = sortedDictIds.length;
+      if (numSortedDictIds >= length) {
+        return sortedDictIds;
+      }
+
+      IntComparator comparator = new IntComparator() {
+        @Override
+        public int compare(int dictId1, int dictId2) {
+          return compareValues(dictId1, dictId2);
+        }
+
+        @Override
+        public int compare(Integer o1, Integer o2) {
+          return compare(o1.intValue(), o2.intValue());
+        }
+      };
+      int numNewDictIds = length - numSortedDictIds;
+      int[] newDictIds = new int[numNewDictIds];
+      for (int i = 0; i < numNewDictIds; i++) {
+        newDictIds[i] = numSortedDictIds + i;
+      }
+      IntArrays.quickSort(newDictIds, comparator);
+
+      // Merge the sorted new dictionary ids into the cached sorted view.
+      int[] mergedDictIds = new int[length];
+      int i = 0;
+      int j = 0;
+      int k = 0;
+      while (i < numSortedDictIds && j < numNewDictIds) {
+        if (compareValues(sortedDictIds[i], newDictIds[j]) < 0) {
+          mergedDictIds[k++] = sortedDictIds[i++];
+        } else {
+          mergedDictIds[k++] = newDictIds[j++];
+        }
+      }
+      System.arraycopy(sortedDictIds, i, mergedDictIds, k, numSortedDictIds - i);
+      System.arraycopy(newDictIds, j, mergedDictIds, k, numNewDictIds - j);
+
+      _sortedDictIds = mergedDictIds;
+      return mergedDictIds;
+    }
+  }
+
+  /**
+   * Compares the values of two dictionary ids.
+   */
+  protected abstract int compareValues(int dictId1, int dictId2);
+
+  /**
+   * Compares the value of the dictionary id with the given string value, which is parsed into the type of the
+   * dictionary.
+   */
+  public abstract int compareToValue(int dictId, String value);
+
+  protected static int hash(int value) {
+    // Spread the bits so that sequential values do not end up in sequential slots.
+    int hash = value * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  protected static int hash(long value) {
+    return hash((int) (value ^ (value >>> 32)));
   }
 
   @Override
@@ -121,18 +263,6 @@ public abstract class MutableDictionaryReader implements Dictionary {
 
   }
 
-  protected Integer getIndexOfFromBiMap(Object val) {
-    Integer ret = dictionaryIdBiMap.inverse().get(val);
-    if (ret == null) {
-      ret = -1;
-    }
-    return ret;
-  }
-
-  protected Object getRawValueFromBiMap(int dictionaryId) {
-    return dictionaryIdBiMap.get(new Integer(dictionaryId));
-  }
-
   public boolean hasNull() {
     return hasNull;
   }
@@ -175,13 +305,14 @@ public abstract class MutableDictionaryReader implements Dictionary {
 
   public void print() {
     System.out.println("************* printing dictionary for column : " + column + " ***************");
-    for (Integer key : dictionaryIdBiMap.keySet()) {
-      System.out.println(key + "," + dictionaryIdBiMap.get(key));
+    int length = length();
+    for (int i = 0; i < length; i++) {
+      System.out.println(i + "," + get(i));
     }
     System.out.println("************************************");
   }
 
   public boolean isEmpty() {
-    return dictionaryIdBiMap.isEmpty();
+    return length() == 0;
   }
 }
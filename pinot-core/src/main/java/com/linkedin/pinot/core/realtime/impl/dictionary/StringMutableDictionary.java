@@ -15,11 +15,17 @@
  */
 package com.linkedin.pinot.core.realtime.impl.dictionary;
 
+import java.util.Arrays;
+
+
 public class StringMutableDictionary extends MutableDictionaryReader {
 
   private String min = null;
   private String max = null;
 
+  // Values indexed by dictionary id, see {@link MutableDictionaryReader} for the thread safety guarantees.
+  private volatile String[] _values = new String[INITIAL_VALUE_CAPACITY];
+
   public StringMutableDictionary(String column) {
     super(column);
   }
@@ -28,14 +34,31 @@ public class StringMutableDictionary extends MutableDictionaryReader {
   public void index(Object rawValue) {
     if (rawValue instanceof Object[]) {
       for (Object o : (Object[]) rawValue) {
-        addToDictionaryBiMap(o.toString());
-        updateMinMax(o.toString());
+        indexString(o.toString());
       }
       return;
     }
 
-    addToDictionaryBiMap(rawValue.toString());
-    updateMinMax(rawValue.toString());
+    indexString(rawValue.toString());
+  }
+
+  /**
+   * Index a single value, returns the dictionary id of the value. Should only be called by the writer thread.
+   */
+  public int indexString(String value) {
+    int dictId = getStringDictId(value);
+    if (dictId == NULL_VALUE_INDEX) {
+      dictId = length();
+      String[] values = _values;
+      if (dictId == values.length) {
+        values = Arrays.copyOf(values, dictId * 2);
+        _values = values;
+      }
+      values[dictId] = value;
+      addToHashTable(hash(value.hashCode()), dictId);
+      updateMinMax(value);
+    }
+    return dictId;
   }
 
   private void updateMinMax(String entry) {
@@ -54,22 +77,47 @@ public class StringMutableDictionary extends MutableDictionaryReader {
     }
   }
 
+  /**
+   * Returns the dictionary id of the value, or {@link #NULL_VALUE_INDEX} if the value does not exist.
+   */
+  public int getStringDictId(String value) {
+    int length = length();
+    String[] values = _values;
+    int[] hashTable = getHashTable();
+    int mask = hashTable.length - 1;
+    int slot = hash(value.hashCode()) & mask;
+    int entry;
+    while ((entry = hashTable[slot]) != 0) {
+      int dictId = entry - 1;
+      if (dictId < length && value.equals(values[dictId])) {
+        return dictId;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return NULL_VALUE_INDEX;
+  }
+
+  @Override
+  protected int hashOf(int dictId) {
+    return hash(_values[dictId].hashCode());
+  }
+
   @Override
   public boolean contains(Object rawValue) {
     if (rawValue == null) {
       return hasNull;
     }
-    return dictionaryIdBiMap.inverse().containsKey(rawValue.toString());
+    return getStringDictId(rawValue.toString()) != NULL_VALUE_INDEX;
   }
 
   @Override
   public int indexOf(Object rawValue) {
-    return getIndexOfFromBiMap(rawValue.toString());
+    return getStringDictId(rawValue.toString());
   }
 
   @Override
   public Object get(int dictionaryId) {
-    return getRawValueFromBiMap(dictionaryId);
+    return getString(dictionaryId);
   }
 
   @Override
@@ -94,12 +142,22 @@ public class StringMutableDictionary extends MutableDictionaryReader {
 
   @Override
   public String toString(int dictionaryId) {
-    return (String) getRawValueFromBiMap(dictionaryId);
+    return getString(dictionaryId);
   }
 
   @Override
   public String getStringValue(int dictionaryId) {
-    return (String) getRawValueFromBiMap(dictionaryId);
+    return getString(dictionaryId);
+  }
+
+  @Override
+  protected int compareValues(int dictId1, int dictId2) {
+    return getString(dictId1).compareTo(getString(dictId2));
+  }
+
+  @Override
+  public int compareToValue(int dictId, String value) {
+    return getString(dictId).compareTo(value);
   }
 
   @Override
@@ -132,8 +190,8 @@ public class StringMutableDictionary extends MutableDictionaryReader {
     return ret;
   }
 
-  private String getString(int dictionaryId) {
-    return dictionaryIdBiMap.get(dictionaryId).toString();
+  public String getString(int dictionaryId) {
+    return _values[dictionaryId];
   }
 
   @Override
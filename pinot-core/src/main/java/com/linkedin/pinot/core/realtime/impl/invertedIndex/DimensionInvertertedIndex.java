@@ -16,8 +16,7 @@
 package com.linkedin.pinot.core.realtime.impl.invertedIndex;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
 import org.roaringbitmap.buffer.MutableRoaringBitmap;
@@ -25,31 +24,72 @@ import org.roaringbitmap.buffer.MutableRoaringBitmap;
 import com.linkedin.pinot.common.utils.Pairs.IntPair;
 
 
+/**
+ * Realtime inverted index keyed by dictionary id.
+ *
+ * The index supports one writer thread (the consuming thread calling {@link #add(int, int)}) and multiple concurrent
+ * reader threads (the query threads):
+ * <ul>
+ *   <li>Bitmaps are stored in an array indexed by dictionary id, which is only grown by copying into a new array and
+ *   publishing the new array through a volatile field.</li>
+ *   <li>Each bitmap is only modified while holding its own lock. Readers get a read-only snapshot of the bitmap, which
+ *   is cached and shared until a new searchable doc id offset is published, so a bitmap is copied at most once per
+ *   published batch no matter how many queries read it, and bitmaps without new doc ids are not copied again.</li>
+ *   <li>The realtime segment publishes the searchable doc id offset through {@link #setDocIdSearchableOffset(int)}
+ *   after updating the index, so snapshots taken after the publication contain all the doc ids up to that offset.</li>
+ * </ul>
+ */
 public class DimensionInvertertedIndex implements RealtimeInvertedIndex {
+  private static final int INITIAL_CAPACITY = 256;
 
-  private Map<Integer, MutableRoaringBitmap> invertedIndex;
+  private volatile ThreadSafeBitmap[] _bitmaps = new ThreadSafeBitmap[INITIAL_CAPACITY];
+  private volatile int _docIdSearchableOffset = -1;
 
   public DimensionInvertertedIndex(String columnName) {
-    invertedIndex = new HashMap<Integer, MutableRoaringBitmap>();
   }
 
   @Override
-  public void add(Object dictId, int docId) {
-    if (!invertedIndex.containsKey(dictId)) {
-      invertedIndex.put((Integer) dictId, new MutableRoaringBitmap());
+  public void add(int dictId, int docId) {
+    ThreadSafeBitmap[] bitmaps = _bitmaps;
+    if (dictId >= bitmaps.length) {
+      bitmaps = Arrays.copyOf(bitmaps, Math.max(bitmaps.length * 2, dictId + 1));
+      _bitmaps = bitmaps;
     }
+    ThreadSafeBitmap bitmap = bitmaps[dictId];
+    if (bitmap == null) {
+      bitmap = new ThreadSafeBitmap();
+      bitmaps[dictId] = bitmap;
+    }
+    bitmap.add(docId);
+  }
 
-    invertedIndex.get(dictId).add(docId);
+  @Override
+  public void setDocIdSearchableOffset(int docIdSearchableOffset) {
+    _docIdSearchableOffset = docIdSearchableOffset;
   }
 
+  /**
+   * Returns a read-only snapshot of the doc ids for the given dictionary id. The returned bitmap is shared between
+   * readers and must not be modified.
+   * Dictionary ids without any doc id (including the negative ids returned by dictionary lookups of missing values)
+   * get a new empty bitmap.
+   */
   @Override
-  public MutableRoaringBitmap getDocIdSetFor(Object dicId) {
-    return invertedIndex.get(dicId);
+  public MutableRoaringBitmap getDocIdSetFor(int dictId) {
+    ThreadSafeBitmap[] bitmaps = _bitmaps;
+    if (dictId < 0 || dictId >= bitmaps.length) {
+      return new MutableRoaringBitmap();
+    }
+    ThreadSafeBitmap bitmap = bitmaps[dictId];
+    if (bitmap == null) {
+      return new MutableRoaringBitmap();
+    }
+    return bitmap.getSnapshot(_docIdSearchableOffset);
   }
 
   @Override
   public ImmutableRoaringBitmap getImmutable(int idx) {
-    return invertedIndex.get(idx);
+    return getDocIdSetFor(idx);
   }
 
   @Override
@@ -61,4 +101,52 @@ public class DimensionInvertertedIndex implements RealtimeInvertedIndex {
   public void close() throws IOException {
   }
 
+  private static class ThreadSafeBitmap {
+    private final MutableRoaringBitmap _bitmap = new MutableRoaringBitmap();
+    // Number of doc ids added to the bitmap, guarded by the bitmap lock.
+    private int _numDocIdsAdded = 0;
+    private volatile Snapshot _snapshot;
+
+    synchronized void add(int docId) {
+      _bitmap.add(docId);
+      _numDocIdsAdded++;
+    }
+
+    /**
+     * Returns a snapshot containing all the doc ids up to the given searchable offset. The cached snapshot is reused if
+     * it was taken after the offset got published, or if no doc id has been added since it was taken.
+     */
+    MutableRoaringBitmap getSnapshot(int docIdSearchableOffset) {
+      Snapshot snapshot = _snapshot;
+      if (snapshot != null && snapshot._docIdSearchableOffset >= docIdSearchableOffset) {
+        return snapshot._bitmap;
+      }
+      synchronized (this) {
+        snapshot = _snapshot;
+        if (snapshot == null || snapshot._docIdSearchableOffset < docIdSearchableOffset) {
+          MutableRoaringBitmap bitmap;
+          if (snapshot != null && snapshot._numDocIdsAdded == _numDocIdsAdded) {
+            bitmap = snapshot._bitmap;
+          } else {
+            bitmap = _bitmap.clone();
+          }
+          snapshot = new Snapshot(bitmap, _numDocIdsAdded, docIdSearchableOffset);
+          _snapshot = snapshot;
+        }
+        return snapshot._bitmap;
+      }
+    }
+  }
+
+  private static class Snapshot {
+    final MutableRoaringBitmap _bitmap;
+    final int _numDocIdsAdded;
+    final int _docIdSearchableOffset;
+
+    Snapshot(MutableRoaringBitmap bitmap, int numDocIdsAdded, int docIdSearchableOffset) {
+      _bitmap = bitmap;
+      _numDocIdsAdded = numDocIdsAdded;
+      _docIdSearchableOffset = docIdSearchableOffset;
+    }
+  }
 }
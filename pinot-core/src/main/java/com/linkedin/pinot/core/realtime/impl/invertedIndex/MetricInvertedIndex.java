@@ -15,54 +15,12 @@
  */
 package com.linkedin.pinot.core.realtime.impl.invertedIndex;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Set;
-
-import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
-import org.roaringbitmap.buffer.MutableRoaringBitmap;
-
-import com.linkedin.pinot.common.utils.Pairs.IntPair;
-
-
-public class MetricInvertedIndex implements RealtimeInvertedIndex {
-
-  Map<Object, MutableRoaringBitmap> invertedIndex;
+/**
+ * Realtime inverted index for metric columns, keyed by dictionary id like the dimension columns.
+ */
+public class MetricInvertedIndex extends DimensionInvertertedIndex {
 
   public MetricInvertedIndex(String columnName) {
-    invertedIndex = new HashMap<Object, MutableRoaringBitmap>();
-  }
-
-  @Override
-  public void add(Object id, int docId) {
-    if (!invertedIndex.containsKey(id)) {
-      invertedIndex.put(id, new MutableRoaringBitmap());
-    }
-    invertedIndex.get(id).add(docId);
-  }
-
-  @Override
-  public MutableRoaringBitmap getDocIdSetFor(Object dicId) {
-    return invertedIndex.get(dicId);
-  }
-
-  public Set<Object> getKeys() {
-    return invertedIndex.keySet();
-  }
-
-  @Override
-  public ImmutableRoaringBitmap getImmutable(int idx) {
-    return invertedIndex.get(idx);
+    super(columnName);
   }
-
-  @Override
-  public IntPair getMinMaxRangeFor(int docId) {
-    throw new UnsupportedOperationException("");
-  }
-
-  @Override
-  public void close() throws IOException {
-  }
-
 }
@@ -21,8 +21,14 @@ import com.linkedin.pinot.core.segment.index.readers.InvertedIndexReader;
 
 
 public interface RealtimeInvertedIndex extends InvertedIndexReader {
-  public void add(Object dictId, int docId);
+  public void add(int dictId, int docId);
 
-  public MutableRoaringBitmap getDocIdSetFor(Object dicId);
+  public MutableRoaringBitmap getDocIdSetFor(int dictId);
+
+  /**
+   * Publishes the searchable doc id offset after all the doc ids up to it have been added. Readers only see the doc ids
+   * added before the latest published offset.
+   */
+  public void setDocIdSearchableOffset(int docIdSearchableOffset);
 
 }
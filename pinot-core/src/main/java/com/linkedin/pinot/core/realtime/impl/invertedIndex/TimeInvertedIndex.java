@@ -15,48 +15,12 @@
  */
 package com.linkedin.pinot.core.realtime.impl.invertedIndex;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-
-import org.roaringbitmap.buffer.ImmutableRoaringBitmap;
-import org.roaringbitmap.buffer.MutableRoaringBitmap;
-
-import com.linkedin.pinot.common.utils.Pairs.IntPair;
-
-
-public class TimeInvertedIndex implements RealtimeInvertedIndex {
-
-  private Map<Object, MutableRoaringBitmap> invertedIndex;
+/**
+ * Realtime inverted index for time columns, keyed by dictionary id like the dimension columns.
+ */
+public class TimeInvertedIndex extends DimensionInvertertedIndex {
 
   public TimeInvertedIndex(String columnName) {
-    invertedIndex = new HashMap<Object, MutableRoaringBitmap>();
-  }
-
-  @Override
-  public void add(Object id, int docId) {
-    if (!invertedIndex.containsKey(id)) {
-      invertedIndex.put(id, new MutableRoaringBitmap());
-    }
-    invertedIndex.get(id).add(docId);
-  }
-
-  @Override
-  public MutableRoaringBitmap getDocIdSetFor(Object dicId) {
-    return invertedIndex.get(dicId);
-  }
-
-  @Override
-  public ImmutableRoaringBitmap getImmutable(int idx) {
-    return invertedIndex.get(idx);
-  }
-
-  @Override
-  public IntPair getMinMaxRangeFor(int docId) {
-    throw new UnsupportedOperationException("");
-  }
-
-  @Override
-  public void close() throws IOException {
+    super(columnName);
   }
 }
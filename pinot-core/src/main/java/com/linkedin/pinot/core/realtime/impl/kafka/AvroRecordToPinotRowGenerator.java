@@ -15,7 +15,7 @@
  */
 package com.linkedin.pinot.core.realtime.impl.kafka;
 
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 import org.apache.avro.generic.GenericData;
@@ -30,17 +30,34 @@ import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.data.readers.AvroRecordReader;
 
 
+/**
+ * Converts avro records into {@link GenericRow}s projected to the columns of the indexing schema.
+ * <p>The avro field positions of the indexing columns are resolved once per avro schema, so that converting a record
+ * only does positional lookups. This class is not thread safe.
+ */
 public class AvroRecordToPinotRowGenerator {
   private final Schema indexingSchema;
+  private final String[] columns;
+  private final FieldSpec[] fieldSpecs;
+  private final Map<org.apache.avro.Schema, int[]> avroSchemaToFieldPositionsMap =
+      new IdentityHashMap<org.apache.avro.Schema, int[]>();
 
   public AvroRecordToPinotRowGenerator(Schema indexingSchema) {
     this.indexingSchema = indexingSchema;
+    columns = indexingSchema.getColumnNames().toArray(new String[0]);
+    fieldSpecs = new FieldSpec[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      fieldSpecs[i] = indexingSchema.getFieldSpecFor(columns[i]);
+    }
   }
 
   public GenericRow transform(GenericData.Record record, org.apache.avro.Schema schema, GenericRow destination) {
-    for (String column : indexingSchema.getColumnNames()) {
-      Object entry = record.get(column);
-      FieldSpec fieldSpec = indexingSchema.getFieldSpecFor(column);
+    int[] fieldPositions = getFieldPositions(schema);
+    for (int columnIndex = 0; columnIndex < columns.length; columnIndex++) {
+      String column = columns[columnIndex];
+      FieldSpec fieldSpec = fieldSpecs[columnIndex];
+      int fieldPosition = fieldPositions[columnIndex];
+      Object entry = fieldPosition >= 0 ? record.get(fieldPosition) : null;
 
       if (entry != null) {
         if (entry instanceof Array) {
@@ -83,6 +100,22 @@ public class AvroRecordToPinotRowGenerator {
     return destination;
   }
 
+  /**
+   * Returns the positions of the indexing columns in the given avro schema, -1 for columns absent from the schema.
+   */
+  private int[] getFieldPositions(org.apache.avro.Schema schema) {
+    int[] fieldPositions = avroSchemaToFieldPositionsMap.get(schema);
+    if (fieldPositions == null) {
+      fieldPositions = new int[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        org.apache.avro.Schema.Field field = schema.getField(columns[i]);
+        fieldPositions[i] = field != null ? field.pos() : -1;
+      }
+      avroSchemaToFieldPositionsMap.put(schema, fieldPositions);
+    }
+    return fieldPositions;
+  }
+
   public GenericRow transform(GenericRecord avroRecord, GenericRow destination) {
     for (String column : indexingSchema.getColumnNames()) {
       Object entry = avroRecord.get(column);
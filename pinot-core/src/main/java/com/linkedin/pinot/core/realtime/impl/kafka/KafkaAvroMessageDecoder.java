@@ -19,13 +19,12 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.net.URL;
-import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
-import org.apache.avro.generic.GenericData;
 import org.apache.avro.generic.GenericData.Record;
 import org.apache.avro.generic.GenericDatumReader;
+import org.apache.avro.io.BinaryDecoder;
 import org.apache.avro.io.DatumReader;
 import org.apache.avro.io.DecoderFactory;
 import org.apache.commons.lang.StringUtils;
@@ -36,16 +35,26 @@ import com.linkedin.pinot.common.utils.retry.RetryPolicies;
 import com.linkedin.pinot.core.data.GenericRow;
 
 
+/**
+ * Decoder for avro messages prefixed with a magic byte and the MD5 of their schema.
+ * <p>The datum reader, the avro record and the binary decoder are reused across messages with the same schema, so that
+ * decoding a message does not allocate anything besides the field values. This class is not thread safe.
+ */
 public class KafkaAvroMessageDecoder implements KafkaMessageDecoder {
   private static final Logger LOGGER = LoggerFactory.getLogger(KafkaAvroMessageDecoder.class);
 
   private static final String SCHEMA_REGISTRY_REST_URL = "schema.registry.rest.url";
   private static final String SCHEMA_REGISTRY_SCHEMA_NAME = "schema.registry.schema.name";
-  private org.apache.avro.Schema defaultAvroSchema;
-  private Map<String, org.apache.avro.Schema> md5ToAvroSchemaMap;
+  private SchemaEntry defaultSchemaEntry;
+  private Map<String, SchemaEntry> md5ToSchemaEntryMap;
+
+  // Schema of the last successfully decoded message, most messages share the same schema so we can skip the map lookup
+  private final byte[] lastMd5 = new byte[SCHEMA_HASH_LENGTH];
+  private SchemaEntry lastSchemaEntry;
 
   private String schemaRegistryBaseUrl;
   private DecoderFactory decoderFactory;
+  private BinaryDecoder binaryDecoder;
   private AvroRecordToPinotRowGenerator avroRecordConvetrer;
 
   private static final int MAGIC_BYTE_LENGTH = 1;
@@ -70,10 +79,11 @@ public class KafkaAvroMessageDecoder implements KafkaMessageDecoder {
       avroSchemaName = props.get(SCHEMA_REGISTRY_SCHEMA_NAME);
     }
 
-    defaultAvroSchema = fetchSchema(new URL(schemaRegistryBaseUrl + "/latest_with_type=" + avroSchemaName));
+    defaultSchemaEntry =
+        new SchemaEntry(fetchSchema(new URL(schemaRegistryBaseUrl + "/latest_with_type=" + avroSchemaName)));
     this.avroRecordConvetrer = new AvroRecordToPinotRowGenerator(indexingSchema);
-    this.decoderFactory = new DecoderFactory();
-    md5ToAvroSchemaMap = new HashMap<String, org.apache.avro.Schema>();
+    this.decoderFactory = DecoderFactory.get();
+    md5ToSchemaEntryMap = new HashMap<String, SchemaEntry>();
   }
 
   @Override
@@ -87,41 +97,56 @@ public class KafkaAvroMessageDecoder implements KafkaMessageDecoder {
       return null;
     }
 
-    byte[] md5 = Arrays.copyOfRange(payload, SCHEMA_HASH_START_OFFSET + offset, SCHEMA_HASH_END_OFFSET + offset);
-
-    String md5String = hex(md5);
-    org.apache.avro.Schema schema = null;
+    SchemaEntry schemaEntry;
     boolean schemaUpdateFailed = false;
-    if (md5ToAvroSchemaMap.containsKey(md5String)) {
-      schema = md5ToAvroSchemaMap.get(md5String);
+    if (lastSchemaEntry != null && isLastMd5(payload, SCHEMA_HASH_START_OFFSET + offset)) {
+      schemaEntry = lastSchemaEntry;
     } else {
-      final String schemaUri = schemaRegistryBaseUrl + "/id=" + md5String;
-      try {
-        schema = fetchSchema(new URL(schemaUri));
-        md5ToAvroSchemaMap.put(md5String, schema);
-      } catch (Exception e) {
-        schema = defaultAvroSchema;
-        LOGGER.error("Error fetching schema using url {}. Attempting to continue with previous schema", schemaUri, e);
-        schemaUpdateFailed = true;
+      String md5String = hex(payload, SCHEMA_HASH_START_OFFSET + offset, SCHEMA_HASH_LENGTH);
+      schemaEntry = md5ToSchemaEntryMap.get(md5String);
+      if (schemaEntry == null) {
+        final String schemaUri = schemaRegistryBaseUrl + "/id=" + md5String;
+        try {
+          schemaEntry = new SchemaEntry(fetchSchema(new URL(schemaUri)));
+          md5ToSchemaEntryMap.put(md5String, schemaEntry);
+        } catch (Exception e) {
+          schemaEntry = defaultSchemaEntry;
+          LOGGER.error("Error fetching schema using url {}. Attempting to continue with previous schema", schemaUri,
+              e);
+          schemaUpdateFailed = true;
+        }
+      }
+      if (!schemaUpdateFailed) {
+        System.arraycopy(payload, SCHEMA_HASH_START_OFFSET + offset, lastMd5, 0, SCHEMA_HASH_LENGTH);
+        lastSchemaEntry = schemaEntry;
       }
     }
-    DatumReader<Record> reader = new GenericDatumReader<Record>(schema);
+
     try {
-      GenericData.Record avroRecord =
-          reader.read(null, decoderFactory.createBinaryDecoder(payload, HEADER_LENGTH + offset,
-              length - HEADER_LENGTH, null));
-      return avroRecordConvetrer.transform(avroRecord, schema, destination);
+      binaryDecoder =
+          decoderFactory.binaryDecoder(payload, HEADER_LENGTH + offset, length - HEADER_LENGTH, binaryDecoder);
+      schemaEntry.record = schemaEntry.reader.read(schemaEntry.record, binaryDecoder);
+      return avroRecordConvetrer.transform(schemaEntry.record, schemaEntry.schema, destination);
     } catch (IOException e) {
-      LOGGER.error("Caught exception while reading message using schema {}{}", (schema==null ? "null" : schema.getName()),
-          (schemaUpdateFailed? "(possibly due to schema update failure)" : ""), e);
+      LOGGER.error("Caught exception while reading message using schema {}{}", schemaEntry.schema.getName(),
+          (schemaUpdateFailed ? "(possibly due to schema update failure)" : ""), e);
       return null;
     }
   }
 
-  private String hex(byte[] bytes) {
-    StringBuilder builder = new StringBuilder(2 * bytes.length);
-    for (byte aByte : bytes) {
-      String hexString = Integer.toHexString(0xFF & aByte);
+  private boolean isLastMd5(byte[] payload, int md5Offset) {
+    for (int i = 0; i < SCHEMA_HASH_LENGTH; i++) {
+      if (payload[md5Offset + i] != lastMd5[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private String hex(byte[] bytes, int offset, int length) {
+    StringBuilder builder = new StringBuilder(2 * length);
+    for (int i = offset; i < offset + length; i++) {
+      String hexString = Integer.toHexString(0xFF & bytes[i]);
       if (hexString.length() < 2) {
         hexString = "0" + hexString;
       }
@@ -130,6 +155,20 @@ public class KafkaAvroMessageDecoder implements KafkaMessageDecoder {
     return builder.toString();
   }
 
+  /**
+   * Avro schema with the datum reader and the record reused to decode messages of this schema.
+   */
+  private static class SchemaEntry {
+    private final org.apache.avro.Schema schema;
+    private final DatumReader<Record> reader;
+    private Record record;
+
+    SchemaEntry(org.apache.avro.Schema schema) {
+      this.schema = schema;
+      this.reader = new GenericDatumReader<Record>(schema);
+    }
+  }
+
   private static class SchemaFetcher implements Callable<Boolean> {
     private org.apache.avro.Schema _schema;
     private URL url;
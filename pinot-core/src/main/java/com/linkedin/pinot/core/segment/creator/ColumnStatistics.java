@@ -70,6 +70,12 @@ public interface ColumnStatistics {
      */
     int getMaxNumberOfMultiValues();
 
+    /**
+     *
+     * @return True if the values of this single-valued column are in sorted order, false otherwise.
+     */
+    boolean isSorted();
+
     /**
      * @note
      * @return Returns if any of the values have nulls in the segments.
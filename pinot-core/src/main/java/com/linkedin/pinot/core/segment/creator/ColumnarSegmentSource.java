@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator;
+
+import com.linkedin.pinot.common.data.Schema;
+
+
+/**
+ * Source of dictionary encoded columnar data (e.g. the in-memory indexes of a consuming realtime segment), used to
+ * build a segment column by column instead of reading and profiling the records row by row.
+ */
+public interface ColumnarSegmentSource {
+
+  /**
+   * Returns the schema of the data.
+   */
+  Schema getSchema();
+
+  /**
+   * Returns the number of documents.
+   */
+  int getNumDocs();
+
+  /**
+   * Returns the statistics of a column in the schema. The unique values set of the column defines the value ids passed
+   * to {@link SegmentCreator#indexColumn(String, int[])}.
+   *
+   * @param column The column name
+   */
+  ColumnStatistics getColumnStatistics(String column) throws Exception;
+
+  /**
+   * Adds all the columns in the schema to the index creator through {@link SegmentCreator#indexColumn(String, int[])}
+   * and {@link SegmentCreator#indexColumn(String, int[][])}.
+   *
+   * @param indexCreator The initialized index creator
+   */
+  void indexColumns(SegmentCreator indexCreator) throws Exception;
+}
@@ -49,6 +49,25 @@ public interface SegmentCreator {
    */
   void indexRow(GenericRow row);
 
+  /**
+   * Adds all the values of a single-value column to the index, as an alternative to {@link #indexRow(GenericRow)} when
+   * the data is already columnar and dictionary encoded. All the columns must be indexed either row by row or column by
+   * column.
+   *
+   * @param column The column to index.
+   * @param valueIds For each document, the index of its value in the sorted unique values of the column passed in
+   *                 {@link ColumnIndexCreationInfo#getSortedUniqueElementsArray()}.
+   */
+  void indexColumn(String column, int[] valueIds);
+
+  /**
+   * Adds all the values of a multi-value column to the index, see {@link #indexColumn(String, int[])}.
+   *
+   * @param column The column to index.
+   * @param valueIds For each document, the indexes of its values in the sorted unique values of the column.
+   */
+  void indexColumn(String column, int[][] valueIds);
+
   /**
    * Sets the name of the segment.
    *
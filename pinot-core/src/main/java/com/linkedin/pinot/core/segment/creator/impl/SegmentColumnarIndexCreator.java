@@ -15,9 +15,13 @@
  */
 package com.linkedin.pinot.core.segment.creator.impl;
 
+import com.linkedin.pinot.common.config.ColumnPartitionConfig;
+import com.linkedin.pinot.common.config.SegmentPartitionConfig;
 import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.data.StarTreeIndexSpec;
+import com.linkedin.pinot.common.partition.PartitionFunction;
+import com.linkedin.pinot.common.partition.PartitionFunctionFactory;
 import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
 import com.linkedin.pinot.core.segment.creator.ColumnIndexCreationInfo;
@@ -28,6 +32,7 @@ import com.linkedin.pinot.core.segment.creator.SegmentCreator;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationInfo;
 import com.linkedin.pinot.core.segment.creator.SingleValueForwardIndexCreator;
 import com.linkedin.pinot.core.segment.creator.SingleValueRawIndexCreator;
+import com.linkedin.pinot.core.segment.creator.impl.bloom.BloomFilterCreator;
 import com.linkedin.pinot.core.segment.creator.impl.fwd.MultiValueUnsortedForwardIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueFixedByteRawIndexCreator;
 import com.linkedin.pinot.core.segment.creator.impl.fwd.SingleValueSortedForwardIndexCreator;
@@ -37,8 +42,11 @@ import com.linkedin.pinot.core.segment.creator.impl.inv.OffHeapBitmapInvertedInd
 import com.linkedin.pinot.core.startree.hll.HllConfig;
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeSet;
 import org.apache.commons.configuration.ConfigurationException;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.lang.StringEscapeUtils;
@@ -63,6 +71,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
   private Map<String, ForwardIndexCreator> forwardIndexCreatorMap;
   private Map<String, ForwardIndexCreator> rawIndexCreatorMap;
   private Map<String, InvertedIndexCreator> invertedIndexCreatorMap;
+  private Map<String, BloomFilterCreator> bloomFilterCreatorMap;
   private String segmentName;
 
   private Schema schema;
@@ -88,6 +97,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     forwardIndexCreatorMap = new HashMap<String, ForwardIndexCreator>();
     this.indexCreationInfoMap = indexCreationInfoMap;
     invertedIndexCreatorMap = new HashMap<String, InvertedIndexCreator>();
+    bloomFilterCreatorMap = new HashMap<String, BloomFilterCreator>();
     file = outDir;
 
     // Check that the output directory does not exist
@@ -116,7 +126,7 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       if (createDictionaryForColumn(info, config, spec)) {
         dictionaryCreatorMap.put(column,
             new SegmentDictionaryCreator(info.hasNulls(), info.getSortedUniqueElementsArray(), spec, file,
-                paddingCharacter));
+                paddingCharacter, config.isEnableVarLengthDictionary()));
       }
     }
 
@@ -173,6 +183,22 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
           uniqueValueCount, totalDocs, indexCreationInfo.getTotalNumberOfEntries(), schema.getFieldSpecFor(column));
       invertedIndexCreatorMap.put(column, invertedIndexCreator);
     }
+
+    // Bloom filters only depend on the unique values of the column, so build them upfront.
+    for (String column : config.getBloomFilterCreationColumns()) {
+      if (!schema.hasColumn(column)) {
+        LOGGER.warn("Skipping bloom filter on column:{} since its missing in schema", column);
+        continue;
+      }
+      ColumnIndexCreationInfo indexCreationInfo = indexCreationInfoMap.get(column);
+      Object sortedUniqueElements = indexCreationInfo.getSortedUniqueElementsArray();
+      int numUniqueElements = Array.getLength(sortedUniqueElements);
+      BloomFilterCreator bloomFilterCreator = new BloomFilterCreator(file, column, numUniqueElements);
+      for (int i = 0; i < numUniqueElements; i++) {
+        bloomFilterCreator.add(Array.get(sortedUniqueElements, i));
+      }
+      bloomFilterCreatorMap.put(column, bloomFilterCreator);
+    }
   }
 
   /**
@@ -241,6 +267,67 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     docIdCounter++;
   }
 
+  @Override
+  public void indexColumn(String column, int[] valueIds) {
+    int[] dictIdMapping = getDictIdMapping(column);
+    SingleValueForwardIndexCreator forwardIndexCreator =
+        (SingleValueForwardIndexCreator) forwardIndexCreatorMap.get(column);
+    InvertedIndexCreator invertedIndexCreator = invertedIndexCreatorMap.get(column);
+    try {
+      for (int docId = 0; docId < valueIds.length; docId++) {
+        int dictId = dictIdMapping[valueIds[docId]];
+        forwardIndexCreator.index(docId, dictId);
+        if (invertedIndexCreator != null) {
+          invertedIndexCreator.add(docId, dictId);
+        }
+      }
+    } catch (Exception e) {
+      throw new RuntimeException("Exception while indexing column:" + column, e);
+    }
+  }
+
+  @Override
+  public void indexColumn(String column, int[][] valueIds) {
+    int[] dictIdMapping = getDictIdMapping(column);
+    MultiValueForwardIndexCreator forwardIndexCreator =
+        (MultiValueForwardIndexCreator) forwardIndexCreatorMap.get(column);
+    InvertedIndexCreator invertedIndexCreator = invertedIndexCreatorMap.get(column);
+    try {
+      for (int docId = 0; docId < valueIds.length; docId++) {
+        int[] docValueIds = valueIds[docId];
+        int[] dictIds = new int[docValueIds.length];
+        for (int i = 0; i < dictIds.length; i++) {
+          dictIds[i] = dictIdMapping[docValueIds[i]];
+        }
+        forwardIndexCreator.index(docId, dictIds);
+        if (invertedIndexCreator != null) {
+          invertedIndexCreator.add(docId, dictIds);
+        }
+      }
+    } catch (Exception e) {
+      throw new RuntimeException("Exception while indexing column:" + column, e);
+    }
+  }
+
+  /**
+   * Returns the mapping from the index of a value in the sorted unique values of the column to its dictionary id. Both
+   * orders are the same except for padded string dictionaries, where the padding can change the order [PINOT-2730], so
+   * the mapping is looked up once per unique value instead of once per document.
+   */
+  private int[] getDictIdMapping(String column) {
+    SegmentDictionaryCreator dictionaryCreator = dictionaryCreatorMap.get(column);
+    if (dictionaryCreator == null) {
+      throw new IllegalStateException("Column " + column + " cannot be indexed by value ids without dictionary");
+    }
+    Object sortedUniqueElements = indexCreationInfoMap.get(column).getSortedUniqueElementsArray();
+    int numUniqueElements = Array.getLength(sortedUniqueElements);
+    int[] dictIdMapping = new int[numUniqueElements];
+    for (int i = 0; i < numUniqueElements; i++) {
+      dictIdMapping[i] = dictionaryCreator.indexOfSV(Array.get(sortedUniqueElements, i));
+    }
+    return dictIdMapping;
+  }
+
   @Override
   public void setSegmentName(String segmentName) {
     this.segmentName = segmentName;
@@ -260,6 +347,9 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     for (final String invertedColumn : invertedIndexCreatorMap.keySet()) {
       invertedIndexCreatorMap.get(invertedColumn).seal();
     }
+    for (final BloomFilterCreator bloomFilterCreator : bloomFilterCreatorMap.values()) {
+      bloomFilterCreator.seal();
+    }
     writeMetadata();
   }
 
@@ -348,11 +438,61 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
       addColumnMetadataInfo(properties, column, columnIndexCreationInfo, totalDocs, totalRawDocs, totalAggDocs,
           schema.getFieldSpecFor(column), dictionaryCreatorMap.containsKey(column), dictionaryElementSize,
           hasInvertedIndex, hllOriginColumn);
+      if (dictionaryCreator != null && dictionaryCreator.isVarLengthDictionary()) {
+        properties.setProperty(getKeyFor(column, IS_VAR_LENGTH_DICTIONARY), String.valueOf(true));
+      }
+    }
+
+    SegmentPartitionConfig segmentPartitionConfig = config.getSegmentPartitionConfig();
+    if (segmentPartitionConfig != null) {
+      for (Map.Entry<String, ColumnPartitionConfig> entry : segmentPartitionConfig.getColumnPartitionMap().entrySet()) {
+        String column = entry.getKey();
+        ColumnIndexCreationInfo columnIndexCreationInfo = indexCreationInfoMap.get(column);
+        if (columnIndexCreationInfo == null) {
+          LOGGER.warn("Skipping partition metadata on column:{} since its missing in schema", column);
+          continue;
+        }
+        // Partitions are computed on the string representation of the values at query time, which does not match the
+        // stored values for floating point columns (e.g. "1" vs "1.0").
+        FieldSpec.DataType dataType = schema.getFieldSpecFor(column).getDataType().getStoredType();
+        if (dataType == FieldSpec.DataType.FLOAT || dataType == FieldSpec.DataType.DOUBLE) {
+          LOGGER.warn("Skipping partition metadata on column:{} since its data type:{} is not supported", column,
+              dataType);
+          continue;
+        }
+        addColumnPartitionInfo(properties, column, columnIndexCreationInfo, entry.getValue());
+      }
     }
 
     properties.save();
   }
 
+  /**
+   * Helper method to compute the partitions of the unique values of the column and add them into the metadata.
+   * Partition metadata is skipped if the partition function cannot be applied to the values of the column.
+   */
+  private static void addColumnPartitionInfo(PropertiesConfiguration properties, String column,
+      ColumnIndexCreationInfo columnIndexCreationInfo, ColumnPartitionConfig columnPartitionConfig) {
+    TreeSet<Integer> partitions = new TreeSet<>();
+    try {
+      PartitionFunction partitionFunction = PartitionFunctionFactory.getPartitionFunction(
+          columnPartitionConfig.getFunctionName(), columnPartitionConfig.getNumPartitions());
+      Object sortedUniqueElements = columnIndexCreationInfo.getSortedUniqueElementsArray();
+      int numUniqueElements = Array.getLength(sortedUniqueElements);
+      for (int i = 0; i < numUniqueElements; i++) {
+        partitions.add(partitionFunction.getPartition(Array.get(sortedUniqueElements, i)));
+      }
+      properties.setProperty(getKeyFor(column, PARTITION_FUNCTION), partitionFunction.toString());
+    } catch (IllegalArgumentException e) {
+      // NumberFormatException is an IllegalArgumentException.
+      LOGGER.warn("Caught exception while computing partitions with config: {} for column: {}, skipping it",
+          columnPartitionConfig, column, e);
+      return;
+    }
+    properties.setProperty(getKeyFor(column, NUM_PARTITIONS), String.valueOf(columnPartitionConfig.getNumPartitions()));
+    properties.setProperty(getKeyFor(column, PARTITION_VALUES), new ArrayList<>(partitions));
+  }
+
   public static void addColumnMetadataInfo(PropertiesConfiguration properties, String column,
       ColumnIndexCreationInfo columnIndexCreationInfo, int totalDocs, int totalRawDocs,
       int totalAggDocs, FieldSpec fieldSpec, boolean hasDictionary, int dictionaryElementSize, boolean hasInvertedIndex,
@@ -394,6 +534,29 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     }
     properties.setProperty(V1Constants.MetadataKeys.Column.getKeyFor(column, DEFAULT_NULL_VALUE),
         String.valueOf(defaultNullValue));
+
+    // Min/max values of the raw docs, used to prune segments on the server side.
+    Object minValue = columnIndexCreationInfo.getMin();
+    Object maxValue = columnIndexCreationInfo.getMax();
+    if (minValue != null && maxValue != null && isValidPropertyValue(minValue.toString())
+        && isValidPropertyValue(maxValue.toString())) {
+      properties.setProperty(getKeyFor(column, MIN_VALUE), minValue.toString());
+      properties.setProperty(getKeyFor(column, MAX_VALUE), maxValue.toString());
+    }
+  }
+
+  /**
+   * Helper method to check whether the given value can be stored into the properties file and read back as is.
+   * Values with leading/trailing white spaces or list delimiters are modified by the properties configuration.
+   */
+  private static boolean isValidPropertyValue(String value) {
+    if (value.isEmpty()) {
+      return true;
+    }
+    if (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1))) {
+      return false;
+    }
+    return value.indexOf(PropertiesConfiguration.getDefaultListDelimiter()) == -1;
   }
 
   public static void removeColumnMetadataInfo(PropertiesConfiguration properties, String column) {
@@ -414,6 +577,12 @@ public class SegmentColumnarIndexCreator implements SegmentCreator {
     properties.clearProperty(getKeyFor(column, TOTAL_NUMBER_OF_ENTRIES));
     properties.clearProperty(getKeyFor(column, IS_AUTO_GENERATED));
     properties.clearProperty(getKeyFor(column, DEFAULT_NULL_VALUE));
+    properties.clearProperty(getKeyFor(column, MIN_VALUE));
+    properties.clearProperty(getKeyFor(column, MAX_VALUE));
+    properties.clearProperty(getKeyFor(column, IS_VAR_LENGTH_DICTIONARY));
+    properties.clearProperty(getKeyFor(column, PARTITION_FUNCTION));
+    properties.clearProperty(getKeyFor(column, NUM_PARTITIONS));
+    properties.clearProperty(getKeyFor(column, PARTITION_VALUES));
   }
 
   /**
@@ -23,8 +23,11 @@ import it.unimi.dsi.fastutil.floats.Float2IntOpenHashMap;
 import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
 import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.charset.Charset;
 import java.util.Arrays;
@@ -43,6 +46,7 @@ public class SegmentDictionaryCreator implements Closeable {
   private final File dictionaryFile;
   private final int rowCount;
   private final char  paddingChar;
+  private final boolean varLengthDictionary;
   private static final Charset utf8CharSet = Charset.forName("UTF-8");
 
   private Int2IntOpenHashMap intValueToIndexMap;
@@ -55,6 +59,16 @@ public class SegmentDictionaryCreator implements Closeable {
 
   public SegmentDictionaryCreator(boolean hasNulls, Object sortedList, FieldSpec spec, File indexDir, char paddingChar)
       throws IOException {
+    this(hasNulls, sortedList, spec, indexDir, paddingChar, false);
+  }
+
+  /**
+   * @param varLengthDictionary whether to write STRING/BOOLEAN dictionaries in variable length format, see
+   *                            {@link #writeVarLengthStringDictionary(String[], File)}.
+   */
+  public SegmentDictionaryCreator(boolean hasNulls, Object sortedList, FieldSpec spec, File indexDir, char paddingChar,
+      boolean varLengthDictionary)
+      throws IOException {
     rowCount = ArrayUtils.getLength(sortedList);
 
     Object first = null;
@@ -102,6 +116,7 @@ public class SegmentDictionaryCreator implements Closeable {
     this.sortedList = sortedList;
     this.spec = spec;
     this.paddingChar = paddingChar;
+    this.varLengthDictionary = varLengthDictionary;
     dictionaryFile = new File(indexDir, spec.getName() + ".dict");
     FileUtils.touch(dictionaryFile);
   }
@@ -176,6 +191,11 @@ public class SegmentDictionaryCreator implements Closeable {
           }
         }
 
+        if (varLengthDictionary) {
+          buildVarLengthStringDictionary(sortedObjects);
+          break;
+        }
+
         final FixedByteSingleValueMultiColWriter stringDictionaryWrite =
             new FixedByteSingleValueMultiColWriter(dictionaryFile, rowCount, 1,
                 new int[] { stringColumnMaxLength });
@@ -216,10 +236,67 @@ public class SegmentDictionaryCreator implements Closeable {
     }
   }
 
+  private void buildVarLengthStringDictionary(Object[] sortedObjects)
+      throws IOException {
+    // Values are stored without padding, so the dictionary order is the natural order of the values.
+    String[] sortedValues = new String[rowCount];
+    for (int i = 0; i < rowCount; i++) {
+      sortedValues[i] = sortedObjects[i].toString();
+    }
+    Arrays.sort(sortedValues);
+    writeVarLengthStringDictionary(sortedValues, dictionaryFile);
+
+    stringValueToIndexMap = new Object2IntOpenHashMap<>(rowCount);
+    for (int i = 0; i < rowCount; i++) {
+      stringValueToIndexMap.put(sortedValues[i], i);
+    }
+  }
+
+  /**
+   * Write sorted string values into a variable length dictionary file.
+   * <p>
+   * FILE FORMAT
+   * </p>
+   * <code>
+   * [VALUE OFFSETS] -- (number of values + 1) INTs, offset of each value relative to the start of the value bytes. The
+   * extra offset is the end of the last value.
+   * [VALUE BYTES] -- UTF-8 bytes of the values, packed without padding.
+   * </code>
+   * This file can be read using VarLengthStringDictionary.
+   *
+   * @param sortedValues values sorted by {@link String#compareTo(String)}.
+   * @param dictionaryFile file to write.
+   */
+  public static void writeVarLengthStringDictionary(String[] sortedValues, File dictionaryFile)
+      throws IOException {
+    int numValues = sortedValues.length;
+    byte[][] valueBytes = new byte[numValues][];
+    for (int i = 0; i < numValues; i++) {
+      valueBytes[i] = sortedValues[i].getBytes(utf8CharSet);
+    }
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(dictionaryFile)))) {
+      int offset = 0;
+      out.writeInt(offset);
+      for (byte[] bytes : valueBytes) {
+        offset += bytes.length;
+        out.writeInt(offset);
+      }
+      for (byte[] bytes : valueBytes) {
+        out.write(bytes);
+      }
+    }
+  }
+
   public int getStringColumnMaxLength() {
     return stringColumnMaxLength;
   }
 
+  public boolean isVarLengthDictionary() {
+    return varLengthDictionary && (spec.getDataType() == FieldSpec.DataType.STRING
+        || spec.getDataType() == FieldSpec.DataType.BOOLEAN);
+  }
+
   public int indexOfSV(Object e) {
     switch (spec.getDataType()) {
       case INT:
@@ -46,6 +46,7 @@ import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
 import com.linkedin.pinot.core.segment.creator.AbstractColumnStatisticsCollector;
 import com.linkedin.pinot.core.segment.creator.ColumnIndexCreationInfo;
 import com.linkedin.pinot.core.segment.creator.ColumnStatistics;
+import com.linkedin.pinot.core.segment.creator.ColumnarSegmentSource;
 import com.linkedin.pinot.core.segment.creator.ForwardIndexType;
 import com.linkedin.pinot.core.segment.creator.InvertedIndexType;
 import com.linkedin.pinot.core.segment.creator.SegmentCreator;
@@ -76,6 +77,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
   SegmentGeneratorConfig config;
   RecordReader recordReader;
+  ColumnarSegmentSource columnarSource;
   SegmentPreIndexStatsCollector statsCollector;
   Map<String, ColumnIndexCreationInfo> indexCreationInfoMap;
   SegmentCreator indexCreator;
@@ -97,6 +99,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   boolean createHllIndex = false;
 
   private File starTreeTempDir;
+  private File spillDir;
 
   @Override
   public void init(SegmentGeneratorConfig config) throws Exception {
@@ -133,6 +136,32 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     statsCollector = new SegmentPreIndexStatsCollectorImpl(recordReader.getSchema());
     statsCollector.init();
 
+    initIndexCreation();
+  }
+
+  /**
+   * Initializes the driver to build the segment from columnar data, see {@link ColumnarSegmentSource}. The statistics
+   * come from the source, so the data is neither profiled nor read row by row, and no stats collector is used. Star
+   * tree and derived HLL fields are built from rows, so they are not supported.
+   */
+  public void init(SegmentGeneratorConfig config, ColumnarSegmentSource columnarSource) throws Exception {
+    if (config.isEnableStarTreeIndex()) {
+      throw new IllegalArgumentException("Star tree cannot be built from columnar data.");
+    }
+    HllConfig hllConfig = config.getHllConfig();
+    if (hllConfig != null && hllConfig.getColumnsToDeriveHllFields() != null
+        && !hllConfig.getColumnsToDeriveHllFields().isEmpty()) {
+      throw new IllegalArgumentException("Derived HLL fields cannot be built from columnar data.");
+    }
+    this.config = config;
+    this.columnarSource = columnarSource;
+    dataSchema = columnarSource.getSchema();
+    extractor = (PlainFieldExtractor) FieldExtractorFactory.getPlainFieldExtractor(dataSchema);
+
+    initIndexCreation();
+  }
+
+  private void initIndexCreation() {
     // Initialize index creation
     segmentIndexCreationInfo = new SegmentIndexCreationInfo();
     indexCreationInfoMap = new HashMap<String, ColumnIndexCreationInfo>();
@@ -148,6 +177,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     // Create a temporary directory used in segment creation
     tempIndexDir = new File(indexDir, com.linkedin.pinot.common.utils.FileUtils.getRandomFileName());
     starTreeTempDir = new File(indexDir, com.linkedin.pinot.common.utils.FileUtils.getRandomFileName());
+    spillDir = new File(indexDir, com.linkedin.pinot.common.utils.FileUtils.getRandomFileName());
     LOGGER.debug("tempIndexDir:{}", tempIndexDir);
     LOGGER.debug("starTreeTempDir:{}", starTreeTempDir);
   }
@@ -185,7 +215,9 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
   @Override
   public void build() throws Exception {
-    if (createStarTree) {
+    if (columnarSource != null) {
+      buildColumnar();
+    } else if (createStarTree) {
       buildStarTree();
     } else {
       buildRaw();
@@ -351,40 +383,68 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   }
 
   public void buildRaw() throws Exception {
-    // Count the number of documents and gather per-column statistics
-    LOGGER.debug("Start building StatsCollector!");
-    totalDocs = 0;
-    GenericRow readRow = new GenericRow();
-    GenericRow transformedRow = new GenericRow();
-    while (recordReader.hasNext()) {
-      totalDocs++;
-      totalRawDocs++;
-      long start = System.currentTimeMillis();
-      transformedRow = readNextRowSanitized(readRow, transformedRow);
-      long stop = System.currentTimeMillis();
-      statsCollector.collectRow(transformedRow);
-      long stop1 = System.currentTimeMillis();
-      totalRecordReadTime += (stop - start);
-      totalStatsCollectorTime += (stop1 - stop);
+    // In single pass mode, the rows are spilled while collecting the stats, and indexed from the spill files
+    SpilledColumnarSegmentSource spilledSource = null;
+    if (config.isEnableSinglePassCreation()) {
+      if (config.getRawIndexCreationColumns().isEmpty()) {
+        spilledSource = new SpilledColumnarSegmentSource(dataSchema, statsCollector, spillDir);
+      } else {
+        LOGGER.warn("Single pass creation is not supported with raw index columns, reading the input twice");
+      }
     }
-    buildIndexCreationInfo();
-    LOGGER.info("Finished building StatsCollector!");
-    LOGGER.info("Collected stats for {} documents", totalDocs);
-
-    // Initialize the index creation using the per-column statistics information
-    indexCreator.init(config, segmentIndexCreationInfo, indexCreationInfoMap, dataSchema, tempIndexDir);
 
-    // Build the index
-    recordReader.rewind();
-    LOGGER.info("Start building IndexCreator!");
-    while (recordReader.hasNext()) {
-      long start = System.currentTimeMillis();
-      transformedRow = readNextRowSanitized(readRow, transformedRow);
-      long stop = System.currentTimeMillis();
-      indexCreator.indexRow(transformedRow);
-      long stop1 = System.currentTimeMillis();
-      totalRecordReadTime += (stop - start);
-      totalIndexTime += (stop1 - stop);
+    try {
+      // Count the number of documents and gather per-column statistics
+      LOGGER.debug("Start building StatsCollector!");
+      totalDocs = 0;
+      GenericRow readRow = new GenericRow();
+      GenericRow transformedRow = new GenericRow();
+      while (recordReader.hasNext()) {
+        totalDocs++;
+        totalRawDocs++;
+        long start = System.currentTimeMillis();
+        transformedRow = readNextRowSanitized(readRow, transformedRow);
+        long stop = System.currentTimeMillis();
+        statsCollector.collectRow(transformedRow);
+        if (spilledSource != null) {
+          spilledSource.spillRow(transformedRow);
+        }
+        long stop1 = System.currentTimeMillis();
+        totalRecordReadTime += (stop - start);
+        totalStatsCollectorTime += (stop1 - stop);
+      }
+      buildIndexCreationInfo();
+      LOGGER.info("Finished building StatsCollector!");
+      LOGGER.info("Collected stats for {} documents", totalDocs);
+
+      // Initialize the index creation using the per-column statistics information
+      indexCreator.init(config, segmentIndexCreationInfo, indexCreationInfoMap, dataSchema, tempIndexDir);
+
+      if (spilledSource != null) {
+        // Build the index from the spill files
+        LOGGER.info("Start building IndexCreator from spilled columns!");
+        long start = System.currentTimeMillis();
+        spilledSource.finishSpilling();
+        spilledSource.indexColumns(indexCreator);
+        totalIndexTime += System.currentTimeMillis() - start;
+      } else {
+        // Build the index
+        recordReader.rewind();
+        LOGGER.info("Start building IndexCreator!");
+        while (recordReader.hasNext()) {
+          long start = System.currentTimeMillis();
+          transformedRow = readNextRowSanitized(readRow, transformedRow);
+          long stop = System.currentTimeMillis();
+          indexCreator.indexRow(transformedRow);
+          long stop1 = System.currentTimeMillis();
+          totalRecordReadTime += (stop - start);
+          totalIndexTime += (stop1 - stop);
+        }
+      }
+    } finally {
+      if (spilledSource != null) {
+        spilledSource.close();
+      }
     }
     recordReader.close();
     LOGGER.info("Finished records indexing in IndexCreator!");
@@ -412,9 +472,29 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
     handlePostCreation();
   }
 
+  /**
+   * Builds the segment from the columnar source, one column at a time.
+   */
+  public void buildColumnar() throws Exception {
+    totalDocs = columnarSource.getNumDocs();
+    totalRawDocs = totalDocs;
+    buildIndexCreationInfo();
+    LOGGER.info("Collected stats for {} documents from columnar source", totalDocs);
+
+    // Initialize the index creation using the per-column statistics information
+    indexCreator.init(config, segmentIndexCreationInfo, indexCreationInfoMap, dataSchema, tempIndexDir);
+
+    long start = System.currentTimeMillis();
+    columnarSource.indexColumns(indexCreator);
+    totalIndexTime = System.currentTimeMillis() - start;
+    LOGGER.info("Finished columns indexing in IndexCreator!");
+
+    handlePostCreation();
+  }
+
   private void handlePostCreation() throws Exception {
     final String timeColumn = config.getTimeColumnName();
-    segmentName = config.getSegmentNameGenerator().getSegmentName(statsCollector.getColumnProfileFor(timeColumn));
+    segmentName = config.getSegmentNameGenerator().getSegmentName(getColumnStatisticsCollector(timeColumn));
 
     // Write the index files to disk
     indexCreator.setSegmentName(segmentName);
@@ -439,7 +519,7 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
 
     // Persist creation metadata to disk
     persistCreationMeta(segmentOutputDir, crc);
-    Map<String, MutableLong> nullCountMap = recordReader.getNullCountMap();
+    Map<String, MutableLong> nullCountMap = recordReader != null ? recordReader.getNullCountMap() : null;
     if (nullCountMap != null) {
       for (Map.Entry<String, MutableLong> entry : nullCountMap.entrySet()) {
         AbstractColumnStatisticsCollector columnStatisticsCollector =
@@ -480,6 +560,9 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
   }
 
   public ColumnStatistics getColumnStatisticsCollector(final String columnName) throws Exception {
+    if (columnarSource != null) {
+      return columnarSource.getColumnStatistics(columnName);
+    }
     return statsCollector.getColumnProfileFor(columnName);
   }
 
@@ -516,19 +599,19 @@ public class SegmentIndexCreationDriverImpl implements SegmentIndexCreationDrive
    */
   void buildIndexCreationInfo()
       throws Exception {
-    statsCollector.build();
+    // The statistics of a columnar source are complete upfront
+    if (statsCollector != null) {
+      statsCollector.build();
+    }
     for (FieldSpec spec : dataSchema.getAllFieldSpecs()) {
       String column = spec.getName();
+      ColumnStatistics columnStatistics = getColumnStatisticsCollector(column);
       indexCreationInfoMap.put(column, new ColumnIndexCreationInfo(true/*createDictionary*/,
-          statsCollector.getColumnProfileFor(column).getMinValue(),
-          statsCollector.getColumnProfileFor(column).getMaxValue(),
-          statsCollector.getColumnProfileFor(column).getUniqueValuesSet(), ForwardIndexType.FIXED_BIT_COMPRESSED,
-          InvertedIndexType.ROARING_BITMAPS, statsCollector.getColumnProfileFor(column).isSorted(),
-          statsCollector.getColumnProfileFor(column).hasNull(),
-          statsCollector.getColumnProfileFor(column).getTotalNumberOfEntries(),
-          statsCollector.getColumnProfileFor(column).getMaxNumberOfMultiValues(),
-          statsCollector.getColumnProfileFor(column).getLengthOfLargestElement(), false/*isAutoGenerated*/,
-          dataSchema.getFieldSpecFor(column).getDefaultNullValue()));
+          columnStatistics.getMinValue(), columnStatistics.getMaxValue(), columnStatistics.getUniqueValuesSet(),
+          ForwardIndexType.FIXED_BIT_COMPRESSED, InvertedIndexType.ROARING_BITMAPS, columnStatistics.isSorted(),
+          columnStatistics.hasNull(), columnStatistics.getTotalNumberOfEntries(),
+          columnStatistics.getMaxNumberOfMultiValues(), columnStatistics.getLengthOfLargestElement(),
+          false/*isAutoGenerated*/, dataSchema.getFieldSpecFor(column).getDefaultNullValue()));
     }
     segmentIndexCreationInfo.setTotalDocs(totalDocs);
     segmentIndexCreationInfo.setTotalRawDocs(totalRawDocs);
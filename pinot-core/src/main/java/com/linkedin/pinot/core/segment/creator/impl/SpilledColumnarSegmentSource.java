@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator.impl;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.segment.creator.ColumnStatistics;
+import com.linkedin.pinot.core.segment.creator.ColumnarSegmentSource;
+import com.linkedin.pinot.core.segment.creator.SegmentCreator;
+import com.linkedin.pinot.core.segment.creator.SegmentPreIndexStatsCollector;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+
+/**
+ * {@link ColumnarSegmentSource} over rows spilled to local disk in columnar form while their statistics are collected,
+ * so that the segment can be built without reading and parsing the input a second time.
+ * <ul>
+ *   <li>Each column is appended to its own spill file in its binary form: INT and FLOAT values take 4 bytes, LONG and
+ *   DOUBLE values take 8 bytes, STRING and BOOLEAN values are stored as the length followed by the UTF-8 bytes. A
+ *   multi-value entry is stored as the number of values followed by the values.</li>
+ *   <li>Once the statistics are sealed, each spill file is read back sequentially, one column at a time, and the values
+ *   are mapped to their index in the sorted unique values of the column with a binary search.</li>
+ * </ul>
+ */
+public class SpilledColumnarSegmentSource implements ColumnarSegmentSource, Closeable {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final String SPILL_FILE_EXTENSION = ".spill";
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final Schema _schema;
+  private final SegmentPreIndexStatsCollector _statsCollector;
+  private final File _spillDir;
+  private final FieldSpec[] _fieldSpecs;
+  private final DataOutputStream[] _outputStreams;
+  private int _numDocs = 0;
+
+  public SpilledColumnarSegmentSource(Schema schema, SegmentPreIndexStatsCollector statsCollector, File spillDir)
+      throws IOException {
+    _schema = schema;
+    _statsCollector = statsCollector;
+    _spillDir = spillDir;
+    FileUtils.forceMkdir(spillDir);
+
+    _fieldSpecs = schema.getAllFieldSpecs().toArray(new FieldSpec[0]);
+    _outputStreams = new DataOutputStream[_fieldSpecs.length];
+    for (int i = 0; i < _fieldSpecs.length; i++) {
+      _outputStreams[i] = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(getSpillFile(i)), BUFFER_SIZE));
+    }
+  }
+
+  private File getSpillFile(int columnIndex) {
+    // Use the index instead of the column name, which is not guaranteed to be a valid file name
+    return new File(_spillDir, columnIndex + SPILL_FILE_EXTENSION);
+  }
+
+  /**
+   * Appends the values of a row, after the type conversions of the field extractor, to the spill files.
+   */
+  public void spillRow(GenericRow row) throws IOException {
+    for (int i = 0; i < _fieldSpecs.length; i++) {
+      FieldSpec fieldSpec = _fieldSpecs[i];
+      DataOutputStream outputStream = _outputStreams[i];
+      Object value = row.getValue(fieldSpec.getName());
+      if (fieldSpec.isSingleValueField()) {
+        writeValue(outputStream, fieldSpec.getDataType(), value);
+      } else {
+        Object[] values = (Object[]) value;
+        outputStream.writeInt(values.length);
+        for (Object element : values) {
+          writeValue(outputStream, fieldSpec.getDataType(), element);
+        }
+      }
+    }
+    _numDocs++;
+  }
+
+  private static void writeValue(DataOutputStream outputStream, FieldSpec.DataType dataType, Object value)
+      throws IOException {
+    switch (dataType) {
+      case INT:
+        outputStream.writeInt(((Number) value).intValue());
+        break;
+      case LONG:
+        outputStream.writeLong(((Number) value).longValue());
+        break;
+      case FLOAT:
+        outputStream.writeFloat(((Number) value).floatValue());
+        break;
+      case DOUBLE:
+        outputStream.writeDouble(((Number) value).doubleValue());
+        break;
+      case STRING:
+      case BOOLEAN:
+        byte[] bytes = value.toString().getBytes(UTF_8);
+        outputStream.writeInt(bytes.length);
+        outputStream.write(bytes);
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported data type: " + dataType);
+    }
+  }
+
+  /**
+   * Flushes and closes the spill files. Must be called after spilling the last row and before indexing the columns.
+   */
+  public void finishSpilling() throws IOException {
+    for (DataOutputStream outputStream : _outputStreams) {
+      outputStream.close();
+    }
+  }
+
+  @Override
+  public Schema getSchema() {
+    return _schema;
+  }
+
+  @Override
+  public int getNumDocs() {
+    return _numDocs;
+  }
+
+  @Override
+  public ColumnStatistics getColumnStatistics(String column) {
+    return _statsCollector.getColumnProfileFor(column);
+  }
+
+  @Override
+  public void indexColumns(SegmentCreator indexCreator) throws Exception {
+    for (int i = 0; i < _fieldSpecs.length; i++) {
+      FieldSpec fieldSpec = _fieldSpecs[i];
+      String column = fieldSpec.getName();
+      FieldSpec.DataType dataType = fieldSpec.getDataType();
+      Object sortedValues = _statsCollector.getColumnProfileFor(column).getUniqueValuesSet();
+
+      try (DataInputStream inputStream = new DataInputStream(
+          new BufferedInputStream(new FileInputStream(getSpillFile(i)), BUFFER_SIZE))) {
+        if (fieldSpec.isSingleValueField()) {
+          int[] valueIds = new int[_numDocs];
+          for (int docId = 0; docId < _numDocs; docId++) {
+            valueIds[docId] = readValueId(inputStream, dataType, sortedValues, column);
+          }
+          indexCreator.indexColumn(column, valueIds);
+        } else {
+          int[][] valueIds = new int[_numDocs][];
+          for (int docId = 0; docId < _numDocs; docId++) {
+            int[] docValueIds = new int[inputStream.readInt()];
+            for (int j = 0; j < docValueIds.length; j++) {
+              docValueIds[j] = readValueId(inputStream, dataType, sortedValues, column);
+            }
+            valueIds[docId] = docValueIds;
+          }
+          indexCreator.indexColumn(column, valueIds);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads the next value from the spill file and returns its index in the sorted unique values of the column.
+   */
+  private static int readValueId(DataInputStream inputStream, FieldSpec.DataType dataType, Object sortedValues,
+      String column) throws IOException {
+    int valueId;
+    switch (dataType) {
+      case INT:
+        valueId = Arrays.binarySearch((int[]) sortedValues, inputStream.readInt());
+        break;
+      case LONG:
+        valueId = Arrays.binarySearch((long[]) sortedValues, inputStream.readLong());
+        break;
+      case FLOAT:
+        valueId = Arrays.binarySearch((float[]) sortedValues, inputStream.readFloat());
+        break;
+      case DOUBLE:
+        valueId = Arrays.binarySearch((double[]) sortedValues, inputStream.readDouble());
+        break;
+      case STRING:
+      case BOOLEAN:
+        byte[] bytes = new byte[inputStream.readInt()];
+        inputStream.readFully(bytes);
+        valueId = Arrays.binarySearch((Object[]) sortedValues, new String(bytes, UTF_8));
+        break;
+      default:
+        throw new UnsupportedOperationException("Unsupported data type: " + dataType);
+    }
+    if (valueId < 0) {
+      throw new IllegalStateException("Spilled value of column " + column + " is missing from the statistics");
+    }
+    return valueId;
+  }
+
+  /**
+   * Closes the spill files if still open and deletes them.
+   */
+  @Override
+  public void close() {
+    for (DataOutputStream outputStream : _outputStreams) {
+      IOUtils.closeQuietly(outputStream);
+    }
+    FileUtils.deleteQuietly(_spillDir);
+  }
+}
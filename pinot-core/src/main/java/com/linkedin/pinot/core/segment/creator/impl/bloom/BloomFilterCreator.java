@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator.impl.bloom;
+
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+
+/**
+ * Creator for the bloom filter of a column, which allows pruning segments on equality predicates without touching
+ * the dictionary.
+ * Typical usage
+ * <code>
+ * creator = new BloomFilterCreator(indexDir, column, cardinality);
+ * creator.add(value) // for each unique value
+ * creator.seal() // writes the bloom filter file
+ * </code>
+ * See {@link BloomFilterUtils} for the file format.
+ */
+public class BloomFilterCreator {
+  private final File _bloomFilterFile;
+  private final int _numHashFunctions;
+  private final long _numBits;
+  private final byte[] _bits;
+  private final long[] _hashes = new long[2];
+
+  public BloomFilterCreator(File indexDir, String column, int cardinality) {
+    this(indexDir, column, cardinality, BloomFilterUtils.DEFAULT_FALSE_POSITIVE_PROBABILITY);
+  }
+
+  public BloomFilterCreator(File indexDir, String column, int cardinality, double falsePositiveProbability) {
+    _bloomFilterFile = new File(indexDir, column + V1Constants.Indexes.BLOOM_FILTER_FILE_EXTENSION);
+    int numBytes = BloomFilterUtils.computeNumBytes(cardinality, falsePositiveProbability);
+    _numHashFunctions = BloomFilterUtils.computeNumHashFunctions(cardinality, numBytes);
+    _numBits = (long) numBytes * Byte.SIZE;
+    _bits = new byte[numBytes];
+  }
+
+  /**
+   * Add a value into the bloom filter. Values are stored as their string representation.
+   */
+  public void add(Object value) {
+    BloomFilterUtils.hash(value.toString(), _hashes);
+    for (int i = 0; i < _numHashFunctions; i++) {
+      long bitIndex = BloomFilterUtils.getBitIndex(_hashes, i, _numBits);
+      _bits[(int) (bitIndex >>> 3)] |= 1 << (bitIndex & 7);
+    }
+  }
+
+  public void seal()
+      throws IOException {
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(_bloomFilterFile)))) {
+      out.writeInt(BloomFilterUtils.VERSION);
+      out.writeInt(_numHashFunctions);
+      out.writeInt(_bits.length);
+      out.write(_bits);
+    }
+  }
+}
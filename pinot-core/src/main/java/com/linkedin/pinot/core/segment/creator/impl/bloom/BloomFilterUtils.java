@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.creator.impl.bloom;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.utils.request.FilterPruningUtils;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+
+
+/**
+ * Utility methods shared by the bloom filter creator and reader.
+ *
+ * Bloom filter file format (big-endian):
+ * <code>
+ * [VERSION] -- INT
+ * [NUM_HASH_FUNCTIONS] -- INT
+ * [NUM_BYTES] -- INT, number of bytes of the bit array
+ * [BIT_ARRAY] -- NUM_BYTES bytes, bit i is stored in byte (i / 8) at position (i % 8)
+ * </code>
+ *
+ * Values are hashed with 128 bits murmur3 over the UTF-8 bytes of their string representation, and the k bit
+ * positions are derived from the two 64 bits halves of the hash (Kirsch-Mitzenmacher), same as guava's bloom filter.
+ */
+public class BloomFilterUtils {
+  public static final int VERSION = 1;
+  public static final int HEADER_SIZE = 3 * Integer.SIZE / Byte.SIZE;
+  public static final double DEFAULT_FALSE_POSITIVE_PROBABILITY = 0.05;
+
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+  private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+  private BloomFilterUtils() {
+  }
+
+  /**
+   * Get the optimal number of bytes of the bit array for the given cardinality and false positive probability.
+   */
+  public static int computeNumBytes(int cardinality, double falsePositiveProbability) {
+    long numBits =
+        (long) Math.ceil(-Math.max(cardinality, 1) * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+    long numBytes = (numBits + Byte.SIZE - 1) / Byte.SIZE;
+    if (numBytes > Integer.MAX_VALUE - HEADER_SIZE) {
+      throw new IllegalArgumentException(
+          "Bloom filter too large for cardinality: " + cardinality + ", fpp: " + falsePositiveProbability);
+    }
+    return (int) numBytes;
+  }
+
+  /**
+   * Get the optimal number of hash functions for the given cardinality and bit array size.
+   */
+  public static int computeNumHashFunctions(int cardinality, int numBytes) {
+    long numBits = (long) numBytes * Byte.SIZE;
+    return Math.max(1, (int) Math.round((double) numBits / Math.max(cardinality, 1) * Math.log(2)));
+  }
+
+  /**
+   * Get the 128 bits hash of a value as two longs.
+   *
+   * @param value string representation of the value.
+   * @param hashes buffer of size 2 to return the hash.
+   */
+  public static void hash(String value, long[] hashes) {
+    ByteBuffer byteBuffer =
+        ByteBuffer.wrap(HASH_FUNCTION.hashString(value, UTF_8).asBytes()).order(ByteOrder.LITTLE_ENDIAN);
+    hashes[0] = byteBuffer.getLong();
+    hashes[1] = byteBuffer.getLong();
+  }
+
+  /**
+   * Get the index of the bit for the given hash function.
+   */
+  public static long getBitIndex(long[] hashes, int hashFunctionIndex, long numBits) {
+    long combinedHash = hashes[0] + hashFunctionIndex * hashes[1];
+    return (combinedHash & Long.MAX_VALUE) % numBits;
+  }
+
+  /**
+   * Convert a value from the query into the same string representation that is stored in the bloom filter for the
+   * given data type, e.g. "1.50" for a FLOAT column is converted to "1.5".
+   *
+   * @throws NumberFormatException if the value cannot be parsed into the data type.
+   */
+  public static String getStoredValue(String value, FieldSpec.DataType dataType) {
+    return FilterPruningUtils.getStoredValue(value, dataType);
+  }
+}
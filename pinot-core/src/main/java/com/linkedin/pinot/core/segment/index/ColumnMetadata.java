@@ -22,9 +22,12 @@ import com.linkedin.pinot.common.data.FieldSpec.FieldType;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.MetricFieldSpec.DerivedMetricType;
 import com.linkedin.pinot.common.data.TimeFieldSpec;
+import com.linkedin.pinot.common.metadata.segment.ColumnPartitionMetadata;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import com.linkedin.pinot.core.startree.hll.HllUtil;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.configuration.PropertiesConfiguration;
 import org.apache.commons.lang.StringEscapeUtils;
@@ -66,6 +69,10 @@ public class ColumnMetadata {
   private final DerivedMetricType derivedMetricType;
   private final int fieldSize;
   private final String originColumnName;
+  private final Comparable minValue;
+  private final Comparable maxValue;
+  private final boolean isVarLengthDictionary;
+  private final ColumnPartitionMetadata partitionMetadata;
 
   public static ColumnMetadata fromPropertiesConfiguration(String column, PropertiesConfiguration config) {
     Builder builder = new Builder();
@@ -76,7 +83,8 @@ public class ColumnMetadata {
     builder.setTotalDocs(totalDocs);
     builder.setTotalRawDocs(config.getInt(getKeyFor(column, TOTAL_RAW_DOCS), totalDocs));
     builder.setTotalAggDocs(config.getInt(getKeyFor(column, TOTAL_AGG_DOCS), 0));
-    builder.setDataType(DataType.valueOf(config.getString(getKeyFor(column, DATA_TYPE)).toUpperCase()));
+    DataType dataType = DataType.valueOf(config.getString(getKeyFor(column, DATA_TYPE)).toUpperCase());
+    builder.setDataType(dataType);
     builder.setBitsPerElement(config.getInt(getKeyFor(column, BITS_PER_ELEMENT)));
     builder.setStringColumnMaxLength(config.getInt(getKeyFor(column, DICTIONARY_ELEMENT_SIZE)));
     builder.setFieldType(FieldType.valueOf(config.getString(getKeyFor(column, COLUMN_TYPE)).toUpperCase()));
@@ -84,6 +92,7 @@ public class ColumnMetadata {
     builder.setContainsNulls(config.getBoolean(getKeyFor(column, HAS_NULL_VALUE)));
     builder.setHasDictionary(config.getBoolean(getKeyFor(column, HAS_DICTIONARY), true));
     builder.setHasInvertedIndex(config.getBoolean(getKeyFor(column, HAS_INVERTED_INDEX)));
+    builder.setVarLengthDictionary(config.getBoolean(getKeyFor(column, IS_VAR_LENGTH_DICTIONARY), false));
     builder.setSingleValue(config.getBoolean(getKeyFor(column, IS_SINGLE_VALUED)));
     builder.setMaxNumberOfMultiValues(config.getInt(getKeyFor(column, MAX_MULTI_VALUE_ELEMTS)));
     builder.setTotalNumberOfEntries(config.getInt(getKeyFor(column, TOTAL_NUMBER_OF_ENTRIES)));
@@ -97,6 +106,36 @@ public class ColumnMetadata {
     }
     builder.setPaddingCharacter(paddingCharacter);
 
+    // Min/max values are not available in segments created before they were added to the metadata.
+    String minString = config.getString(getKeyFor(column, MIN_VALUE), null);
+    String maxString = config.getString(getKeyFor(column, MAX_VALUE), null);
+    if (minString != null && maxString != null) {
+      try {
+        builder.setMinValue(parseValue(minString, dataType.getStoredType()));
+        builder.setMaxValue(parseValue(maxString, dataType.getStoredType()));
+      } catch (NumberFormatException e) {
+        LOGGER.warn("Failed to parse min/max value: {}/{} for column: {}, ignoring them", minString, maxString, column);
+        builder.setMinValue(null);
+        builder.setMaxValue(null);
+      }
+    }
+
+    // Partition metadata is only available for the partitioned columns.
+    String partitionFunction = config.getString(getKeyFor(column, PARTITION_FUNCTION), null);
+    if (partitionFunction != null) {
+      try {
+        int numPartitions = config.getInt(getKeyFor(column, NUM_PARTITIONS));
+        List<Integer> partitions = new ArrayList<>();
+        for (String partition : config.getStringArray(getKeyFor(column, PARTITION_VALUES))) {
+          partitions.add(Integer.valueOf(partition));
+        }
+        builder.setPartitionMetadata(
+            new ColumnPartitionMetadata(partitionFunction, numPartitions, partitions, dataType.getStoredType()));
+      } catch (RuntimeException e) {
+        LOGGER.warn("Failed to parse partition metadata for column: {}, ignoring it", column, e);
+      }
+    }
+
     // DERIVED_METRIC_TYPE property is used to check whether this field is derived or not
     // ORIGIN_COLUMN property is used to indicate the origin field of this derived metric
     String typeStr = config.getString(getKeyFor(column, DERIVED_METRIC_TYPE), null);
@@ -125,6 +164,24 @@ public class ColumnMetadata {
     return builder.build();
   }
 
+  /**
+   * Helper method to parse the string value into a comparable value of the given stored data type.
+   */
+  private static Comparable parseValue(String value, DataType storedType) {
+    switch (storedType) {
+      case INT:
+        return Integer.valueOf(value);
+      case LONG:
+        return Long.valueOf(value);
+      case FLOAT:
+        return Float.valueOf(value);
+      case DOUBLE:
+        return Double.valueOf(value);
+      default:
+        return value;
+    }
+  }
+
   public static class Builder {
     private String columnName;
     private int cardinality;
@@ -149,6 +206,10 @@ public class ColumnMetadata {
     private DerivedMetricType derivedMetricType;
     private int fieldSize;
     private String originColumnName;
+    private Comparable minValue;
+    private Comparable maxValue;
+    private boolean isVarLengthDictionary;
+    private ColumnPartitionMetadata partitionMetadata;
 
     public Builder setColumnName(String columnName) {
       this.columnName = columnName;
@@ -265,11 +326,32 @@ public class ColumnMetadata {
       return this;
     }
 
+    public Builder setMinValue(Comparable minValue) {
+      this.minValue = minValue;
+      return this;
+    }
+
+    public Builder setMaxValue(Comparable maxValue) {
+      this.maxValue = maxValue;
+      return this;
+    }
+
+    public Builder setVarLengthDictionary(boolean isVarLengthDictionary) {
+      this.isVarLengthDictionary = isVarLengthDictionary;
+      return this;
+    }
+
+    public Builder setPartitionMetadata(ColumnPartitionMetadata partitionMetadata) {
+      this.partitionMetadata = partitionMetadata;
+      return this;
+    }
+
     public ColumnMetadata build() {
       return new ColumnMetadata(columnName, cardinality, totalDocs, totalRawDocs, totalAggDocs, dataType,
           bitsPerElement, stringColumnMaxLength, fieldType, isSorted, containsNulls, hasDictionary, hasInvertedIndex,
           isSingleValue, maxNumberOfMultiValues, totalNumberOfEntries, isAutoGenerated, defaultNullValueString,
-          timeUnit, paddingCharacter, derivedMetricType, fieldSize, originColumnName);
+          timeUnit, paddingCharacter, derivedMetricType, fieldSize, originColumnName, minValue, maxValue,
+          isVarLengthDictionary, partitionMetadata);
     }
   }
 
@@ -278,7 +360,8 @@ public class ColumnMetadata {
       boolean hasNulls, boolean hasDictionary, boolean hasInvertedIndex, boolean isSingleValue,
       int maxNumberOfMultiValues, int totalNumberOfEntries, boolean isAutoGenerated, String defaultNullValueString,
       TimeUnit timeUnit, char paddingCharacter, DerivedMetricType derivedMetricType, int fieldSize,
-      String originColumnName) {
+      String originColumnName, Comparable minValue, Comparable maxValue, boolean isVarLengthDictionary,
+      ColumnPartitionMetadata partitionMetadata) {
     this.columnName = columnName;
     this.cardinality = cardinality;
     this.totalDocs = totalDocs;
@@ -302,6 +385,10 @@ public class ColumnMetadata {
     this.derivedMetricType = derivedMetricType;
     this.fieldSize = fieldSize;
     this.originColumnName = originColumnName;
+    this.minValue = minValue;
+    this.maxValue = maxValue;
+    this.isVarLengthDictionary = isVarLengthDictionary;
+    this.partitionMetadata = partitionMetadata;
 
     switch (fieldType) {
       case DIMENSION:
@@ -374,6 +461,14 @@ public class ColumnMetadata {
     return hasInvertedIndex;
   }
 
+  /**
+   * Returns true if the string dictionary of the column is stored in variable length format (offsets + packed UTF-8
+   * bytes), false if the values are padded to {@link #getStringColumnMaxLength()}.
+   */
+  public boolean isVarLengthDictionary() {
+    return isVarLengthDictionary;
+  }
+
   public boolean isSingleValue() {
     return isSingleValue;
   }
@@ -410,6 +505,27 @@ public class ColumnMetadata {
     return originColumnName;
   }
 
+  /**
+   * Returns the min value of the column, or null if it is not available in the segment metadata.
+   */
+  public Comparable getMinValue() {
+    return minValue;
+  }
+
+  /**
+   * Returns the max value of the column, or null if it is not available in the segment metadata.
+   */
+  public Comparable getMaxValue() {
+    return maxValue;
+  }
+
+  /**
+   * Returns the partition metadata of the column, or null if the column is not partitioned.
+   */
+  public ColumnPartitionMetadata getPartitionMetadata() {
+    return partitionMetadata;
+  }
+
   public FieldSpec getFieldSpec() {
     return fieldSpec;
   }
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.core.segment.index;
 
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.core.common.BlockMultiValIterator;
 import com.linkedin.pinot.core.common.BlockSingleValIterator;
@@ -27,14 +28,18 @@ import com.linkedin.pinot.core.indexsegment.IndexType;
 import com.linkedin.pinot.core.io.reader.DataFileReader;
 import com.linkedin.pinot.core.segment.index.column.ColumnIndexContainer;
 import com.linkedin.pinot.core.segment.index.data.source.ColumnDataSourceImpl;
+import com.linkedin.pinot.core.segment.index.readers.BloomFilterReader;
 import com.linkedin.pinot.core.segment.index.readers.Dictionary;
 import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 import com.linkedin.pinot.core.segment.index.readers.InvertedIndexReader;
+import com.linkedin.pinot.core.segment.store.ColumnIndexType;
 import com.linkedin.pinot.core.segment.store.SegmentDirectory;
 import com.linkedin.pinot.core.startree.StarTreeInterf;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -45,6 +50,15 @@ public class IndexSegmentImpl implements IndexSegment {
   private final SegmentMetadataImpl segmentMetadata;
   private final Map<String, ColumnIndexContainer> indexContainerMap;
   private final StarTreeInterf starTree;
+  // Bloom filters are loaded lazily on first access, columns without bloom filter are mapped to NO_BLOOM_FILTER.
+  private final Map<String, Object> bloomFilterMap = new ConcurrentHashMap<>();
+  private static final Object NO_BLOOM_FILTER = new Object();
+
+  // Non-null if the column indexes are loaded lazily on first access.
+  private final IndexLoadingConfigMetadata lazyLoadingConfig;
+  private final Object columnLoadingLock = new Object();
+  private boolean destroyed = false;
+  private volatile ColumnAccessListener columnAccessListener;
 
   public IndexSegmentImpl(SegmentDirectory segmentDirectory, SegmentMetadataImpl segmentMetadata,
       Map<String, ColumnIndexContainer> columnIndexContainerMap, StarTreeInterf starTree) throws Exception {
@@ -52,19 +66,131 @@ public class IndexSegmentImpl implements IndexSegment {
     this.segmentMetadata = segmentMetadata;
     this.indexContainerMap = columnIndexContainerMap;
     this.starTree = starTree;
+    this.lazyLoadingConfig = null;
     LOGGER.info("Successfully loaded the index segment : " + segmentDirectory);
   }
 
+  /**
+   * Constructor for a segment whose column indexes are loaded on first access to the column, so that only the segment
+   * metadata is read when the segment is loaded.
+   */
+  public IndexSegmentImpl(SegmentDirectory segmentDirectory, SegmentMetadataImpl segmentMetadata,
+      StarTreeInterf starTree, IndexLoadingConfigMetadata indexLoadingConfigMetadata) throws Exception {
+    this.segmentDirectory = segmentDirectory;
+    this.segmentMetadata = segmentMetadata;
+    this.indexContainerMap = new ConcurrentHashMap<>();
+    this.starTree = starTree;
+    this.lazyLoadingConfig = indexLoadingConfigMetadata;
+    LOGGER.info("Successfully loaded the index segment with lazy column loading : " + segmentDirectory);
+  }
+
+  /**
+   * Listener of the column accesses, used to warm up the recently accessed columns for lazily loaded segments.
+   */
+  public interface ColumnAccessListener {
+    void onColumnAccess(String column);
+  }
+
+  public void setColumnAccessListener(@Nullable ColumnAccessListener columnAccessListener) {
+    this.columnAccessListener = columnAccessListener;
+  }
+
+  public boolean isLazyColumnLoading() {
+    return lazyLoadingConfig != null;
+  }
+
+  /**
+   * Load the indexes of the given column if they are not loaded yet, without notifying the column access listener.
+   *
+   * @param column column name
+   * @return true if the column indexes are loaded, false if the column does not exist or the segment is destroyed
+   */
+  public boolean loadColumn(String column) {
+    return getColumnIndexContainer(column) != null;
+  }
+
+  private ColumnIndexContainer getColumnIndexContainer(String column) {
+    ColumnIndexContainer columnIndexContainer = indexContainerMap.get(column);
+    if (columnIndexContainer == null && lazyLoadingConfig != null) {
+      synchronized (columnLoadingLock) {
+        columnIndexContainer = indexContainerMap.get(column);
+        if (columnIndexContainer == null && !destroyed) {
+          columnIndexContainer = loadColumnIndexContainer(column);
+          if (columnIndexContainer != null) {
+            indexContainerMap.put(column, columnIndexContainer);
+          }
+        }
+      }
+    }
+    return columnIndexContainer;
+  }
+
+  private ColumnIndexContainer loadColumnIndexContainer(String column) {
+    ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(column);
+    if (columnMetadata == null) {
+      return null;
+    }
+    try (SegmentDirectory.Reader segmentReader = segmentDirectory.createReader()) {
+      if (segmentReader == null) {
+        throw new IllegalStateException("Failed to get reader for segment: " + segmentDirectory);
+      }
+      return ColumnIndexContainer.init(segmentReader, columnMetadata, lazyLoadingConfig);
+    } catch (Exception e) {
+      throw new RuntimeException(
+          "Caught exception while loading column: " + column + " in segment: " + segmentDirectory, e);
+    }
+  }
+
   public ImmutableDictionaryReader getDictionaryFor(String column) {
-    return indexContainerMap.get(column).getDictionary();
+    return getColumnIndexContainer(column).getDictionary();
   }
 
   public DataFileReader getForwardIndexReaderFor(String column) {
-    return indexContainerMap.get(column).getForwardIndex();
+    return getColumnIndexContainer(column).getForwardIndex();
   }
 
   public InvertedIndexReader getInvertedIndexFor(String column) {
-    return indexContainerMap.get(column).getInvertedIndex();
+    return getColumnIndexContainer(column).getInvertedIndex();
+  }
+
+  /**
+   * Get the bloom filter for a column, loading it from the segment directory on first access.
+   *
+   * @param column column name
+   * @return bloom filter reader, or null if the column does not have a bloom filter
+   */
+  public BloomFilterReader getBloomFilterFor(String column) {
+    Object bloomFilter = bloomFilterMap.get(column);
+    if (bloomFilter == null) {
+      synchronized (bloomFilterMap) {
+        bloomFilter = bloomFilterMap.get(column);
+        if (bloomFilter == null) {
+          bloomFilter = loadBloomFilter(column);
+          if (bloomFilter == null) {
+            return null;
+          }
+          bloomFilterMap.put(column, bloomFilter);
+        }
+      }
+    }
+    return bloomFilter == NO_BLOOM_FILTER ? null : (BloomFilterReader) bloomFilter;
+  }
+
+  private Object loadBloomFilter(String column) {
+    try (SegmentDirectory.Reader segmentReader = segmentDirectory.createReader()) {
+      if (segmentReader == null) {
+        // Segment directory is being written, do not cache so that the bloom filter can be loaded later.
+        LOGGER.warn("Failed to get reader for segment: {} to load bloom filter", segmentDirectory);
+        return null;
+      }
+      if (!segmentReader.hasIndexFor(column, ColumnIndexType.BLOOM_FILTER)) {
+        return NO_BLOOM_FILTER;
+      }
+      return new BloomFilterReader(segmentReader.getIndexFor(column, ColumnIndexType.BLOOM_FILTER));
+    } catch (Exception e) {
+      LOGGER.error("Failed to load bloom filter for column: {} in segment: {}", column, segmentDirectory, e);
+      return NO_BLOOM_FILTER;
+    }
   }
 
   @Override
@@ -89,7 +215,11 @@ public class IndexSegmentImpl implements IndexSegment {
 
   @Override
   public DataSource getDataSource(String columnName) {
-    return new ColumnDataSourceImpl(indexContainerMap.get(columnName));
+    ColumnAccessListener listener = columnAccessListener;
+    if (listener != null) {
+      listener.onColumnAccess(columnName);
+    }
+    return new ColumnDataSourceImpl(getColumnIndexContainer(columnName));
   }
 
   public DataSource getDataSource(String columnName, Predicate p) {
@@ -104,6 +234,11 @@ public class IndexSegmentImpl implements IndexSegment {
   @Override
   public void destroy() {
     LOGGER.info("Trying to destroy segment : {}", this.getSegmentName());
+    columnAccessListener = null;
+    synchronized (columnLoadingLock) {
+      // Prevent the columns from being loaded after the segment is destroyed.
+      destroyed = true;
+    }
     for (String column : indexContainerMap.keySet()) {
       ColumnIndexContainer columnIndexContainer = indexContainerMap.get(column);
 
@@ -128,6 +263,12 @@ public class IndexSegmentImpl implements IndexSegment {
         LOGGER.error("Error when close inverted index for column : " + column, e);
       }
     }
+    for (Object bloomFilter : bloomFilterMap.values()) {
+      if (bloomFilter != NO_BLOOM_FILTER) {
+        ((BloomFilterReader) bloomFilter).close();
+      }
+    }
+    bloomFilterMap.clear();
     try {
       segmentDirectory.close();
     } catch (Exception e) {
@@ -18,7 +18,9 @@ package com.linkedin.pinot.core.segment.index;
 import com.linkedin.pinot.common.data.MetricFieldSpec;
 import com.linkedin.pinot.common.data.Schema;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.ColumnPartitionMetadata;
 import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import com.linkedin.pinot.common.segment.SegmentMetadata;
 import com.linkedin.pinot.common.segment.StarTreeMetadata;
 import com.linkedin.pinot.common.utils.time.TimeUtils;
@@ -569,6 +571,10 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     return column + V1Constants.Indexes.BITMAP_INVERTED_INDEX_FILE_EXTENSION;
   }
 
+  public String getBloomFilterFileName(String column, String segmentVersion) {
+    return column + V1Constants.Indexes.BLOOM_FILTER_FILE_EXTENSION;
+  }
+
   @Nullable
   @Override
   public String getCreatorName() {
@@ -596,6 +602,22 @@ public class SegmentMetadataImpl implements SegmentMetadata {
     }
   }
 
+  @Nullable
+  @Override
+  public SegmentPartitionMetadata getPartitionMetadata() {
+    if (_columnMetadataMap == null) {
+      return null;
+    }
+    Map<String, ColumnPartitionMetadata> columnPartitionMap = new HashMap<>();
+    for (Map.Entry<String, ColumnMetadata> entry : _columnMetadataMap.entrySet()) {
+      ColumnPartitionMetadata columnPartitionMetadata = entry.getValue().getPartitionMetadata();
+      if (columnPartitionMetadata != null) {
+        columnPartitionMap.put(entry.getKey(), columnPartitionMetadata);
+      }
+    }
+    return columnPartitionMap.isEmpty() ? null : new SegmentPartitionMetadata(columnPartitionMap);
+  }
+
   /**
    * Converts segment metadata to json
    * @param columnFilter list only  the columns in the set. Lists all the columns if
@@ -37,6 +37,7 @@ import com.linkedin.pinot.core.segment.index.readers.IntDictionary;
 import com.linkedin.pinot.core.segment.index.readers.InvertedIndexReader;
 import com.linkedin.pinot.core.segment.index.readers.LongDictionary;
 import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
 import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
 import com.linkedin.pinot.core.segment.store.ColumnIndexType;
 import com.linkedin.pinot.core.segment.store.SegmentDirectory;
@@ -145,6 +146,9 @@ public abstract class ColumnIndexContainer {
         return new DoubleDictionary(dictionaryBuffer, metadata);
       case STRING:
       case BOOLEAN:
+        if (metadata.isVarLengthDictionary()) {
+          return new VarLengthStringDictionary(dictionaryBuffer, metadata);
+        }
         return new StringDictionary(dictionaryBuffer, metadata);
     }
 
@@ -96,11 +96,16 @@ public class Loaders {
       SegmentMetadataImpl metadata = new SegmentMetadataImpl(segmentDirectoryPath);
       SegmentDirectory segmentDirectory = SegmentDirectory.createFromLocalFS(segmentDirectoryPath, metadata, readMode);
 
+      // With lazy column loading, the column indexes are loaded on first access to the column
+      boolean lazyColumnLoading =
+          indexLoadingConfigMetadata != null && indexLoadingConfigMetadata.isEnableLazyColumnLoading();
       Map<String, ColumnIndexContainer> indexContainerMap = new HashMap<String, ColumnIndexContainer>();
       SegmentDirectory.Reader segmentReader = segmentDirectory.createReader();
-      for (String column : metadata.getColumnMetadataMap().keySet()) {
-        indexContainerMap.put(column, ColumnIndexContainer.init(segmentReader,
-            metadata.getColumnMetadataFor(column), indexLoadingConfigMetadata));
+      if (!lazyColumnLoading) {
+        for (String column : metadata.getColumnMetadataMap().keySet()) {
+          indexContainerMap.put(column, ColumnIndexContainer.init(segmentReader,
+              metadata.getColumnMetadataFor(column), indexLoadingConfigMetadata));
+        }
       }
 
       // load star tree index if it exists
@@ -109,6 +114,9 @@ public class Loaders {
         LOGGER.debug("Loading star tree for segment: {}", segmentDirectory);
         starTree = StarTreeSerDe.fromFile(segmentReader.getStarTreeFile(), readMode);
       }
+      if (lazyColumnLoading) {
+        return new IndexSegmentImpl(segmentDirectory, metadata, starTree, indexLoadingConfigMetadata);
+      }
       return new IndexSegmentImpl(segmentDirectory, metadata, indexContainerMap, starTree);
     }
 
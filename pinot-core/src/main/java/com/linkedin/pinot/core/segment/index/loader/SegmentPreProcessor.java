@@ -22,6 +22,7 @@ import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 import com.linkedin.pinot.core.segment.index.loader.defaultcolumn.DefaultColumnHandler;
 import com.linkedin.pinot.core.segment.index.loader.defaultcolumn.DefaultColumnHandlerFactory;
+import com.linkedin.pinot.core.segment.index.loader.dictionary.VarLengthDictionaryHandler;
 import com.linkedin.pinot.core.segment.index.loader.invertedindex.InvertedIndexHandler;
 import com.linkedin.pinot.core.segment.store.SegmentDirectory;
 import java.io.File;
@@ -31,6 +32,7 @@ import java.io.File;
  * Use mmap to load the segment and perform all pre-processing steps. (This can be slow)
  * <p>Pre-processing steps include:
  * <p>- Use {@link InvertedIndexHandler} to create inverted indices.
+ * <p>- Use {@link VarLengthDictionaryHandler} to convert string dictionaries into variable length format.
  * <p>- Use {@link DefaultColumnHandler} to update auto-generated default columns.
  */
 public class SegmentPreProcessor implements AutoCloseable {
@@ -72,6 +74,11 @@ public class SegmentPreProcessor implements AutoCloseable {
           new InvertedIndexHandler(indexDir, segmentMetadata, indexConfig, segmentWriter);
       invertedIndexHandler.createInvertedIndices();
 
+      // Convert string dictionaries into variable length format according to the index config.
+      VarLengthDictionaryHandler varLengthDictionaryHandler =
+          new VarLengthDictionaryHandler(indexDir, segmentMetadata, indexConfig, segmentWriter);
+      varLengthDictionaryHandler.convertDictionaries();
+
       if (enableDefaultColumns) {
         // Update default columns according to the schema.
         // NOTE: This step may modify the segment metadata. When adding new steps after this, reload the metadata.
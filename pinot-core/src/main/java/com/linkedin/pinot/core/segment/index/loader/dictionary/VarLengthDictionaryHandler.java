@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.loader.dictionary;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentDictionaryCreator;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.loader.V3RemoveIndexException;
+import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import com.linkedin.pinot.core.segment.store.ColumnIndexType;
+import com.linkedin.pinot.core.segment.store.SegmentDirectory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.configuration.ConfigurationException;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+
+/**
+ * The <code>VarLengthDictionaryHandler</code> class converts the fixed width padded STRING/BOOLEAN dictionaries of an
+ * existing segment into variable length dictionaries, so that segments created before the format was enabled get the
+ * same benefit.
+ * <p>
+ * For v1 and v2 segments the dictionary file is replaced. V3 segments do not support removing indices, so the new
+ * dictionary is written into the existing buffer, and the column is skipped if the new dictionary does not fit.
+ * Columns whose padded dictionary order differs from the natural order of the values are skipped as well.
+ */
+public class VarLengthDictionaryHandler {
+  private static final Logger LOGGER = LoggerFactory.getLogger(VarLengthDictionaryHandler.class);
+
+  private final File indexDir;
+  private final SegmentMetadataImpl segmentMetadata;
+  private final String segmentName;
+  private final SegmentVersion segmentVersion;
+  private final IndexLoadingConfigMetadata indexConfig;
+  private final SegmentDirectory.Writer segmentWriter;
+  private final PropertiesConfiguration segmentProperties;
+  private final List<File> inProgressFiles = new ArrayList<>();
+
+  public VarLengthDictionaryHandler(File indexDir, SegmentMetadataImpl segmentMetadata,
+      IndexLoadingConfigMetadata indexConfig, SegmentDirectory.Writer segmentWriter) {
+    this.indexDir = indexDir;
+    this.segmentMetadata = segmentMetadata;
+    segmentName = segmentMetadata.getName();
+    segmentVersion = SegmentVersion.valueOf(segmentMetadata.getVersion());
+    this.indexConfig = indexConfig;
+    this.segmentWriter = segmentWriter;
+    segmentProperties = segmentMetadata.getSegmentMetadataPropertiesConfiguration();
+  }
+
+  /**
+   * Convert the dictionaries of all STRING/BOOLEAN columns if enabled in the index config.
+   *
+   * @throws IOException
+   * @throws ConfigurationException
+   */
+  public void convertDictionaries()
+      throws IOException, ConfigurationException {
+    if (indexConfig == null || !indexConfig.isEnableVarLengthDictionary()) {
+      return;
+    }
+
+    boolean metadataUpdated = false;
+    for (String column : segmentMetadata.getAllColumns()) {
+      ColumnMetadata columnMetadata = segmentMetadata.getColumnMetadataFor(column);
+      FieldSpec.DataType dataType = columnMetadata.getDataType();
+      if (columnMetadata.hasDictionary() && !columnMetadata.isVarLengthDictionary() && (
+          dataType == FieldSpec.DataType.STRING || dataType == FieldSpec.DataType.BOOLEAN)) {
+        metadataUpdated |= convertDictionaryForColumn(columnMetadata);
+      }
+    }
+
+    if (metadataUpdated) {
+      segmentProperties.save(new File(indexDir, V1Constants.MetadataKeys.METADATA_FILE_NAME));
+    }
+    for (File inProgress : inProgressFiles) {
+      FileUtils.deleteQuietly(inProgress);
+    }
+  }
+
+  private boolean convertDictionaryForColumn(ColumnMetadata columnMetadata)
+      throws IOException {
+    String column = columnMetadata.getColumnName();
+    File inProgress = new File(indexDir, column + ".dict.varlength.inprogress");
+    if (inProgress.exists()) {
+      // Last run got interrupted after the dictionary was modified, the segment cannot be recovered locally.
+      throw new V3RemoveIndexException(
+          "Dictionary conversion for segment: " + segmentName + ", column: " + column + " got interrupted.");
+    }
+
+    // Read all the values from the padded dictionary.
+    int cardinality = columnMetadata.getCardinality();
+    String[] sortedValues = new String[cardinality];
+    PinotDataBuffer oldDictionaryBuffer = segmentWriter.getIndexFor(column, ColumnIndexType.DICTIONARY);
+    long oldDictionarySize = oldDictionaryBuffer.size();
+    StringDictionary oldDictionary = new StringDictionary(oldDictionaryBuffer, columnMetadata);
+    try {
+      for (int i = 0; i < cardinality; i++) {
+        sortedValues[i] = oldDictionary.get(i);
+      }
+    } finally {
+      oldDictionary.close();
+    }
+
+    // The padded dictionary is sorted on the padded values, which with a non-null padding character may differ from the
+    // natural order of the values (e.g. "a b" < "a!%" < "a%%" but "a" < "a b" < "a!"). The variable length dictionary
+    // binary searches the natural order and the forward index cannot be re-mapped here, so skip such columns.
+    for (int i = 1; i < cardinality; i++) {
+      if (sortedValues[i - 1].compareTo(sortedValues[i]) >= 0) {
+        LOGGER.info("Skipping dictionary conversion for segment: {}, column: {}, padded values are not in natural "
+            + "order", segmentName, column);
+        return false;
+      }
+    }
+
+    File dictionaryFile = new File(indexDir, column + V1Constants.Dict.FILE_EXTENTION);
+    File tempDictionaryFile = new File(indexDir, column + V1Constants.Dict.FILE_EXTENTION + ".varlength.tmp");
+    try {
+      SegmentDictionaryCreator.writeVarLengthStringDictionary(sortedValues, tempDictionaryFile);
+
+      if (segmentVersion == SegmentVersion.v3) {
+        if (tempDictionaryFile.length() > oldDictionarySize) {
+          LOGGER.info("Skipping dictionary conversion for segment: {}, column: {}, new dictionary size: {} is larger "
+              + "than the existing size: {}", segmentName, column, tempDictionaryFile.length(), oldDictionarySize);
+          return false;
+        }
+        FileUtils.touch(inProgress);
+        PinotDataBuffer buffer = segmentWriter.getIndexFor(column, ColumnIndexType.DICTIONARY);
+        try {
+          buffer.readFrom(tempDictionaryFile);
+        } finally {
+          buffer.close();
+        }
+      } else {
+        FileUtils.touch(inProgress);
+        segmentWriter.removeIndex(column, ColumnIndexType.DICTIONARY);
+        FileUtils.moveFile(tempDictionaryFile, dictionaryFile);
+      }
+    } finally {
+      FileUtils.deleteQuietly(tempDictionaryFile);
+    }
+
+    // The marker file is removed once the metadata is saved.
+    inProgressFiles.add(inProgress);
+    segmentProperties.setProperty(
+        V1Constants.MetadataKeys.Column.getKeyFor(column, V1Constants.MetadataKeys.Column.IS_VAR_LENGTH_DICTIONARY),
+        String.valueOf(true));
+    LOGGER.info("Converted dictionary to variable length format for segment: {}, column: {}", segmentName, column);
+    return true;
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.readers;
+
+import com.google.common.base.Preconditions;
+import com.linkedin.pinot.core.segment.creator.impl.bloom.BloomFilterUtils;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import java.io.Closeable;
+
+
+/**
+ * Reader for the bloom filter of a column. Only the bytes of the k bits of a value are read from the buffer on each
+ * lookup, so the bloom filter can be kept memory mapped without loading it into heap.
+ */
+public class BloomFilterReader implements Closeable {
+  private final PinotDataBuffer _buffer;
+  private final int _numHashFunctions;
+  private final long _numBits;
+
+  public BloomFilterReader(PinotDataBuffer buffer) {
+    _buffer = buffer;
+    int version = buffer.getInt(0);
+    Preconditions.checkState(version == BloomFilterUtils.VERSION, "Unsupported bloom filter version: %s", version);
+    _numHashFunctions = buffer.getInt(4);
+    _numBits = (long) buffer.getInt(8) * Byte.SIZE;
+  }
+
+  /**
+   * Returns false if the value is definitely not in the column, true if the value might be in the column.
+   *
+   * @param value string representation of the value, see {@link BloomFilterUtils#getStoredValue}.
+   */
+  public boolean mightContain(String value) {
+    long[] hashes = new long[2];
+    BloomFilterUtils.hash(value, hashes);
+    for (int i = 0; i < _numHashFunctions; i++) {
+      long bitIndex = BloomFilterUtils.getBitIndex(hashes, i, _numBits);
+      int offset = BloomFilterUtils.HEADER_SIZE + (int) (bitIndex >>> 3);
+      if ((_buffer.getByte(offset) & (1 << (bitIndex & 7))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() {
+    _buffer.close();
+  }
+}
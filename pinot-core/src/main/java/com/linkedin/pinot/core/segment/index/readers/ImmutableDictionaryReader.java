@@ -34,6 +34,15 @@ public abstract class ImmutableDictionaryReader implements Dictionary {
     fileSearcher = new ByteBufferBinarySearchUtil(dataFileReader);
   }
 
+  /**
+   * Constructor for dictionaries not stored as fixed width entries, which have to implement their own lookups.
+   */
+  protected ImmutableDictionaryReader(int rows) {
+    dataFileReader = null;
+    this.rows = rows;
+    fileSearcher = null;
+  }
+
 
   protected int intIndexOf(int actualValue) {
     return fileSearcher.binarySearch(0, actualValue);
@@ -71,7 +80,9 @@ public abstract class ImmutableDictionaryReader implements Dictionary {
   public abstract String toString(int dictionaryId);
 
   public void close() throws IOException {
-    dataFileReader.close();
+    if (dataFileReader != null) {
+      dataFileReader.close();
+    }
   }
 
   @Override
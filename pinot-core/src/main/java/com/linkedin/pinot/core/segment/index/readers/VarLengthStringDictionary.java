@@ -0,0 +1,195 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.readers;
+
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+
+/**
+ * String dictionary stored without padding, written by
+ * {@link com.linkedin.pinot.core.segment.creator.impl.SegmentDictionaryCreator#writeVarLengthStringDictionary}.
+ *
+ * The values are sorted by {@link String#compareTo(String)}, so lookups binary search the offsets and compare the
+ * stored UTF-8 bytes with the lookup string directly, without decoding the probed values.
+ */
+public class VarLengthStringDictionary extends ImmutableDictionaryReader {
+  private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+  private final PinotDataBuffer _dataBuffer;
+  private final int _valuesStartOffset;
+
+  public VarLengthStringDictionary(PinotDataBuffer dataBuffer, ColumnMetadata metadata) {
+    this(dataBuffer, metadata.getCardinality());
+  }
+
+  public VarLengthStringDictionary(PinotDataBuffer dataBuffer, int cardinality) {
+    super(cardinality);
+    _dataBuffer = dataBuffer;
+    _valuesStartOffset = (cardinality + 1) * (Integer.SIZE / Byte.SIZE);
+  }
+
+  /**
+   * Returns the index of the value, or <code>-(insertion point) - 1</code> if the value is not in the dictionary.
+   */
+  @Override
+  public int indexOf(Object rawValue) {
+    String lookup = rawValue.toString();
+    int low = 0;
+    int high = length() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int compareResult = compare(lookup, getStartOffset(mid), getStartOffset(mid + 1));
+      if (compareResult > 0) {
+        low = mid + 1;
+      } else if (compareResult < 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  private int getStartOffset(int dictionaryId) {
+    return _valuesStartOffset + _dataBuffer.getInt(dictionaryId * (Integer.SIZE / Byte.SIZE));
+  }
+
+  /**
+   * Compare the lookup string with the UTF-8 bytes stored in [start, end) in UTF-16 code unit order, which is the order
+   * of {@link String#compareTo(String)}.
+   */
+  private int compare(String lookup, int start, int end) {
+    int lookupLength = lookup.length();
+    int charIndex = 0;
+    int position = start;
+    // Pending low surrogate of a decoded supplementary code point.
+    char pendingChar = 0;
+    while (charIndex < lookupLength) {
+      char storedChar;
+      if (pendingChar != 0) {
+        storedChar = pendingChar;
+        pendingChar = 0;
+      } else if (position < end) {
+        int b = _dataBuffer.getByte(position++) & 0xFF;
+        int codePoint;
+        if (b < 0x80) {
+          codePoint = b;
+        } else if (b < 0xE0) {
+          codePoint = ((b & 0x1F) << 6) | (_dataBuffer.getByte(position++) & 0x3F);
+        } else if (b < 0xF0) {
+          codePoint = ((b & 0x0F) << 12) | ((_dataBuffer.getByte(position++) & 0x3F) << 6) | (
+              _dataBuffer.getByte(position++) & 0x3F);
+        } else {
+          codePoint = ((b & 0x07) << 18) | ((_dataBuffer.getByte(position++) & 0x3F) << 12) | (
+              (_dataBuffer.getByte(position++) & 0x3F) << 6) | (_dataBuffer.getByte(position++) & 0x3F);
+        }
+        if (Character.isSupplementaryCodePoint(codePoint)) {
+          storedChar = Character.highSurrogate(codePoint);
+          pendingChar = Character.lowSurrogate(codePoint);
+        } else {
+          storedChar = (char) codePoint;
+        }
+      } else {
+        // Stored value is a prefix of the lookup string.
+        return 1;
+      }
+      char lookupChar = lookup.charAt(charIndex++);
+      if (lookupChar != storedChar) {
+        return lookupChar - storedChar;
+      }
+    }
+    return (pendingChar != 0 || position < end) ? -1 : 0;
+  }
+
+  @Override
+  public String get(int dictionaryId) {
+    if ((dictionaryId == -1) || (dictionaryId >= length())) {
+      return "null";
+    }
+    int start = getStartOffset(dictionaryId);
+    int length = getStartOffset(dictionaryId + 1) - start;
+    byte[] bytes = new byte[length];
+    _dataBuffer.copyTo(start, bytes, 0, length);
+    return new String(bytes, UTF_8);
+  }
+
+  @Override
+  public long getLongValue(int dictionaryId) {
+    throw new RuntimeException("cannot converted string to long");
+  }
+
+  @Override
+  public double getDoubleValue(int dictionaryId) {
+    throw new RuntimeException("cannot converted string to double");
+  }
+
+  @Override
+  public int getIntValue(int dictionaryId) {
+    throw new RuntimeException("cannot converted string to int");
+  }
+
+  @Override
+  public float getFloatValue(int dictionaryId) {
+    throw new RuntimeException("cannot converted string to float");
+  }
+
+  @Override
+  public String getStringValue(int dictionaryId) {
+    return get(dictionaryId);
+  }
+
+  @Override
+  public String toString(int dictionaryId) {
+    return get(dictionaryId);
+  }
+
+  @Override
+  public void readIntValues(int[] dictionaryIds, int startPos, int limit, int[] outValues, int outStartPos) {
+    throw new RuntimeException("Can not convert string to int");
+  }
+
+  @Override
+  public void readLongValues(int[] dictionaryIds, int startPos, int limit, long[] outValues, int outStartPos) {
+    throw new RuntimeException("Can not convert string to long");
+  }
+
+  @Override
+  public void readFloatValues(int[] dictionaryIds, int startPos, int limit, float[] outValues, int outStartPos) {
+    throw new RuntimeException("Can not convert string to float");
+  }
+
+  @Override
+  public void readDoubleValues(int[] dictionaryIds, int startPos, int limit, double[] outValues, int outStartPos) {
+    throw new RuntimeException("Can not convert string to double");
+  }
+
+  @Override
+  public void readStringValues(int[] dictionaryIds, int startPos, int limit, String[] outValues, int outStartPos) {
+    int endPos = startPos + limit;
+    for (int i = startPos; i < endPos; i++) {
+      outValues[outStartPos++] = get(dictionaryIds[i]);
+    }
+  }
+
+  @Override
+  public void close()
+      throws IOException {
+    _dataBuffer.close();
+  }
+}
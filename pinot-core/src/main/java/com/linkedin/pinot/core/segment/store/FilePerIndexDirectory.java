@@ -80,6 +80,20 @@ class FilePerIndexDirectory extends ColumnIndexDirectory {
     return getWriteBufferFor(key, sizeBytes);
   }
 
+  @Override
+  public PinotDataBuffer getBloomFilterBufferFor(String column)
+      throws IOException {
+    IndexKey key = new IndexKey(column, ColumnIndexType.BLOOM_FILTER);
+    return getReadBufferFor(key);
+  }
+
+  @Override
+  public PinotDataBuffer newBloomFilterBuffer(String column, int sizeBytes)
+      throws IOException {
+    IndexKey key = new IndexKey(column, ColumnIndexType.BLOOM_FILTER);
+    return getWriteBufferFor(key, sizeBytes);
+  }
+
   @Override
   public boolean hasIndexFor(String column, ColumnIndexType type) {
     File indexFile = getFileFor(column, type);
@@ -143,6 +157,9 @@ class FilePerIndexDirectory extends ColumnIndexDirectory {
       case INVERTED_INDEX:
         filename = metadata.getBitmapInvertedIndexFileName(column, metadata.getVersion());
         break;
+      case BLOOM_FILTER:
+        filename = metadata.getBloomFilterFileName(column, metadata.getVersion());
+        break;
       default:
         throw new UnsupportedOperationException("Unknown index type: " + indexType.toString());
     }
@@ -234,6 +234,9 @@ class SegmentLocalFSDirectory extends SegmentDirectory {
       case INVERTED_INDEX:
         buffer = columnIndexDirectory.getInvertedIndexBufferFor(column);
         break;
+      case BLOOM_FILTER:
+        // Bloom filters are loaded on demand and only a few bytes are read per lookup, so do not prefetch them.
+        return columnIndexDirectory.getBloomFilterBufferFor(column);
       default:
         throw new RuntimeException("Unknown index type: " + type.name());
     }
@@ -414,6 +417,8 @@ class SegmentLocalFSDirectory extends SegmentDirectory {
           return columnIndexDirectory.newForwardIndexBuffer(key.name, (int) sizeBytes);
         case INVERTED_INDEX:
           return columnIndexDirectory.newInvertedIndexBuffer(key.name, ((int) sizeBytes));
+        case BLOOM_FILTER:
+          return columnIndexDirectory.newBloomFilterBuffer(key.name, ((int) sizeBytes));
         default:
           throw new RuntimeException("Unknown index type: " + indexType.name() +
               " for directory: " + segmentDirectory);
@@ -104,6 +104,12 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
     return checkAndGetIndexBuffer(column, ColumnIndexType.INVERTED_INDEX);
   }
 
+  @Override
+  public PinotDataBuffer getBloomFilterBufferFor(String column)
+      throws IOException {
+    return checkAndGetIndexBuffer(column, ColumnIndexType.BLOOM_FILTER);
+  }
+
   @Override
   public boolean hasIndexFor(String column, ColumnIndexType type) {
     IndexKey key = new IndexKey(column, type);
@@ -128,6 +134,12 @@ class SingleFileIndexDirectory extends ColumnIndexDirectory {
     return  allocNewBufferInternal(column, ColumnIndexType.INVERTED_INDEX, sizeBytes, "inverted_index.create");
   }
 
+  @Override
+  public PinotDataBuffer newBloomFilterBuffer(String column, int sizeBytes)
+      throws IOException {
+    return allocNewBufferInternal(column, ColumnIndexType.BLOOM_FILTER, sizeBytes, "bloom_filter.create");
+  }
+
   private PinotDataBuffer checkAndGetIndexBuffer(String column, ColumnIndexType type) {
     IndexKey key = new IndexKey(column, type);
     IndexEntry entry = columnEntries.get(key);
@@ -21,6 +21,7 @@ import com.linkedin.pinot.common.response.ProcessingException;
 import com.linkedin.pinot.common.utils.DataSchema;
 import com.linkedin.pinot.common.utils.DataTable;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.Random;
 import org.apache.commons.lang.RandomStringUtils;
@@ -37,6 +38,8 @@ public class DataTableSerDeTest {
   private static final String ERROR_MESSAGE = "Random seed: " + RANDOM_SEED;
 
   private static final int NUM_ROWS = 100;
+  // Large enough for the column blocks of version 3 data table to be compressed.
+  private static final int NUM_ROWS_COMPRESSED = 1000;
 
   @Test
   public void testException()
@@ -281,4 +284,255 @@ public class DataTableSerDeTest {
       }
     }
   }
+
+  @Test
+  public void testExceptionV3()
+      throws IOException {
+    Exception exception = new UnsupportedOperationException("Caught exception.");
+    ProcessingException processingException =
+        QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, exception);
+    String expected = processingException.getMessage();
+
+    DataTable dataTable = new DataTableImplV3();
+    dataTable.addException(processingException);
+    DataTable newDataTable = DataTableFactory.getDataTable(dataTable.toBytes());
+    Assert.assertTrue(newDataTable instanceof DataTableImplV3);
+    Assert.assertNull(newDataTable.getDataSchema());
+    Assert.assertEquals(newDataTable.getNumberOfRows(), 0);
+
+    String actual = newDataTable.getMetadata()
+        .get(DataTable.EXCEPTION_METADATA_KEY + QueryException.QUERY_EXECUTION_ERROR.getErrorCode());
+    Assert.assertEquals(actual, expected);
+  }
+
+  @Test
+  public void testAllDataTypesV3()
+      throws IOException {
+    DataSchema dataSchema = getAllDataTypesDataSchema();
+    DataTableBuilder dataTableBuilderV2 = new DataTableBuilder(dataSchema);
+    DataTableBuilder dataTableBuilderV3 =
+        new DataTableBuilder(dataSchema, DataTableFactory.VERSION_3, DataTableImplV3.CompressionCodec.NONE);
+    setRandomValues(dataSchema, NUM_ROWS, dataTableBuilderV2, dataTableBuilderV3);
+    DataTable expected = dataTableBuilderV2.build();
+    DataTable dataTable = dataTableBuilderV3.build();
+    Assert.assertTrue(dataTable instanceof DataTableImplV3);
+    assertSameValues(dataTable, expected);
+
+    // De-serialize from a byte buffer which does not start at index 0, the same as reading from a network buffer.
+    byte[] serializedBytes = dataTable.toBytes();
+    ByteBuffer byteBuffer = ByteBuffer.allocate(serializedBytes.length + 4);
+    byteBuffer.putInt(-1);
+    byteBuffer.put(serializedBytes);
+    byteBuffer.position(4);
+    DataTable newDataTable = DataTableFactory.getDataTable(byteBuffer);
+    Assert.assertTrue(newDataTable instanceof DataTableImplV3);
+    assertSameValues(newDataTable, expected);
+  }
+
+  @Test
+  public void testAllDataTypesV3Compressed()
+      throws IOException {
+    DataSchema dataSchema = getAllDataTypesDataSchema();
+    DataTableBuilder dataTableBuilderV2 = new DataTableBuilder(dataSchema);
+    DataTableBuilder uncompressedDataTableBuilder =
+        new DataTableBuilder(dataSchema, DataTableFactory.VERSION_3, DataTableImplV3.CompressionCodec.NONE);
+    DataTableBuilder compressedDataTableBuilder =
+        new DataTableBuilder(dataSchema, DataTableFactory.VERSION_3, DataTableImplV3.CompressionCodec.DEFLATE);
+    setRandomValues(dataSchema, NUM_ROWS_COMPRESSED, dataTableBuilderV2, uncompressedDataTableBuilder,
+        compressedDataTableBuilder);
+
+    byte[] uncompressedBytes = uncompressedDataTableBuilder.build().toBytes();
+    byte[] compressedBytes = compressedDataTableBuilder.build().toBytes();
+    Assert.assertTrue(compressedBytes.length < uncompressedBytes.length, ERROR_MESSAGE);
+    assertSameValues(DataTableFactory.getDataTable(compressedBytes), dataTableBuilderV2.build());
+  }
+
+  @Test(expectedExceptions = IllegalStateException.class)
+  public void testMissingColumnV3()
+      throws IOException {
+    DataSchema dataSchema =
+        new DataSchema(new String[]{"int", "string"}, new DataType[]{DataType.INT, DataType.STRING});
+    DataTableBuilder dataTableBuilder =
+        new DataTableBuilder(dataSchema, DataTableFactory.VERSION_3, DataTableImplV3.CompressionCodec.NONE);
+    dataTableBuilder.startRow();
+    dataTableBuilder.setColumn(0, 1);
+    dataTableBuilder.finishRow();
+  }
+
+  private static DataSchema getAllDataTypesDataSchema() {
+    DataType[] columnTypes = DataType.values();
+    int numColumns = columnTypes.length;
+    String[] columnNames = new String[numColumns];
+    for (int i = 0; i < numColumns; i++) {
+      columnNames[i] = columnTypes[i].name();
+    }
+    return new DataSchema(columnNames, columnTypes);
+  }
+
+  /**
+   * Helper method to set the same random values into all the data table builders.
+   */
+  private static void setRandomValues(DataSchema dataSchema, int numRows, DataTableBuilder... dataTableBuilders)
+      throws IOException {
+    int numColumns = dataSchema.size();
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      for (DataTableBuilder dataTableBuilder : dataTableBuilders) {
+        dataTableBuilder.startRow();
+      }
+      for (int colId = 0; colId < numColumns; colId++) {
+        int length = RANDOM.nextInt(20);
+        String string = RandomStringUtils.random(length);
+        for (DataTableBuilder dataTableBuilder : dataTableBuilders) {
+          switch (dataSchema.getColumnType(colId)) {
+            case BOOLEAN:
+              dataTableBuilder.setColumn(colId, length % 2 == 0);
+              break;
+            case BYTE:
+              dataTableBuilder.setColumn(colId, (byte) length);
+              break;
+            case CHAR:
+              dataTableBuilder.setColumn(colId, (char) length);
+              break;
+            case SHORT:
+              dataTableBuilder.setColumn(colId, (short) length);
+              break;
+            case INT:
+              dataTableBuilder.setColumn(colId, length);
+              break;
+            case LONG:
+              dataTableBuilder.setColumn(colId, (long) length);
+              break;
+            case FLOAT:
+              dataTableBuilder.setColumn(colId, (float) length);
+              break;
+            case DOUBLE:
+              dataTableBuilder.setColumn(colId, (double) length);
+              break;
+            case STRING:
+              dataTableBuilder.setColumn(colId, string);
+              break;
+            case OBJECT:
+              dataTableBuilder.setColumn(colId, (Object) (double) length);
+              break;
+            case BYTE_ARRAY:
+              dataTableBuilder.setColumn(colId, new byte[length]);
+              break;
+            case CHAR_ARRAY:
+              dataTableBuilder.setColumn(colId, new char[length]);
+              break;
+            case SHORT_ARRAY:
+              dataTableBuilder.setColumn(colId, new short[length]);
+              break;
+            case INT_ARRAY:
+              int[] intArray = new int[length];
+              Arrays.fill(intArray, rowId);
+              dataTableBuilder.setColumn(colId, intArray);
+              break;
+            case LONG_ARRAY:
+              long[] longArray = new long[length];
+              Arrays.fill(longArray, rowId);
+              dataTableBuilder.setColumn(colId, longArray);
+              break;
+            case FLOAT_ARRAY:
+              float[] floatArray = new float[length];
+              Arrays.fill(floatArray, rowId);
+              dataTableBuilder.setColumn(colId, floatArray);
+              break;
+            case DOUBLE_ARRAY:
+              double[] doubleArray = new double[length];
+              Arrays.fill(doubleArray, rowId);
+              dataTableBuilder.setColumn(colId, doubleArray);
+              break;
+            case STRING_ARRAY:
+              String[] stringArray = new String[length];
+              Arrays.fill(stringArray, string);
+              dataTableBuilder.setColumn(colId, stringArray);
+              break;
+          }
+        }
+      }
+      for (DataTableBuilder dataTableBuilder : dataTableBuilders) {
+        dataTableBuilder.finishRow();
+      }
+    }
+  }
+
+  private static void assertSameValues(DataTable actual, DataTable expected) {
+    DataSchema dataSchema = expected.getDataSchema();
+    Assert.assertEquals(actual.getDataSchema(), dataSchema, ERROR_MESSAGE);
+    int numRows = expected.getNumberOfRows();
+    Assert.assertEquals(actual.getNumberOfRows(), numRows, ERROR_MESSAGE);
+
+    int numColumns = dataSchema.size();
+    for (int rowId = 0; rowId < numRows; rowId++) {
+      for (int colId = 0; colId < numColumns; colId++) {
+        switch (dataSchema.getColumnType(colId)) {
+          case BOOLEAN:
+            Assert.assertEquals(actual.getBoolean(rowId, colId), expected.getBoolean(rowId, colId), ERROR_MESSAGE);
+            break;
+          case BYTE:
+            Assert.assertEquals(actual.getByte(rowId, colId), expected.getByte(rowId, colId), ERROR_MESSAGE);
+            break;
+          case CHAR:
+            Assert.assertEquals(actual.getChar(rowId, colId), expected.getChar(rowId, colId), ERROR_MESSAGE);
+            break;
+          case SHORT:
+            Assert.assertEquals(actual.getShort(rowId, colId), expected.getShort(rowId, colId), ERROR_MESSAGE);
+            break;
+          case INT:
+            Assert.assertEquals(actual.getInt(rowId, colId), expected.getInt(rowId, colId), ERROR_MESSAGE);
+            break;
+          case LONG:
+            Assert.assertEquals(actual.getLong(rowId, colId), expected.getLong(rowId, colId), ERROR_MESSAGE);
+            break;
+          case FLOAT:
+            Assert.assertEquals(actual.getFloat(rowId, colId), expected.getFloat(rowId, colId), ERROR_MESSAGE);
+            break;
+          case DOUBLE:
+            Assert.assertEquals(actual.getDouble(rowId, colId), expected.getDouble(rowId, colId), ERROR_MESSAGE);
+            break;
+          case STRING:
+            Assert.assertEquals(actual.getString(rowId, colId), expected.getString(rowId, colId), ERROR_MESSAGE);
+            break;
+          case OBJECT:
+            Assert.assertEquals(actual.getObject(rowId, colId), expected.getObject(rowId, colId), ERROR_MESSAGE);
+            break;
+          case BYTE_ARRAY:
+            Assert.assertTrue(Arrays.equals(actual.getByteArray(rowId, colId), expected.getByteArray(rowId, colId)),
+                ERROR_MESSAGE);
+            break;
+          case CHAR_ARRAY:
+            Assert.assertTrue(Arrays.equals(actual.getCharArray(rowId, colId), expected.getCharArray(rowId, colId)),
+                ERROR_MESSAGE);
+            break;
+          case SHORT_ARRAY:
+            Assert.assertTrue(Arrays.equals(actual.getShortArray(rowId, colId), expected.getShortArray(rowId, colId)),
+                ERROR_MESSAGE);
+            break;
+          case INT_ARRAY:
+            Assert.assertTrue(Arrays.equals(actual.getIntArray(rowId, colId), expected.getIntArray(rowId, colId)),
+                ERROR_MESSAGE);
+            break;
+          case LONG_ARRAY:
+            Assert.assertTrue(Arrays.equals(actual.getLongArray(rowId, colId), expected.getLongArray(rowId, colId)),
+                ERROR_MESSAGE);
+            break;
+          case FLOAT_ARRAY:
+            Assert.assertTrue(Arrays.equals(actual.getFloatArray(rowId, colId), expected.getFloatArray(rowId, colId)),
+                ERROR_MESSAGE);
+            break;
+          case DOUBLE_ARRAY:
+            Assert.assertTrue(
+                Arrays.equals(actual.getDoubleArray(rowId, colId), expected.getDoubleArray(rowId, colId)),
+                ERROR_MESSAGE);
+            break;
+          case STRING_ARRAY:
+            Assert.assertTrue(
+                Arrays.equals(actual.getStringArray(rowId, colId), expected.getStringArray(rowId, colId)),
+                ERROR_MESSAGE);
+            break;
+        }
+      }
+    }
+  }
 }
@@ -17,9 +17,12 @@ package com.linkedin.pinot.core.common.datatable;
 
 import com.linkedin.pinot.core.query.aggregation.function.customobject.AvgPair;
 import com.linkedin.pinot.core.query.aggregation.function.customobject.MinMaxRangePair;
+import com.linkedin.pinot.core.query.aggregation.function.customobject.TDigest;
 import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
 import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Random;
@@ -164,4 +167,87 @@ public class ObjectCustomSerDeTest {
       Assert.assertEquals((Object) actual, expected, ERROR_MESSAGE);
     }
   }
+
+  /**
+   * Test for ser/de of {@link ObjectOpenHashSet}.
+   */
+  @Test
+  public void testObjectOpenHashSet()
+      throws IOException {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      int size = RANDOM.nextInt(100);
+      ObjectOpenHashSet<Object> expectedLongSet = new ObjectOpenHashSet<>(size);
+      ObjectOpenHashSet<Object> expectedStringSet = new ObjectOpenHashSet<>(size);
+      for (int j = 0; j < size; j++) {
+        expectedLongSet.add(RANDOM.nextLong());
+        expectedStringSet.add(RandomStringUtils.random(RANDOM.nextInt(20)));
+      }
+
+      byte[] bytes = ObjectCustomSerDe.serialize(expectedLongSet);
+      ObjectOpenHashSet<Object> actual = ObjectCustomSerDe.deserialize(bytes, ObjectType.ObjectOpenHashSet);
+      Assert.assertEquals((Object) actual, expectedLongSet, ERROR_MESSAGE);
+
+      bytes = ObjectCustomSerDe.serialize(expectedStringSet);
+      actual = ObjectCustomSerDe.deserialize(bytes, ObjectType.ObjectOpenHashSet);
+      Assert.assertEquals((Object) actual, expectedStringSet, ERROR_MESSAGE);
+    }
+  }
+
+  /**
+   * Test for ser/de of {@link TDigest}.
+   */
+  @Test
+  public void testTDigest()
+      throws IOException {
+    for (int i = 0; i < NUM_ITERATIONS; i++) {
+      TDigest expected = new TDigest();
+      int size = RANDOM.nextInt(10000) + 1;
+      for (int j = 0; j < size; j++) {
+        expected.add(RANDOM.nextGaussian());
+      }
+
+      byte[] bytes = ObjectCustomSerDe.serialize(expected);
+      Assert.assertEquals(ObjectCustomSerDe.getObjectType(expected), ObjectType.TDigest, ERROR_MESSAGE);
+      TDigest actual = ObjectCustomSerDe.deserialize(bytes, ObjectType.TDigest);
+
+      Assert.assertEquals(actual.size(), expected.size(), ERROR_MESSAGE);
+      for (double quantile : new double[]{0, 0.5, 0.9, 0.99, 1}) {
+        Assert.assertEquals(actual.getQuantile(quantile), expected.getQuantile(quantile), ERROR_MESSAGE);
+      }
+    }
+  }
+
+  /**
+   * Test the accuracy of merged {@link TDigest}s.
+   */
+  @Test
+  public void testTDigestAccuracy()
+      throws IOException {
+    int numValues = 100000;
+    double[] values = new double[numValues];
+    TDigest[] digests = new TDigest[10];
+    for (int i = 0; i < digests.length; i++) {
+      digests[i] = new TDigest();
+    }
+    for (int i = 0; i < numValues; i++) {
+      values[i] = RANDOM.nextDouble() * 1000;
+      digests[i % digests.length].add(values[i]);
+    }
+
+    // Merge the de-serialized digests as the broker does.
+    TDigest merged = new TDigest();
+    for (TDigest digest : digests) {
+      TDigest deserialized = ObjectCustomSerDe.deserialize(ObjectCustomSerDe.serialize(digest), ObjectType.TDigest);
+      merged.merge(deserialized);
+    }
+    Assert.assertEquals(merged.size(), numValues, ERROR_MESSAGE);
+
+    Arrays.sort(values);
+    Assert.assertEquals(merged.getQuantile(0), values[0], ERROR_MESSAGE);
+    Assert.assertEquals(merged.getQuantile(1), values[numValues - 1], ERROR_MESSAGE);
+    for (double quantile : new double[]{0.5, 0.9, 0.95, 0.99}) {
+      // Uniform values in [0, 1000), so 1% rank error is within 10.
+      Assert.assertEquals(merged.getQuantile(quantile), values[(int) (numValues * quantile)], 10, ERROR_MESSAGE);
+    }
+  }
 }
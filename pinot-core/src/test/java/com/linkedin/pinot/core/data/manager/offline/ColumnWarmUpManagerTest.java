@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.data.manager.offline;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+
+public class ColumnWarmUpManagerTest {
+
+  @Test
+  public void testWarmUp() {
+    ColumnWarmUpManager columnWarmUpManager = new ColumnWarmUpManager("testTable", MoreExecutors.directExecutor());
+    IndexSegmentImpl segment1 = mock(IndexSegmentImpl.class);
+    IndexSegmentImpl segment2 = mock(IndexSegmentImpl.class);
+
+    // No column accessed yet, nothing to warm up.
+    columnWarmUpManager.addSegment(segment1);
+    verify(segment1).setColumnAccessListener(columnWarmUpManager);
+    verify(segment1, never()).loadColumn("column1");
+
+    // First access to a column should warm up the column for all segments.
+    columnWarmUpManager.onColumnAccess("column1");
+    verify(segment1).loadColumn("column1");
+
+    // Recent accesses should not trigger warm up again.
+    columnWarmUpManager.onColumnAccess("column1");
+    verify(segment1, times(1)).loadColumn("column1");
+
+    // New segments should warm up the recently accessed columns.
+    columnWarmUpManager.addSegment(segment2);
+    verify(segment2).loadColumn("column1");
+
+    // Removed segments should not be warmed up.
+    columnWarmUpManager.removeSegment(segment1);
+    verify(segment1).setColumnAccessListener(null);
+    columnWarmUpManager.onColumnAccess("column2");
+    verify(segment1, never()).loadColumn("column2");
+    verify(segment2).loadColumn("column2");
+  }
+}
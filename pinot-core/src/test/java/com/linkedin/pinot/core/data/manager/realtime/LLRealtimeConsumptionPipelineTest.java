@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.data.manager.realtime;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.extractors.PlainFieldExtractor;
+import com.linkedin.pinot.core.realtime.impl.kafka.KafkaMessageDecoder;
+import com.linkedin.pinot.core.realtime.impl.kafka.SimpleConsumerWrapper;
+import java.util.Arrays;
+import java.util.List;
+import kafka.message.Message;
+import kafka.message.MessageAndOffset;
+import org.apache.commons.lang3.tuple.Pair;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class LLRealtimeConsumptionPipelineTest {
+  private static final long TIMEOUT_MILLIS = 10000L;
+
+  @Test
+  public void testFetchAndDecode() throws Exception {
+    List<MessageAndOffset> messages =
+        Arrays.asList(new MessageAndOffset(new Message("foo".getBytes("UTF-8")), 5L),
+            new MessageAndOffset(new Message("invalid".getBytes("UTF-8")), 6L),
+            new MessageAndOffset(new Message("bar".getBytes("UTF-8")), 7L));
+    SimpleConsumerWrapper consumerWrapper = mock(SimpleConsumerWrapper.class);
+    when(consumerWrapper.fetchMessagesAndHighWatermark(eq(5L), anyLong(), anyInt())).thenReturn(
+        Pair.<Iterable<MessageAndOffset>, Long>of(messages, 20L));
+    when(consumerWrapper.fetchMessagesAndHighWatermark(eq(8L), anyLong(), anyInt())).thenThrow(
+        new RuntimeException("Fetch failed"));
+
+    // Decode the payload as the value of the single column, "invalid" payloads cannot be decoded
+    KafkaMessageDecoder messageDecoder = mock(KafkaMessageDecoder.class);
+    when(messageDecoder.decode(any(byte[].class), anyInt(), anyInt(), any(GenericRow.class))).thenAnswer(
+        new Answer<GenericRow>() {
+          @Override
+          public GenericRow answer(InvocationOnMock invocation) throws Throwable {
+            Object[] arguments = invocation.getArguments();
+            String value = new String((byte[]) arguments[0], (int) arguments[1], (int) arguments[2], "UTF-8");
+            if (value.equals("invalid")) {
+              return null;
+            }
+            GenericRow row = (GenericRow) arguments[3];
+            row.putField("column", value);
+            return row;
+          }
+        });
+    // The other column is never decoded, so that each row has a null value
+    Schema schema = new Schema.SchemaBuilder().addSingleValueDimension("column", FieldSpec.DataType.STRING)
+        .addSingleValueDimension("otherColumn", FieldSpec.DataType.INT)
+        .build();
+
+    LLRealtimeConsumptionPipeline pipeline =
+        new LLRealtimeConsumptionPipeline("testSegment", consumerWrapper, messageDecoder,
+            new PlainFieldExtractor(schema), 100, 5L);
+    try {
+      LLRealtimeConsumptionPipeline.DecodedBatch batch = pipeline.nextBatch(TIMEOUT_MILLIS);
+      Assert.assertNotNull(batch);
+      Assert.assertNull(batch.getFetchException());
+      Assert.assertNull(batch.getDecodeException());
+      Assert.assertEquals(batch.getNumMessages(), 3);
+      Assert.assertEquals(batch.getFirstOffset(), 5L);
+      Assert.assertEquals(batch.getHighWatermark(), 20L);
+      Assert.assertTrue(batch.isValidMessage(0));
+      Assert.assertFalse(batch.isValidMessage(1));
+      Assert.assertTrue(batch.isValidMessage(2));
+      Assert.assertEquals(batch.getNextOffset(0), 6L);
+      Assert.assertEquals(batch.getNextOffset(1), 7L);
+      Assert.assertEquals(batch.getNextOffset(2), 8L);
+      List<GenericRow> rows = batch.getRows(0, 2);
+      Assert.assertEquals(rows.get(0).getValue("column"), "foo");
+      Assert.assertEquals(rows.get(1).getValue("column"), "bar");
+      for (int rowId = 0; rowId < 2; rowId++) {
+        Assert.assertFalse(batch.hasErrors(rowId));
+        Assert.assertFalse(batch.needsConversions(rowId));
+        Assert.assertTrue(batch.hasNullValues(rowId));
+        Assert.assertEquals(batch.getNumNullColumns(rowId), 1);
+      }
+      pipeline.releaseBatch(batch);
+
+      // The fetch error is delivered after the messages fetched before it
+      batch = pipeline.nextBatch(TIMEOUT_MILLIS);
+      Assert.assertNotNull(batch);
+      Assert.assertEquals(batch.getFetchException().getMessage(), "Fetch failed");
+      Assert.assertEquals(batch.getNumMessages(), 0);
+    } finally {
+      pipeline.stop();
+    }
+  }
+}
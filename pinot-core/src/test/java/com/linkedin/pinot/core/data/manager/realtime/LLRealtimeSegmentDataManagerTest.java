@@ -19,10 +19,19 @@ package com.linkedin.pinot.core.data.manager.realtime;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.LinkedList;
+import java.util.List;
+import kafka.message.Message;
+import kafka.message.MessageAndOffset;
+import org.apache.commons.lang3.tuple.Pair;
 import org.apache.kafka.common.protocol.Errors;
 import org.json.JSONObject;
 import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 import org.testng.annotations.Test;
 import com.linkedin.pinot.common.config.AbstractTableConfig;
 import com.linkedin.pinot.common.data.Schema;
@@ -33,13 +42,20 @@ import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.linkedin.pinot.common.protocols.SegmentCompletionProtocol;
 import com.linkedin.pinot.common.utils.CommonConstants;
 import com.linkedin.pinot.common.utils.LLCSegmentName;
+import com.linkedin.pinot.core.data.GenericRow;
 import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
 import com.linkedin.pinot.core.realtime.impl.kafka.KafkaLowLevelStreamProviderConfig;
+import com.linkedin.pinot.core.realtime.impl.kafka.KafkaMessageDecoder;
 import com.linkedin.pinot.core.realtime.impl.kafka.SimpleConsumerWrapper;
 import com.yammer.metrics.core.MetricsRegistry;
 import junit.framework.Assert;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 
@@ -509,6 +525,99 @@ public class LLRealtimeSegmentDataManagerTest {
     }
   }
 
+  @Test
+  public void testConsumeLoopStopsPartwayThroughBatch() throws Exception {
+    FakeLLRealtimeSegmentDataManager segmentDataManager = createFakeSegmentManager();
+    List<String> indexedValues = replaceRealtimeSegmentWithIndexRecorder(segmentDataManager);
+    SimpleConsumerWrapper consumerWrapper = mock(SimpleConsumerWrapper.class);
+    when(consumerWrapper.fetchMessagesAndHighWatermark(anyLong(), anyLong(), anyInt())).thenReturn(
+        Pair.<Iterable<MessageAndOffset>, Long>of(Collections.<MessageAndOffset>emptyList(), _startOffset + 5));
+    when(consumerWrapper.fetchMessagesAndHighWatermark(eq(_startOffset), anyLong(), anyInt())).thenReturn(
+        createMessages(_startOffset, 5));
+    segmentDataManager.setConsumerWrapper(consumerWrapper);
+    segmentDataManager.setMessageDecoder(createMessageDecoder());
+    segmentDataManager.setSegmentMaxRowCount(3);
+
+    // Consumption stops on the row limit after 3 of the 5 messages fetched, the rest of the batch is not consumed
+    Assert.assertTrue(segmentDataManager.invokeConsumeLoop());
+    Assert.assertEquals(_startOffset + 3, segmentDataManager.getCurrentOffset());
+    Assert.assertEquals(3, segmentDataManager.getNumRowsConsumed());
+    Assert.assertEquals(Arrays.asList("d" + _startOffset, "d" + (_startOffset + 1), "d" + (_startOffset + 2)),
+        indexedValues);
+  }
+
+  @Test
+  public void testConsumeLoopRestartsAfterTransientError() throws Exception {
+    FakeLLRealtimeSegmentDataManager segmentDataManager = createFakeSegmentManager();
+    List<String> indexedValues = replaceRealtimeSegmentWithIndexRecorder(segmentDataManager);
+    SimpleConsumerWrapper consumerWrapper = mock(SimpleConsumerWrapper.class);
+    when(consumerWrapper.fetchMessagesAndHighWatermark(anyLong(), anyLong(), anyInt())).thenReturn(
+        Pair.<Iterable<MessageAndOffset>, Long>of(Collections.<MessageAndOffset>emptyList(), _startOffset + 4));
+    when(consumerWrapper.fetchMessagesAndHighWatermark(eq(_startOffset), anyLong(), anyInt())).thenReturn(
+        createMessages(_startOffset, 2));
+    // The first fetch after the first batch fails, the retry succeeds
+    when(consumerWrapper.fetchMessagesAndHighWatermark(eq(_startOffset + 2), anyLong(), anyInt())).thenThrow(
+        new SimpleConsumerWrapper.TransientConsumerException(Errors.NOT_LEADER_FOR_PARTITION)).thenReturn(
+        createMessages(_startOffset + 2, 2));
+    segmentDataManager.setConsumerWrapper(consumerWrapper);
+    segmentDataManager.setMessageDecoder(createMessageDecoder());
+    segmentDataManager.setSegmentMaxRowCount(4);
+
+    // The pipeline is restarted from the offset after the last indexed message, without skipping or repeating any
+    Assert.assertTrue(segmentDataManager.invokeConsumeLoop());
+    Assert.assertEquals(_startOffset + 4, segmentDataManager.getCurrentOffset());
+    Assert.assertEquals(4, segmentDataManager.getNumRowsConsumed());
+    Assert.assertEquals(Arrays.asList("d" + _startOffset, "d" + (_startOffset + 1), "d" + (_startOffset + 2),
+        "d" + (_startOffset + 3)), indexedValues);
+    verify(consumerWrapper, times(2)).fetchMessagesAndHighWatermark(eq(_startOffset + 2), anyLong(), anyInt());
+  }
+
+  // Messages at consecutive offsets, each message payload is "d" followed by its offset.
+  private Pair<Iterable<MessageAndOffset>, Long> createMessages(long startOffset, int numMessages) throws Exception {
+    List<MessageAndOffset> messages = new ArrayList<>();
+    for (long offset = startOffset; offset < startOffset + numMessages; offset++) {
+      messages.add(new MessageAndOffset(new Message(("d" + offset).getBytes("UTF-8")), offset));
+    }
+    return Pair.<Iterable<MessageAndOffset>, Long>of(messages, startOffset + numMessages);
+  }
+
+  // Decoder putting the message payload in the dimension column.
+  private KafkaMessageDecoder createMessageDecoder() throws Exception {
+    KafkaMessageDecoder messageDecoder = mock(KafkaMessageDecoder.class);
+    when(messageDecoder.decode(any(byte[].class), anyInt(), anyInt(), any(GenericRow.class))).thenAnswer(
+        new Answer<GenericRow>() {
+          @Override
+          public GenericRow answer(InvocationOnMock invocation) throws Throwable {
+            Object[] arguments = invocation.getArguments();
+            GenericRow row = (GenericRow) arguments[3];
+            row.putField("d", new String((byte[]) arguments[0], (int) arguments[1], (int) arguments[2], "UTF-8"));
+            return row;
+          }
+        });
+    return messageDecoder;
+  }
+
+  // Replace the realtime segment with a mock that records the values of the dimension column of the indexed rows.
+  private List<String> replaceRealtimeSegmentWithIndexRecorder(FakeLLRealtimeSegmentDataManager segmentDataManager)
+      throws Exception {
+    final List<String> indexedValues = new ArrayList<>();
+    RealtimeSegmentImpl mockSegmentImpl = mock(RealtimeSegmentImpl.class);
+    when(mockSegmentImpl.index(any(List.class))).thenAnswer(new Answer<Boolean>() {
+      @Override
+      public Boolean answer(InvocationOnMock invocation) throws Throwable {
+        // Rows are reused by the consumption pipeline, keep the values only
+        for (Object row : (List) invocation.getArguments()[0]) {
+          indexedValues.add((String) ((GenericRow) row).getValue("d"));
+        }
+        return true;
+      }
+    });
+    Field segmentImpl = LLRealtimeSegmentDataManager.class.getDeclaredField("_realtimeSegment");
+    segmentImpl.setAccessible(true);
+    segmentImpl.set(segmentDataManager, mockSegmentImpl);
+    return indexedValues;
+  }
+
   // Replace the realtime segment with a mock that returns numDocs for raw doc count.
   private void replaceRealtimeSegment(FakeLLRealtimeSegmentDataManager segmentDataManager, int numDocs) throws Exception {
     RealtimeSegmentImpl mockSegmentImpl = mock(RealtimeSegmentImpl.class);
@@ -531,6 +640,7 @@ public class LLRealtimeSegmentDataManagerTest {
     private boolean _downloadAndReplaceCalled = false;
     public boolean _throwExceptionFromConsume = false;
     public boolean _postConsumeStoppedCalled = false;
+    private SimpleConsumerWrapper _fakeConsumerWrapper = null;
 
     public FakeLLRealtimeSegmentDataManager(RealtimeSegmentZKMetadata segmentZKMetadata,
         AbstractTableConfig tableConfig, InstanceZKMetadata instanceZKMetadata,
@@ -575,6 +685,18 @@ public class LLRealtimeSegmentDataManagerTest {
       return true;
     }
 
+    public boolean invokeConsumeLoop() throws Exception {
+      return super.consumeLoop();
+    }
+
+    @Override
+    protected SimpleConsumerWrapper createConsumerWrapper() {
+      if (_fakeConsumerWrapper != null) {
+        return _fakeConsumerWrapper;
+      }
+      return super.createConsumerWrapper();
+    }
+
     @Override
     protected SegmentCompletionProtocol.Response postSegmentConsumedMsg() {
       SegmentCompletionProtocol.Response response = _responses.remove();
@@ -677,6 +799,48 @@ public class LLRealtimeSegmentDataManagerTest {
       setInt(numRows, "_segmentMaxRowCount");
     }
 
+    public void setConsumerWrapper(SimpleConsumerWrapper consumerWrapper) {
+      _fakeConsumerWrapper = consumerWrapper;
+      setObject(consumerWrapper, "_consumerWrapper");
+    }
+
+    public void setMessageDecoder(KafkaMessageDecoder messageDecoder) {
+      setObject(messageDecoder, "_messageDecoder");
+    }
+
+    public long getCurrentOffset() {
+      return (Long) getObject("_currentOffset");
+    }
+
+    public int getNumRowsConsumed() {
+      return (Integer) getObject("_numRowsConsumed");
+    }
+
+    private void setObject(Object value, String fieldName) {
+      try {
+        Field field = LLRealtimeSegmentDataManager.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(this, value);
+      } catch (NoSuchFieldException e) {
+        Assert.fail();
+      } catch (IllegalAccessException e) {
+        Assert.fail();
+      }
+    }
+
+    private Object getObject(String fieldName) {
+      try {
+        Field field = LLRealtimeSegmentDataManager.class.getDeclaredField(fieldName);
+        field.setAccessible(true);
+        return field.get(this);
+      } catch (NoSuchFieldException e) {
+        Assert.fail();
+      } catch (IllegalAccessException e) {
+        Assert.fail();
+      }
+      throw new RuntimeException("Cannot get here");
+    }
+
     private void setLong(long value, String fieldName) {
       try {
         Field field = LLRealtimeSegmentDataManager.class.getDeclaredField(fieldName);
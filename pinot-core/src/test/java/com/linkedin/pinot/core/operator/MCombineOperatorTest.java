@@ -0,0 +1,283 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.core.common.Block;
+import com.linkedin.pinot.core.common.BlockId;
+import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.blocks.IntermediateResultsBlock;
+import com.linkedin.pinot.core.query.aggregation.AggregationFunctionContext;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunction;
+import com.linkedin.pinot.core.query.aggregation.function.AggregationFunctionFactory;
+import com.linkedin.pinot.core.query.aggregation.groupby.AggregationGroupByResult;
+import com.linkedin.pinot.core.query.aggregation.groupby.CombineGroupByResultsMap;
+import com.linkedin.pinot.core.query.aggregation.groupby.DoubleGroupByResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupByResultHolder;
+import com.linkedin.pinot.core.query.aggregation.groupby.GroupKeyGenerator;
+import com.linkedin.pinot.core.query.aggregation.groupby.RawGroupKey;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Tests that {@link MCombineOperator} and {@link MCombineGroupByOperator} run every operator exactly once, start the
+ * operators in the planned order and merge all their results, and that {@link CombineGroupByResultsMap} merges group
+ * keys of all types.
+ */
+public class MCombineOperatorTest {
+  private static final int NUM_OPERATORS = 100;
+  private static final int NUM_GROUPS = 5;
+  private static final long TIMEOUT_MS = 10000L;
+
+  private final ExecutorService _executorService = Executors.newFixedThreadPool(20);
+  private final Pql2Compiler _compiler = new Pql2Compiler();
+
+  @AfterClass
+  public void tearDown() {
+    _executorService.shutdownNow();
+  }
+
+  @Test
+  public void testAggregation() {
+    BrokerRequest brokerRequest = _compiler.compileToBrokerRequest("SELECT COUNT(*) FROM testTable");
+    ConcurrentLinkedQueue<Integer> startOrder = new ConcurrentLinkedQueue<>();
+    AtomicInteger[] numRuns = new AtomicInteger[NUM_OPERATORS];
+    List<Operator> operators = new ArrayList<>(NUM_OPERATORS);
+    for (int i = 0; i < NUM_OPERATORS; i++) {
+      numRuns[i] = new AtomicInteger();
+      List<Object> aggregationResult = new ArrayList<>();
+      aggregationResult.add(1L);
+      operators.add(new RecordingOperator(i, startOrder, numRuns[i],
+          new IntermediateResultsBlock(getCountFunctionContexts(), aggregationResult, false)));
+    }
+
+    MCombineOperator combineOperator = new MCombineOperator(operators, _executorService, TIMEOUT_MS, brokerRequest);
+    IntermediateResultsBlock mergedBlock = (IntermediateResultsBlock) combineOperator.nextBlock();
+
+    Assert.assertNull(mergedBlock.getProcessingExceptions());
+    Assert.assertEquals(mergedBlock.getAggregationResult().get(0), (long) NUM_OPERATORS);
+    checkRuns(startOrder, numRuns);
+  }
+
+  @Test
+  public void testAggregationGroupBy() {
+    BrokerRequest brokerRequest =
+        _compiler.compileToBrokerRequest("SELECT COUNT(*) FROM testTable GROUP BY column1 TOP 100");
+    ConcurrentLinkedQueue<Integer> startOrder = new ConcurrentLinkedQueue<>();
+    AtomicInteger[] numRuns = new AtomicInteger[NUM_OPERATORS];
+    List<Operator> operators = new ArrayList<>(NUM_OPERATORS);
+    for (int i = 0; i < NUM_OPERATORS; i++) {
+      numRuns[i] = new AtomicInteger();
+      Map<String, Object> groupByResult = new HashMap<>();
+      groupByResult.put("group" + (i % NUM_GROUPS), 1L);
+      operators.add(new RecordingOperator(i, startOrder, numRuns[i],
+          new IntermediateResultsBlock(getCountFunctionContexts(), Collections.singletonList(groupByResult), true)));
+    }
+
+    MCombineGroupByOperator combineOperator =
+        new MCombineGroupByOperator(operators, _executorService, TIMEOUT_MS, brokerRequest);
+    IntermediateResultsBlock mergedBlock = (IntermediateResultsBlock) combineOperator.nextBlock();
+
+    Assert.assertNull(mergedBlock.getProcessingExceptions());
+    Map<String, Object> mergedGroupByResult = mergedBlock.getCombinedAggregationGroupByResult().get(0);
+    Assert.assertEquals(mergedGroupByResult.size(), NUM_GROUPS);
+    for (int i = 0; i < NUM_GROUPS; i++) {
+      Assert.assertEquals(mergedGroupByResult.get("group" + i), (long) (NUM_OPERATORS / NUM_GROUPS));
+    }
+    checkRuns(startOrder, numRuns);
+  }
+
+  @Test
+  public void testCombineGroupByResultsMapMerge() {
+    AggregationFunction[] aggregationFunctions = getCountFunctions();
+    CombineGroupByResultsMap resultsMap = new CombineGroupByResultsMap(aggregationFunctions);
+
+    // INT group keys are merged as LONG keys.
+    Dictionary dictionary = mock(Dictionary.class);
+    when(dictionary.getIntValue(0)).thenReturn(1);
+    when(dictionary.getIntValue(1)).thenReturn(2);
+    when(dictionary.getIntValue(2)).thenReturn(3);
+    resultsMap.merge(getAggregationGroupByResult(aggregationFunctions, FieldSpec.DataType.INT, dictionary,
+        new int[]{0, 1}, new double[]{2, 3}));
+    resultsMap.merge(getAggregationGroupByResult(aggregationFunctions, FieldSpec.DataType.INT, dictionary,
+        new int[]{1, 2}, new double[]{4, 5}));
+
+    // Results keyed by string group keys (e.g. cached segment results) are merged with the binary keys.
+    Map<String, Object> stringKeyResults = new HashMap<>();
+    stringKeyResults.put("3", 1L);
+    stringKeyResults.put("4", 6L);
+    resultsMap.merge(Collections.singletonList(stringKeyResults));
+
+    Map<String, Object[]> mergedResults = resultsMap.toStringKeyResultsMap();
+    Assert.assertEquals(mergedResults.size(), 4);
+    Assert.assertEquals(mergedResults.get("1")[0], 2L);
+    Assert.assertEquals(mergedResults.get("2")[0], 7L);
+    Assert.assertEquals(mergedResults.get("3")[0], 6L);
+    Assert.assertEquals(mergedResults.get("4")[0], 6L);
+  }
+
+  @Test
+  public void testCombineGroupByResultsMapMixedKeyTypes() {
+    AggregationFunction[] aggregationFunctions = getCountFunctions();
+    CombineGroupByResultsMap resultsMap = new CombineGroupByResultsMap(aggregationFunctions);
+
+    // The first merged segment has STRING group keys, which are merged as BYTES keys.
+    Dictionary stringDictionary = mock(Dictionary.class);
+    when(stringDictionary.get(0)).thenReturn("1");
+    when(stringDictionary.get(1)).thenReturn("a");
+    resultsMap.merge(getAggregationGroupByResult(aggregationFunctions, FieldSpec.DataType.STRING, stringDictionary,
+        new int[]{0, 1}, new double[]{2, 3}));
+
+    // The INT group keys of the other segment cannot be compared in binary form and fall back to string keys.
+    Dictionary intDictionary = mock(Dictionary.class);
+    when(intDictionary.getIntValue(0)).thenReturn(1);
+    when(intDictionary.getIntValue(1)).thenReturn(2);
+    resultsMap.merge(getAggregationGroupByResult(aggregationFunctions, FieldSpec.DataType.INT, intDictionary,
+        new int[]{0, 1}, new double[]{4, 5}));
+
+    Map<String, Object[]> mergedResults = resultsMap.toStringKeyResultsMap();
+    Assert.assertEquals(mergedResults.size(), 3);
+    Assert.assertEquals(mergedResults.get("1")[0], 6L);
+    Assert.assertEquals(mergedResults.get("a")[0], 3L);
+    Assert.assertEquals(mergedResults.get("2")[0], 5L);
+  }
+
+  /**
+   * Checks that every operator ran exactly once and that no operator was started much later than planned: with at most
+   * <code>numTasks</code> operators in flight, the operator started at position <code>p</code> must be one of the
+   * first <code>p + numTasks</code> operators.
+   */
+  private static void checkRuns(ConcurrentLinkedQueue<Integer> startOrder, AtomicInteger[] numRuns) {
+    for (int i = 0; i < NUM_OPERATORS; i++) {
+      Assert.assertEquals(numRuns[i].get(), 1, "Operator " + i + " should run exactly once");
+    }
+    Assert.assertEquals(startOrder.size(), NUM_OPERATORS);
+
+    int numTasks = MCombineOperator.getNumTasks(NUM_OPERATORS);
+    int position = 0;
+    for (int operatorIndex : startOrder) {
+      Assert.assertTrue(operatorIndex <= position + numTasks - 1,
+          "Operator " + operatorIndex + " started at position " + position);
+      position++;
+    }
+  }
+
+  private static AggregationFunctionContext[] getCountFunctionContexts() {
+    return new AggregationFunctionContext[]{
+        new AggregationFunctionContext(new String[]{"*"}, AggregationFunctionFactory.getAggregationFunction("count"))
+    };
+  }
+
+  private static AggregationFunction[] getCountFunctions() {
+    return new AggregationFunction[]{AggregationFunctionFactory.getAggregationFunction("count")};
+  }
+
+  /**
+   * Builds the aggregation group-by result of one segment grouped by one column, where group <code>i</code> has the
+   * value of <code>dictIds[i]</code> and the count <code>counts[i]</code>.
+   */
+  private static AggregationGroupByResult getAggregationGroupByResult(AggregationFunction[] aggregationFunctions,
+      FieldSpec.DataType dataType, Dictionary dictionary, int[] dictIds, double[] counts) {
+    int numGroups = dictIds.length;
+    List<RawGroupKey> rawGroupKeys = new ArrayList<>(numGroups);
+    DoubleGroupByResultHolder resultHolder = new DoubleGroupByResultHolder(numGroups, numGroups, numGroups, 0.0);
+    resultHolder.ensureCapacity(numGroups);
+    for (int i = 0; i < numGroups; i++) {
+      RawGroupKey rawGroupKey = new RawGroupKey(new FieldSpec.DataType[]{dataType});
+      rawGroupKey.reset(i);
+      rawGroupKey.putDictionaryValue(dictionary, dictIds[i]);
+      rawGroupKeys.add(rawGroupKey);
+      resultHolder.setValueForKey(i, counts[i]);
+    }
+    GroupKeyGenerator groupKeyGenerator = mock(GroupKeyGenerator.class);
+    when(groupKeyGenerator.getUniqueRawGroupKeys()).thenReturn(rawGroupKeys.iterator());
+    return new AggregationGroupByResult(groupKeyGenerator, aggregationFunctions,
+        new GroupByResultHolder[]{resultHolder});
+  }
+
+  /**
+   * Operator that records when it is started and returns a pre-built block.
+   */
+  private static class RecordingOperator extends BaseOperator {
+    private final int _index;
+    private final ConcurrentLinkedQueue<Integer> _startOrder;
+    private final AtomicInteger _numRuns;
+    private final IntermediateResultsBlock _block;
+
+    RecordingOperator(int index, ConcurrentLinkedQueue<Integer> startOrder, AtomicInteger numRuns,
+        IntermediateResultsBlock block) {
+      _index = index;
+      _startOrder = startOrder;
+      _numRuns = numRuns;
+      _block = block;
+    }
+
+    @Override
+    public boolean open() {
+      return true;
+    }
+
+    @Override
+    public Block getNextBlock() {
+      _startOrder.add(_index);
+      _numRuns.incrementAndGet();
+      // Vary the running time so that the tasks interleave.
+      try {
+        Thread.sleep(_index % 3);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      return _block;
+    }
+
+    @Override
+    public Block getNextBlock(BlockId blockId) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getOperatorName() {
+      return "RecordingOperator";
+    }
+
+    @Override
+    public boolean close() {
+      return true;
+    }
+
+    @Override
+    public ExecutionStatistics getExecutionStatistics() {
+      return new ExecutionStatistics();
+    }
+  }
+}
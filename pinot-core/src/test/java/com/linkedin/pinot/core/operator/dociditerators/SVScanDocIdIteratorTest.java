@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.operator.dociditerators;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.common.BlockMetadata;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.BlockValSet;
+import com.linkedin.pinot.core.common.Constants;
+import com.linkedin.pinot.core.common.predicate.InPredicate;
+import com.linkedin.pinot.core.operator.filter.predicate.InPredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.util.Collections;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Test for {@link SVScanDocIdIterator}, covering scans over multiple batches.
+ */
+public class SVScanDocIdIteratorTest {
+  private static final int NUM_DOCS = 25000;
+  private static final int CARDINALITY = 10;
+
+  @Test
+  public void testNextAndAdvance() {
+    SVScanDocIdIterator iterator = createIterator(0, NUM_DOCS - 1);
+    int expectedDocId = 1;
+    int docId;
+    while ((docId = iterator.next()) != Constants.EOF) {
+      Assert.assertEquals(docId, expectedDocId);
+      expectedDocId += (expectedDocId % CARDINALITY == 1) ? 6 : 4;
+    }
+    Assert.assertEquals(expectedDocId, NUM_DOCS + 1);
+    Assert.assertEquals(iterator.getNumEntriesScanned(), NUM_DOCS);
+
+    iterator = createIterator(0, NUM_DOCS - 1);
+    Assert.assertEquals(iterator.advance(12345), 12347);
+    // Advance within the current batch.
+    Assert.assertEquals(iterator.advance(12350), 12351);
+    Assert.assertEquals(iterator.next(), 12357);
+    // Random access should not affect the sequential scan.
+    Assert.assertTrue(iterator.isMatch(7));
+    Assert.assertFalse(iterator.isMatch(4));
+    Assert.assertEquals(iterator.next(), 12361);
+    Assert.assertEquals(iterator.advance(NUM_DOCS - 5), NUM_DOCS - 3);
+    Assert.assertEquals(iterator.next(), Constants.EOF);
+  }
+
+  @Test
+  public void testDocIdRange() {
+    SVScanDocIdIterator iterator = createIterator(15000, 20005);
+    Assert.assertEquals(iterator.next(), 15001);
+    Assert.assertEquals(iterator.advance(19998), 20001);
+    Assert.assertEquals(iterator.next(), Constants.EOF);
+
+    iterator = createIterator(0, NUM_DOCS - 1);
+    Assert.assertEquals(iterator.next(), 1);
+    iterator.setEndDocId(8);
+    Assert.assertEquals(iterator.next(), 7);
+    Assert.assertEquals(iterator.next(), Constants.EOF);
+  }
+
+  private static SVScanDocIdIterator createIterator(int startDocId, int endDocId) {
+    int[] dictIds = new int[NUM_DOCS];
+    for (int i = 0; i < NUM_DOCS; i++) {
+      dictIds[i] = i % CARDINALITY;
+    }
+    BlockValSet blockValSet = mock(BlockValSet.class);
+    when(blockValSet.iterator()).thenReturn(new ArrayBasedValIterator(dictIds));
+    BlockMetadata blockMetadata = mock(BlockMetadata.class);
+    when(blockMetadata.getStartDocId()).thenReturn(startDocId);
+    when(blockMetadata.getEndDocId()).thenReturn(endDocId);
+
+    Dictionary dictionary = mock(Dictionary.class);
+    when(dictionary.indexOf("1")).thenReturn(1);
+    when(dictionary.indexOf("7")).thenReturn(7);
+    when(dictionary.indexOf("100")).thenReturn(-11);
+    PredicateEvaluator evaluator =
+        new InPredicateEvaluator(new InPredicate("column", Collections.singletonList("1\t\t7\t\t100")), dictionary);
+
+    return new SVScanDocIdIterator("column", blockValSet, blockMetadata, evaluator);
+  }
+
+  private static class ArrayBasedValIterator extends BlockSingleValIterator {
+    private final int[] _values;
+    private int _counter = 0;
+
+    ArrayBasedValIterator(int[] values) {
+      _values = values;
+    }
+
+    @Override
+    public int nextIntVal() {
+      return _values[_counter++];
+    }
+
+    @Override
+    public boolean skipTo(int docId) {
+      if (docId >= _values.length) {
+        return false;
+      }
+      _counter = docId;
+      return true;
+    }
+
+    @Override
+    public int currentDocId() {
+      return _counter;
+    }
+
+    @Override
+    public boolean reset() {
+      _counter = 0;
+      return true;
+    }
+
+    @Override
+    public boolean next() {
+      return false;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return _counter < _values.length;
+    }
+
+    @Override
+    public int size() {
+      return _values.length;
+    }
+
+    @Override
+    public FieldSpec.DataType getValueType() {
+      return FieldSpec.DataType.INT;
+    }
+  }
+}
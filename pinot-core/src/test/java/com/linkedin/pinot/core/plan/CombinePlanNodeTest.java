@@ -15,11 +15,14 @@
  */
 package com.linkedin.pinot.core.plan;
 
+import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.core.common.Operator;
+import com.linkedin.pinot.core.operator.MCombineOperator;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import junit.framework.Assert;
 import org.testng.annotations.Test;
 
@@ -27,6 +30,45 @@ import org.testng.annotations.Test;
 public class CombinePlanNodeTest {
   private ExecutorService _executorService = Executors.newFixedThreadPool(10);
 
+  @Test
+  public void testParallelRun() {
+    final AtomicInteger numRunningPlanNodes = new AtomicInteger();
+    final AtomicInteger maxRunningPlanNodes = new AtomicInteger();
+    final AtomicInteger numPlanNodesRun = new AtomicInteger();
+    int numPlanNodes = 50;
+
+    List<PlanNode> planNodes = new ArrayList<>();
+    for (int i = 0; i < numPlanNodes; i++) {
+      planNodes.add(new PlanNode() {
+        @Override
+        public Operator run() {
+          int numRunning = numRunningPlanNodes.incrementAndGet();
+          synchronized (maxRunningPlanNodes) {
+            maxRunningPlanNodes.set(Math.max(maxRunningPlanNodes.get(), numRunning));
+          }
+          try {
+            Thread.sleep(10);
+          } catch (InterruptedException e) {
+            // Ignored.
+          }
+          numPlanNodesRun.incrementAndGet();
+          numRunningPlanNodes.decrementAndGet();
+          return null;
+        }
+
+        @Override
+        public void showTree(String prefix) {
+        }
+      });
+    }
+    CombinePlanNode combinePlanNode = new CombinePlanNode(planNodes, new BrokerRequest(), _executorService, 0);
+    Assert.assertTrue(combinePlanNode.run() instanceof MCombineOperator);
+
+    // Every plan node runs exactly once, and the parallelism is bounded per query.
+    Assert.assertEquals(numPlanNodesRun.get(), numPlanNodes);
+    Assert.assertTrue(maxRunningPlanNodes.get() <= MCombineOperator.getNumTasks(numPlanNodes));
+  }
+
   @Test
   public void testSlowPlanNode() {
     // Warning: this test is slow (take 10 seconds).
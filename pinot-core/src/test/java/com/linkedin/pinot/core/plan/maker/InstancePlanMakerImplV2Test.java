@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.plan.maker;
+
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class InstancePlanMakerImplV2Test {
+
+  @Test
+  public void testSortByNumDocsDescending() {
+    int[] numDocs = new int[]{10, 500, 0, 30, 500, 70};
+    List<IndexSegment> indexSegments = new ArrayList<>();
+    for (int i = 0; i < numDocs.length; i++) {
+      indexSegments.add(mockSegment("segment" + i, numDocs[i]));
+    }
+
+    InstancePlanMakerImplV2.sortByNumDocsDescending(indexSegments);
+
+    List<String> segmentNames = new ArrayList<>();
+    for (IndexSegment indexSegment : indexSegments) {
+      segmentNames.add(indexSegment.getSegmentName());
+    }
+    // The sort is stable, so segments with the same number of documents keep their order.
+    Assert.assertEquals(segmentNames.toString(), "[segment1, segment4, segment5, segment3, segment0, segment2]");
+  }
+
+  @Test
+  public void testSortWithGrowingSegments() {
+    // Consuming segments report a larger number of documents each time they are asked, which must not break the sort.
+    List<IndexSegment> indexSegments = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      if (i % 2 == 0) {
+        indexSegments.add(mockGrowingSegment("consuming" + i));
+      } else {
+        indexSegments.add(mockSegment("segment" + i, i * 1000));
+      }
+    }
+
+    InstancePlanMakerImplV2.sortByNumDocsDescending(indexSegments);
+
+    Assert.assertEquals(indexSegments.size(), 100);
+    int previousNumDocs = Integer.MAX_VALUE;
+    for (IndexSegment indexSegment : indexSegments) {
+      if (indexSegment.getSegmentName().startsWith("segment")) {
+        int numDocs = indexSegment.getSegmentMetadata().getTotalRawDocs();
+        Assert.assertTrue(numDocs <= previousNumDocs);
+        previousNumDocs = numDocs;
+      }
+    }
+  }
+
+  private static IndexSegment mockSegment(String segmentName, int numDocs) {
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    when(segmentMetadata.getTotalRawDocs()).thenReturn(numDocs);
+    IndexSegment indexSegment = mock(IndexSegment.class);
+    when(indexSegment.getSegmentName()).thenReturn(segmentName);
+    when(indexSegment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return indexSegment;
+  }
+
+  private static IndexSegment mockGrowingSegment(String segmentName) {
+    final AtomicInteger numDocs = new AtomicInteger();
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    when(segmentMetadata.getTotalRawDocs()).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation)
+          throws Throwable {
+        return numDocs.addAndGet(997);
+      }
+    });
+    IndexSegment indexSegment = mock(IndexSegment.class);
+    when(indexSegment.getSegmentName()).thenReturn(segmentName);
+    when(indexSegment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    return indexSegment;
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.predicate;
+
+import com.linkedin.pinot.core.common.predicate.RangePredicate;
+import com.linkedin.pinot.core.operator.filter.predicate.PredicateEvaluator;
+import com.linkedin.pinot.core.operator.filter.predicate.RangeRealtimeDictionaryPredicateEvaluator;
+import com.linkedin.pinot.core.realtime.impl.dictionary.IntMutableDictionary;
+import com.linkedin.pinot.core.realtime.impl.dictionary.MutableDictionaryReader;
+import com.linkedin.pinot.core.realtime.impl.dictionary.StringMutableDictionary;
+import java.util.Arrays;
+import java.util.Random;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class RangeRealtimeDictionaryPredicateEvaluatorTest {
+  private static final int NUM_VALUES = 1000;
+  private static final int MAX_VALUE = 10000;
+  private static final long RANDOM_SEED = System.currentTimeMillis();
+  private static final Random RANDOM = new Random(RANDOM_SEED);
+
+  @Test
+  public void testIntRanges() {
+    IntMutableDictionary dictionary = new IntMutableDictionary("intColumn");
+    for (int i = 0; i < NUM_VALUES; i++) {
+      dictionary.index(RANDOM.nextInt(MAX_VALUE) - MAX_VALUE / 2);
+    }
+
+    for (int i = 0; i < 100; i++) {
+      // Index more values in between so that the sorted view is rebuilt incrementally.
+      dictionary.index(RANDOM.nextInt(MAX_VALUE) - MAX_VALUE / 2);
+
+      int lower = RANDOM.nextInt(MAX_VALUE) - MAX_VALUE / 2;
+      int upper = lower + RANDOM.nextInt(MAX_VALUE / 10);
+      boolean incLower = RANDOM.nextBoolean();
+      boolean incUpper = RANDOM.nextBoolean();
+      String lowerStr = RANDOM.nextInt(10) == 0 ? "*" : Integer.toString(lower);
+      String upperStr = RANDOM.nextInt(10) == 0 ? "*" : Integer.toString(upper);
+      verify(dictionary, lowerStr, incLower, upperStr, incUpper);
+    }
+  }
+
+  @Test
+  public void testStringRanges() {
+    StringMutableDictionary dictionary = new StringMutableDictionary("stringColumn");
+    dictionary.index(new Object[]{"b", "d", "a", "c", "e"});
+
+    verify(dictionary, "b", true, "d", true);
+    verify(dictionary, "b", false, "d", false);
+    verify(dictionary, "*", true, "c", false);
+    verify(dictionary, "bb", true, "*", true);
+
+    PredicateEvaluator evaluator =
+        new RangeRealtimeDictionaryPredicateEvaluator(createPredicate("b", false, "c", false), dictionary);
+    Assert.assertTrue(evaluator.alwaysFalse());
+  }
+
+  @Test
+  public void testEmptyDictionary() {
+    PredicateEvaluator evaluator = new RangeRealtimeDictionaryPredicateEvaluator(createPredicate("*", true, "*", true),
+        new IntMutableDictionary("intColumn"));
+    Assert.assertTrue(evaluator.alwaysFalse());
+    Assert.assertFalse(evaluator.apply(0));
+  }
+
+  /**
+   * Verify the evaluator against the brute force evaluation with {@link MutableDictionaryReader#inRange}.
+   */
+  private void verify(MutableDictionaryReader dictionary, String lower, boolean incLower, String upper,
+      boolean incUpper) {
+    PredicateEvaluator evaluator =
+        new RangeRealtimeDictionaryPredicateEvaluator(createPredicate(lower, incLower, upper, incUpper), dictionary);
+    String rangeStart = lower.equals("*") ? dictionary.getMinVal().toString() : lower;
+    String rangeEnd = upper.equals("*") ? dictionary.getMaxVal().toString() : upper;
+    boolean incLowerBoundary = lower.equals("*") || incLower;
+    boolean incUpperBoundary = upper.equals("*") || incUpper;
+
+    int length = dictionary.length();
+    int[] expected = new int[length];
+    int numMatching = 0;
+    for (int dictId = 0; dictId < length; dictId++) {
+      boolean inRange = dictionary.inRange(rangeStart, rangeEnd, dictId, incLowerBoundary, incUpperBoundary);
+      Assert.assertEquals(evaluator.apply(dictId), inRange, "Random seed: " + RANDOM_SEED);
+      if (inRange) {
+        expected[numMatching++] = dictId;
+      }
+    }
+    Assert.assertEquals(evaluator.getMatchingDictionaryIds(), Arrays.copyOf(expected, numMatching),
+        "Random seed: " + RANDOM_SEED);
+    Assert.assertEquals(evaluator.alwaysFalse(), numMatching == 0);
+  }
+
+  private RangePredicate createPredicate(String lower, boolean incLower, String upper, boolean incUpper) {
+    RangePredicate predicate = mock(RangePredicate.class);
+    when(predicate.includeLowerBoundary()).thenReturn(incLower);
+    when(predicate.includeUpperBoundary()).thenReturn(incUpper);
+    when(predicate.getLowerBoundary()).thenReturn(lower);
+    when(predicate.getUpperBoundary()).thenReturn(upper);
+    return predicate;
+  }
+}
@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.reduce;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.request.AggregationInfo;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.GroupBy;
+import com.linkedin.pinot.common.request.QuerySource;
+import com.linkedin.pinot.common.request.Selection;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.response.broker.AggregationResult;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.common.response.broker.GroupByResult;
+import com.linkedin.pinot.common.response.broker.QueryProcessingException;
+import com.linkedin.pinot.common.utils.DataSchema;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableBuilder;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Unit test for {@link BrokerDataTableReducer}.
+ */
+public class BrokerDataTableReducerTest {
+  private static final String TABLE_NAME = "testTable";
+  private static final ServerInstance SERVER_1 = new ServerInstance("localhost", 1111);
+  private static final ServerInstance SERVER_2 = new ServerInstance("localhost", 2222);
+  private static final ServerInstance SERVER_3 = new ServerInstance("localhost", 3333);
+
+  @Test
+  public void testEmptyResponse() {
+    BrokerDataTableReducer reducer = new BrokerDataTableReducer(getAggregationBrokerRequest(), null);
+    BrokerResponseNative brokerResponse = reducer.getBrokerResponse();
+    Assert.assertNull(brokerResponse.getAggregationResults());
+    Assert.assertEquals(brokerResponse.getNumDocsScanned(), 0L);
+  }
+
+  @Test
+  public void testAggregation()
+      throws IOException {
+    BrokerDataTableReducer reducer = new BrokerDataTableReducer(getAggregationBrokerRequest(), null);
+    reducer.reduce(SERVER_1, getAggregationDataTable(1.0, 10L));
+    reducer.reduce(SERVER_2, getAggregationDataTable(2.5, 20L));
+
+    BrokerResponseNative brokerResponse = reducer.getBrokerResponse();
+    List<AggregationResult> aggregationResults = brokerResponse.getAggregationResults();
+    Assert.assertEquals(aggregationResults.size(), 1);
+    Assert.assertEquals(aggregationResults.get(0).getValue(), "3.50000");
+    Assert.assertEquals(brokerResponse.getNumDocsScanned(), 30L);
+    Assert.assertTrue(brokerResponse.getProcessingExceptions().isEmpty());
+  }
+
+  @Test
+  public void testAggregationContinuesAfterReduceFailure()
+      throws IOException {
+    BrokerDataTableReducer reducer = new BrokerDataTableReducer(getAggregationBrokerRequest(), null);
+    reducer.reduce(SERVER_1, getAggregationDataTable(1.0, 10L));
+
+    // A data table with an illegal column type for aggregation results fails before being merged.
+    DataTableBuilder dataTableBuilder =
+        new DataTableBuilder(new DataSchema(new String[]{"sum_column"}, new DataType[]{DataType.STRING}));
+    dataTableBuilder.startRow();
+    dataTableBuilder.setColumn(0, "illegal");
+    dataTableBuilder.finishRow();
+    try {
+      reducer.reduce(SERVER_2, dataTableBuilder.build());
+      Assert.fail("Expected IllegalStateException");
+    } catch (IllegalStateException e) {
+      // Expected.
+    }
+
+    // The results already merged are kept and the other responses are still reduced.
+    reducer.reduce(SERVER_3, getAggregationDataTable(2.0, 20L));
+    BrokerResponseNative brokerResponse = reducer.getBrokerResponse();
+    Assert.assertEquals(brokerResponse.getAggregationResults().get(0).getValue(), "3.00000");
+  }
+
+  @Test
+  public void testGroupBy()
+      throws IOException {
+    BrokerRequest brokerRequest = getAggregationBrokerRequest();
+    GroupBy groupBy = new GroupBy();
+    groupBy.setColumns(Collections.singletonList("column"));
+    groupBy.setTopN(10L);
+    brokerRequest.setGroupBy(groupBy);
+
+    HashMap<String, Object> resultMap1 = new HashMap<>();
+    resultMap1.put("a", 1.0);
+    resultMap1.put("b", 2.0);
+    HashMap<String, Object> resultMap2 = new HashMap<>();
+    resultMap2.put("b", 3.0);
+    resultMap2.put("c", 4.0);
+
+    BrokerDataTableReducer reducer = new BrokerDataTableReducer(brokerRequest, null);
+    reducer.reduce(SERVER_1, getGroupByDataTable(resultMap1));
+    reducer.reduce(SERVER_2, getGroupByDataTable(resultMap2));
+
+    BrokerResponseNative brokerResponse = reducer.getBrokerResponse();
+    List<GroupByResult> groupByResults = brokerResponse.getAggregationResults().get(0).getGroupByResult();
+    Assert.assertEquals(groupByResults.size(), 3);
+    Assert.assertEquals(groupByResults.get(0).getGroup(), Collections.singletonList("b"));
+    Assert.assertEquals(groupByResults.get(0).getValue(), "5.00000");
+    Assert.assertEquals(groupByResults.get(1).getGroup(), Collections.singletonList("c"));
+    Assert.assertEquals(groupByResults.get(1).getValue(), "4.00000");
+    Assert.assertEquals(groupByResults.get(2).getGroup(), Collections.singletonList("a"));
+    Assert.assertEquals(groupByResults.get(2).getValue(), "1.00000");
+  }
+
+  @Test
+  public void testSelectionDropsIncompatibleDataSchema()
+      throws IOException {
+    BrokerRequest brokerRequest = new BrokerRequest();
+    brokerRequest.setQuerySource(getQuerySource());
+    Selection selection = new Selection();
+    selection.setSelectionColumns(Collections.singletonList("column"));
+    selection.setSize(10);
+    brokerRequest.setSelections(selection);
+
+    DataTableBuilder intDataTableBuilder =
+        new DataTableBuilder(new DataSchema(new String[]{"column"}, new DataType[]{DataType.INT}));
+    intDataTableBuilder.startRow();
+    intDataTableBuilder.setColumn(0, 1);
+    intDataTableBuilder.finishRow();
+    DataTableBuilder stringDataTableBuilder =
+        new DataTableBuilder(new DataSchema(new String[]{"column"}, new DataType[]{DataType.STRING}));
+    stringDataTableBuilder.startRow();
+    stringDataTableBuilder.setColumn(0, "value");
+    stringDataTableBuilder.finishRow();
+
+    BrokerDataTableReducer reducer = new BrokerDataTableReducer(brokerRequest, null);
+    reducer.reduce(SERVER_1, intDataTableBuilder.build());
+    reducer.reduce(SERVER_2, stringDataTableBuilder.build());
+
+    BrokerResponseNative brokerResponse = reducer.getBrokerResponse();
+    Assert.assertEquals(brokerResponse.getSelectionResults().getRows().size(), 1);
+    List<QueryProcessingException> processingExceptions = brokerResponse.getProcessingExceptions();
+    Assert.assertEquals(processingExceptions.size(), 1);
+    Assert.assertEquals(processingExceptions.get(0).getErrorCode(), QueryException.MERGE_RESPONSE_ERROR_CODE);
+  }
+
+  @Test
+  public void testExceptionMetadata()
+      throws IOException {
+    DataTable exceptionDataTable = new DataTableImplV2();
+    exceptionDataTable.addException(
+        QueryException.getException(QueryException.QUERY_EXECUTION_ERROR, new RuntimeException("Caught exception.")));
+
+    BrokerDataTableReducer reducer = new BrokerDataTableReducer(getAggregationBrokerRequest(), null);
+    reducer.reduce(SERVER_1, exceptionDataTable);
+    reducer.reduce(SERVER_2, getAggregationDataTable(1.0, 10L));
+
+    BrokerResponseNative brokerResponse = reducer.getBrokerResponse();
+    List<QueryProcessingException> processingExceptions = brokerResponse.getProcessingExceptions();
+    Assert.assertEquals(processingExceptions.size(), 1);
+    Assert.assertEquals(processingExceptions.get(0).getErrorCode(),
+        QueryException.QUERY_EXECUTION_ERROR.getErrorCode());
+    Assert.assertEquals(brokerResponse.getAggregationResults().get(0).getValue(), "1.00000");
+  }
+
+  private static QuerySource getQuerySource() {
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName(TABLE_NAME);
+    return querySource;
+  }
+
+  private static BrokerRequest getAggregationBrokerRequest() {
+    AggregationInfo aggregationInfo = new AggregationInfo();
+    aggregationInfo.setAggregationType("sum");
+    BrokerRequest brokerRequest = new BrokerRequest();
+    brokerRequest.setQuerySource(getQuerySource());
+    brokerRequest.setAggregationsInfo(Arrays.asList(aggregationInfo));
+    return brokerRequest;
+  }
+
+  private static DataTable getAggregationDataTable(double sum, long numDocsScanned)
+      throws IOException {
+    DataTableBuilder dataTableBuilder =
+        new DataTableBuilder(new DataSchema(new String[]{"sum_column"}, new DataType[]{DataType.DOUBLE}));
+    dataTableBuilder.startRow();
+    dataTableBuilder.setColumn(0, sum);
+    dataTableBuilder.finishRow();
+    DataTable dataTable = dataTableBuilder.build();
+    dataTable.getMetadata().put(DataTable.NUM_DOCS_SCANNED_METADATA_KEY, Long.toString(numDocsScanned));
+    return dataTable;
+  }
+
+  private static DataTable getGroupByDataTable(HashMap<String, Object> resultMap)
+      throws IOException {
+    DataTableBuilder dataTableBuilder = new DataTableBuilder(
+        new DataSchema(new String[]{"functionName", "GroupByResultMap"},
+            new DataType[]{DataType.STRING, DataType.OBJECT}));
+    dataTableBuilder.startRow();
+    dataTableBuilder.setColumn(0, "sum_column");
+    dataTableBuilder.setColumn(1, (Object) resultMap);
+    dataTableBuilder.finishRow();
+    return dataTableBuilder.build();
+  }
+}
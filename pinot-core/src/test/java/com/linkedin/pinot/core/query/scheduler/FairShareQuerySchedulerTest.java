@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.query.scheduler;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.linkedin.pinot.common.exception.QueryException;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.query.QueryExecutor;
+import com.linkedin.pinot.common.query.QueryRequest;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.request.InstanceRequest;
+import com.linkedin.pinot.common.request.QuerySource;
+import com.linkedin.pinot.common.utils.DataTable;
+import com.linkedin.pinot.core.common.datatable.DataTableImplV2;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+public class FairShareQuerySchedulerTest {
+  private static final String TABLE_A = "tableA_OFFLINE";
+  private static final String TABLE_B = "tableB_OFFLINE";
+  private static final long TIMEOUT_MS = 10_000L;
+
+  private final ServerMetrics _serverMetrics = new ServerMetrics(new MetricsRegistry());
+  private QueryExecutor _queryExecutor;
+  // Tables of the queries in the order they started running
+  private List<String> _startedTables;
+  // Each running query takes one permit to finish
+  private Semaphore _finishPermits;
+
+  @BeforeMethod
+  public void setUp() {
+    _startedTables = Collections.synchronizedList(new ArrayList<String>());
+    _finishPermits = new Semaphore(0);
+    _queryExecutor = mock(QueryExecutor.class);
+    when(_queryExecutor.getTimeOutMs(anyString())).thenReturn(TIMEOUT_MS);
+    when(_queryExecutor.processQuery(any(QueryRequest.class), any(ExecutorService.class))).thenAnswer(
+        new Answer<DataTable>() {
+          @Override
+          public DataTable answer(InvocationOnMock invocation)
+              throws Throwable {
+            QueryRequest queryRequest = (QueryRequest) invocation.getArguments()[0];
+            _startedTables.add(queryRequest.getTableName());
+            _finishPermits.acquire();
+            return new DataTableImplV2();
+          }
+        });
+  }
+
+  @Test
+  public void testPerTableConcurrencyAndRejection()
+      throws Exception {
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty(QueryScheduler.QUERY_RUNNER_CONFIG_KEY, 2);
+    config.setProperty(FairShareQueryScheduler.MAX_RUNNING_QUERIES_PER_TABLE_CONFIG_KEY, 1);
+    config.setProperty(FairShareQueryScheduler.MAX_PENDING_QUERIES_PER_TABLE_CONFIG_KEY, 2);
+    FairShareQueryScheduler scheduler = new FairShareQueryScheduler(config, _queryExecutor);
+
+    List<ListenableFuture<DataTable>> futures = new ArrayList<>();
+    futures.add(scheduler.submit(getQueryRequest(TABLE_A)));
+    waitForStartedQueries(1);
+    futures.add(scheduler.submit(getQueryRequest(TABLE_A)));
+    futures.add(scheduler.submit(getQueryRequest(TABLE_A)));
+
+    // Pending queue of table A is full
+    ListenableFuture<DataTable> rejected = scheduler.submit(getQueryRequest(TABLE_A));
+    Assert.assertTrue(rejected.isDone());
+    Assert.assertTrue(rejected.get().getMetadata()
+        .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.SERVER_OUT_OF_CAPACITY_ERROR_CODE));
+
+    // Table B can still use the second query runner while table A is limited to one running query
+    futures.add(scheduler.submit(getQueryRequest(TABLE_B)));
+    waitForStartedQueries(2);
+    Thread.sleep(100L);
+    Assert.assertEquals(_startedTables, Arrays.asList(TABLE_A, TABLE_B));
+
+    _finishPermits.release(futures.size());
+    for (ListenableFuture<DataTable> future : futures) {
+      Assert.assertTrue(future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS).getMetadata().isEmpty());
+    }
+    Assert.assertEquals(_startedTables.size(), futures.size());
+    scheduler.stop();
+  }
+
+  @Test
+  public void testFairSharing()
+      throws Exception {
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty(QueryScheduler.QUERY_RUNNER_CONFIG_KEY, 1);
+    FairShareQueryScheduler scheduler = new FairShareQueryScheduler(config, _queryExecutor);
+
+    List<ListenableFuture<DataTable>> futures = new ArrayList<>();
+    futures.add(scheduler.submit(getQueryRequest(TABLE_A)));
+    waitForStartedQueries(1);
+    // Backlog of table A queued ahead of table B
+    futures.add(scheduler.submit(getQueryRequest(TABLE_A)));
+    futures.add(scheduler.submit(getQueryRequest(TABLE_A)));
+    futures.add(scheduler.submit(getQueryRequest(TABLE_B)));
+
+    for (int i = 1; i < futures.size(); i++) {
+      _finishPermits.release();
+      waitForStartedQueries(i + 1);
+    }
+    _finishPermits.release();
+    for (ListenableFuture<DataTable> future : futures) {
+      future.get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    // Table B has not used any query runner time, so it should run before the rest of table A backlog
+    Assert.assertEquals(_startedTables, Arrays.asList(TABLE_A, TABLE_B, TABLE_A, TABLE_A));
+    scheduler.stop();
+  }
+
+  @Test
+  public void testStop()
+      throws Exception {
+    PropertiesConfiguration config = new PropertiesConfiguration();
+    config.setProperty(QueryScheduler.QUERY_RUNNER_CONFIG_KEY, 1);
+    FairShareQueryScheduler scheduler = new FairShareQueryScheduler(config, _queryExecutor);
+
+    ListenableFuture<DataTable> running = scheduler.submit(getQueryRequest(TABLE_A));
+    waitForStartedQueries(1);
+    ListenableFuture<DataTable> pending = scheduler.submit(getQueryRequest(TABLE_B));
+
+    scheduler.stop();
+    Assert.assertFalse(isDispatcherAlive(), "Query dispatcher should exit on stop");
+
+    // Pending and newly submitted queries fail, the running query is allowed to finish
+    Assert.assertTrue(pending.isDone());
+    Assert.assertTrue(pending.get().getMetadata()
+        .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.INTERNAL_ERROR_CODE));
+    ListenableFuture<DataTable> rejected = scheduler.submit(getQueryRequest(TABLE_A));
+    Assert.assertTrue(rejected.isDone());
+    Assert.assertTrue(rejected.get().getMetadata()
+        .containsKey(DataTable.EXCEPTION_METADATA_KEY + QueryException.INTERNAL_ERROR_CODE));
+    _finishPermits.release();
+    Assert.assertTrue(running.get(TIMEOUT_MS, TimeUnit.MILLISECONDS).getMetadata().isEmpty());
+    Assert.assertEquals(_startedTables, Collections.singletonList(TABLE_A));
+  }
+
+  private static boolean isDispatcherAlive() {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().equals("pqs-dispatcher") && thread.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private void waitForStartedQueries(int numQueries)
+      throws InterruptedException {
+    long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+    while (_startedTables.size() < numQueries) {
+      Assert.assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for queries to start");
+      Thread.sleep(10L);
+    }
+  }
+
+  private QueryRequest getQueryRequest(String tableName) {
+    QuerySource querySource = new QuerySource();
+    querySource.setTableName(tableName);
+    BrokerRequest brokerRequest = new BrokerRequest();
+    brokerRequest.setQuerySource(querySource);
+    InstanceRequest instanceRequest = new InstanceRequest();
+    instanceRequest.setQuery(brokerRequest);
+    instanceRequest.setRequestId(1);
+    instanceRequest.setBrokerId("broker");
+    return new QueryRequest(instanceRequest, _serverMetrics);
+  }
+}
@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.converter;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.metrics.ServerMetrics;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.PinotSegmentRecordReader;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentVersion;
+import com.linkedin.pinot.core.realtime.impl.RealtimeSegmentImpl;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.core.segment.index.readers.BloomFilterReader;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import com.linkedin.pinot.core.segment.index.readers.InvertedIndexReader;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+/**
+ * Test for RealtimeSegmentConverter building the segment column by column.
+ */
+public class RealtimeSegmentConverterTest {
+  private static final File OUTPUT_DIR = new File(FileUtils.getTempDirectory(), "RealtimeSegmentConverterTest");
+
+  @Test
+  public void testConvertWithSortedColumn() throws Exception {
+    Schema schema = new Schema.SchemaBuilder()
+        .setSchemaName("potato")
+        .addSingleValueDimension("dimension", FieldSpec.DataType.STRING)
+        .addMultiValueDimension("multiValueDimension", FieldSpec.DataType.INT)
+        .addMetric("metric", FieldSpec.DataType.LONG)
+        .addTime("time", TimeUnit.SECONDS, FieldSpec.DataType.LONG)
+        .build();
+    List<String> invertedIndexColumns = Arrays.asList("dimension", "multiValueDimension");
+    RealtimeSegmentImpl realtimeSegment = new RealtimeSegmentImpl(schema, 100, "noTable", "noSegment",
+        schema.getSchemaName(), new ServerMetrics(new MetricsRegistry()), invertedIndexColumns);
+
+    List<GenericRow> rows = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      GenericRow row = new GenericRow();
+      row.putField("dimension", "potato" + ((20 - i) % 7));
+      row.putField("multiValueDimension", i % 2 == 0 ? new Object[]{i} : new Object[]{i + 2, i, i + 1});
+      row.putField("metric", (long) i * 3);
+      row.putField("time", 4567L + i);
+      rows.add(row);
+    }
+    realtimeSegment.index(rows);
+
+    FileUtils.deleteQuietly(OUTPUT_DIR);
+    try {
+      RealtimeSegmentConverter converter =
+          new RealtimeSegmentConverter(realtimeSegment, OUTPUT_DIR.getAbsolutePath(), schema, "noTable", "noSegment",
+              "dimension", invertedIndexColumns);
+      converter.build(SegmentVersion.v1);
+      File segmentDir = OUTPUT_DIR.listFiles()[0];
+
+      SegmentMetadataImpl segmentMetadata = new SegmentMetadataImpl(segmentDir);
+      Assert.assertEquals(segmentMetadata.getTotalDocs(), rows.size());
+      Assert.assertTrue(segmentMetadata.getColumnMetadataFor("dimension").isSorted());
+      Assert.assertEquals(segmentMetadata.getColumnMetadataFor("dimension").getCardinality(), 7);
+      Assert.assertEquals(segmentMetadata.getColumnMetadataFor("multiValueDimension").getMaxNumberOfMultiValues(), 3);
+
+      // Rows should be ordered on the sorted column, and keep the consuming order for the same value
+      List<GenericRow> expectedRows = new ArrayList<>(rows);
+      Collections.sort(expectedRows, new Comparator<GenericRow>() {
+        @Override
+        public int compare(GenericRow row1, GenericRow row2) {
+          return ((String) row1.getValue("dimension")).compareTo((String) row2.getValue("dimension"));
+        }
+      });
+      PinotSegmentRecordReader recordReader = new PinotSegmentRecordReader(segmentDir);
+      recordReader.init();
+      for (GenericRow expectedRow : expectedRows) {
+        Assert.assertTrue(recordReader.hasNext());
+        GenericRow actualRow = recordReader.next();
+        Assert.assertEquals(actualRow.getValue("dimension"), expectedRow.getValue("dimension"));
+        Assert.assertEquals((Object[]) actualRow.getValue("multiValueDimension"),
+            (Object[]) expectedRow.getValue("multiValueDimension"));
+        Assert.assertEquals(actualRow.getValue("metric"), expectedRow.getValue("metric"));
+        Assert.assertEquals(actualRow.getValue("time"), expectedRow.getValue("time"));
+      }
+      Assert.assertFalse(recordReader.hasNext());
+      recordReader.close();
+    } finally {
+      FileUtils.deleteQuietly(OUTPUT_DIR);
+    }
+  }
+
+  @Test
+  public void testConvertWithBloomFilter() throws Exception {
+    Schema schema = new Schema.SchemaBuilder()
+        .setSchemaName("potato")
+        .addSingleValueDimension("dimension", FieldSpec.DataType.STRING)
+        .addMetric("metric", FieldSpec.DataType.LONG)
+        .addTime("time", TimeUnit.SECONDS, FieldSpec.DataType.LONG)
+        .build();
+    RealtimeSegmentImpl realtimeSegment = new RealtimeSegmentImpl(schema, 100, "noTable", "noSegment",
+        schema.getSchemaName(), new ServerMetrics(new MetricsRegistry()), new ArrayList<String>());
+
+    List<GenericRow> rows = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      GenericRow row = new GenericRow();
+      row.putField("dimension", "potato" + (i % 7));
+      row.putField("metric", (long) i);
+      row.putField("time", 4567L + i);
+      rows.add(row);
+    }
+    realtimeSegment.index(rows);
+
+    FileUtils.deleteQuietly(OUTPUT_DIR);
+    IndexSegment segment = null;
+    try {
+      RealtimeSegmentConverter converter =
+          new RealtimeSegmentConverter(realtimeSegment, OUTPUT_DIR.getAbsolutePath(), schema, "noTable", "noSegment",
+              null, new ArrayList<String>(), Collections.singletonList("dimension"), null);
+      converter.build(SegmentVersion.v3);
+      segment = Loaders.IndexSegment.load(OUTPUT_DIR.listFiles()[0], ReadMode.mmap);
+
+      BloomFilterReader bloomFilter = ((IndexSegmentImpl) segment).getBloomFilterFor("dimension");
+      Assert.assertNotNull(bloomFilter);
+      for (int i = 0; i < 7; i++) {
+        Assert.assertTrue(bloomFilter.mightContain("potato" + i));
+      }
+      Assert.assertNull(((IndexSegmentImpl) segment).getBloomFilterFor("metric"));
+    } finally {
+      if (segment != null) {
+        segment.destroy();
+      }
+      FileUtils.deleteQuietly(OUTPUT_DIR);
+    }
+  }
+
+  @Test
+  public void testConvertWithInvertedIndex() throws Exception {
+    Schema schema = new Schema.SchemaBuilder()
+        .setSchemaName("potato")
+        .addSingleValueDimension("dimension", FieldSpec.DataType.STRING)
+        .addMultiValueDimension("multiValueDimension", FieldSpec.DataType.INT)
+        .addMetric("metric", FieldSpec.DataType.LONG)
+        .addTime("time", TimeUnit.SECONDS, FieldSpec.DataType.LONG)
+        .build();
+    String[] invertedIndexColumns = new String[]{"dimension", "multiValueDimension"};
+    RealtimeSegmentImpl realtimeSegment = new RealtimeSegmentImpl(schema, 100, "noTable", "noSegment",
+        schema.getSchemaName(), new ServerMetrics(new MetricsRegistry()), Arrays.asList(invertedIndexColumns));
+
+    List<GenericRow> rows = new ArrayList<>();
+    int numMultiValues = 0;
+    for (int i = 0; i < 20; i++) {
+      GenericRow row = new GenericRow();
+      row.putField("dimension", "potato" + (i % 7));
+      Object[] multiValues = i % 2 == 0 ? new Object[]{i} : new Object[]{i + 2, i, i + 1};
+      row.putField("multiValueDimension", multiValues);
+      numMultiValues += multiValues.length;
+      row.putField("metric", (long) i);
+      row.putField("time", 4567L + i);
+      rows.add(row);
+    }
+    realtimeSegment.index(rows);
+
+    FileUtils.deleteQuietly(OUTPUT_DIR);
+    IndexSegmentImpl segment = null;
+    try {
+      RealtimeSegmentConverter converter =
+          new RealtimeSegmentConverter(realtimeSegment, OUTPUT_DIR.getAbsolutePath(), schema, "noTable", "noSegment",
+              null, Arrays.asList(invertedIndexColumns));
+      Assert.assertTrue(converter.canBuildFromColumns());
+      converter.build(SegmentVersion.v1);
+
+      IndexLoadingConfigMetadata indexLoadingConfig = new IndexLoadingConfigMetadata(new PropertiesConfiguration());
+      indexLoadingConfig.initLoadingInvertedIndexColumnSet(invertedIndexColumns);
+      segment = (IndexSegmentImpl) Loaders.IndexSegment.load(OUTPUT_DIR.listFiles()[0], ReadMode.mmap,
+          indexLoadingConfig);
+
+      // Each document should be in the bitmap of each of its values, and in no other bitmap
+      Dictionary dictionary = segment.getDictionaryFor("dimension");
+      InvertedIndexReader invertedIndex = segment.getInvertedIndexFor("dimension");
+      Assert.assertEquals(dictionary.length(), 7);
+      int numDocs = 0;
+      for (int dictId = 0; dictId < dictionary.length(); dictId++) {
+        numDocs += invertedIndex.getImmutable(dictId).getCardinality();
+      }
+      Assert.assertEquals(numDocs, rows.size());
+      for (int docId = 0; docId < rows.size(); docId++) {
+        int dictId = dictionary.indexOf(rows.get(docId).getValue("dimension"));
+        Assert.assertTrue(invertedIndex.getImmutable(dictId).contains(docId));
+      }
+
+      dictionary = segment.getDictionaryFor("multiValueDimension");
+      invertedIndex = segment.getInvertedIndexFor("multiValueDimension");
+      int numEntries = 0;
+      for (int dictId = 0; dictId < dictionary.length(); dictId++) {
+        numEntries += invertedIndex.getImmutable(dictId).getCardinality();
+      }
+      Assert.assertEquals(numEntries, numMultiValues);
+      for (int docId = 0; docId < rows.size(); docId++) {
+        for (Object value : (Object[]) rows.get(docId).getValue("multiValueDimension")) {
+          Assert.assertTrue(invertedIndex.getImmutable(dictionary.indexOf(value)).contains(docId));
+        }
+      }
+    } finally {
+      if (segment != null) {
+        segment.destroy();
+      }
+      FileUtils.deleteQuietly(OUTPUT_DIR);
+    }
+  }
+
+  @Test
+  public void testConvertFromRows() throws Exception {
+    Schema realtimeSchema = new Schema.SchemaBuilder()
+        .setSchemaName("potato")
+        .addSingleValueDimension("dimension", FieldSpec.DataType.STRING)
+        .addMultiValueDimension("multiValueDimension", FieldSpec.DataType.INT)
+        .addMetric("metric", FieldSpec.DataType.LONG)
+        .addTime("time", TimeUnit.SECONDS, FieldSpec.DataType.LONG)
+        .build();
+    RealtimeSegmentImpl realtimeSegment = new RealtimeSegmentImpl(realtimeSchema, 100, "noTable", "noSegment",
+        realtimeSchema.getSchemaName(), new ServerMetrics(new MetricsRegistry()), new ArrayList<String>());
+
+    List<GenericRow> rows = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      GenericRow row = new GenericRow();
+      row.putField("dimension", "potato" + (i % 7));
+      row.putField("multiValueDimension", new Object[]{i, i + 1});
+      row.putField("metric", (long) i);
+      row.putField("time", 4567L + i);
+      rows.add(row);
+    }
+    realtimeSegment.index(rows);
+
+    // A multi-value sorted column cannot be used to order the documents
+    FileUtils.deleteQuietly(OUTPUT_DIR);
+    RealtimeSegmentConverter converter =
+        new RealtimeSegmentConverter(realtimeSegment, OUTPUT_DIR.getAbsolutePath(), realtimeSchema, "noTable",
+            "noSegment", "multiValueDimension");
+    Assert.assertFalse(converter.canBuildFromColumns());
+
+    // A column added to the schema is not stored in the realtime segment, so the segment is built from the rows
+    Schema schema = new Schema.SchemaBuilder()
+        .setSchemaName("potato")
+        .addSingleValueDimension("dimension", FieldSpec.DataType.STRING)
+        .addMultiValueDimension("multiValueDimension", FieldSpec.DataType.INT)
+        .addSingleValueDimension("newDimension", FieldSpec.DataType.STRING)
+        .addMetric("metric", FieldSpec.DataType.LONG)
+        .addTime("time", TimeUnit.SECONDS, FieldSpec.DataType.LONG)
+        .build();
+    try {
+      converter = new RealtimeSegmentConverter(realtimeSegment, OUTPUT_DIR.getAbsolutePath(), schema, "noTable",
+          "noSegment", null);
+      Assert.assertFalse(converter.canBuildFromColumns());
+      converter.build(SegmentVersion.v1);
+      File segmentDir = OUTPUT_DIR.listFiles()[0];
+
+      Object defaultNullValue = schema.getFieldSpecFor("newDimension").getDefaultNullValue();
+      PinotSegmentRecordReader recordReader = new PinotSegmentRecordReader(segmentDir);
+      recordReader.init();
+      for (GenericRow expectedRow : rows) {
+        Assert.assertTrue(recordReader.hasNext());
+        GenericRow actualRow = recordReader.next();
+        Assert.assertEquals(actualRow.getValue("dimension"), expectedRow.getValue("dimension"));
+        Assert.assertEquals((Object[]) actualRow.getValue("multiValueDimension"),
+            (Object[]) expectedRow.getValue("multiValueDimension"));
+        Assert.assertEquals(actualRow.getValue("newDimension"), defaultNullValue);
+        Assert.assertEquals(actualRow.getValue("metric"), expectedRow.getValue("metric"));
+        Assert.assertEquals(actualRow.getValue("time"), expectedRow.getValue("time"));
+      }
+      Assert.assertFalse(recordReader.hasNext());
+      recordReader.close();
+    } finally {
+      FileUtils.deleteQuietly(OUTPUT_DIR);
+    }
+  }
+}
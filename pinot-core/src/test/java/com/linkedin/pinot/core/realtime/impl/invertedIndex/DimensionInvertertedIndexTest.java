@@ -0,0 +1,139 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.invertedIndex;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.roaringbitmap.IntIterator;
+import org.roaringbitmap.buffer.MutableRoaringBitmap;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class DimensionInvertertedIndexTest {
+  private static final int NUM_VALUES = 1000;
+  private static final int NUM_DOCS = 100000;
+  private static final int NUM_READERS = 4;
+
+  @Test
+  public void testMissingDictIds() {
+    DimensionInvertertedIndex invertedIndex = new DimensionInvertertedIndex("column");
+    invertedIndex.add(1, 0);
+    invertedIndex.setDocIdSearchableOffset(0);
+
+    // Negative ids (missing values), ids never added and ids beyond the array capacity all get an empty bitmap.
+    for (int dictId : new int[]{-1, -2, 0, 2, 1000000}) {
+      MutableRoaringBitmap bitmap = invertedIndex.getDocIdSetFor(dictId);
+      Assert.assertTrue(bitmap.isEmpty(), Integer.toString(dictId));
+      Assert.assertTrue(invertedIndex.getImmutable(dictId).isEmpty(), Integer.toString(dictId));
+    }
+
+    // Empty bitmaps are not shared, so modifying one does not affect later lookups.
+    invertedIndex.getDocIdSetFor(-1).add(5);
+    invertedIndex.getDocIdSetFor(2).add(5);
+    Assert.assertTrue(invertedIndex.getDocIdSetFor(-1).isEmpty());
+    Assert.assertTrue(invertedIndex.getDocIdSetFor(2).isEmpty());
+
+    MutableRoaringBitmap bitmap = invertedIndex.getDocIdSetFor(1);
+    Assert.assertEquals(bitmap.getCardinality(), 1);
+    Assert.assertTrue(bitmap.contains(0));
+  }
+
+  @Test
+  public void testSnapshotReusedUntilPublished() {
+    DimensionInvertertedIndex invertedIndex = new DimensionInvertertedIndex("column");
+    invertedIndex.add(0, 0);
+    invertedIndex.add(1, 1);
+    invertedIndex.setDocIdSearchableOffset(1);
+    MutableRoaringBitmap snapshot = invertedIndex.getDocIdSetFor(0);
+    Assert.assertEquals(snapshot.getCardinality(), 1);
+
+    // Rows keep arriving, but the snapshot is shared by all the queries until the next offset is published.
+    for (int docId = 2; docId < 100; docId += 2) {
+      invertedIndex.add(0, docId);
+      Assert.assertSame(invertedIndex.getDocIdSetFor(0), snapshot);
+    }
+
+    // After the publication the new doc ids are visible, and bitmaps without new doc ids are not copied again.
+    MutableRoaringBitmap unchangedSnapshot = invertedIndex.getDocIdSetFor(1);
+    invertedIndex.setDocIdSearchableOffset(98);
+    MutableRoaringBitmap newSnapshot = invertedIndex.getDocIdSetFor(0);
+    Assert.assertNotSame(newSnapshot, snapshot);
+    Assert.assertEquals(newSnapshot.getCardinality(), 50);
+    Assert.assertSame(invertedIndex.getDocIdSetFor(0), newSnapshot);
+    Assert.assertSame(invertedIndex.getDocIdSetFor(1), unchangedSnapshot);
+  }
+
+  @Test
+  public void testConcurrentAddAndRead()
+      throws Exception {
+    final DimensionInvertertedIndex invertedIndex = new DimensionInvertertedIndex("column");
+    // Doc ids up to (not including) this offset are searchable, published after updating the index as the realtime
+    // segment does.
+    final AtomicInteger searchableDocs = new AtomicInteger();
+    final AtomicBoolean done = new AtomicBoolean();
+
+    ExecutorService executorService = Executors.newFixedThreadPool(NUM_READERS);
+    Future[] futures = new Future[NUM_READERS];
+    for (int i = 0; i < NUM_READERS; i++) {
+      futures[i] = executorService.submit(new Runnable() {
+        @Override
+        public void run() {
+          while (!done.get()) {
+            int numDocs = searchableDocs.get();
+            int totalDocs = 0;
+            for (int dictId = 0; dictId < NUM_VALUES; dictId++) {
+              IntIterator iterator = invertedIndex.getDocIdSetFor(dictId).getIntIterator();
+              while (iterator.hasNext()) {
+                int docId = iterator.next();
+                Assert.assertEquals(docId % NUM_VALUES, dictId);
+                if (docId < numDocs) {
+                  totalDocs++;
+                }
+              }
+            }
+            // Every searchable doc must be found.
+            Assert.assertEquals(totalDocs, numDocs);
+          }
+        }
+      });
+    }
+
+    try {
+      for (int docId = 0; docId < NUM_DOCS; docId++) {
+        invertedIndex.add(docId % NUM_VALUES, docId);
+        invertedIndex.setDocIdSearchableOffset(docId);
+        searchableDocs.set(docId + 1);
+      }
+    } finally {
+      done.set(true);
+    }
+    for (Future future : futures) {
+      // Rethrows the assertion errors of the readers.
+      future.get();
+    }
+    executorService.shutdown();
+    Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+
+    for (int dictId = 0; dictId < NUM_VALUES; dictId++) {
+      Assert.assertEquals(invertedIndex.getDocIdSetFor(dictId).getCardinality(), NUM_DOCS / NUM_VALUES);
+    }
+  }
+}
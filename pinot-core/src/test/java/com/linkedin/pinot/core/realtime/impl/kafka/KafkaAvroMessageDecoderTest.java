@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.realtime.impl.kafka;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.core.data.GenericRow;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericDatumWriter;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class KafkaAvroMessageDecoderTest {
+  private static final File SCHEMA_REGISTRY_DIR =
+      new File(FileUtils.getTempDirectory(), KafkaAvroMessageDecoderTest.class.getSimpleName());
+  private static final String TOPIC_NAME = "testTopic";
+  private static final String OLD_SCHEMA_MD5 = "000102030405060708090a0b0c0d0e0f";
+  private static final String NEW_SCHEMA_MD5 = "f0f1f2f3f4f5f6f7f8f9fafbfcfdfeff";
+
+  private static final org.apache.avro.Schema OLD_AVRO_SCHEMA = org.apache.avro.Schema.parse(
+      "{\"type\":\"record\",\"name\":\"test\",\"fields\":[{\"name\":\"name\",\"type\":\"string\"},"
+          + "{\"name\":\"count\",\"type\":\"int\"}]}");
+  private static final org.apache.avro.Schema NEW_AVRO_SCHEMA = org.apache.avro.Schema.parse(
+      "{\"type\":\"record\",\"name\":\"test\",\"fields\":[{\"name\":\"tags\",\"type\":{\"type\":\"array\","
+          + "\"items\":\"string\"}},{\"name\":\"name\",\"type\":\"string\"},{\"name\":\"count\",\"type\":\"int\"},"
+          + "{\"name\":\"unused\",\"type\":\"long\"}]}");
+
+  private KafkaAvroMessageDecoder _decoder;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(SCHEMA_REGISTRY_DIR);
+    FileUtils.writeStringToFile(new File(SCHEMA_REGISTRY_DIR, "latest_with_type=" + TOPIC_NAME),
+        OLD_AVRO_SCHEMA.toString());
+    FileUtils.writeStringToFile(new File(SCHEMA_REGISTRY_DIR, "id=" + OLD_SCHEMA_MD5), OLD_AVRO_SCHEMA.toString());
+    FileUtils.writeStringToFile(new File(SCHEMA_REGISTRY_DIR, "id=" + NEW_SCHEMA_MD5), NEW_AVRO_SCHEMA.toString());
+
+    Schema schema = new Schema.SchemaBuilder().addSingleValueDimension("name", DataType.STRING)
+        .addMultiValueDimension("tags", DataType.STRING)
+        .addMetric("count", DataType.INT)
+        .build();
+    Map<String, String> props = new HashMap<String, String>();
+    props.put("schema.registry.rest.url", SCHEMA_REGISTRY_DIR.toURI().toURL().toString());
+    _decoder = new KafkaAvroMessageDecoder();
+    _decoder.init(props, schema, TOPIC_NAME);
+  }
+
+  @Test
+  public void testDecodeWithReusedRow()
+      throws Exception {
+    GenericData.Record oldRecord = new GenericData.Record(OLD_AVRO_SCHEMA);
+    oldRecord.put("name", "foo");
+    oldRecord.put("count", 1);
+    GenericData.Record newRecord = new GenericData.Record(NEW_AVRO_SCHEMA);
+    newRecord.put("tags", new GenericData.Array<String>(NEW_AVRO_SCHEMA.getField("tags").schema(),
+        Arrays.asList("a", "b")));
+    newRecord.put("name", "bar");
+    newRecord.put("count", 2);
+    newRecord.put("unused", 3L);
+
+    // Decode messages in the middle of a larger buffer, alternating schemas
+    byte[] oldMessage = encode(OLD_SCHEMA_MD5, oldRecord);
+    byte[] newMessage = encode(NEW_SCHEMA_MD5, newRecord);
+    byte[] buffer = new byte[oldMessage.length + newMessage.length + 1];
+    System.arraycopy(oldMessage, 0, buffer, 1, oldMessage.length);
+    System.arraycopy(newMessage, 0, buffer, 1 + oldMessage.length, newMessage.length);
+
+    GenericRow row = null;
+    for (int i = 0; i < 3; i++) {
+      row = GenericRow.createOrReuseRow(row);
+      row = _decoder.decode(buffer, 1, oldMessage.length, row);
+      Assert.assertEquals(row.getValue("name"), "foo");
+      Assert.assertEquals(row.getValue("count"), 1);
+      Assert.assertEquals((Object[]) row.getValue("tags"), new Object[]{"null"});
+      Assert.assertEquals(row.getFieldNames().length, 3);
+
+      row = GenericRow.createOrReuseRow(row);
+      row = _decoder.decode(buffer, 1 + oldMessage.length, newMessage.length, row);
+      Assert.assertEquals(row.getValue("name"), "bar");
+      Assert.assertEquals(row.getValue("count"), 2);
+      Assert.assertEquals((Object[]) row.getValue("tags"), new Object[]{"a", "b"});
+      Assert.assertEquals(row.getFieldNames().length, 3);
+    }
+  }
+
+  @Test
+  public void testDecodeEmptyMessage() {
+    Assert.assertNull(_decoder.decode(new byte[0], new GenericRow()));
+  }
+
+  private static byte[] encode(String md5, GenericData.Record record)
+      throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    outputStream.write(0);
+    for (int i = 0; i < md5.length(); i += 2) {
+      outputStream.write(Integer.parseInt(md5.substring(i, i + 2), 16));
+    }
+    BinaryEncoder encoder = EncoderFactory.get().binaryEncoder(outputStream, null);
+    new GenericDatumWriter<GenericData.Record>(record.getSchema()).write(record, encoder);
+    encoder.flush();
+    return outputStream.toByteArray();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(SCHEMA_REGISTRY_DIR);
+  }
+}
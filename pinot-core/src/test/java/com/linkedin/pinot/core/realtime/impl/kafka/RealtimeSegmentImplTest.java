@@ -17,8 +17,13 @@ package com.linkedin.pinot.core.realtime.impl.kafka;
 
 import com.linkedin.pinot.common.metrics.ServerMetrics;
 import com.yammer.metrics.core.MetricsRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -71,4 +76,62 @@ public class RealtimeSegmentImplTest {
     Assert.assertEquals(notFull, true);
     Assert.assertEquals(realtimeSegment.getRawDocumentCount(), 2);
   }
+
+  @Test
+  public void testBatchIndexing() throws Exception {
+    Schema schema = new Schema.SchemaBuilder()
+        .setSchemaName("potato")
+        .addSingleValueDimension("dimension", FieldSpec.DataType.STRING)
+        .addMultiValueDimension("multiValueDimension", FieldSpec.DataType.INT)
+        .addMetric("metric", FieldSpec.DataType.LONG)
+        .addTime("time", TimeUnit.SECONDS, FieldSpec.DataType.LONG)
+        .build();
+    List<String> invertedIndexColumns = Arrays.asList("dimension", "multiValueDimension");
+
+    RealtimeSegmentImpl rowSegment = new RealtimeSegmentImpl(schema, 10, "noTable", "rowSegment",
+        schema.getSchemaName(), new ServerMetrics(new MetricsRegistry()), invertedIndexColumns);
+    RealtimeSegmentImpl batchSegment = new RealtimeSegmentImpl(schema, 10, "noTable", "batchSegment",
+        schema.getSchemaName(), new ServerMetrics(new MetricsRegistry()), invertedIndexColumns);
+    ExecutorService executorService = Executors.newFixedThreadPool(2);
+    batchSegment.setIndexingExecutor(executorService);
+
+    List<GenericRow> rows = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      GenericRow row = new GenericRow();
+      row.putField("dimension", "potato" + (i % 3));
+      row.putField("multiValueDimension", i % 2 == 0 ? new Object[]{i} : new Object[]{i, i + 1, i + 2});
+      // Drop one invalid row from the batch
+      row.putField("metric", i == 5 ? null : (long) i);
+      row.putField("time", 4567L + i);
+      rows.add(row);
+    }
+
+    try {
+      for (GenericRow row : rows.subList(0, 8)) {
+        rowSegment.index(row);
+      }
+      Assert.assertTrue(batchSegment.index(rows.subList(0, 8)));
+      Assert.assertEquals(batchSegment.getRawDocumentCount(), 7);
+      Assert.assertEquals(batchSegment.getMinTime(), rowSegment.getMinTime());
+      Assert.assertEquals(batchSegment.getMaxTime(), rowSegment.getMaxTime());
+      for (int docId = 0; docId < 7; docId++) {
+        Assert.assertEquals(batchSegment.getRawValueRowAt(docId, new GenericRow()).toString(),
+            rowSegment.getRawValueRowAt(docId, new GenericRow()).toString());
+      }
+      Assert.assertEquals(batchSegment.getDataSource("multiValueDimension").getDataSourceMetadata().cardinality(),
+          rowSegment.getDataSource("multiValueDimension").getDataSourceMetadata().cardinality());
+
+      // Batches larger than the remaining capacity are rejected
+      try {
+        batchSegment.index(rows);
+        Assert.fail();
+      } catch (IllegalStateException e) {
+        // Expected
+      }
+      Assert.assertFalse(batchSegment.index(rows.subList(7, 10)));
+      Assert.assertEquals(batchSegment.getRawDocumentCount(), 10);
+    } finally {
+      executorService.shutdown();
+    }
+  }
 }
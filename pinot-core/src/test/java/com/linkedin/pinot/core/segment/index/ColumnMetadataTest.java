@@ -21,6 +21,7 @@ import com.linkedin.pinot.common.segment.ReadMode;
 import com.linkedin.pinot.common.segment.StarTreeMetadata;
 import com.linkedin.pinot.core.indexsegment.IndexSegment;
 import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.ColumnStatistics;
 import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
 import com.linkedin.pinot.core.segment.index.loader.Loaders;
@@ -174,6 +175,30 @@ public class ColumnMetadataTest {
     Assert.assertEquals(creatorName, null);
   }
 
+  @Test
+  public void testMinMaxValues() throws Exception {
+    // Build the Segment metadata.
+    SegmentGeneratorConfig config = CreateSegmentConfigWithoutCreator();
+    SegmentIndexCreationDriver driver = SegmentCreationDriverFactory.get(null);
+    driver.init(config);
+    driver.build();
+
+    // Load segment metadata.
+    IndexSegment segment = Loaders.IndexSegment.load(INDEX_DIR.listFiles()[0], ReadMode.mmap);
+    SegmentMetadataImpl metadata = (SegmentMetadataImpl) segment.getSegmentMetadata();
+
+    // Min/max values read back from the metadata must match the ones collected at creation time.
+    for (String column : Arrays.asList("column1", "column3", "column7", "daysSinceEpoch")) {
+      ColumnStatistics statistics = driver.getColumnStatisticsCollector(column);
+      ColumnMetadata columnMetadata = metadata.getColumnMetadataFor(column);
+      Assert.assertNotNull(columnMetadata.getMinValue(), column);
+      Assert.assertNotNull(columnMetadata.getMaxValue(), column);
+      Assert.assertEquals(columnMetadata.getMinValue(), statistics.getMinValue(), column);
+      Assert.assertEquals(columnMetadata.getMaxValue(), statistics.getMaxValue(), column);
+      Assert.assertTrue(columnMetadata.getMinValue().compareTo(columnMetadata.getMaxValue()) <= 0, column);
+    }
+  }
+
   @Test
   public void testPaddingCharacter() throws Exception {
     // Build the Segment metadata.
@@ -25,8 +25,10 @@ import com.linkedin.pinot.core.segment.creator.SegmentIndexCreationDriver;
 import com.linkedin.pinot.core.segment.creator.impl.SegmentCreationDriverFactory;
 import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
 import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
 import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
 import com.linkedin.pinot.core.segment.index.converter.SegmentV1V2ToV3FormatConverter;
+import com.linkedin.pinot.core.segment.index.readers.ImmutableDictionaryReader;
 import com.linkedin.pinot.core.segment.index.readers.StringDictionary;
 import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
 import com.linkedin.pinot.core.segment.store.ColumnIndexType;
@@ -112,6 +114,39 @@ public class LoadersTest {
   }
 
 
+  @Test
+  public void testLazyColumnLoading()
+      throws Exception {
+    Configuration tableConfig = new PropertiesConfiguration();
+    tableConfig.addProperty(IndexLoadingConfigMetadata.KEY_OF_SEGMENT_FORMAT_VERSION, "v1");
+    tableConfig.addProperty(IndexLoadingConfigMetadata.KEY_OF_ENABLE_LAZY_COLUMN_LOADING, true);
+    IndexLoadingConfigMetadata lazyLoadingConfig = new IndexLoadingConfigMetadata(tableConfig);
+
+    IndexSegmentImpl eagerSegment =
+        (IndexSegmentImpl) Loaders.IndexSegment.load(segmentDirectory, ReadMode.mmap, v1LoadingConfig);
+    IndexSegmentImpl lazySegment =
+        (IndexSegmentImpl) Loaders.IndexSegment.load(segmentDirectory, ReadMode.mmap, lazyLoadingConfig);
+    Assert.assertFalse(eagerSegment.isLazyColumnLoading());
+    Assert.assertTrue(lazySegment.isLazyColumnLoading());
+
+    for (String column : eagerSegment.getColumnNames()) {
+      ImmutableDictionaryReader expected = eagerSegment.getDictionaryFor(column);
+      ImmutableDictionaryReader actual = lazySegment.getDictionaryFor(column);
+      Assert.assertEquals(actual.length(), expected.length());
+      for (int i = 0; i < expected.length(); i++) {
+        Assert.assertEquals(actual.get(i), expected.get(i));
+      }
+      Assert.assertEquals(lazySegment.getDataSource(column).getDataSourceMetadata().getDataType(),
+          eagerSegment.getDataSource(column).getDataSourceMetadata().getDataType());
+    }
+    Assert.assertFalse(lazySegment.loadColumn("nonExistingColumn"));
+    eagerSegment.destroy();
+
+    // Columns should not be loaded after the segment is destroyed
+    lazySegment.destroy();
+    Assert.assertFalse(lazySegment.loadColumn(eagerSegment.getColumnNames()[0]));
+  }
+
   @Test
   public void testLoadWithStaleConversionDir()
       throws Exception {
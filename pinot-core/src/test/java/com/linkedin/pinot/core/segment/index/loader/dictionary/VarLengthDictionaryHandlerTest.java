@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.core.segment.index.loader.dictionary;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.metadata.segment.IndexLoadingConfigMetadata;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.common.BlockSingleValIterator;
+import com.linkedin.pinot.core.common.DataSource;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.TestRecordReader;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.configuration.PropertiesConfiguration;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+public class VarLengthDictionaryHandlerTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "VarLengthDictionaryHandlerTest");
+  private static final String SEGMENT_NAME = "testSegment";
+
+  // With '%' padding, values containing chars below '%' are sorted differently once padded.
+  private static final String UNSAFE_COLUMN = "unsafeColumn";
+  private static final String[] UNSAFE_VALUES = {"a", "a b", "a!", "a#", "a$", "a\"", "b"};
+  private static final String SAFE_COLUMN = "safeColumn";
+  private static final String[] SAFE_VALUES = {"x", "xy", "xyz", "y", "yz"};
+  private static final int NUM_ROWS = 100;
+
+  private List<GenericRow> _rows;
+
+  @BeforeClass
+  public void setUp()
+      throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+
+    Schema schema = new Schema();
+    schema.setSchemaName("testSchema");
+    schema.addField(new DimensionFieldSpec(UNSAFE_COLUMN, FieldSpec.DataType.STRING, true));
+    schema.addField(new DimensionFieldSpec(SAFE_COLUMN, FieldSpec.DataType.STRING, true));
+
+    _rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Map<String, Object> fields = new HashMap<>();
+      fields.put(UNSAFE_COLUMN, UNSAFE_VALUES[i % UNSAFE_VALUES.length]);
+      fields.put(SAFE_COLUMN, SAFE_VALUES[i % SAFE_VALUES.length]);
+      GenericRow row = new GenericRow();
+      row.init(fields);
+      _rows.add(row);
+    }
+
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(schema);
+    config.setTableName("testTable");
+    config.setOutDir(INDEX_DIR.getAbsolutePath());
+    config.setSegmentName(SEGMENT_NAME);
+    config.setPaddingCharacter(V1Constants.Str.LEGACY_STRING_PAD_CHAR);
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new TestRecordReader(_rows, schema));
+    driver.build();
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testConvertPaddedDictionaries()
+      throws Exception {
+    IndexLoadingConfigMetadata indexLoadingConfig = new IndexLoadingConfigMetadata(new PropertiesConfiguration());
+    indexLoadingConfig.setEnableVarLengthDictionary(true);
+    IndexSegment segment =
+        Loaders.IndexSegment.load(new File(INDEX_DIR, SEGMENT_NAME), ReadMode.mmap, indexLoadingConfig);
+    try {
+      SegmentMetadataImpl segmentMetadata = (SegmentMetadataImpl) segment.getSegmentMetadata();
+      Assert.assertEquals(segmentMetadata.getPaddingCharacter(), V1Constants.Str.LEGACY_STRING_PAD_CHAR);
+
+      // The padded order of the unsafe column differs from the natural order, so it keeps the padded dictionary.
+      Assert.assertFalse(segmentMetadata.getColumnMetadataFor(UNSAFE_COLUMN).isVarLengthDictionary());
+      Assert.assertTrue(segmentMetadata.getColumnMetadataFor(SAFE_COLUMN).isVarLengthDictionary());
+
+      checkColumn(segment, UNSAFE_COLUMN, UNSAFE_VALUES);
+      checkColumn(segment, SAFE_COLUMN, SAFE_VALUES);
+    } finally {
+      segment.destroy();
+    }
+  }
+
+  private void checkColumn(IndexSegment segment, String column, String[] values) {
+    DataSource dataSource = segment.getDataSource(column);
+    Dictionary dictionary = dataSource.getDictionary();
+    Assert.assertEquals(dictionary.length(), values.length);
+    for (String value : values) {
+      int dictId = dictionary.indexOf(value);
+      Assert.assertTrue(dictId >= 0, value);
+      Assert.assertEquals(dictionary.get(dictId), value);
+    }
+
+    // Every document must be found by looking up its own value.
+    BlockSingleValIterator iterator = (BlockSingleValIterator) dataSource.getNextBlock().getBlockValueSet().iterator();
+    for (int docId = 0; docId < NUM_ROWS; docId++) {
+      int dictId = iterator.nextIntVal();
+      Object value = _rows.get(docId).getValue(column);
+      Assert.assertEquals(dictionary.get(dictId), value);
+      Assert.assertEquals(dictionary.indexOf(value), dictId);
+    }
+  }
+}
@@ -48,6 +48,13 @@ public abstract class BaseQueriesTest {
 
   protected abstract List<SegmentDataManager> getSegmentDataManagers();
 
+  /**
+   * Returns the plan maker to run the queries with.
+   */
+  protected PlanMaker getPlanMaker() {
+    return PLAN_MAKER;
+  }
+
   /**
    * Run query on single index segment.
    * <p>Use this to test a single operator.
@@ -57,7 +64,7 @@ public abstract class BaseQueriesTest {
    */
   @SuppressWarnings("unchecked")
   protected <T extends Operator> T getOperatorForQuery(String query) {
-    return (T) PLAN_MAKER.makeInnerSegmentPlan(getIndexSegment(), COMPILER.compileToBrokerRequest(query)).run();
+    return (T) getPlanMaker().makeInnerSegmentPlan(getIndexSegment(), COMPILER.compileToBrokerRequest(query)).run();
   }
 
   /**
@@ -83,7 +90,8 @@ public abstract class BaseQueriesTest {
     BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
 
     // Server side.
-    Plan plan = PLAN_MAKER.makeInterSegmentPlan(getSegmentDataManagers(), brokerRequest, EXECUTOR_SERVICE, 10_000);
+    Plan plan =
+        getPlanMaker().makeInterSegmentPlan(getSegmentDataManagers(), brokerRequest, EXECUTOR_SERVICE, 10_000);
     plan.execute();
     DataTable instanceResponse = plan.getInstanceResponse();
 
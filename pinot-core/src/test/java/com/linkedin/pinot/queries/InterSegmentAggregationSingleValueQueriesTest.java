@@ -165,6 +165,28 @@ public class InterSegmentAggregationSingleValueQueriesTest extends BaseSingleVal
         new String[]{"1272", "3289"});
   }
 
+  @Test
+  public void testDistinctCountExact() {
+    // Same as the results of distinctCount because the hash code of an INT value is the value itself.
+    String query = "SELECT DISTINCTCOUNTEXACT(column1), DISTINCTCOUNTEXACT(column3) FROM testTable";
+
+    BrokerResponseNative brokerResponse = getBrokerResponseForQuery(query);
+    QueriesTestUtils.verifyAggregationResult(brokerResponse, 120000L, 0L, 240000L, 120000L,
+        new String[]{"6582", "21910"});
+
+    brokerResponse = getBrokerResponseForQueryWithFilter(query);
+    QueriesTestUtils.verifyAggregationResult(brokerResponse, 24516L, 336536L, 49032L, 120000L,
+        new String[]{"1872", "4556"});
+
+    brokerResponse = getBrokerResponseForQuery(query + GROUP_BY);
+    QueriesTestUtils.verifyAggregationResult(brokerResponse, 120000L, 0L, 360000L, 120000L,
+        new String[]{"3495", "11961"});
+
+    brokerResponse = getBrokerResponseForQueryWithFilter(query + GROUP_BY);
+    QueriesTestUtils.verifyAggregationResult(brokerResponse, 24516L, 336536L, 73548L, 120000L,
+        new String[]{"1272", "3289"});
+  }
+
   @Test
   public void testDistinctCountHLL() {
     String query = "SELECT DISTINCTCOUNTHLL(column1), DISTINCTCOUNTHLL(column3) FROM testTable";
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.queries;
+
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.response.broker.BrokerResponseNative;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.plan.PlanNode;
+import com.linkedin.pinot.core.plan.maker.InstancePlanMakerImplV2;
+import com.linkedin.pinot.core.plan.maker.PlanMaker;
+import com.linkedin.pinot.core.query.cache.SegmentResultCache;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Tests for the queries served from the {@link SegmentResultCache}.
+ * <p>The cached results should be the same as the results of executing the query, without scanning any document.
+ */
+public class SegmentResultCacheQueriesTest extends BaseSingleValueQueriesTest {
+  private static final String GROUP_BY = " group by column9";
+
+  private final AtomicInteger _numSegmentPlansMade = new AtomicInteger();
+  private SegmentResultCache _segmentResultCache;
+  private PlanMaker _planMaker;
+
+  @BeforeClass
+  public void setUpCache() {
+    _segmentResultCache = new SegmentResultCache(100 * 1024 * 1024);
+    _planMaker = new InstancePlanMakerImplV2(_segmentResultCache) {
+      @Override
+      public PlanNode makeInnerSegmentPlan(IndexSegment indexSegment, BrokerRequest brokerRequest) {
+        _numSegmentPlansMade.incrementAndGet();
+        return super.makeInnerSegmentPlan(indexSegment, brokerRequest);
+      }
+    };
+  }
+
+  @Override
+  protected PlanMaker getPlanMaker() {
+    return _planMaker;
+  }
+
+  @Test
+  public void testAggregationOnly() {
+    String query = "SELECT COUNT(*), SUM(column1), DISTINCTCOUNT(column3) FROM testTable";
+    String[] expectedResults = new String[]{"120000", "129268741751388.00000", "21910"};
+
+    // Cache miss.
+    BrokerResponseNative brokerResponse = getBrokerResponseForQuery(query);
+    QueriesTestUtils.verifyAggregationResult(brokerResponse, 120000L, 0L, 240000L, 120000L, expectedResults);
+
+    // Cache hits, merging the cached results should not modify them, and the segment plans should not be made.
+    int numSegmentPlansMade = _numSegmentPlansMade.get();
+    for (int i = 0; i < 2; i++) {
+      brokerResponse = getBrokerResponseForQuery(query);
+      QueriesTestUtils.verifyAggregationResult(brokerResponse, 0L, 0L, 0L, 120000L, expectedResults);
+    }
+    Assert.assertEquals(_numSegmentPlansMade.get(), numSegmentPlansMade);
+
+    // Different query should not hit the cache.
+    brokerResponse = getBrokerResponseForQueryWithFilter(query);
+    QueriesTestUtils.verifyAggregationResult(brokerResponse, 24516L, 336536L, 49032L, 120000L,
+        new String[]{"24516", "27503790384288.00000", "4556"});
+  }
+
+  @Test
+  public void testAggregationGroupBy() {
+    String query = "SELECT SUM(column1), SUM(column3) FROM testTable" + GROUP_BY;
+    String[] expectedResults = new String[]{"69526727335224.00000", "69225631719808.00000"};
+
+    // Cache miss.
+    BrokerResponseNative brokerResponse = getBrokerResponseForQuery(query);
+    QueriesTestUtils.verifyAggregationResult(brokerResponse, 120000L, 0L, 360000L, 120000L, expectedResults);
+
+    // Cache hits.
+    for (int i = 0; i < 2; i++) {
+      brokerResponse = getBrokerResponseForQuery(query);
+      QueriesTestUtils.verifyAggregationResult(brokerResponse, 0L, 0L, 0L, 120000L, expectedResults);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.aggregation.groupby;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.core.query.aggregation.groupby.RawGroupKey;
+import com.linkedin.pinot.core.segment.index.readers.Dictionary;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Unit test for {@link RawGroupKey}
+ */
+public class RawGroupKeyTest {
+
+  @Test
+  public void testLongKey() {
+    Dictionary intDictionary = mock(Dictionary.class);
+    when(intDictionary.getIntValue(0)).thenReturn(-5);
+    Dictionary floatDictionary = mock(Dictionary.class);
+    when(floatDictionary.getFloatValue(0)).thenReturn(1.5f);
+    Dictionary doubleDictionary = mock(Dictionary.class);
+    when(doubleDictionary.getDoubleValue(0)).thenReturn(-0.25);
+
+    RawGroupKey rawGroupKey = new RawGroupKey(new FieldSpec.DataType[]{FieldSpec.DataType.INT});
+    Assert.assertTrue(rawGroupKey.isLongKey());
+    rawGroupKey.reset(3);
+    rawGroupKey.putDictionaryValue(intDictionary, 0);
+    Assert.assertEquals(rawGroupKey.getGroupId(), 3);
+    Assert.assertEquals(rawGroupKey.toStringKey(), "-5");
+
+    rawGroupKey = new RawGroupKey(new FieldSpec.DataType[]{FieldSpec.DataType.DOUBLE});
+    Assert.assertTrue(rawGroupKey.isLongKey());
+    rawGroupKey.reset(0);
+    rawGroupKey.putDictionaryValue(doubleDictionary, 0);
+    Assert.assertEquals(rawGroupKey.toStringKey(), "-0.25");
+
+    rawGroupKey = new RawGroupKey(new FieldSpec.DataType[]{FieldSpec.DataType.INT, FieldSpec.DataType.FLOAT_ARRAY});
+    Assert.assertTrue(rawGroupKey.isLongKey());
+    rawGroupKey.reset(0);
+    rawGroupKey.putDictionaryValue(intDictionary, 0);
+    rawGroupKey.putDictionaryValue(floatDictionary, 0);
+    Assert.assertEquals(rawGroupKey.toStringKey(), "-5\t1.5");
+    long longKey = rawGroupKey.getLongKey();
+
+    // Same values should generate the same key after reset.
+    rawGroupKey.reset(1);
+    rawGroupKey.putDictionaryValue(intDictionary, 0);
+    rawGroupKey.putDictionaryValue(floatDictionary, 0);
+    Assert.assertEquals(rawGroupKey.getLongKey(), longKey);
+  }
+
+  @Test
+  public void testBytesKey() {
+    Dictionary longDictionary = mock(Dictionary.class);
+    when(longDictionary.getLongValue(0)).thenReturn(Long.MAX_VALUE);
+    Dictionary stringDictionary = mock(Dictionary.class);
+    when(stringDictionary.get(0)).thenReturn("");
+    when(stringDictionary.get(1)).thenReturn("été");
+
+    RawGroupKey rawGroupKey = new RawGroupKey(
+        new FieldSpec.DataType[]{FieldSpec.DataType.LONG, FieldSpec.DataType.STRING, FieldSpec.DataType.STRING});
+    Assert.assertFalse(rawGroupKey.isLongKey());
+    rawGroupKey.reset(0);
+    rawGroupKey.putDictionaryValue(longDictionary, 0);
+    rawGroupKey.putDictionaryValue(stringDictionary, 0);
+    rawGroupKey.putDictionaryValue(stringDictionary, 1);
+    Assert.assertEquals(rawGroupKey.toStringKey(), Long.MAX_VALUE + "\t\tété");
+
+    rawGroupKey = new RawGroupKey(new FieldSpec.DataType[]{FieldSpec.DataType.LONG, FieldSpec.DataType.INT});
+    Assert.assertFalse(rawGroupKey.isLongKey());
+
+    // Values longer than the initial buffer should expand the buffer.
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 100; i++) {
+      builder.append(i);
+    }
+    String longValue = builder.toString();
+    rawGroupKey = new RawGroupKey(new FieldSpec.DataType[]{FieldSpec.DataType.BOOLEAN});
+    rawGroupKey.reset(0);
+    rawGroupKey.putString(longValue);
+    Assert.assertEquals(rawGroupKey.toStringKey(), longValue);
+  }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.pruner;
+
+import com.linkedin.pinot.common.data.DimensionFieldSpec;
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.data.Schema;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.TestRecordReader;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.query.pruner.BloomFilterSegmentPruner;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.IndexSegmentImpl;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.core.segment.index.loader.Loaders;
+import com.linkedin.pinot.core.segment.index.readers.BloomFilterReader;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Unit test for {@link BloomFilterSegmentPruner}.
+ */
+public class BloomFilterSegmentPrunerTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final BloomFilterSegmentPruner PRUNER = new BloomFilterSegmentPruner();
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BloomFilterSegmentPrunerTest");
+  private static final String SEGMENT_NAME = "testSegment";
+  private static final int NUM_ROWS = 1000;
+
+  private IndexSegment _segment;
+
+  @BeforeClass
+  public void setUp() {
+    // Segment with a bloom filter on column 'memberId' containing values [3, 5], and no bloom filter on 'country'.
+    SegmentMetadataImpl segmentMetadata = mock(SegmentMetadataImpl.class);
+    ColumnMetadata memberIdMetadata = mock(ColumnMetadata.class);
+    when(memberIdMetadata.getDataType()).thenReturn(FieldSpec.DataType.INT);
+    when(segmentMetadata.getColumnMetadataFor("memberId")).thenReturn(memberIdMetadata);
+    ColumnMetadata countryMetadata = mock(ColumnMetadata.class);
+    when(countryMetadata.getDataType()).thenReturn(FieldSpec.DataType.STRING);
+    when(segmentMetadata.getColumnMetadataFor("country")).thenReturn(countryMetadata);
+
+    final Set<String> memberIds = new HashSet<>(Arrays.asList("3", "5"));
+    BloomFilterReader bloomFilter = mock(BloomFilterReader.class);
+    when(bloomFilter.mightContain(anyString())).thenAnswer(new Answer<Boolean>() {
+      @Override
+      public Boolean answer(InvocationOnMock invocation)
+          throws Throwable {
+        return memberIds.contains((String) invocation.getArguments()[0]);
+      }
+    });
+
+    IndexSegmentImpl segment = mock(IndexSegmentImpl.class);
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    when(segment.getBloomFilterFor("memberId")).thenReturn(bloomFilter);
+    _segment = segment;
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+
+  @Test
+  public void testEqualityAndIn() {
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 3"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 005"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 4"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId IN (2, 4, 5)"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId IN (2, 4, 6)"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 'notANumber'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE country = 'foobar'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE unknownColumn = 4"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId NOT IN (5)"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId > 4"));
+  }
+
+  @Test
+  public void testAndOr() {
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 4 AND country = 'foobar'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 3 AND country = 'foobar'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 4 OR country = 'foobar'"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 4 OR memberId = 6"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 4 OR memberId = 5"));
+  }
+
+  @Test
+  public void testNonImmutableSegment() {
+    IndexSegment segment = mock(IndexSegment.class);
+    Assert.assertFalse(prune(segment, "SELECT COUNT(*) FROM table WHERE memberId = 4"));
+  }
+
+  /**
+   * Builds a segment with bloom filters from the segment generator config, and checks that it is only pruned for
+   * values not in the segment.
+   */
+  @Test
+  public void testPruneBuiltSegment()
+      throws Exception {
+    Schema schema = new Schema();
+    schema.setSchemaName("testSchema");
+    schema.addField(new DimensionFieldSpec("memberId", FieldSpec.DataType.INT, true));
+    schema.addField(new DimensionFieldSpec("country", FieldSpec.DataType.STRING, true));
+
+    // Even member ids only, and countries without a bloom filter.
+    List<GenericRow> rows = new ArrayList<>(NUM_ROWS);
+    for (int i = 0; i < NUM_ROWS; i++) {
+      Map<String, Object> fields = new HashMap<>();
+      fields.put("memberId", 2 * i);
+      fields.put("country", "country" + (i % 10));
+      GenericRow row = new GenericRow();
+      row.init(fields);
+      rows.add(row);
+    }
+
+    FileUtils.deleteQuietly(INDEX_DIR);
+    SegmentGeneratorConfig config = new SegmentGeneratorConfig(schema);
+    config.setTableName("testTable");
+    config.setOutDir(INDEX_DIR.getAbsolutePath());
+    config.setSegmentName(SEGMENT_NAME);
+    config.setBloomFilterCreationColumns(Collections.singletonList("memberId"));
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config, new TestRecordReader(rows, schema));
+    driver.build();
+
+    IndexSegment segment = Loaders.IndexSegment.load(new File(INDEX_DIR, SEGMENT_NAME), ReadMode.mmap);
+    try {
+      Assert.assertNotNull(((IndexSegmentImpl) segment).getBloomFilterFor("memberId"));
+      Assert.assertNull(((IndexSegmentImpl) segment).getBloomFilterFor("country"));
+
+      // No false negative.
+      for (int i = 0; i < NUM_ROWS; i++) {
+        Assert.assertFalse(prune(segment, "SELECT COUNT(*) FROM table WHERE memberId = " + (2 * i)));
+      }
+      Assert.assertFalse(prune(segment, "SELECT COUNT(*) FROM table WHERE country = 'foobar'"));
+
+      // Most of the missing values are pruned.
+      int numPruned = 0;
+      for (int i = 0; i < NUM_ROWS; i++) {
+        if (prune(segment, "SELECT COUNT(*) FROM table WHERE memberId = " + (2 * i + 1))) {
+          numPruned++;
+        }
+      }
+      Assert.assertTrue(numPruned > NUM_ROWS * 0.9, "Too few values pruned: " + numPruned);
+    } finally {
+      segment.destroy();
+    }
+  }
+
+  private boolean prune(String query) {
+    return prune(_segment, query);
+  }
+
+  private static boolean prune(IndexSegment segment, String query) {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+    return PRUNER.prune(segment, brokerRequest, RequestUtils.generateFilterQueryTree(brokerRequest));
+  }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.pruner;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.pruner.ColumnValueSegmentPruner;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Unit test for {@link ColumnValueSegmentPruner}.
+ */
+public class ColumnValueSegmentPrunerTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final ColumnValueSegmentPruner PRUNER = new ColumnValueSegmentPruner();
+
+  private IndexSegment _segment;
+
+  @BeforeClass
+  public void setUp() {
+    // Segment with column 'memberId' in [100, 200], column 'country' in ['ca', 'us'], and column 'noMinMax' without
+    // min/max values.
+    SegmentMetadataImpl segmentMetadata = mock(SegmentMetadataImpl.class);
+    ColumnMetadata memberIdMetadata = mock(ColumnMetadata.class);
+    when(memberIdMetadata.getDataType()).thenReturn(FieldSpec.DataType.LONG);
+    when(memberIdMetadata.getMinValue()).thenReturn(100L);
+    when(memberIdMetadata.getMaxValue()).thenReturn(200L);
+    when(segmentMetadata.getColumnMetadataFor("memberId")).thenReturn(memberIdMetadata);
+    ColumnMetadata countryMetadata = mock(ColumnMetadata.class);
+    when(countryMetadata.getDataType()).thenReturn(FieldSpec.DataType.STRING);
+    when(countryMetadata.getMinValue()).thenReturn("ca");
+    when(countryMetadata.getMaxValue()).thenReturn("us");
+    when(segmentMetadata.getColumnMetadataFor("country")).thenReturn(countryMetadata);
+    ColumnMetadata noMinMaxMetadata = mock(ColumnMetadata.class);
+    when(noMinMaxMetadata.getDataType()).thenReturn(FieldSpec.DataType.INT);
+    when(segmentMetadata.getColumnMetadataFor("noMinMax")).thenReturn(noMinMaxMetadata);
+
+    _segment = mock(IndexSegment.class);
+    when(_segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+  }
+
+  @Test
+  public void testEqualityAndIn() {
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 100"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 150"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 99"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 201"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE country = 'uk'"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE country = 'za'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId IN (10, 20, 200)"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId IN (10, 20, 300)"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE noMinMax = 5"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE unknownColumn = 5"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId NOT IN (150)"));
+  }
+
+  @Test
+  public void testRange() {
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId > 150"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId >= 200"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId > 200"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId <= 100"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId < 100"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId BETWEEN 50 AND 100"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId BETWEEN 201 AND 300"));
+  }
+
+  @Test
+  public void testAndOr() {
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 150 AND country = 'za'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 150 OR country = 'za'"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 50 OR country = 'za'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 50 OR noMinMax = 5"));
+  }
+
+  private boolean prune(String query) {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+    return PRUNER.prune(_segment, brokerRequest, RequestUtils.generateFilterQueryTree(brokerRequest));
+  }
+}
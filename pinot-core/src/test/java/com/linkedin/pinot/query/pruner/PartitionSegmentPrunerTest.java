@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.query.pruner;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.metadata.segment.ColumnPartitionMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.common.segment.SegmentMetadata;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
+import com.linkedin.pinot.core.indexsegment.IndexSegment;
+import com.linkedin.pinot.core.query.pruner.PartitionSegmentPruner;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+
+/**
+ * Unit test for {@link PartitionSegmentPruner}.
+ */
+public class PartitionSegmentPrunerTest {
+  private static final Pql2Compiler COMPILER = new Pql2Compiler();
+  private static final PartitionSegmentPruner PRUNER = new PartitionSegmentPruner();
+
+  private IndexSegment _segment;
+
+  @BeforeClass
+  public void setUp() {
+    // Segment with INT column 'memberId' in partitions [1, 3] of 'Modulo(4)', STRING column 'country' in partition [4]
+    // of 'Murmur(8)' (value '21'), INT column 'companyId' in partition [5] of 'Murmur(8)' (value 123), and column
+    // 'groupId' in partition [5] of 'Murmur(8)' without data type.
+    Map<String, ColumnPartitionMetadata> columnPartitionMap = new HashMap<>();
+    columnPartitionMap.put("memberId",
+        new ColumnPartitionMetadata("Modulo", 4, Arrays.asList(1, 3), FieldSpec.DataType.INT));
+    columnPartitionMap.put("country",
+        new ColumnPartitionMetadata("Murmur", 8, Arrays.asList(4), FieldSpec.DataType.STRING));
+    columnPartitionMap.put("companyId",
+        new ColumnPartitionMetadata("Murmur", 8, Arrays.asList(5), FieldSpec.DataType.INT));
+    columnPartitionMap.put("groupId", new ColumnPartitionMetadata("Murmur", 8, Arrays.asList(5), null));
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    when(segmentMetadata.getPartitionMetadata()).thenReturn(new SegmentPartitionMetadata(columnPartitionMap));
+
+    _segment = mock(IndexSegment.class);
+    when(_segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+  }
+
+  @Test
+  public void testEqualityAndIn() {
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 5"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 7"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 4"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 6"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE country = '21'"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE country = 'foobar'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId IN (2, 4, 5)"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId IN (2, 4, 6)"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 'notANumber'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE unknownColumn = 4"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId NOT IN (5)"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId > 4"));
+  }
+
+  @Test
+  public void testNonCanonicalValues() {
+    // Values are converted into the stored form of the column before computing the partition.
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE companyId = 123"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE companyId = '0123'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE companyId = '+123'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE companyId IN ('0123', 124)"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE companyId = '0124'"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE companyId IN ('0124', 125)"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = '+5'"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = '004'"));
+
+    // Values that cannot be converted into the stored form, or columns without data type are never pruned.
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE companyId = '123.0'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE groupId = 124"));
+  }
+
+  @Test
+  public void testAndOr() {
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 5 AND country = 'foobar'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 5 OR country = 'foobar'"));
+    Assert.assertTrue(prune("SELECT COUNT(*) FROM table WHERE memberId = 4 OR country = 'foobar'"));
+    Assert.assertFalse(prune("SELECT COUNT(*) FROM table WHERE memberId = 4 OR unknownColumn = 4"));
+  }
+
+  @Test
+  public void testNonPartitionedSegment() {
+    SegmentMetadata segmentMetadata = mock(SegmentMetadata.class);
+    IndexSegment segment = mock(IndexSegment.class);
+    when(segment.getSegmentMetadata()).thenReturn(segmentMetadata);
+    Assert.assertFalse(prune(segment, "SELECT * FROM table WHERE memberId = 4"));
+  }
+
+  private boolean prune(String query) {
+    return prune(_segment, query);
+  }
+
+  private static boolean prune(IndexSegment segment, String query) {
+    BrokerRequest brokerRequest = COMPILER.compileToBrokerRequest(query);
+    return PRUNER.prune(segment, brokerRequest, RequestUtils.generateFilterQueryTree(brokerRequest));
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import com.linkedin.pinot.common.data.FieldSpec.DataType;
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.segment.creator.impl.V1Constants;
+import com.linkedin.pinot.core.segment.creator.impl.bloom.BloomFilterCreator;
+import com.linkedin.pinot.core.segment.creator.impl.bloom.BloomFilterUtils;
+import com.linkedin.pinot.core.segment.index.readers.BloomFilterReader;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+
+public class BloomFilterCreatorTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "BloomFilterCreatorTest");
+  private static final String COLUMN_NAME = "column";
+  private static final int CARDINALITY = 10000;
+
+  @Test
+  public void testBloomFilter()
+      throws IOException {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    FileUtils.forceMkdir(INDEX_DIR);
+
+    BloomFilterCreator creator = new BloomFilterCreator(INDEX_DIR, COLUMN_NAME, CARDINALITY);
+    for (int i = 0; i < CARDINALITY; i++) {
+      creator.add(2 * i);
+    }
+    creator.seal();
+
+    File bloomFilterFile = new File(INDEX_DIR, COLUMN_NAME + V1Constants.Indexes.BLOOM_FILTER_FILE_EXTENSION);
+    PinotDataBuffer buffer =
+        PinotDataBuffer.fromFile(bloomFilterFile, ReadMode.mmap, FileChannel.MapMode.READ_ONLY, "testing");
+    try (BloomFilterReader reader = new BloomFilterReader(buffer)) {
+      // No false negative.
+      for (int i = 0; i < CARDINALITY; i++) {
+        Assert.assertTrue(reader.mightContain(BloomFilterUtils.getStoredValue(Integer.toString(2 * i), DataType.INT)));
+      }
+
+      // False positive rate should be close to the default one.
+      int numFalsePositives = 0;
+      for (int i = 0; i < CARDINALITY; i++) {
+        if (reader.mightContain(Integer.toString(2 * i + 1))) {
+          numFalsePositives++;
+        }
+      }
+      Assert.assertTrue(numFalsePositives < CARDINALITY * 2 * BloomFilterUtils.DEFAULT_FALSE_POSITIVE_PROBABILITY,
+          "Too many false positives: " + numFalsePositives);
+    }
+  }
+
+  @Test
+  public void testGetStoredValue() {
+    Assert.assertEquals(BloomFilterUtils.getStoredValue("007", DataType.INT), "7");
+    Assert.assertEquals(BloomFilterUtils.getStoredValue("1.50", DataType.FLOAT), Float.toString(1.5f));
+    Assert.assertEquals(BloomFilterUtils.getStoredValue("1", DataType.DOUBLE), Double.toString(1.0));
+    Assert.assertEquals(BloomFilterUtils.getStoredValue("007", DataType.STRING), "007");
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import com.linkedin.pinot.core.data.GenericRow;
+import com.linkedin.pinot.core.data.readers.PinotSegmentRecordReader;
+import com.linkedin.pinot.core.indexsegment.generator.SegmentGeneratorConfig;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentIndexCreationDriverImpl;
+import com.linkedin.pinot.core.segment.index.ColumnMetadata;
+import com.linkedin.pinot.core.segment.index.SegmentMetadataImpl;
+import com.linkedin.pinot.util.TestUtils;
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+
+/**
+ * Segments created in single pass mode (rows spilled to disk while collecting stats) should be identical to the
+ * segments created by reading the input twice.
+ */
+public class SinglePassSegmentCreationTest {
+  private static final String AVRO_DATA = "data/test_data-mv.avro";
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "SinglePassSegmentCreationTest");
+
+  @Test
+  public void testSinglePassCreation() throws Exception {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    File twoPassSegmentDir = buildSegment(new File(INDEX_DIR, "twoPass"), false);
+    File singlePassSegmentDir = buildSegment(new File(INDEX_DIR, "singlePass"), true);
+
+    // The spill files should be removed after the creation
+    Assert.assertEquals(singlePassSegmentDir.getParentFile().listFiles().length, 1);
+
+    SegmentMetadataImpl twoPassMetadata = new SegmentMetadataImpl(twoPassSegmentDir);
+    SegmentMetadataImpl singlePassMetadata = new SegmentMetadataImpl(singlePassSegmentDir);
+    Assert.assertEquals(singlePassMetadata.getName(), twoPassMetadata.getName());
+    Assert.assertEquals(singlePassMetadata.getTotalDocs(), twoPassMetadata.getTotalDocs());
+    Assert.assertEquals(singlePassMetadata.getAllColumns(), twoPassMetadata.getAllColumns());
+    for (String column : twoPassMetadata.getAllColumns()) {
+      ColumnMetadata twoPassColumnMetadata = twoPassMetadata.getColumnMetadataFor(column);
+      ColumnMetadata singlePassColumnMetadata = singlePassMetadata.getColumnMetadataFor(column);
+      Assert.assertEquals(singlePassColumnMetadata.getCardinality(), twoPassColumnMetadata.getCardinality(), column);
+      Assert.assertEquals(singlePassColumnMetadata.isSorted(), twoPassColumnMetadata.isSorted(), column);
+      Assert.assertEquals(singlePassColumnMetadata.getTotalNumberOfEntries(),
+          twoPassColumnMetadata.getTotalNumberOfEntries(), column);
+      Assert.assertEquals(singlePassColumnMetadata.getMaxNumberOfMultiValues(),
+          twoPassColumnMetadata.getMaxNumberOfMultiValues(), column);
+    }
+
+    PinotSegmentRecordReader twoPassReader = new PinotSegmentRecordReader(twoPassSegmentDir);
+    PinotSegmentRecordReader singlePassReader = new PinotSegmentRecordReader(singlePassSegmentDir);
+    twoPassReader.init();
+    singlePassReader.init();
+    GenericRow twoPassRow = new GenericRow();
+    GenericRow singlePassRow = new GenericRow();
+    while (twoPassReader.hasNext()) {
+      Assert.assertTrue(singlePassReader.hasNext());
+      twoPassRow = twoPassReader.next(twoPassRow);
+      singlePassRow = singlePassReader.next(singlePassRow);
+      for (String column : twoPassMetadata.getAllColumns()) {
+        Object twoPassValue = twoPassRow.getValue(column);
+        Object singlePassValue = singlePassRow.getValue(column);
+        if (twoPassValue instanceof Object[]) {
+          Assert.assertEquals((Object[]) singlePassValue, (Object[]) twoPassValue, column);
+        } else {
+          Assert.assertEquals(singlePassValue, twoPassValue, column);
+        }
+      }
+    }
+    Assert.assertFalse(singlePassReader.hasNext());
+    twoPassReader.close();
+    singlePassReader.close();
+  }
+
+  private File buildSegment(File outputDir, boolean singlePass) throws Exception {
+    String filePath =
+        TestUtils.getFileFromResourceUrl(SinglePassSegmentCreationTest.class.getClassLoader().getResource(AVRO_DATA));
+    SegmentGeneratorConfig config =
+        SegmentTestUtils.getSegmentGenSpecWithSchemAndProjectedColumns(new File(filePath), outputDir, "daysSinceEpoch",
+            TimeUnit.DAYS, "testTable");
+    config.setSegmentNamePostfix("1");
+    config.setEnableSinglePassCreation(singlePass);
+
+    SegmentIndexCreationDriverImpl driver = new SegmentIndexCreationDriverImpl();
+    driver.init(config);
+    driver.build();
+    return new File(outputDir, driver.getSegmentName());
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+}
@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.segments.v1.creator;
+
+import com.linkedin.pinot.common.segment.ReadMode;
+import com.linkedin.pinot.core.segment.creator.impl.SegmentDictionaryCreator;
+import com.linkedin.pinot.core.segment.index.readers.VarLengthStringDictionary;
+import com.linkedin.pinot.core.segment.memory.PinotDataBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import org.apache.commons.io.FileUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+
+public class VarLengthStringDictionaryTest {
+  private static final File INDEX_DIR = new File(FileUtils.getTempDirectory(), "VarLengthStringDictionaryTest");
+  private static final String[] VALUES =
+      {"", "a", "ab", "abc", "b", "été", "中文", "😀", "￿", "z", "zzzzzzzzzzzzzzzz"};
+
+  @Test
+  public void testVarLengthStringDictionary()
+      throws IOException {
+    FileUtils.deleteQuietly(INDEX_DIR);
+    FileUtils.forceMkdir(INDEX_DIR);
+
+    String[] sortedValues = Arrays.copyOf(VALUES, VALUES.length);
+    Arrays.sort(sortedValues);
+    File dictionaryFile = new File(INDEX_DIR, "column.dict");
+    SegmentDictionaryCreator.writeVarLengthStringDictionary(sortedValues, dictionaryFile);
+
+    PinotDataBuffer buffer =
+        PinotDataBuffer.fromFile(dictionaryFile, ReadMode.mmap, FileChannel.MapMode.READ_ONLY, "testing");
+    VarLengthStringDictionary dictionary = new VarLengthStringDictionary(buffer, sortedValues.length);
+    try {
+      Assert.assertEquals(dictionary.length(), sortedValues.length);
+      for (int i = 0; i < sortedValues.length; i++) {
+        Assert.assertEquals(dictionary.get(i), sortedValues[i]);
+        Assert.assertEquals(dictionary.indexOf(sortedValues[i]), i);
+      }
+      Assert.assertEquals(dictionary.get(-1), "null");
+
+      // Missing values should return the same insertion point as Arrays.binarySearch().
+      String[] missingValues = {"0", "aa", "abcd", "é", "\ud83d", "😁", "zz", "￿￿"};
+      for (String missingValue : missingValues) {
+        Assert.assertEquals(dictionary.indexOf(missingValue), Arrays.binarySearch(sortedValues, missingValue),
+            missingValue);
+      }
+
+      String[] outValues = new String[2];
+      dictionary.readStringValues(new int[]{3, 1}, 0, 2, outValues, 0);
+      Assert.assertEquals(outValues, new String[]{sortedValues[3], sortedValues[1]});
+    } finally {
+      dictionary.close();
+    }
+  }
+
+  @AfterClass
+  public void tearDown() {
+    FileUtils.deleteQuietly(INDEX_DIR);
+  }
+}
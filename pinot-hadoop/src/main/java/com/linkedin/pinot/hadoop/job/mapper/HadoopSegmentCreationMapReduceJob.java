@@ -17,6 +17,7 @@ package com.linkedin.pinot.hadoop.job.mapper;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.hadoop.conf.Configuration;
@@ -49,6 +50,8 @@ public class HadoopSegmentCreationMapReduceJob {
     private String _outputPath;
     private String _tableName;
     private String _postfix;
+    private boolean _singlePassCreation;
+    private String[] _bloomFilterColumns;
 
     private Path _currentHdfsWorkDir;
     private String _currentDiskWorkDir;
@@ -84,6 +87,10 @@ public class HadoopSegmentCreationMapReduceJob {
       _outputPath = _properties.get("path.to.output");
       _tableName = _properties.get("segment.table.name");
       _postfix = _properties.get("segment.name.postfix", null);
+      // Parse the input only once, spilling the rows to local disk instead of re-reading them to build the indexes
+      _singlePassCreation = _properties.getBoolean("segment.creation.single.pass", true);
+      // Comma separated columns to build bloom filters on, used by the server to prune segments on equality predicates
+      _bloomFilterColumns = _properties.getTrimmedStrings("segment.bloom.filter.columns");
       if (_outputPath == null || _tableName == null) {
         throw new RuntimeException(
             "Missing configs: " +
@@ -170,6 +177,10 @@ public class HadoopSegmentCreationMapReduceJob {
       segmentGeneratorConfig.setReaderConfig(getReaderConfig(fileFormat));
 
       segmentGeneratorConfig.setOutDir(_localDiskSegmentDirectory);
+      segmentGeneratorConfig.setEnableSinglePassCreation(_singlePassCreation);
+      if (_bloomFilterColumns.length > 0) {
+        segmentGeneratorConfig.setBloomFilterCreationColumns(Arrays.asList(_bloomFilterColumns));
+      }
 
       // Add the current java package version to the segment metadata
       // properties file.
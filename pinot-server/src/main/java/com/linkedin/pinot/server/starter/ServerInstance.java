@@ -110,6 +110,7 @@ public class ServerInstance {
    */
   public void shutDown() {
     if (isStarted()) {
+      _queryScheduler.stop();
       _queryExecutor.shutDown();
       _instanceDataManager.shutDown();
       _nettyServer.shutdownGracefully();
@@ -15,10 +15,16 @@
  */
 package com.linkedin.pinot.server.starter.helix;
 
+import com.google.common.util.concurrent.RateLimiter;
+import com.linkedin.pinot.common.segment.fetcher.SegmentFetcher;
+import com.linkedin.pinot.common.segment.fetcher.StreamingSegmentFetcher;
 import com.linkedin.pinot.common.utils.SchemaUtils;
+import com.linkedin.pinot.common.utils.ThrottledInputStream;
 import com.linkedin.pinot.core.segment.index.loader.V3RemoveIndexException;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.configuration.Configuration;
 import org.apache.commons.io.FileUtils;
@@ -51,6 +57,11 @@ public class SegmentFetcherAndLoader {
   private final int _segmentLoadMaxRetryCount;
   private final long _segmentLoadMinRetryDelayMs; // Min delay (in msecs) between retries
 
+  // Segments are loaded from the Helix state transition threads concurrently, bound the number of concurrent downloads
+  // and optionally their total throughput so that they do not saturate the network and the disk.
+  private final Semaphore _segmentDownloadSemaphore;
+  private final RateLimiter _segmentDownloadRateLimiter;
+
   public SegmentFetcherAndLoader(DataManager dataManager, SegmentMetadataLoader metadataLoader,
       ZkHelixPropertyStore<ZNRecord> propertyStore, Configuration pinotHelixProperties,
       String instanceId) {
@@ -78,6 +89,28 @@ public class SegmentFetcherAndLoader {
     }
     _segmentLoadMinRetryDelayMs = minRetryDelayMillis;
 
+    int maxParallelism = Integer.parseInt(CommonConstants.Server.DEFAULT_SEGMENT_DOWNLOAD_MAX_PARALLELISM);
+    try {
+      maxParallelism = pinotHelixProperties.getInt(CommonConstants.Server.CONFIG_OF_SEGMENT_DOWNLOAD_MAX_PARALLELISM,
+          maxParallelism);
+    } catch (Exception e) {
+      // Keep the default value
+    }
+    _segmentDownloadSemaphore = new Semaphore(Math.max(maxParallelism, 1), true);
+
+    long maxBytesPerSecond = Long.parseLong(CommonConstants.Server.DEFAULT_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND);
+    try {
+      maxBytesPerSecond = pinotHelixProperties.getLong(
+          CommonConstants.Server.CONFIG_OF_SEGMENT_DOWNLOAD_MAX_BYTES_PER_SECOND, maxBytesPerSecond);
+    } catch (Exception e) {
+      // Keep the default value
+    }
+    if (maxBytesPerSecond > 0) {
+      _segmentDownloadRateLimiter = RateLimiter.create(maxBytesPerSecond);
+    } else {
+      _segmentDownloadRateLimiter = null;
+    }
+
     SegmentFetcherFactory.initSegmentFetcherFactory(pinotHelixProperties);
   }
 
@@ -163,9 +196,15 @@ public class SegmentFetcherAndLoader {
         for (retryCount = 0; retryCount < maxRetryCount; ++retryCount) {
           long attemptStartTime = System.currentTimeMillis();
           try {
+            if (retryCount > 0) {
+              // The segment might have been refreshed since the last attempt, which would fail the CRC check.
+              offlineSegmentZKMetadata =
+                  ZKMetadataProvider.getOfflineSegmentZKMetadata(_propertyStore, tableName, segmentId);
+            }
             AbstractTableConfig tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
             final String uri = offlineSegmentZKMetadata.getDownloadUrl();
-            final String localSegmentDir = downloadSegmentToLocal(uri, tableName, segmentId);
+            final String localSegmentDir =
+                downloadSegmentToLocal(uri, tableName, segmentId, offlineSegmentZKMetadata.getCrc());
             final SegmentMetadata segmentMetadata =
                 _metadataLoader.loadIndexSegmentMetadataFromDir(localSegmentDir);
             _dataManager.addSegment(segmentMetadata, tableConfig, schema);
@@ -245,32 +284,65 @@ public class SegmentFetcherAndLoader {
     return true;
   }
 
-  private String downloadSegmentToLocal(String uri, String tableName, String segmentId)
+  /**
+   * Download the segment from the given uri and move it into the segment data directory.
+   * <p>For fetchers that support streaming, the segment is untarred while it is being downloaded, so that the tar file
+   * is never written to disk. The gzip CRC is verified at the end of the stream, and the CRC of the downloaded segment
+   * is checked against the expected CRC before the segment is moved into place.
+   */
+  private String downloadSegmentToLocal(String uri, String tableName, String segmentId, long expectedCrc)
       throws Exception {
     File tempSegmentFile = null;
     File tempFile = null;
     try {
       tempSegmentFile = new File(_dataManager.getSegmentFileDirectory() + "/"
           + tableName + "/temp_" + segmentId + "_" + System.currentTimeMillis());
-      tempFile = new File(_dataManager.getSegmentFileDirectory(), segmentId + ".tar.gz");
-      SegmentFetcherFactory.getSegmentFetcherBasedOnURI(uri).fetchSegmentToLocal(uri, tempFile);
-      LOGGER.info("Downloaded file from {} to {}; Length of downloaded file: {}; segmentName: {}; table: {}", uri, tempFile,
-          tempFile.length(), segmentId, tableName);
-      LOGGER.info("Trying to decompress segment tar file from {} to {} for table {}", tempFile, tempSegmentFile, tableName);
+      SegmentFetcher segmentFetcher = SegmentFetcherFactory.getSegmentFetcherBasedOnURI(uri);
+      _segmentDownloadSemaphore.acquire();
+      try {
+        if (segmentFetcher instanceof StreamingSegmentFetcher) {
+          final File untarDir = tempSegmentFile;
+          ((StreamingSegmentFetcher) segmentFetcher).fetchSegment(uri,
+              new StreamingSegmentFetcher.SegmentStreamHandler() {
+                @Override
+                public void handle(InputStream inputStream)
+                    throws Exception {
+                  // Start over from an empty directory if the fetch is retried
+                  FileUtils.deleteQuietly(untarDir);
+                  if (_segmentDownloadRateLimiter != null) {
+                    inputStream = new ThrottledInputStream(inputStream, _segmentDownloadRateLimiter);
+                  }
+                  TarGzCompressionUtils.unTar(inputStream, untarDir);
+                }
+              });
+          LOGGER.info("Downloaded and decompressed segment from {} to {}; segmentName: {}; table: {}", uri,
+              tempSegmentFile, segmentId, tableName);
+        } else {
+          tempFile = new File(_dataManager.getSegmentFileDirectory(), segmentId + ".tar.gz");
+          segmentFetcher.fetchSegmentToLocal(uri, tempFile);
+          LOGGER.info("Downloaded file from {} to {}; Length of downloaded file: {}; segmentName: {}; table: {}", uri,
+              tempFile, tempFile.length(), segmentId, tableName);
+          LOGGER.info("Trying to decompress segment tar file from {} to {} for table {}", tempFile, tempSegmentFile,
+              tableName);
+          TarGzCompressionUtils.unTar(tempFile, tempSegmentFile);
+          FileUtils.deleteQuietly(tempFile);
+        }
+      } finally {
+        _segmentDownloadSemaphore.release();
+      }
+
+      File untarredSegmentDir = tempSegmentFile.listFiles()[0];
+      verifyCrc(untarredSegmentDir, expectedCrc, segmentId, tableName);
 
-      TarGzCompressionUtils.unTar(tempFile, tempSegmentFile);
-      FileUtils.deleteQuietly(tempFile);
       final File segmentDir = new File(new File(_dataManager.getSegmentDataDirectory(), tableName), segmentId);
-      Thread.sleep(1000);
       if (segmentDir.exists()) {
         LOGGER.info("Deleting the directory {} and recreating it again table {} ", segmentDir.getAbsolutePath(), tableName);
         FileUtils.deleteDirectory(segmentDir);
       }
-      LOGGER.info("Move the dir - " + tempSegmentFile.listFiles()[0] + " to "
+      LOGGER.info("Move the dir - " + untarredSegmentDir + " to "
           + segmentDir.getAbsolutePath() + " for " + segmentId + " of table " + tableName);
-      FileUtils.moveDirectory(tempSegmentFile.listFiles()[0], segmentDir);
+      FileUtils.moveDirectory(untarredSegmentDir, segmentDir);
       FileUtils.deleteDirectory(tempSegmentFile);
-      Thread.sleep(1000);
       LOGGER.info("Was able to succesfully rename the dir to match the segment {} for table {}", segmentId, tableName);
 
       new File(segmentDir, "finishedLoading").createNewFile();
@@ -284,6 +356,20 @@ public class SegmentFetcherAndLoader {
     }
   }
 
+  private void verifyCrc(File segmentDir, long expectedCrc, String segmentId, String tableName)
+      throws Exception {
+    if (expectedCrc == -1) {
+      // No CRC in the segment ZK metadata
+      return;
+    }
+    String crc = _metadataLoader.loadIndexSegmentMetadataFromDir(segmentDir.getAbsolutePath()).getCrc();
+    if (!String.valueOf(expectedCrc).equals(crc)) {
+      throw new IllegalStateException(
+          "CRC mismatch for downloaded segment " + segmentId + " of table " + tableName + ", expected: " + expectedCrc
+              + ", actual: " + crc);
+    }
+  }
+
   public String getSegmentLocalDirectory(String tableName, String segmentId) {
     return _dataManager.getSegmentDataDirectory() + "/" + tableName + "/" + segmentId;
   }
@@ -15,6 +15,7 @@
  */
 package com.linkedin.pinot.routing;
 
+import java.util.Collections;
 import java.util.Map;
 
 import com.linkedin.pinot.common.response.ServerInstance;
@@ -50,6 +51,12 @@ public class CfgBasedRouting implements RoutingTable {
     return cfg.buildRequestRoutingMap();
   }
 
+  @Override
+  public Map<ServerInstance, ServerInstance> findSpeculativeServers(String tableName,
+      Map<ServerInstance, SegmentIdSet> serverToSegmentSetMap) {
+    return Collections.emptyMap();
+  }
+
   @Override
   public boolean routingTableExists(String tableName) {
     Map<ServerInstance, SegmentIdSet> routingTableEntry = findServers(new RoutingTableLookupRequest(tableName, null));
@@ -16,9 +16,18 @@
 
 package com.linkedin.pinot.routing;
 
+import com.google.common.base.Splitter;
 import com.google.common.collect.Sets;
+import com.linkedin.pinot.common.config.AbstractTableConfig;
+import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
+import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.RealtimeSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentZKMetadata;
+import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.utils.EqualityUtils;
 import com.linkedin.pinot.common.utils.helix.HelixHelper;
+import com.linkedin.pinot.common.utils.request.RequestUtils;
 import com.linkedin.pinot.routing.builder.LargeClusterRoutingTableBuilder;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -30,7 +39,9 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import org.I0Itec.zkclient.IZkDataListener;
 import org.apache.commons.configuration.Configuration;
 import org.apache.helix.AccessOption;
 import org.apache.helix.HelixDataAccessor;
@@ -56,7 +67,9 @@ import com.linkedin.pinot.routing.builder.BalancedRandomRoutingTableBuilder;
 import com.linkedin.pinot.routing.builder.KafkaHighLevelConsumerBasedRoutingTableBuilder;
 import com.linkedin.pinot.routing.builder.KafkaLowLevelConsumerRoutingTableBuilder;
 import com.linkedin.pinot.routing.builder.RoutingTableBuilder;
+import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.common.ServerLatencyTracker;
 
 
 /*
@@ -77,6 +90,10 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   private static int MIN_SERVER_COUNT_FOR_LARGE_CLUSTER = 30;
   private static int MIN_REPLICA_COUNT_FOR_LARGE_CLUSTER = 4;
 
+  private static final String ADAPTIVE_ROUTING_ENABLED_CONFIG = "adaptiveRouting.enabled";
+  private static final String ADAPTIVE_ROUTING_SLOW_SERVER_SCORE_RATIO_CONFIG = "adaptiveRouting.slowServerScoreRatio";
+  private static final double DEFAULT_ADAPTIVE_ROUTING_SLOW_SERVER_SCORE_RATIO = 2.0;
+
   /*
    * _brokerRoutingTable has entries for offline as well as realtime tables. For the
    * realtime tables it has entries consisting of high-level kafka consumer segments only.
@@ -89,19 +106,45 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   private final Map<String, List<ServerToSegmentSetMap>> _llcBrokerRoutingTable =
       new ConcurrentHashMap<String, List<ServerToSegmentSetMap>>();
 
+  /*
+   * _segmentToServersMap has entries for offline as well as realtime tables, mapping each segment (both high-level
+   * and low-level kafka consumer segments for realtime tables) to all the servers hosting it. It is used to pick
+   * alternative replicas for adaptive routing and speculative requests.
+   */
+  private final Map<String, Map<SegmentId, List<ServerInstance>>> _segmentToServersMap = new ConcurrentHashMap<>();
+
+  /*
+   * _segmentPartitionMetadataMap has entries for the tables with segment partition config only, mapping each segment
+   * name to its partition metadata. It is used to prune the segments based on the query filter.
+   * Segments refreshed in place do not change the external view, so the ZK metadata of the segments of these tables
+   * is watched (segments in _watchedSegmentsMap), and the partition metadata of a segment is reloaded when it changes.
+   * Writes are synchronized on _segmentPartitionMetadataMap.
+   */
+  private final Map<String, Map<String, SegmentPartitionMetadata>> _segmentPartitionMetadataMap =
+      new ConcurrentHashMap<>();
+  private final Map<String, Set<String>> _watchedSegmentsMap = new HashMap<>();
+  private final SegmentZKMetadataChangeListener _segmentZKMetadataChangeListener =
+      new SegmentZKMetadataChangeListener();
+
   private final Map<String, Integer> _lastKnownExternalViewVersionMap = new ConcurrentHashMap<>();
   private final Map<String, Map<String, InstanceConfig>> _lastKnownInstanceConfigsForTable = new ConcurrentHashMap<>();
   private final Map<String, InstanceConfig> _lastKnownInstanceConfigs = new ConcurrentHashMap<>();
   private final Map<String, Set<String>> _tablesForInstance = new ConcurrentHashMap<>();
+  private final List<RoutingTableChangeListener> _routingTableChangeListeners = new CopyOnWriteArrayList<>();
 
   private final Random _random = new Random(System.currentTimeMillis());
   private final HelixExternalViewBasedTimeBoundaryService _timeBoundaryService;
   private final RoutingTableSelector _routingTableSelector;
   private final HelixManager _helixManager;
+  private final ZkHelixPropertyStore<ZNRecord> _propertyStore;
   private static final int INVALID_EXTERNAL_VIEW_VERSION = Integer.MIN_VALUE;
 
   private BrokerMetrics _brokerMetrics;
 
+  private final boolean _adaptiveRoutingEnabled;
+  private final double _slowServerScoreRatio;
+  private volatile LatencyAwareServerSelector _latencyAwareServerSelector;
+
   /**
    * Changes the small cluster routing builder, only used by tests.
    */
@@ -111,6 +154,7 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
 
   public HelixExternalViewBasedRouting(ZkHelixPropertyStore<ZNRecord> propertyStore,
       RoutingTableSelector routingTableSelector, HelixManager helixManager, Configuration configuration) {
+    _propertyStore = propertyStore;
     _timeBoundaryService = new HelixExternalViewBasedTimeBoundaryService(propertyStore);
     _largeClusterRoutingTableBuilder = new LargeClusterRoutingTableBuilder();
     _smallClusterRoutingTableBuilder = new BalancedRandomRoutingTableBuilder();
@@ -145,6 +189,12 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
       LOGGER.info("Using default value for large cluster min replica count of {}", MIN_REPLICA_COUNT_FOR_LARGE_CLUSTER);
     }
 
+    _adaptiveRoutingEnabled = configuration.getBoolean(ADAPTIVE_ROUTING_ENABLED_CONFIG, false);
+    _slowServerScoreRatio = configuration.getDouble(ADAPTIVE_ROUTING_SLOW_SERVER_SCORE_RATIO_CONFIG,
+        DEFAULT_ADAPTIVE_ROUTING_SLOW_SERVER_SCORE_RATIO);
+    LOGGER.info("Adaptive routing enabled: {}, slow server score ratio: {}", _adaptiveRoutingEnabled,
+        _slowServerScoreRatio);
+
     _largeClusterRoutingTableBuilder.init(configuration);
     _smallClusterRoutingTableBuilder.init(configuration);
     _realtimeHLCRoutingTableBuilder.init(configuration);
@@ -154,6 +204,23 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     _helixManager = helixManager;
   }
 
+  /**
+   * Registers a listener to be notified whenever the routing table of a table is rebuilt or removed.
+   */
+  public void addRoutingTableChangeListener(RoutingTableChangeListener routingTableChangeListener) {
+    _routingTableChangeListeners.add(routingTableChangeListener);
+  }
+
+  private void notifyRoutingTableChange(String tableName) {
+    for (RoutingTableChangeListener routingTableChangeListener : _routingTableChangeListeners) {
+      try {
+        routingTableChangeListener.onRoutingTableChange(tableName);
+      } catch (Exception e) {
+        LOGGER.error("Caught exception while notifying routing table change for table {}", tableName, e);
+      }
+    }
+  }
+
   @Override
   public Map<ServerInstance, SegmentIdSet> findServers(RoutingTableLookupRequest request) {
     String tableName = request.getTableName();
@@ -207,7 +274,39 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     if (serverToSegmentSetMaps == null || serverToSegmentSetMaps.isEmpty()) {
       return Collections.emptyMap();
     }
-    return serverToSegmentSetMaps.get(_random.nextInt(serverToSegmentSetMaps.size())).getRouting();
+    Map<ServerInstance, SegmentIdSet> routing =
+        serverToSegmentSetMaps.get(_random.nextInt(serverToSegmentSetMaps.size())).getRouting();
+
+    // Prune the segments based on the partition metadata if the table is partitioned.
+    BrokerRequest brokerRequest = request.getBrokerRequest();
+    if (brokerRequest != null && brokerRequest.getFilterQuery() != null) {
+      Map<String, SegmentPartitionMetadata> segmentPartitionMetadataMap = _segmentPartitionMetadataMap.get(tableName);
+      if (segmentPartitionMetadataMap != null) {
+        routing = PartitionAwareSegmentSelector.selectSegments(routing,
+            RequestUtils.generateFilterQueryTree(brokerRequest), segmentPartitionMetadataMap);
+      }
+    }
+
+    // Route segments away from the slow servers if adaptive routing is enabled.
+    LatencyAwareServerSelector latencyAwareServerSelector = _latencyAwareServerSelector;
+    if (_adaptiveRoutingEnabled && latencyAwareServerSelector != null) {
+      Map<SegmentId, List<ServerInstance>> segmentToServersMap = _segmentToServersMap.get(tableName);
+      if (segmentToServersMap != null) {
+        routing = latencyAwareServerSelector.selectServers(routing, segmentToServersMap);
+      }
+    }
+    return routing;
+  }
+
+  @Override
+  public Map<ServerInstance, ServerInstance> findSpeculativeServers(String tableName,
+      Map<ServerInstance, SegmentIdSet> serverToSegmentSetMap) {
+    LatencyAwareServerSelector latencyAwareServerSelector = _latencyAwareServerSelector;
+    Map<SegmentId, List<ServerInstance>> segmentToServersMap = _segmentToServersMap.get(tableName);
+    if (latencyAwareServerSelector == null || segmentToServersMap == null) {
+      return Collections.emptyMap();
+    }
+    return latencyAwareServerSelector.selectSpeculativeServers(serverToSegmentSetMap, segmentToServersMap);
   }
 
   @Override
@@ -234,6 +333,14 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     _brokerMetrics = brokerMetrics;
   }
 
+  /**
+   * Sets the server latency tracker used to route segments away from slow servers and to pick the servers for
+   * speculative requests.
+   */
+  public void setServerLatencyTracker(ServerLatencyTracker serverLatencyTracker) {
+    _latencyAwareServerSelector = new LatencyAwareServerSelector(serverLatencyTracker, _slowServerScoreRatio);
+  }
+
   @Override
   public void start() {
     LOGGER.info("Starting HelixExternalViewBasedRouting!");
@@ -380,6 +487,7 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
       updateInstanceConfigsMapFromRoutingTables(relevantInstanceConfigs, instanceConfigs, serverToSegmentSetMap);
 
       _brokerRoutingTable.put(tableName, serverToSegmentSetMap);
+      List<ServerToSegmentSetMap> allServerToSegmentSetMaps = new ArrayList<>(serverToSegmentSetMap);
 
       // If this is a realtime table, also build a LLC routing table
       if (CommonConstants.Helix.TableType.REALTIME.equals(tableType)) {
@@ -394,11 +502,16 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
           updateInstanceConfigsMapFromRoutingTables(relevantInstanceConfigs, instanceConfigs, llcserverToSegmentSetMap);
 
           _llcBrokerRoutingTable.put(tableName, llcserverToSegmentSetMap);
+          allServerToSegmentSetMaps.addAll(llcserverToSegmentSetMap);
         } catch (Exception e) {
           LOGGER.error("Failed to compute LLC routing table for {}. Ignoring", tableName, e);
         }
       }
 
+      _segmentToServersMap.put(tableName,
+          LatencyAwareServerSelector.buildSegmentToServersMap(allServerToSegmentSetMaps));
+      updateSegmentPartitionMetadata(tableName, tableType);
+
       // Save the instance configs used so that we can avoid unnecessary routing table updates later
       _lastKnownInstanceConfigsForTable.put(tableName, relevantInstanceConfigs);
       for (InstanceConfig instanceConfig : relevantInstanceConfigs.values()) {
@@ -473,6 +586,8 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
       LOGGER.error("Failed to update the TimeBoundaryService", e);
     }
 
+    notifyRoutingTableChange(tableName);
+
     long updateTime = System.currentTimeMillis() - startTimeMillis;
 
     if (_brokerMetrics != null) {
@@ -482,6 +597,153 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
     LOGGER.info("Routing table update for table {} completed in {} ms", tableName, updateTime);
   }
 
+  /**
+   * Reads the partition metadata of all the segments of the given table from the property store, only for tables with
+   * segment partition config.
+   */
+  private void updateSegmentPartitionMetadata(String tableName, CommonConstants.Helix.TableType tableType) {
+    if (_propertyStore == null) {
+      return;
+    }
+
+    synchronized (_segmentPartitionMetadataMap) {
+      try {
+        AbstractTableConfig tableConfig;
+        if (tableType == CommonConstants.Helix.TableType.OFFLINE) {
+          tableConfig = ZKMetadataProvider.getOfflineTableConfig(_propertyStore, tableName);
+        } else {
+          tableConfig = ZKMetadataProvider.getRealtimeTableConfig(_propertyStore, tableName);
+        }
+        if (tableConfig == null || tableConfig.getIndexingConfig().getSegmentPartitionConfig() == null) {
+          removeSegmentPartitionMetadata(tableName);
+          return;
+        }
+
+        // Bulk reading all segment zk-metadata at once is more efficient than reading one at a time.
+        List<? extends SegmentZKMetadata> segmentZKMetadataList;
+        if (tableType == CommonConstants.Helix.TableType.OFFLINE) {
+          segmentZKMetadataList =
+              ZKMetadataProvider.getOfflineSegmentZKMetadataListForTable(_propertyStore, tableName);
+        } else {
+          segmentZKMetadataList =
+              ZKMetadataProvider.getRealtimeSegmentZKMetadataListForTable(_propertyStore, tableName);
+        }
+        Set<String> watchedSegments = _watchedSegmentsMap.get(tableName);
+        if (watchedSegments == null) {
+          watchedSegments = new HashSet<>();
+          _watchedSegmentsMap.put(tableName, watchedSegments);
+        }
+        Set<String> segmentNames = new HashSet<>();
+        Map<String, SegmentPartitionMetadata> segmentPartitionMetadataMap = new ConcurrentHashMap<>();
+        for (SegmentZKMetadata segmentZKMetadata : segmentZKMetadataList) {
+          String segmentName = segmentZKMetadata.getSegmentName();
+          segmentNames.add(segmentName);
+          if (watchedSegments.add(segmentName)) {
+            _propertyStore.subscribeDataChanges(
+                ZKMetadataProvider.constructPropertyStorePathForSegment(tableName, segmentName),
+                _segmentZKMetadataChangeListener);
+          }
+          SegmentPartitionMetadata partitionMetadata = segmentZKMetadata.getPartitionMetadata();
+          if (partitionMetadata != null) {
+            segmentPartitionMetadataMap.put(segmentName, partitionMetadata);
+          }
+        }
+        Iterator<String> iterator = watchedSegments.iterator();
+        while (iterator.hasNext()) {
+          String segmentName = iterator.next();
+          if (!segmentNames.contains(segmentName)) {
+            _propertyStore.unsubscribeDataChanges(
+                ZKMetadataProvider.constructPropertyStorePathForSegment(tableName, segmentName),
+                _segmentZKMetadataChangeListener);
+            iterator.remove();
+          }
+        }
+        _segmentPartitionMetadataMap.put(tableName, segmentPartitionMetadataMap);
+      } catch (Exception e) {
+        // Do not prune the segments if the partition metadata cannot be read.
+        LOGGER.warn("Failed to update segment partition metadata for table {}", tableName, e);
+        removeSegmentPartitionMetadata(tableName);
+      }
+    }
+  }
+
+  /**
+   * Reloads the partition metadata of one segment of a partitioned table from the property store, removing it if the
+   * segment ZK metadata no longer exists.
+   */
+  private void updateSegmentPartitionMetadata(String tableName, String segmentName) {
+    synchronized (_segmentPartitionMetadataMap) {
+      Map<String, SegmentPartitionMetadata> segmentPartitionMetadataMap = _segmentPartitionMetadataMap.get(tableName);
+      if (segmentPartitionMetadataMap == null) {
+        // The table is not partitioned any more or has been removed.
+        return;
+      }
+      String segmentPath = ZKMetadataProvider.constructPropertyStorePathForSegment(tableName, segmentName);
+      SegmentPartitionMetadata partitionMetadata = null;
+      try {
+        ZNRecord znRecord = _propertyStore.get(segmentPath, null, AccessOption.PERSISTENT);
+        if (znRecord != null) {
+          if (TableNameBuilder.getTableTypeFromTableName(tableName) == CommonConstants.Helix.TableType.OFFLINE) {
+            partitionMetadata = new OfflineSegmentZKMetadata(znRecord).getPartitionMetadata();
+          } else {
+            partitionMetadata = new RealtimeSegmentZKMetadata(znRecord).getPartitionMetadata();
+          }
+        } else {
+          Set<String> watchedSegments = _watchedSegmentsMap.get(tableName);
+          if (watchedSegments != null && watchedSegments.remove(segmentName)) {
+            _propertyStore.unsubscribeDataChanges(segmentPath, _segmentZKMetadataChangeListener);
+          }
+        }
+      } catch (Exception e) {
+        // Do not prune the segment if its partition metadata cannot be read.
+        LOGGER.warn("Failed to update partition metadata for segment {} of table {}", segmentName, tableName, e);
+      }
+      if (partitionMetadata != null) {
+        segmentPartitionMetadataMap.put(segmentName, partitionMetadata);
+      } else {
+        segmentPartitionMetadataMap.remove(segmentName);
+      }
+    }
+  }
+
+  private void removeSegmentPartitionMetadata(String tableName) {
+    synchronized (_segmentPartitionMetadataMap) {
+      _segmentPartitionMetadataMap.remove(tableName);
+      Set<String> watchedSegments = _watchedSegmentsMap.remove(tableName);
+      if (watchedSegments != null) {
+        for (String segmentName : watchedSegments) {
+          _propertyStore.unsubscribeDataChanges(
+              ZKMetadataProvider.constructPropertyStorePathForSegment(tableName, segmentName),
+              _segmentZKMetadataChangeListener);
+        }
+      }
+    }
+  }
+
+  /**
+   * Reloads the partition metadata of a segment when its ZK metadata changes, e.g. when an offline segment is refreshed
+   * in place. The segment ZK metadata path ends with the table name and the segment name.
+   */
+  private class SegmentZKMetadataChangeListener implements IZkDataListener {
+    @Override
+    public void handleDataChange(String dataPath, Object data) {
+      handleSegmentZKMetadataChange(dataPath);
+    }
+
+    @Override
+    public void handleDataDeleted(String dataPath) {
+      handleSegmentZKMetadataChange(dataPath);
+    }
+
+    private void handleSegmentZKMetadataChange(String dataPath) {
+      List<String> zkPathParts = Splitter.on('/').splitToList(dataPath);
+      String tableName = zkPathParts.get(zkPathParts.size() - 2);
+      String segmentName = zkPathParts.get(zkPathParts.size() - 1);
+      LOGGER.info("Segment ZK metadata changed for segment {} of table {}", segmentName, tableName);
+      updateSegmentPartitionMetadata(tableName, segmentName);
+    }
+  }
+
   private boolean isLargeCluster(ExternalView externalView) {
     // Check if the number of replicas is sufficient to treat it as a large cluster
     final String helixReplicaCount = externalView.getRecord().getSimpleField("REPLICAS");
@@ -542,9 +804,14 @@ public class HelixExternalViewBasedRouting implements RoutingTable {
   public void markDataResourceOffline(String tableName) {
     LOGGER.info("Trying to remove data table from broker for {}", tableName);
     _brokerRoutingTable.remove(tableName);
+    _segmentToServersMap.remove(tableName);
+    if (_propertyStore != null) {
+      removeSegmentPartitionMetadata(tableName);
+    }
     _lastKnownExternalViewVersionMap.remove(tableName);
     _lastKnownInstanceConfigsForTable.remove(tableName);
     _timeBoundaryService.remove(tableName);
+    notifyRoutingTableChange(tableName);
 
     // Remove table from all instances
     synchronized (_tablesForInstance) {
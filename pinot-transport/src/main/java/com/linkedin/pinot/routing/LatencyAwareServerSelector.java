@@ -0,0 +1,224 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.routing;
+
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.common.ServerLatencyTracker;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * The <code>LatencyAwareServerSelector</code> class adjusts the server to segments mapping picked from the precomputed
+ * routing tables based on the latency scores tracked by the {@link ServerLatencyTracker}:
+ * <ul>
+ *   <li>
+ *     Servers with a score higher than the given ratio of the median score of the servers in the mapping are considered
+ *     slow, and their segments are moved to the other replicas which are not slow.
+ *   </li>
+ *   <li>
+ *     For speculative (hedged) requests, picks for each server in the mapping the fastest other server hosting all of
+ *     its segments.
+ *   </li>
+ * </ul>
+ * The mappings returned from the routing tables are shared across queries, so they are never modified in place.
+ */
+@ThreadSafe
+public class LatencyAwareServerSelector {
+  private final ServerLatencyTracker _serverLatencyTracker;
+  private final double _slowServerScoreRatio;
+  private final AtomicInteger _nextReplicaIndex = new AtomicInteger();
+
+  public LatencyAwareServerSelector(@Nonnull ServerLatencyTracker serverLatencyTracker, double slowServerScoreRatio) {
+    _serverLatencyTracker = serverLatencyTracker;
+    _slowServerScoreRatio = slowServerScoreRatio;
+  }
+
+  /**
+   * Build the map from segment to all the servers hosting the segment in any of the given routing tables.
+   */
+  @Nonnull
+  public static Map<SegmentId, List<ServerInstance>> buildSegmentToServersMap(
+      @Nonnull List<ServerToSegmentSetMap> serverToSegmentSetMaps) {
+    Map<SegmentId, List<ServerInstance>> segmentToServersMap = new HashMap<>();
+    for (ServerToSegmentSetMap serverToSegmentSetMap : serverToSegmentSetMaps) {
+      for (Map.Entry<ServerInstance, SegmentIdSet> entry : serverToSegmentSetMap.getRouting().entrySet()) {
+        ServerInstance server = entry.getKey();
+        for (SegmentId segmentId : entry.getValue().getSegments()) {
+          List<ServerInstance> servers = segmentToServersMap.get(segmentId);
+          if (servers == null) {
+            servers = new ArrayList<>();
+            segmentToServersMap.put(segmentId, servers);
+          }
+          if (!servers.contains(server)) {
+            servers.add(server);
+          }
+        }
+      }
+    }
+    return segmentToServersMap;
+  }
+
+  /**
+   * Move the segments of the slow servers in the given mapping to the other replicas.
+   *
+   * @param serverToSegmentsMap map from server to segments picked from the routing table.
+   * @param segmentToServersMap map from segment to all the servers hosting the segment.
+   * @return the given map if there is no slow server, or a new map with the segments of the slow servers moved.
+   */
+  @Nonnull
+  public Map<ServerInstance, SegmentIdSet> selectServers(@Nonnull Map<ServerInstance, SegmentIdSet> serverToSegmentsMap,
+      @Nonnull Map<SegmentId, List<ServerInstance>> segmentToServersMap) {
+    int numServers = serverToSegmentsMap.size();
+    if (numServers == 0) {
+      return serverToSegmentsMap;
+    }
+
+    // Compute the slow server threshold from the median score.
+    Map<ServerInstance, Double> scoreMap = new HashMap<>();
+    double[] scores = new double[numServers];
+    int index = 0;
+    for (ServerInstance server : serverToSegmentsMap.keySet()) {
+      scores[index++] = getScore(server, scoreMap);
+    }
+    Arrays.sort(scores);
+    double medianScore = scores[numServers / 2];
+    if (medianScore <= 0.0) {
+      // Not enough statistics yet.
+      return serverToSegmentsMap;
+    }
+    double threshold = medianScore * _slowServerScoreRatio;
+    if (scores[numServers - 1] <= threshold) {
+      return serverToSegmentsMap;
+    }
+
+    Map<ServerInstance, SegmentIdSet> selectedServers = new HashMap<>(numServers);
+    List<ServerInstance> slowServers = new ArrayList<>();
+    for (Map.Entry<ServerInstance, SegmentIdSet> entry : serverToSegmentsMap.entrySet()) {
+      ServerInstance server = entry.getKey();
+      if (scoreMap.get(server) > threshold) {
+        slowServers.add(server);
+      } else {
+        SegmentIdSet segmentIdSet = new SegmentIdSet();
+        segmentIdSet.addSegments(entry.getValue().getSegments());
+        selectedServers.put(server, segmentIdSet);
+      }
+    }
+
+    // Spread the segments of the slow servers across the replicas in a round-robin fashion.
+    List<ServerInstance> candidates = new ArrayList<>();
+    for (ServerInstance slowServer : slowServers) {
+      for (SegmentId segmentId : serverToSegmentsMap.get(slowServer).getSegments()) {
+        candidates.clear();
+        List<ServerInstance> replicas = segmentToServersMap.get(segmentId);
+        if (replicas != null) {
+          for (ServerInstance replica : replicas) {
+            if (!replica.equals(slowServer) && getScore(replica, scoreMap) <= threshold) {
+              candidates.add(replica);
+            }
+          }
+        }
+        ServerInstance selectedServer;
+        if (candidates.isEmpty()) {
+          // No better replica, keep the segment on the slow server.
+          selectedServer = slowServer;
+        } else {
+          int replicaIndex = (_nextReplicaIndex.getAndIncrement() & Integer.MAX_VALUE) % candidates.size();
+          selectedServer = candidates.get(replicaIndex);
+        }
+        SegmentIdSet segmentIdSet = selectedServers.get(selectedServer);
+        if (segmentIdSet == null) {
+          segmentIdSet = new SegmentIdSet();
+          selectedServers.put(selectedServer, segmentIdSet);
+        }
+        segmentIdSet.addSegment(segmentId);
+      }
+    }
+    return selectedServers;
+  }
+
+  /**
+   * For each server in the given mapping, pick the server with the lowest score among the other servers hosting all the
+   * segments of the server, to which a speculative request can be sent.
+   *
+   * @param serverToSegmentsMap map from server to segments to be queried.
+   * @param segmentToServersMap map from segment to all the servers hosting the segment.
+   * @return map from server to speculative server, servers without any other server hosting all their segments are not
+   * included.
+   */
+  @Nonnull
+  public Map<ServerInstance, ServerInstance> selectSpeculativeServers(
+      @Nonnull Map<ServerInstance, SegmentIdSet> serverToSegmentsMap,
+      @Nonnull Map<SegmentId, List<ServerInstance>> segmentToServersMap) {
+    Map<ServerInstance, ServerInstance> speculativeServers = new HashMap<>();
+    Map<ServerInstance, Double> scoreMap = new HashMap<>();
+    for (Map.Entry<ServerInstance, SegmentIdSet> entry : serverToSegmentsMap.entrySet()) {
+      ServerInstance server = entry.getKey();
+      Set<ServerInstance> candidates = null;
+      for (SegmentId segmentId : entry.getValue().getSegments()) {
+        List<ServerInstance> replicas = segmentToServersMap.get(segmentId);
+        if (replicas == null) {
+          candidates = Collections.emptySet();
+          break;
+        }
+        if (candidates == null) {
+          candidates = new HashSet<>(replicas);
+          candidates.remove(server);
+        } else {
+          candidates.retainAll(replicas);
+        }
+        if (candidates.isEmpty()) {
+          break;
+        }
+      }
+      if (candidates == null || candidates.isEmpty()) {
+        continue;
+      }
+
+      ServerInstance speculativeServer = null;
+      double minScore = Double.MAX_VALUE;
+      for (ServerInstance candidate : candidates) {
+        double score = getScore(candidate, scoreMap);
+        if (score < minScore) {
+          speculativeServer = candidate;
+          minScore = score;
+        }
+      }
+      speculativeServers.put(server, speculativeServer);
+    }
+    return speculativeServers;
+  }
+
+  private double getScore(ServerInstance server, Map<ServerInstance, Double> scoreMap) {
+    Double score = scoreMap.get(server);
+    if (score == null) {
+      score = _serverLatencyTracker.getScore(server);
+      scoreMap.put(server, score);
+    }
+    return score;
+  }
+}
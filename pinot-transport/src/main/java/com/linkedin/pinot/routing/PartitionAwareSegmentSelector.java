@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.routing;
+
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
+import com.linkedin.pinot.common.partition.PartitionPruningUtils;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+
+/**
+ * The <code>PartitionAwareSegmentSelector</code> class prunes the segments picked from the precomputed routing tables
+ * based on the partition metadata of the segments, so that queries with EQ or IN predicates on the partitioned columns
+ * are only routed to the segments (and servers) that may contain matching records. See {@link PartitionPruningUtils}
+ * for the pruning rules.
+ * The mappings returned from the routing tables are shared across queries, so they are never modified in place.
+ */
+public class PartitionAwareSegmentSelector {
+  private PartitionAwareSegmentSelector() {
+  }
+
+  /**
+   * Remove the segments that cannot match the query filter from the given mapping.
+   * If all the segments are pruned, one segment is kept so that the servers still return a well-formed empty result
+   * (the segment is pruned again on the server side).
+   *
+   * @param serverToSegmentsMap map from server to segments picked from the routing table.
+   * @param filterQueryTree filter of the query, null if the query has no filter.
+   * @param segmentToPartitionMetadataMap map from segment name to the partition metadata of the segment.
+   * @return the given map if no segment is pruned, or a new map with the pruned segments (and servers) removed.
+   */
+  @Nonnull
+  public static Map<ServerInstance, SegmentIdSet> selectSegments(
+      @Nonnull Map<ServerInstance, SegmentIdSet> serverToSegmentsMap, @Nullable FilterQueryTree filterQueryTree,
+      @Nonnull Map<String, SegmentPartitionMetadata> segmentToPartitionMetadataMap) {
+    if (filterQueryTree == null || segmentToPartitionMetadataMap.isEmpty()) {
+      return serverToSegmentsMap;
+    }
+
+    Map<ServerInstance, SegmentIdSet> selectedSegments = new HashMap<>();
+    boolean pruned = false;
+    for (Map.Entry<ServerInstance, SegmentIdSet> entry : serverToSegmentsMap.entrySet()) {
+      SegmentIdSet segmentIdSet = new SegmentIdSet();
+      for (SegmentId segmentId : entry.getValue().getSegments()) {
+        SegmentPartitionMetadata partitionMetadata = segmentToPartitionMetadataMap.get(segmentId.getSegmentId());
+        if (PartitionPruningUtils.canPrune(filterQueryTree, partitionMetadata)) {
+          pruned = true;
+        } else {
+          segmentIdSet.addSegment(segmentId);
+        }
+      }
+      if (segmentIdSet.getOneSegment() != null) {
+        selectedSegments.put(entry.getKey(), segmentIdSet);
+      }
+    }
+
+    if (!pruned) {
+      return serverToSegmentsMap;
+    }
+    if (selectedSegments.isEmpty()) {
+      for (Map.Entry<ServerInstance, SegmentIdSet> entry : serverToSegmentsMap.entrySet()) {
+        SegmentId segmentId = entry.getValue().getOneSegment();
+        if (segmentId != null) {
+          SegmentIdSet segmentIdSet = new SegmentIdSet();
+          segmentIdSet.addSegment(segmentId);
+          selectedSegments.put(entry.getKey(), segmentIdSet);
+          break;
+        }
+      }
+    }
+    return selectedSegments;
+  }
+}
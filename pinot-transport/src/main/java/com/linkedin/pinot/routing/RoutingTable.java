@@ -31,6 +31,17 @@ public interface RoutingTable {
    */
   Map<ServerInstance, SegmentIdSet> findServers(RoutingTableLookupRequest request);
 
+  /**
+   * Return for each server the server to which a speculative (hedged) request can be sent, i.e. another server hosting
+   * all the segments to be queried on the server. Servers without such a server are not included in the returned map.
+   *
+   * @param tableName The table name
+   * @param serverToSegmentSetMap Map from server to segments to be queried, as returned by findServers()
+   * @return Server to speculative server map.
+   */
+  Map<ServerInstance, ServerInstance> findSpeculativeServers(String tableName,
+      Map<ServerInstance, SegmentIdSet> serverToSegmentSetMap);
+
   /**
    * Returns whether or not a routing table exists and is not empty for a given table.
    *
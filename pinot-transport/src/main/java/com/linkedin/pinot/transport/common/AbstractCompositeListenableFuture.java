@@ -124,6 +124,7 @@ public abstract class AbstractCompositeListenableFuture<K, T> implements KeyedFu
     } finally {
       _futureLock.unlock();
     }
+    onDone();
 
     for (int i = 0; i < _pendingRunnable.size(); i++) {
       LOGGER.info("Running pending runnable :" + i);
@@ -138,6 +139,12 @@ public abstract class AbstractCompositeListenableFuture<K, T> implements KeyedFu
     _pendingRunnableExecutors.clear();
   }
 
+  /**
+   * Called after the future is marked complete (done or cancelled) and the latch is drained. No-op by default.
+   */
+  protected void onDone() {
+  }
+
   @Override
   public boolean isDone() {
     return _state.isCompleted();
@@ -15,10 +15,13 @@
  */
 package com.linkedin.pinot.transport.common;
 
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CountDownLatch;
@@ -42,6 +45,7 @@ import org.slf4j.LoggerFactory;
  * on them.
  *
  * This future's value will be a map of each future's key and the corresponding underlying future's value.
+ * Alternatively, the responses can be consumed one by one in the order they arrive with {@link #takeResponse()}.
  *
  * @param <K> Key to locate the specific future's value
  * @param <V> Value type of the underlying future
@@ -63,6 +67,10 @@ public class CompositeFuture<K, V> extends AbstractCompositeListenableFuture<K,
 
   private final ConcurrentMap<String, Long> _responseTimeMap = new ConcurrentHashMap<>(10);
 
+  // Keys of the responses not yet retrieved by takeResponse(), in the order they arrive. Also used as the monitor to
+  // wait for new responses.
+  private final Queue<K> _responseKeyQueue = new ArrayDeque<>();
+
   // Exception in case of error
   private final ConcurrentMap<K, Throwable> _errorMap;
 
@@ -174,6 +182,39 @@ public class CompositeFuture<K, V> extends AbstractCompositeListenableFuture<K,
     return _delayedResponseMap;
   }
 
+  /**
+   * Retrieves and removes the next response in the order the responses arrive, waiting if necessary until either a
+   * response arrives or this future completes. This allows the responses to be processed while waiting for the other
+   * underlying futures.
+   * <p>The retrieved response is removed from the composite response, so that it can be garbage collected once
+   * processed. Do not mix this method with {@link #get()}, which only returns the responses not yet retrieved.
+   *
+   * @return the next response keyed by its future's key, or null if this future is complete and all the responses
+   * have been retrieved.
+   */
+  public Map.Entry<K, V> takeResponse()
+      throws InterruptedException {
+    K key;
+    synchronized (_responseKeyQueue) {
+      while (_responseKeyQueue.isEmpty() && _latch.getCount() > 0) {
+        _responseKeyQueue.wait();
+      }
+      key = _responseKeyQueue.poll();
+    }
+    if (key == null) {
+      return null;
+    }
+    return new AbstractMap.SimpleImmutableEntry<>(key, _delayedResponseMap.remove(key));
+  }
+
+  @Override
+  protected void onDone() {
+    // Wake up the threads waiting in takeResponse().
+    synchronized (_responseKeyQueue) {
+      _responseKeyQueue.notifyAll();
+    }
+  }
+
   /**
    * This method must be called after the 'get' is called, so that all response times are recorded.
    * For now, this method has not been added to the interface.
@@ -189,6 +230,10 @@ public class CompositeFuture<K, V> extends AbstractCompositeListenableFuture<K,
     if (null != response) {
       LOGGER.debug("Response from {} is {}", name, response);
       _delayedResponseMap.putAll(response);
+      synchronized (_responseKeyQueue) {
+        _responseKeyQueue.addAll(response.keySet());
+        _responseKeyQueue.notifyAll();
+      }
     } else if (null != error) {
       LOGGER.debug("Error from {} is : {}", name, error);
       _errorMap.putAll(error);
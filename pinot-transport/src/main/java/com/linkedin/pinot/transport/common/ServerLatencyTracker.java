@@ -0,0 +1,161 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.common;
+
+import com.linkedin.pinot.common.metrics.MetricsHelper;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.yammer.metrics.core.Histogram;
+import com.yammer.metrics.core.MetricName;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+
+/**
+ * The <code>ServerLatencyTracker</code> class keeps track of the number of in-flight requests and the exponentially
+ * weighted moving average (EWMA) of the response latency for each server, as well as the latency distribution across
+ * all servers.
+ *
+ * The latency score of a server is the EWMA latency multiplied by one plus the number of in-flight requests, so that a
+ * server which stops responding (e.g. during a long GC pause) gets penalized as soon as requests pile up on it, before
+ * any response comes back. Servers are keyed by host name and port, so the OFFLINE and REALTIME instances of the same
+ * server share the same statistics.
+ */
+@ThreadSafe
+public class ServerLatencyTracker {
+  // Weight of the latest sample in the EWMA latency.
+  private static final double DEFAULT_EWMA_ALPHA = 0.2;
+  // Failed requests are accounted as responses with at least this latency.
+  private static final long ERROR_LATENCY_MS = 1000L;
+
+  private final double _ewmaAlpha;
+  private final ConcurrentHashMap<String, ServerStats> _serverStatsMap = new ConcurrentHashMap<>();
+  private final Histogram _latencyHistogram;
+
+  public ServerLatencyTracker(@Nullable MetricsRegistry metricsRegistry) {
+    this(metricsRegistry, DEFAULT_EWMA_ALPHA);
+  }
+
+  public ServerLatencyTracker(@Nullable MetricsRegistry metricsRegistry, double ewmaAlpha) {
+    _ewmaAlpha = ewmaAlpha;
+    // Use a biased histogram so that the latency percentiles favor recent responses.
+    _latencyHistogram =
+        MetricsHelper.newHistogram(metricsRegistry, new MetricName(ServerLatencyTracker.class, "ServerLatency"), true);
+  }
+
+  /**
+   * Record a request sent to the given server.
+   */
+  public void onRequestSent(@Nonnull ServerInstance server) {
+    getServerStats(server)._numInFlightRequests.incrementAndGet();
+  }
+
+  /**
+   * Record the completion of a request previously recorded by {@link #onRequestSent(ServerInstance)}.
+   *
+   * @param server server the request was sent to.
+   * @param latencyMs latency of the request, negative if unknown.
+   * @param isError whether the request failed (error, timeout or cancellation).
+   */
+  public void onRequestCompleted(@Nonnull ServerInstance server, long latencyMs, boolean isError) {
+    ServerStats serverStats = getServerStats(server);
+    serverStats._numInFlightRequests.decrementAndGet();
+    if (isError) {
+      serverStats.updateLatency(Math.max(latencyMs, ERROR_LATENCY_MS), _ewmaAlpha);
+    } else if (latencyMs >= 0) {
+      serverStats.updateLatency(latencyMs, _ewmaAlpha);
+      _latencyHistogram.update(latencyMs);
+    }
+  }
+
+  /**
+   * Get the latency score of the given server, the lower the better. Servers without any completed request have a score
+   * of 0.
+   */
+  public double getScore(@Nonnull ServerInstance server) {
+    ServerStats serverStats = _serverStatsMap.get(getKey(server));
+    if (serverStats == null) {
+      return 0.0;
+    }
+    return serverStats._ewmaLatencyMs * (1 + serverStats._numInFlightRequests.get());
+  }
+
+  /**
+   * Get the number of in-flight requests of the given server.
+   */
+  public int getNumInFlightRequests(@Nonnull ServerInstance server) {
+    ServerStats serverStats = _serverStatsMap.get(getKey(server));
+    if (serverStats == null) {
+      return 0;
+    }
+    return serverStats._numInFlightRequests.get();
+  }
+
+  /**
+   * Get the EWMA latency in milliseconds of the given server, or 0 if no request to the server has completed.
+   */
+  public double getEwmaLatencyMs(@Nonnull ServerInstance server) {
+    ServerStats serverStats = _serverStatsMap.get(getKey(server));
+    if (serverStats == null) {
+      return 0.0;
+    }
+    return serverStats._ewmaLatencyMs;
+  }
+
+  /**
+   * Get the given percentile (between 0 and 100) of the latency of successful responses across all servers, or 0 if no
+   * response has been recorded.
+   */
+  public double getLatencyPercentileMs(double percentile) {
+    return _latencyHistogram.getSnapshot().getValue(percentile / 100);
+  }
+
+  private ServerStats getServerStats(ServerInstance server) {
+    String key = getKey(server);
+    ServerStats serverStats = _serverStatsMap.get(key);
+    if (serverStats == null) {
+      serverStats = new ServerStats();
+      ServerStats existingServerStats = _serverStatsMap.putIfAbsent(key, serverStats);
+      if (existingServerStats != null) {
+        serverStats = existingServerStats;
+      }
+    }
+    return serverStats;
+  }
+
+  private static String getKey(ServerInstance server) {
+    return server.getHostname() + "_" + server.getPort();
+  }
+
+  private static class ServerStats {
+    final AtomicInteger _numInFlightRequests = new AtomicInteger();
+    volatile double _ewmaLatencyMs;
+    // Whether the EWMA latency has been initialized with the first sample.
+    boolean _initialized;
+
+    synchronized void updateLatency(long latencyMs, double ewmaAlpha) {
+      if (_initialized) {
+        _ewmaLatencyMs = ewmaAlpha * latencyMs + (1 - ewmaAlpha) * _ewmaLatencyMs;
+      } else {
+        _ewmaLatencyMs = latencyMs;
+        _initialized = true;
+      }
+    }
+  }
+}
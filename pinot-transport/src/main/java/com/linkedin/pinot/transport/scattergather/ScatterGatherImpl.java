@@ -22,6 +22,8 @@ import com.linkedin.pinot.common.metrics.MetricsHelper;
 import com.linkedin.pinot.common.metrics.MetricsHelper.TimerContext;
 import com.linkedin.pinot.common.request.BrokerRequest;
 import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.AsyncResponseFuture;
+import com.linkedin.pinot.transport.common.Cancellable;
 import com.linkedin.pinot.transport.common.CompositeFuture;
 import com.linkedin.pinot.transport.common.CompositeFuture.GatherModeOnError;
 import com.linkedin.pinot.transport.common.KeyedFuture;
@@ -29,6 +31,7 @@ import com.linkedin.pinot.transport.common.ReplicaSelection;
 import com.linkedin.pinot.transport.common.ReplicaSelectionGranularity;
 import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.common.ServerLatencyTracker;
 import com.linkedin.pinot.transport.netty.NettyClientConnection;
 import com.linkedin.pinot.transport.netty.NettyClientConnection.ResponseFuture;
 import com.linkedin.pinot.transport.pool.KeyedPool;
@@ -44,6 +47,9 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -72,9 +78,27 @@ public class ScatterGatherImpl implements ScatterGather {
    */
   private final KeyedPool<ServerInstance, NettyClientConnection> _connPool;
 
+  /**
+   * Optional tracker for the latency of the servers
+   */
+  private final ServerLatencyTracker _serverLatencyTracker;
+
+  /**
+   * Optional scheduler for the speculative requests, speculative requests are not sent without it
+   */
+  private final ScheduledExecutorService _speculativeRequestScheduler;
+
   public ScatterGatherImpl(KeyedPool<ServerInstance, NettyClientConnection> pool, ExecutorService service) {
+    this(pool, service, null, null);
+  }
+
+  public ScatterGatherImpl(KeyedPool<ServerInstance, NettyClientConnection> pool, ExecutorService service,
+      @Nullable ServerLatencyTracker serverLatencyTracker,
+      @Nullable ScheduledExecutorService speculativeRequestScheduler) {
     _connPool = pool;
     _executorService = service;
+    _serverLatencyTracker = serverLatencyTracker;
+    _speculativeRequestScheduler = speculativeRequestScheduler;
   }
 
   @Nonnull
@@ -158,8 +182,24 @@ public class ScatterGatherImpl implements ScatterGather {
     if (sentSuccessfully) {
       List<KeyedFuture<ServerInstance, ByteBuf>> responseFutures =
           new ArrayList<KeyedFuture<ServerInstance, ByteBuf>>();
+      Map<ServerInstance, ServerInstance> speculativeServers = null;
+      if (_speculativeRequestScheduler != null) {
+        speculativeServers = ctxt.getRequest().getSpeculativeServers();
+      }
       for (SingleRequestHandler h : handlers) {
-        responseFutures.add(h.getResponseFuture());
+        ResponseFuture responseFuture = h.getResponseFuture();
+        trackLatency(h.getServer(), responseFuture);
+        ServerInstance speculativeServer = null;
+        if (speculativeServers != null) {
+          speculativeServer = speculativeServers.get(h.getServer());
+        }
+        if (speculativeServer == null) {
+          responseFutures.add(responseFuture);
+        } else {
+          SpeculativeRequestHandler speculativeRequestHandler =
+              new SpeculativeRequestHandler(ctxt, h, mp.get(h.getServer()), speculativeServer, brokerMetrics);
+          responseFutures.add(speculativeRequestHandler.start(ctxt.getRequest().getSpeculativeRequestDelayMs()));
+        }
         String serverName = h.getServer().toString();
         if (isOfflineTable != null) {
           if (isOfflineTable) {
@@ -190,6 +230,23 @@ public class ScatterGatherImpl implements ScatterGather {
     return response;
   }
 
+  /**
+   * Record the request sent to the server and its completion in the server latency tracker if configured.
+   */
+  private void trackLatency(final ServerInstance server, final ResponseFuture responseFuture) {
+    if (_serverLatencyTracker == null) {
+      return;
+    }
+    _serverLatencyTracker.onRequestSent(server);
+    responseFuture.addListener(new Runnable() {
+      @Override
+      public void run() {
+        boolean isError = responseFuture.isCancelled() || responseFuture.getError() != null;
+        _serverLatencyTracker.onRequestCompleted(server, responseFuture.getDurationMillis(), isError);
+      }
+    }, null);
+  }
+
   /**
    * Merge segment-sets which have the same set of servers. If 2 segmentIds have overlapping
    * set of servers, they are not merged. If there is predefined-selection for a segmentId,
@@ -558,6 +615,172 @@ public class ScatterGatherImpl implements ScatterGather {
     }
   }
 
+  /**
+   * Handles the speculative (hedged) request for a server: the same request is sent to the speculative server if the
+   * response from the server does not arrive within the speculative request delay, or as soon as the request to the
+   * server fails. The first successful response completes the response future, which is keyed by the original server
+   * so that the gather side sees a single response for the segments, and the other request (or the speculative request
+   * not sent yet) is cancelled. The response future fails only if both requests fail.
+   */
+  private class SpeculativeRequestHandler {
+    private final ScatterGatherRequestContext _ctxt;
+    private final SingleRequestHandler _handler;
+    private final SegmentIdSet _segmentIds;
+    private final ServerInstance _speculativeServer;
+    private final BrokerMetrics _brokerMetrics;
+    private final AsyncResponseFuture<ServerInstance, ByteBuf> _responseFuture;
+
+    // Guarded by this
+    private boolean _isSpeculativeRequestSubmitted;
+    private int _numFailedRequests;
+    private Throwable _firstError;
+
+    private volatile ResponseFuture _speculativeResponseFuture;
+    private volatile ScheduledFuture<?> _scheduledSpeculativeRequest;
+
+    public SpeculativeRequestHandler(ScatterGatherRequestContext ctxt, SingleRequestHandler handler,
+        SegmentIdSet segmentIds, ServerInstance speculativeServer, BrokerMetrics brokerMetrics) {
+      _ctxt = ctxt;
+      _handler = handler;
+      _segmentIds = segmentIds;
+      _speculativeServer = speculativeServer;
+      _brokerMetrics = brokerMetrics;
+      _responseFuture = new AsyncResponseFuture<ServerInstance, ByteBuf>(handler.getServer(),
+          "Speculative response future for request " + ctxt.getRequest().getRequestId());
+    }
+
+    /**
+     * Start watching the response from the server and schedule the speculative request.
+     *
+     * @param delayMs delay in MS after which the speculative request is sent if no response has arrived.
+     * @return the response future keyed by the server.
+     */
+    public KeyedFuture<ServerInstance, ByteBuf> start(long delayMs) {
+      final ResponseFuture responseFuture = _handler.getResponseFuture();
+      _responseFuture.setCancellable(new Cancellable() {
+        @Override
+        public boolean cancel() {
+          cancelOtherRequests(null);
+          return true;
+        }
+      });
+      responseFuture.addListener(new Runnable() {
+        @Override
+        public void run() {
+          onResponse(responseFuture);
+        }
+      }, null);
+
+      try {
+        _scheduledSpeculativeRequest = _speculativeRequestScheduler.schedule(new Runnable() {
+          @Override
+          public void run() {
+            if (!_responseFuture.isDone()) {
+              submitSpeculativeRequest();
+            }
+          }
+        }, delayMs, TimeUnit.MILLISECONDS);
+      } catch (RejectedExecutionException e) {
+        LOGGER.warn("Failed to schedule speculative request ({}) to server {}", _ctxt.getRequest().getRequestId(),
+            _speculativeServer, e);
+      }
+      return _responseFuture;
+    }
+
+    private void onResponse(ResponseFuture responseFuture) {
+      // Cancelled through the response future, nothing to do.
+      if (responseFuture.isCancelled()) {
+        return;
+      }
+      Map<ServerInstance, Throwable> errorMap = responseFuture.getError();
+      if (errorMap != null && !errorMap.isEmpty()) {
+        onError(errorMap.values().iterator().next());
+        return;
+      }
+      try {
+        _responseFuture.onSuccess(responseFuture.getOne());
+      } catch (Exception e) {
+        // Not expected as the future is already completed.
+        onError(e);
+        return;
+      }
+      cancelOtherRequests(responseFuture);
+    }
+
+    /**
+     * Cancel the pending speculative request and the in-flight requests other than the given one.
+     *
+     * @param winner the request which got the response, or null to cancel all the requests.
+     */
+    private void cancelOtherRequests(@Nullable ResponseFuture winner) {
+      ScheduledFuture<?> scheduledSpeculativeRequest = _scheduledSpeculativeRequest;
+      if (scheduledSpeculativeRequest != null) {
+        scheduledSpeculativeRequest.cancel(false);
+      }
+      cancelRequest(_handler.getServer(), _handler.getResponseFuture(), winner);
+      cancelRequest(_speculativeServer, _speculativeResponseFuture, winner);
+    }
+
+    private void cancelRequest(ServerInstance server, @Nullable ResponseFuture responseFuture,
+        @Nullable ResponseFuture winner) {
+      if (responseFuture != null && responseFuture != winner && !responseFuture.isDone()) {
+        LOGGER.debug("Cancelling request ({}) to server {}", _ctxt.getRequest().getRequestId(), server);
+        responseFuture.cancel(true);
+      }
+    }
+
+    private synchronized void onError(Throwable error) {
+      _numFailedRequests++;
+      if (_firstError == null) {
+        _firstError = error;
+      }
+      if (!_isSpeculativeRequestSubmitted) {
+        // Retry on the speculative server right away.
+        submitSpeculativeRequest();
+      } else if (_numFailedRequests == 2) {
+        _responseFuture.onError(_firstError);
+      }
+    }
+
+    private synchronized void submitSpeculativeRequest() {
+      if (_isSpeculativeRequestSubmitted) {
+        return;
+      }
+      _isSpeculativeRequestSubmitted = true;
+      LOGGER.debug("Sending speculative request ({}) to server {} for server {}", _ctxt.getRequest().getRequestId(),
+          _speculativeServer, _handler.getServer());
+      _brokerMetrics.addMeteredQueryValue((BrokerRequest) _ctxt.getRequest().getBrokerRequest(),
+          BrokerMeter.SPECULATIVE_REQUESTS_SENT, 1);
+
+      final SingleRequestHandler speculativeHandler =
+          new SingleRequestHandler(_connPool, _speculativeServer, _ctxt.getRequest(), _segmentIds,
+              _ctxt.getTimeRemaining(), new CountDownLatch(1), _brokerMetrics);
+      try {
+        _executorService.submit(new Runnable() {
+          @Override
+          public void run() {
+            speculativeHandler.run();
+            final ResponseFuture speculativeResponseFuture = speculativeHandler.getResponseFuture();
+            _speculativeResponseFuture = speculativeResponseFuture;
+            // The response from the server might have won (or the gather side cancelled) while the request was sent.
+            if (_responseFuture.isDone()) {
+              cancelRequest(_speculativeServer, speculativeResponseFuture, null);
+            }
+            trackLatency(_speculativeServer, speculativeResponseFuture);
+            speculativeResponseFuture.addListener(new Runnable() {
+              @Override
+              public void run() {
+                onResponse(speculativeResponseFuture);
+              }
+            }, null);
+          }
+        });
+      } catch (RejectedExecutionException e) {
+        onError(e);
+      }
+    }
+  }
+
   public Histogram getLatency() {
     return _latency;
   }
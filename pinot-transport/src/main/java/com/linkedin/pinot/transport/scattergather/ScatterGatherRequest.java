@@ -78,6 +78,21 @@ public interface ScatterGatherRequest {
    */
   public int getNumSpeculativeRequests();
 
+  /**
+   * Return the map from server to the server to which a speculative (hedged) request with the same segments is sent if
+   * the response from the server does not arrive within {@link #getSpeculativeRequestDelayMs()}, or as soon as the
+   * request to the server fails. The first successful response is used. Servers not in the map do not get speculative
+   * requests.
+   * @return Server to speculative server map.
+   */
+  public Map<ServerInstance, ServerInstance> getSpeculativeServers();
+
+  /**
+   * Return the delay in MS after which the speculative requests are sent for the servers which have not responded.
+   * @return Speculative request delay in MS.
+   */
+  public long getSpeculativeRequestDelayMs();
+
   /**
    * Used for diagnostics, A predefined selection of service can be chosen for each segments
    * and sent to the Scatter-Gather. Scatter-Gather will honor such selection and do not override them.
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.routing;
+
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.common.ServerLatencyTracker;
+import com.yammer.metrics.core.MetricsRegistry;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class LatencyAwareServerSelectorTest {
+  private static final String SERVER_PREFIX = "Server_localhost_";
+
+  @Test
+  public void testSelectServers() {
+    // 3 servers, 3 segments, each segment hosted by 2 servers.
+    ServerToSegmentSetMap routingTable1 = buildRoutingTable(new String[][]{{"seg0"}, {"seg1"}, {"seg2"}});
+    ServerToSegmentSetMap routingTable2 = buildRoutingTable(new String[][]{{"seg1"}, {"seg2"}, {"seg0"}});
+    Map<SegmentId, List<ServerInstance>> segmentToServersMap =
+        LatencyAwareServerSelector.buildSegmentToServersMap(Arrays.asList(routingTable1, routingTable2));
+    Assert.assertEquals(segmentToServersMap.size(), 3);
+    Assert.assertEquals(segmentToServersMap.get(new SegmentId("seg0")).size(), 2);
+
+    ServerInstance server0 = new ServerInstance("localhost", 0);
+    ServerInstance server1 = new ServerInstance("localhost", 1);
+    ServerInstance server2 = new ServerInstance("localhost", 2);
+    ServerLatencyTracker tracker = new ServerLatencyTracker(new MetricsRegistry());
+    LatencyAwareServerSelector selector = new LatencyAwareServerSelector(tracker, 2.0);
+    Map<ServerInstance, SegmentIdSet> routing = routingTable1.getRouting();
+
+    // No statistics yet, routing should not change.
+    Assert.assertSame(selector.selectServers(routing, segmentToServersMap), routing);
+
+    recordLatency(tracker, server0, 10L);
+    recordLatency(tracker, server1, 10L);
+    recordLatency(tracker, server2, 10L);
+    Assert.assertSame(selector.selectServers(routing, segmentToServersMap), routing);
+
+    // Server 0 becomes slow, its segment should be moved to server 2.
+    recordLatency(tracker, server0, 1000L);
+    Map<ServerInstance, SegmentIdSet> selectedServers = selector.selectServers(routing, segmentToServersMap);
+    Assert.assertEquals(selectedServers.size(), 2);
+    Assert.assertFalse(selectedServers.containsKey(server0));
+    Assert.assertEquals(getSegments(selectedServers.get(server2)), new HashSet<>(Arrays.asList("seg0", "seg2")));
+    Assert.assertEquals(getSegments(selectedServers.get(server1)), new HashSet<>(Arrays.asList("seg1")));
+    // The shared routing table should not be modified.
+    Assert.assertEquals(getSegments(routing.get(server2)), new HashSet<>(Arrays.asList("seg2")));
+
+    // Server 2 hosts seg0 besides server 0.
+    Map<ServerInstance, ServerInstance> speculativeServers =
+        selector.selectSpeculativeServers(routing, segmentToServersMap);
+    Assert.assertEquals(speculativeServers.get(server0), server2);
+    Assert.assertEquals(speculativeServers.get(server1), server0);
+    Assert.assertEquals(speculativeServers.get(server2), server1);
+
+    // No other server hosts both seg1 and seg2.
+    Map<ServerInstance, SegmentIdSet> mergedRouting = new HashMap<>();
+    SegmentIdSet segmentIdSet = new SegmentIdSet();
+    segmentIdSet.addSegment(new SegmentId("seg1"));
+    segmentIdSet.addSegment(new SegmentId("seg2"));
+    mergedRouting.put(server1, segmentIdSet);
+    Assert.assertTrue(selector.selectSpeculativeServers(mergedRouting, segmentToServersMap).isEmpty());
+  }
+
+  private static ServerToSegmentSetMap buildRoutingTable(String[][] segmentsPerServer) {
+    Map<String, Set<String>> serverToSegmentSetMap = new HashMap<>();
+    for (int i = 0; i < segmentsPerServer.length; i++) {
+      serverToSegmentSetMap.put(SERVER_PREFIX + i, new HashSet<>(Arrays.asList(segmentsPerServer[i])));
+    }
+    return new ServerToSegmentSetMap(serverToSegmentSetMap);
+  }
+
+  private static void recordLatency(ServerLatencyTracker tracker, ServerInstance server, long latencyMs) {
+    tracker.onRequestSent(server);
+    tracker.onRequestCompleted(server, latencyMs, false);
+  }
+
+  private static Set<String> getSegments(SegmentIdSet segmentIdSet) {
+    return new HashSet<>(segmentIdSet.getSegmentsNameList());
+  }
+}
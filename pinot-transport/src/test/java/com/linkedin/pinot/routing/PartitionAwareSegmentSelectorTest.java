@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.routing;
+
+import com.linkedin.pinot.common.data.FieldSpec;
+import com.linkedin.pinot.common.metadata.segment.ColumnPartitionMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
+import com.linkedin.pinot.common.request.FilterOperator;
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.linkedin.pinot.common.utils.request.FilterQueryTree;
+import com.linkedin.pinot.transport.common.SegmentId;
+import com.linkedin.pinot.transport.common.SegmentIdSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class PartitionAwareSegmentSelectorTest {
+  private static final String COLUMN = "memberId";
+
+  @Test
+  public void testSelectSegments() {
+    ServerInstance server0 = new ServerInstance("localhost", 0);
+    ServerInstance server1 = new ServerInstance("localhost", 1);
+    Map<ServerInstance, SegmentIdSet> routing = new HashMap<>();
+    routing.put(server0, buildSegmentIdSet("seg0", "seg1"));
+    routing.put(server1, buildSegmentIdSet("seg2", "seg3"));
+
+    // Segment i contains partition i, segment 3 has no partition metadata.
+    Map<String, SegmentPartitionMetadata> segmentPartitionMetadataMap = new HashMap<>();
+    for (int i = 0; i < 3; i++) {
+      segmentPartitionMetadataMap.put("seg" + i, new SegmentPartitionMetadata(
+          Collections.singletonMap(COLUMN,
+              new ColumnPartitionMetadata("Modulo", 4, Collections.singletonList(i), FieldSpec.DataType.INT))));
+    }
+
+    // No filter, routing should not change.
+    Assert.assertSame(PartitionAwareSegmentSelector.selectSegments(routing, null, segmentPartitionMetadataMap),
+        routing);
+
+    // Filter on a column without partition metadata, routing should not change.
+    FilterQueryTree filterQueryTree = new FilterQueryTree("country", Collections.singletonList("us"),
+        FilterOperator.EQUALITY, null);
+    Assert.assertSame(
+        PartitionAwareSegmentSelector.selectSegments(routing, filterQueryTree, segmentPartitionMetadataMap), routing);
+
+    // memberId = 6 -> partition 2, server0 should be dropped.
+    filterQueryTree = new FilterQueryTree(COLUMN, Collections.singletonList("6"), FilterOperator.EQUALITY, null);
+    Map<ServerInstance, SegmentIdSet> selected =
+        PartitionAwareSegmentSelector.selectSegments(routing, filterQueryTree, segmentPartitionMetadataMap);
+    Assert.assertEquals(selected.size(), 1);
+    Assert.assertEquals(selected.get(server1), buildSegmentIdSet("seg2", "seg3"));
+
+    // memberId IN (4, 5) -> partitions 0 and 1, segment 3 cannot be pruned.
+    filterQueryTree = new FilterQueryTree(COLUMN, Collections.singletonList("4\t\t5"), FilterOperator.IN, null);
+    selected = PartitionAwareSegmentSelector.selectSegments(routing, filterQueryTree, segmentPartitionMetadataMap);
+    Assert.assertEquals(selected.size(), 2);
+    Assert.assertEquals(selected.get(server0), buildSegmentIdSet("seg0", "seg1"));
+    Assert.assertEquals(selected.get(server1), buildSegmentIdSet("seg3"));
+
+    // The shared routing should never be modified.
+    Assert.assertEquals(routing.get(server1), buildSegmentIdSet("seg2", "seg3"));
+  }
+
+  @Test
+  public void testAllSegmentsPruned() {
+    ServerInstance server0 = new ServerInstance("localhost", 0);
+    Map<ServerInstance, SegmentIdSet> routing = new HashMap<>();
+    routing.put(server0, buildSegmentIdSet("seg0"));
+    Map<String, SegmentPartitionMetadata> segmentPartitionMetadataMap = Collections.singletonMap("seg0",
+        new SegmentPartitionMetadata(Collections.singletonMap(COLUMN,
+            new ColumnPartitionMetadata("Modulo", 4, Collections.singletonList(0), FieldSpec.DataType.INT))));
+
+    // One segment should be kept so that the query still gets a well-formed empty response.
+    FilterQueryTree filterQueryTree =
+        new FilterQueryTree(COLUMN, Collections.singletonList("1"), FilterOperator.EQUALITY, null);
+    Map<ServerInstance, SegmentIdSet> selected =
+        PartitionAwareSegmentSelector.selectSegments(routing, filterQueryTree, segmentPartitionMetadataMap);
+    Assert.assertNotSame(selected, routing);
+    Assert.assertEquals(selected, routing);
+  }
+
+  private static SegmentIdSet buildSegmentIdSet(String... segmentNames) {
+    SegmentIdSet segmentIdSet = new SegmentIdSet();
+    for (String segmentName : segmentNames) {
+      segmentIdSet.addSegment(new SegmentId(segmentName));
+    }
+    return segmentIdSet;
+  }
+}
@@ -16,9 +16,14 @@
 package com.linkedin.pinot.routing;
 
 import com.linkedin.pinot.common.config.AbstractTableConfig;
+import com.linkedin.pinot.common.data.FieldSpec;
 import com.linkedin.pinot.common.metadata.ZKMetadataProvider;
+import com.linkedin.pinot.common.metadata.segment.ColumnPartitionMetadata;
 import com.linkedin.pinot.common.metadata.segment.OfflineSegmentZKMetadata;
+import com.linkedin.pinot.common.metadata.segment.SegmentPartitionMetadata;
 import com.linkedin.pinot.common.metrics.BrokerMetrics;
+import com.linkedin.pinot.common.request.BrokerRequest;
+import com.linkedin.pinot.pql.parsers.Pql2Compiler;
 import com.yammer.metrics.core.MetricsRegistry;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
@@ -143,6 +148,73 @@ public class RoutingTableTest {
     Assert.assertTrue(timeBoundaryUpdated.booleanValue());
   }
 
+  @Test
+  public void testPartitionMetadataRefresh() throws Exception {
+    final FakePropertyStore propertyStore = new FakePropertyStore();
+    String tableConfigJson = "{\"tableName\":\"myTable\",\"tableType\":\"OFFLINE\","
+        + "\"segmentsConfig\":{\"retentionTimeUnit\":\"DAYS\",\"retentionTimeValue\":\"5\","
+        + "\"segmentPushFrequency\":\"daily\",\"segmentPushType\":\"APPEND\",\"replication\":\"1\","
+        + "\"schemaName\":\"mySchema\",\"timeColumnName\":\"time\",\"timeType\":\"DAYS\"},"
+        + "\"tableIndexConfig\":{\"loadMode\":\"HEAP\",\"segmentPartitionConfig\":{\"columnPartitionMap\":"
+        + "{\"memberId\":{\"functionName\":\"Modulo\",\"numPartitions\":4}}}},"
+        + "\"tenants\":{\"broker\":\"myBroker\",\"server\":\"myServer\"},\"metadata\":{\"customConfigs\":{}}}";
+    propertyStore.setContents(ZKMetadataProvider.constructPropertyStorePathForResourceConfig("myTable_OFFLINE"),
+        AbstractTableConfig.toZnRecord(AbstractTableConfig.init(tableConfigJson)));
+
+    // Segment i contains partition i.
+    final ExternalView offlineExternalView = new ExternalView("myTable_OFFLINE");
+    for (int i = 0; i < 3; i++) {
+      String segmentName = "segment" + i;
+      propertyStore.setContents(ZKMetadataProvider.constructPropertyStorePathForSegment("myTable_OFFLINE", segmentName),
+          buildPartitionedSegmentZKMetadata(segmentName, i));
+      offlineExternalView.setState(segmentName, "Server_1.2.3.4_1234", "ONLINE");
+    }
+
+    HelixExternalViewBasedRouting routingTable = new HelixExternalViewBasedRouting(propertyStore, NO_LLC_ROUTING, null,
+        new BaseConfiguration()) {
+      @Override
+      protected ExternalView fetchExternalView(String table) {
+        return offlineExternalView;
+      }
+
+      @Override
+      protected void updateTimeBoundary(String tableName, ExternalView externalView) {
+      }
+    };
+    routingTable.setBrokerMetrics(new BrokerMetrics(new MetricsRegistry()));
+    routingTable.markDataResourceOnline("myTable_OFFLINE", offlineExternalView,
+        Collections.singletonList(new InstanceConfig("Server_1.2.3.4_1234")));
+
+    BrokerRequest brokerRequest = new Pql2Compiler().compileToBrokerRequest("SELECT * FROM myTable WHERE memberId = 2");
+    RoutingTableLookupRequest request =
+        new RoutingTableLookupRequest("myTable_OFFLINE", Collections.<String>emptyList(), brokerRequest);
+    Assert.assertEquals(getSegmentNames(routingTable.findServers(request)), "[segment2]");
+
+    // Refreshing segment1 in place does not change the external view, the routing should still pick up the new
+    // partitions from the segment ZK metadata.
+    propertyStore.setContents(ZKMetadataProvider.constructPropertyStorePathForSegment("myTable_OFFLINE", "segment1"),
+        buildPartitionedSegmentZKMetadata("segment1", 1, 2));
+    Assert.assertEquals(getSegmentNames(routingTable.findServers(request)), "[segment1, segment2]");
+  }
+
+  private static ZNRecord buildPartitionedSegmentZKMetadata(String segmentName, Integer... partitions) {
+    OfflineSegmentZKMetadata segmentZKMetadata = new OfflineSegmentZKMetadata();
+    segmentZKMetadata.setSegmentName(segmentName);
+    segmentZKMetadata.setTableName("myTable");
+    segmentZKMetadata.setPartitionMetadata(new SegmentPartitionMetadata(Collections.singletonMap("memberId",
+        new ColumnPartitionMetadata("Modulo", 4, Arrays.asList(partitions), FieldSpec.DataType.INT))));
+    return segmentZKMetadata.toZNRecord();
+  }
+
+  private static String getSegmentNames(Map<ServerInstance, SegmentIdSet> serversMap) {
+    List<String> segmentNames = new ArrayList<>();
+    for (SegmentIdSet segmentIdSet : serversMap.values()) {
+      segmentNames.addAll(segmentIdSet.getSegmentsNameList());
+    }
+    Collections.sort(segmentNames);
+    return segmentNames.toString();
+  }
+
   private void assertResourceRequest(HelixExternalViewBasedRouting routingTable, String resource,
       String expectedSegmentList, int expectedNumSegment) {
     RoutingTableLookupRequest request = new RoutingTableLookupRequest(resource, Collections.<String>emptyList());
@@ -456,7 +528,7 @@ public class RoutingTableTest {
 
   class FakePropertyStore extends ZkHelixPropertyStore<ZNRecord> {
     private Map<String, ZNRecord> _contents = new HashMap<>();
-    private IZkDataListener _listener = null;
+    private Map<String, IZkDataListener> _listeners = new HashMap<>();
 
     public FakePropertyStore() {
       super((ZkBaseDataAccessor<ZNRecord>) null, null, null);
@@ -467,15 +539,43 @@ public class RoutingTableTest {
       return _contents.get(path);
     }
 
+    @Override
+    public boolean exists(String path, int options) {
+      for (String contentPath : _contents.keySet()) {
+        if (contentPath.equals(path) || contentPath.startsWith(path + "/")) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public List<ZNRecord> getChildren(String parentPath, List<Stat> stats, int options) {
+      List<ZNRecord> children = new ArrayList<>();
+      for (Map.Entry<String, ZNRecord> entry : _contents.entrySet()) {
+        String contentPath = entry.getKey();
+        if (contentPath.startsWith(parentPath + "/") && contentPath.indexOf('/', parentPath.length() + 1) == -1) {
+          children.add(entry.getValue());
+        }
+      }
+      return children;
+    }
+
     @Override
     public void subscribeDataChanges(String path, IZkDataListener listener) {
-      _listener = listener;
+      _listeners.put(path, listener);
+    }
+
+    @Override
+    public void unsubscribeDataChanges(String path, IZkDataListener listener) {
+      _listeners.remove(path);
     }
 
     public void setContents(String path, ZNRecord contents) throws Exception {
       _contents.put(path, contents);
-      if (_listener != null) {
-        _listener.handleDataChange(path, contents);
+      IZkDataListener listener = _listeners.get(path);
+      if (listener != null) {
+        listener.handleDataChange(path, contents);
       }
     }
 
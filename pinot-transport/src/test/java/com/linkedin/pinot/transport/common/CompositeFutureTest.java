@@ -232,6 +232,54 @@ public class CompositeFutureTest {
     executor.shutdown();
   }
 
+  @Test
+  /**
+   * Take the responses one by one as they arrive, then get null after the composite future completes with an error.
+   * @throws Exception
+   */
+  public void testTakeResponse() throws Exception {
+    int numFutures = 3;
+    final Map<String, KeyedFuture<String, String>> futureMap = new HashMap<String, KeyedFuture<String, String>>();
+    for (int i = 0; i < numFutures; i++) {
+      String key = "key_" + i;
+      futureMap.put(key, new AsyncResponseFuture<String, String>(key, ""));
+    }
+    CompositeFuture<String, String> compositeFuture =
+        new CompositeFuture<String, String>("a", GatherModeOnError.SHORTCIRCUIT_AND);
+    compositeFuture.start(futureMap.values());
+
+    ((AsyncResponseFuture<String, String>) futureMap.get("key_1")).onSuccess("message_1");
+    Map.Entry<String, String> response = compositeFuture.takeResponse();
+    Assert.assertEquals(response.getKey(), "key_1");
+    Assert.assertEquals(response.getValue(), "message_1");
+
+    ((AsyncResponseFuture<String, String>) futureMap.get("key_0")).onSuccess("message_0");
+    response = compositeFuture.takeResponse();
+    Assert.assertEquals(response.getKey(), "key_0");
+    Assert.assertEquals(response.getValue(), "message_0");
+
+    // The error completes the composite future, which should wake up the thread waiting for the next response.
+    ThreadPoolExecutor executor =
+        new ThreadPoolExecutor(1, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(100);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        ((AsyncResponseFuture<String, String>) futureMap.get("key_2")).onError(new Exception("Exception"));
+      }
+    });
+    Assert.assertNull(compositeFuture.takeResponse());
+    Assert.assertTrue(compositeFuture.isDone());
+    Assert.assertTrue(compositeFuture.getError().containsKey("key_2"));
+    // Taken responses are removed from the composite response.
+    Assert.assertTrue(compositeFuture.get().isEmpty());
+    executor.shutdown();
+  }
+
   @Test
   /**
    * 100 futures, we get responses from 5 and then get an error. stopOnFirstError = true
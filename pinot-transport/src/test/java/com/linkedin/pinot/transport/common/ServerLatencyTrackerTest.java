@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2014-2016 LinkedIn Corp. (pinot-core@linkedin.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.linkedin.pinot.transport.common;
+
+import com.linkedin.pinot.common.response.ServerInstance;
+import com.yammer.metrics.core.MetricsRegistry;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+
+public class ServerLatencyTrackerTest {
+
+  @Test
+  public void testTrackLatency() {
+    ServerLatencyTracker tracker = new ServerLatencyTracker(new MetricsRegistry(), 0.5);
+    ServerInstance server = new ServerInstance("localhost", 8098);
+    // Same host and port, different sequence (e.g. REALTIME instance), should share the statistics.
+    ServerInstance realtimeServer = new ServerInstance("localhost", 8098, 1);
+    ServerInstance unknownServer = new ServerInstance("localhost", 8099);
+
+    Assert.assertEquals(tracker.getScore(unknownServer), 0.0);
+    Assert.assertEquals(tracker.getLatencyPercentileMs(99), 0.0);
+
+    tracker.onRequestSent(server);
+    Assert.assertEquals(tracker.getNumInFlightRequests(realtimeServer), 1);
+    tracker.onRequestCompleted(server, 10L, false);
+    Assert.assertEquals(tracker.getNumInFlightRequests(server), 0);
+    Assert.assertEquals(tracker.getEwmaLatencyMs(server), 10.0);
+    Assert.assertEquals(tracker.getScore(server), 10.0);
+
+    tracker.onRequestSent(realtimeServer);
+    tracker.onRequestCompleted(realtimeServer, 20L, false);
+    Assert.assertEquals(tracker.getEwmaLatencyMs(server), 15.0);
+
+    // In-flight requests increase the score before any response comes back.
+    tracker.onRequestSent(server);
+    tracker.onRequestSent(server);
+    Assert.assertEquals(tracker.getScore(server), 45.0);
+
+    // Errors are penalized, and not accounted in the latency percentiles.
+    tracker.onRequestCompleted(server, -1L, true);
+    Assert.assertEquals(tracker.getEwmaLatencyMs(server), 507.5);
+    tracker.onRequestCompleted(server, 30L, false);
+    Assert.assertEquals(tracker.getNumInFlightRequests(server), 0);
+    Assert.assertEquals(tracker.getLatencyPercentileMs(100), 30.0);
+  }
+}
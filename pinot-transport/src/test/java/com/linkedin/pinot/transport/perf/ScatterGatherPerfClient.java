@@ -19,6 +19,7 @@ import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -479,6 +480,16 @@ public class ScatterGatherPerfClient implements Runnable {
       return 0;
     }
 
+    @Override
+    public Map<ServerInstance, ServerInstance> getSpeculativeServers() {
+      return Collections.emptyMap();
+    }
+
+    @Override
+    public long getSpeculativeRequestDelayMs() {
+      return 0;
+    }
+
     @Override
     public BucketingSelection getPredefinedSelection() {
       return null;
@@ -19,9 +19,11 @@ import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.netty.channel.ChannelHandlerContext;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.ScheduledExecutorService;
@@ -44,6 +46,7 @@ import com.linkedin.pinot.transport.common.ReplicaSelectionGranularity;
 import com.linkedin.pinot.transport.common.RoundRobinReplicaSelection;
 import com.linkedin.pinot.transport.common.SegmentId;
 import com.linkedin.pinot.transport.common.SegmentIdSet;
+import com.linkedin.pinot.transport.common.ServerLatencyTracker;
 import com.linkedin.pinot.transport.metrics.NettyClientMetrics;
 import com.linkedin.pinot.transport.netty.NettyClientConnection;
 import com.linkedin.pinot.transport.netty.NettyServer.RequestHandler;
@@ -607,6 +610,181 @@ public class ScatterGatherTest {
     server4.shutdownGracefully();
   }
 
+  @Test
+  public void testSpeculativeRequestOnSlowServer() throws Exception {
+    // The server does not respond within the speculative request delay, so the speculative server answers instead.
+    SpeculativeRequestResult result =
+        sendSpeculativeRequest(7101, new TestRequestHandlerFactory(0, 1, 3000, false), 7102,
+            new TestRequestHandlerFactory(1, 1), 100);
+    Assert.assertEquals(result._response, "response_1_0");
+    Assert.assertTrue(result._timeMs < 3000, "Time: " + result._timeMs);
+    Assert.assertEquals(result._tracker.getNumRequestsSent(result._speculativeServer), 1);
+    // The losing request to the slow server is cancelled instead of waiting for its response.
+    Assert.assertEquals(result._tracker.isError(result._server), Boolean.TRUE);
+    Assert.assertEquals(result._tracker.isError(result._speculativeServer), Boolean.FALSE);
+  }
+
+  @Test
+  public void testSpeculativeRequestOnFastServer() throws Exception {
+    // The server responds within the speculative request delay, so the speculative request is never sent.
+    SpeculativeRequestResult result =
+        sendSpeculativeRequest(7103, new TestRequestHandlerFactory(0, 1), 7104, new TestRequestHandlerFactory(1, 1),
+            5000);
+    Assert.assertEquals(result._response, "response_0_0");
+    Assert.assertTrue(result._timeMs < 5000, "Time: " + result._timeMs);
+    Assert.assertEquals(result._tracker.getNumRequestsSent(result._speculativeServer), 0);
+    // The scheduled speculative request is cancelled once the server responds.
+    Assert.assertEquals(result._numScheduledSpeculativeRequests, 0);
+  }
+
+  @Test
+  public void testSpeculativeRequestOnServerError() throws Exception {
+    // The request to the server fails, so the speculative request is sent right away instead of after the delay.
+    SpeculativeRequestResult result =
+        sendSpeculativeRequest(7105, new TestRequestHandlerFactory(0, 1, 0, true), 7106,
+            new TestRequestHandlerFactory(1, 1), 5000);
+    Assert.assertEquals(result._response, "response_1_0");
+    Assert.assertTrue(result._timeMs < 5000, "Time: " + result._timeMs);
+    Assert.assertTrue(result._errorMap.isEmpty());
+  }
+
+  @Test
+  public void testSpeculativeRequestOnBothServersError() throws Exception {
+    // Both requests fail, the error is reported for the server and not for the speculative server.
+    SpeculativeRequestResult result =
+        sendSpeculativeRequest(7107, new TestRequestHandlerFactory(0, 1, 0, true), 7108,
+            new TestRequestHandlerFactory(1, 1, 0, true), 100);
+    Assert.assertNull(result._response);
+    Assert.assertEquals(result._errorMap.size(), 1);
+    Assert.assertNotNull(result._errorMap.get(result._server));
+    Assert.assertEquals(result._tracker.getNumRequestsSent(result._speculativeServer), 1);
+  }
+
+  /**
+   * Helper method to send a request with segment "0" to the server, with the speculative server as the replica for the
+   * speculative request.
+   */
+  private SpeculativeRequestResult sendSpeculativeRequest(int serverPort,
+      TestRequestHandlerFactory serverHandlerFactory, int speculativeServerPort, TestRequestHandlerFactory speculativeServerHandlerFactory,
+      long speculativeRequestDelayMs) throws Exception {
+    MetricsRegistry registry = new MetricsRegistry();
+
+    // Server start
+    NettyTCPServer server = new NettyTCPServer(serverPort, serverHandlerFactory, null);
+    NettyTCPServer speculativeServer = new NettyTCPServer(speculativeServerPort, speculativeServerHandlerFactory, null);
+    new Thread(server).start();
+    new Thread(speculativeServer).start();
+
+    //Client setup
+    ScheduledExecutorService timedExecutor = new ScheduledThreadPoolExecutor(1);
+    ScheduledThreadPoolExecutor speculativeRequestScheduler = new ScheduledThreadPoolExecutor(1);
+    speculativeRequestScheduler.setRemoveOnCancelPolicy(true);
+    ExecutorService service = new ThreadPoolExecutor(5, 5, 5, TimeUnit.DAYS, new LinkedBlockingDeque<Runnable>());
+    EventLoopGroup eventLoopGroup = new NioEventLoopGroup();
+    NettyClientMetrics clientMetrics = new NettyClientMetrics(registry, "client_");
+    PooledNettyClientResourceManager rm =
+        new PooledNettyClientResourceManager(eventLoopGroup, new HashedWheelTimer(), clientMetrics);
+    KeyedPoolImpl<ServerInstance, NettyClientConnection> pool =
+        new KeyedPoolImpl<ServerInstance, NettyClientConnection>(1, 1, 300000, 1, rm, timedExecutor, service, registry);
+    rm.setPool(pool);
+
+    SpeculativeRequestResult result = new SpeculativeRequestResult();
+    result._server = new ServerInstance("localhost", serverPort);
+    result._speculativeServer = new ServerInstance("localhost", speculativeServerPort);
+    result._tracker = new RecordingServerLatencyTracker();
+
+    SegmentIdSet pg = new SegmentIdSet();
+    pg.addSegment(new SegmentId("0"));
+    Map<ServerInstance, SegmentIdSet> pgMap = new HashMap<ServerInstance, SegmentIdSet>();
+    pgMap.put(result._server, pg);
+    Map<SegmentIdSet, String> pgMapStr = new HashMap<SegmentIdSet, String>();
+    pgMapStr.put(pg, "request_0");
+    ScatterGatherRequest req =
+        new TestScatterGatherRequest(pgMap, pgMapStr, new RoundRobinReplicaSelection(),
+            ReplicaSelectionGranularity.SEGMENT_ID_SET, 0, 10000,
+            Collections.singletonMap(result._server, result._speculativeServer), speculativeRequestDelayMs);
+    ScatterGatherImpl scImpl = new ScatterGatherImpl(pool, service, result._tracker, speculativeRequestScheduler);
+
+    long startTime = System.currentTimeMillis();
+    CompositeFuture<ServerInstance, ByteBuf> fut =
+        scImpl.scatterGather(req, new ScatterGatherStats(), new BrokerMetrics(new MetricsRegistry()));
+    Map<ServerInstance, ByteBuf> v = fut.get();
+    result._timeMs = System.currentTimeMillis() - startTime;
+    if (v != null && v.get(result._server) != null) {
+      ByteBuf b = v.get(result._server);
+      byte[] b2 = new byte[b.readableBytes()];
+      b.readBytes(b2);
+      result._response = new String(b2);
+    }
+    result._errorMap = fut.getError();
+    // The other requests are cancelled right after the response future completes.
+    result._tracker.awaitCompletions(1000);
+    long deadline = System.currentTimeMillis() + 1000;
+    while (!speculativeRequestScheduler.getQueue().isEmpty() && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    result._numScheduledSpeculativeRequests = speculativeRequestScheduler.getQueue().size();
+
+    pool.shutdown();
+    service.shutdown();
+    speculativeRequestScheduler.shutdown();
+    eventLoopGroup.shutdownGracefully();
+    server.shutdownGracefully();
+    speculativeServer.shutdownGracefully();
+    return result;
+  }
+
+  private static class SpeculativeRequestResult {
+    ServerInstance _server;
+    ServerInstance _speculativeServer;
+    RecordingServerLatencyTracker _tracker;
+    String _response;
+    Map<ServerInstance, Throwable> _errorMap;
+    long _timeMs;
+    int _numScheduledSpeculativeRequests;
+  }
+
+  /**
+   * Server latency tracker which records the requests sent to each server and whether they failed.
+   */
+  private static class RecordingServerLatencyTracker extends ServerLatencyTracker {
+    private final Map<ServerInstance, AtomicInteger> _numRequestsSent =
+        new ConcurrentHashMap<ServerInstance, AtomicInteger>();
+    private final Map<ServerInstance, Boolean> _isError = new ConcurrentHashMap<ServerInstance, Boolean>();
+
+    public RecordingServerLatencyTracker() {
+      super(null);
+    }
+
+    @Override
+    public void onRequestSent(ServerInstance server) {
+      _numRequestsSent.put(server, new AtomicInteger(getNumRequestsSent(server) + 1));
+      super.onRequestSent(server);
+    }
+
+    @Override
+    public void onRequestCompleted(ServerInstance server, long latencyMs, boolean isError) {
+      _isError.put(server, isError);
+      super.onRequestCompleted(server, latencyMs, isError);
+    }
+
+    public int getNumRequestsSent(ServerInstance server) {
+      AtomicInteger numRequestsSent = _numRequestsSent.get(server);
+      return numRequestsSent == null ? 0 : numRequestsSent.get();
+    }
+
+    public Boolean isError(ServerInstance server) {
+      return _isError.get(server);
+    }
+
+    public void awaitCompletions(long timeoutMs) throws InterruptedException {
+      long deadline = System.currentTimeMillis() + timeoutMs;
+      while (_isError.size() < _numRequestsSent.size() && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+    }
+  }
+
   public static class TestRequestHandlerFactory implements RequestHandlerFactory {
     public final int _numRequests;
     public final int _id;
@@ -687,6 +865,8 @@ public class ScatterGatherTest {
     private final ReplicaSelectionGranularity _granularity;
     private final int _numSpeculativeRequests;
     private final int _timeoutMS;
+    private final Map<ServerInstance, ServerInstance> _speculativeServers;
+    private final long _speculativeRequestDelayMs;
 
     public TestScatterGatherRequest(Map<ServerInstance, SegmentIdSet> partitionServicesMap,
         Map<SegmentIdSet, String> responsesMap) {
@@ -696,17 +876,29 @@ public class ScatterGatherTest {
       _granularity = ReplicaSelectionGranularity.SEGMENT_ID_SET;
       _numSpeculativeRequests = 0;
       _timeoutMS = 10000;
+      _speculativeServers = Collections.emptyMap();
+      _speculativeRequestDelayMs = 0;
     }
 
     public TestScatterGatherRequest(Map<ServerInstance, SegmentIdSet> partitionServicesMap,
         Map<SegmentIdSet, String> responsesMap, ReplicaSelection replicaSelection,
         ReplicaSelectionGranularity granularity, int numSpeculativeRequests, int timeoutMS) {
+      this(partitionServicesMap, responsesMap, replicaSelection, granularity, numSpeculativeRequests, timeoutMS,
+          Collections.<ServerInstance, ServerInstance>emptyMap(), 0);
+    }
+
+    public TestScatterGatherRequest(Map<ServerInstance, SegmentIdSet> partitionServicesMap,
+        Map<SegmentIdSet, String> responsesMap, ReplicaSelection replicaSelection,
+        ReplicaSelectionGranularity granularity, int numSpeculativeRequests, int timeoutMS,
+        Map<ServerInstance, ServerInstance> speculativeServers, long speculativeRequestDelayMs) {
       _partitionServicesMap = partitionServicesMap;
       _responsesMap = responsesMap;
       _replicaSelection = replicaSelection;
       _granularity = granularity;
       _numSpeculativeRequests = numSpeculativeRequests;
       _timeoutMS = timeoutMS;
+      _speculativeServers = speculativeServers;
+      _speculativeRequestDelayMs = speculativeRequestDelayMs;
     }
 
     @Override
@@ -740,6 +932,16 @@ public class ScatterGatherTest {
       return _numSpeculativeRequests;
     }
 
+    @Override
+    public Map<ServerInstance, ServerInstance> getSpeculativeServers() {
+      return _speculativeServers;
+    }
+
+    @Override
+    public long getSpeculativeRequestDelayMs() {
+      return _speculativeRequestDelayMs;
+    }
+
     @Override
     public BucketingSelection getPredefinedSelection() {
       return null;